@@ -0,0 +1,525 @@
+package com.example.speakup;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Continuous AAC recorder built on {@link AudioRecord} and a {@link MediaCodec} encoder.
+ * <p>
+ * Unlike {@link MediaRecorder}, which must be torn down and recreated on every pause,
+ * this recorder keeps the encoder alive for the whole session. Pausing only stops reading
+ * from the microphone, and resuming restarts it on the same {@link AudioRecord}, so both
+ * are near-instant. Encoded frames are written incrementally as a single ADTS stream (the
+ * same container MediaRecorder's AAC_ADTS output uses), so the file is playable at any
+ * point and finishing the recording only needs to flush the last frames.
+ * </p>
+ * <p>
+ * The microphone and the encoder are only touched by the worker thread once it runs;
+ * {@link #pause()} and {@link #resume()} just signal it.
+ * </p>
+ */
+public class AacStreamRecorder {
+    /**
+     * Listener notified with every encoded frame as soon as the encoder produces it.
+     */
+    public interface FrameListener {
+        /**
+         * Called on the recording thread for every encoded frame.
+         *
+         * @param adtsFrame The frame, including its 7-byte ADTS header.
+         */
+        void onFrame(byte[] adtsFrame);
+    }
+
+    /**
+     * Timeout used when waiting for encoder buffers, in microseconds.
+     */
+    private static final long CODEC_TIMEOUT_US = 10000;
+
+    /**
+     * Maximum time {@link #pause()} waits for pending frames to be written, in milliseconds.
+     */
+    private static final long PAUSE_FLUSH_TIMEOUT_MS = 500;
+
+    /**
+     * Maximum time the worker spends draining the encoder on a pause, in milliseconds.
+     * Shorter than {@link #PAUSE_FLUSH_TIMEOUT_MS} so {@link #pause()} sees the drain finish.
+     */
+    private static final long PAUSE_DRAIN_TIMEOUT_MS = 400;
+
+    /**
+     * Number of PCM frames (samples per channel) in one AAC frame.
+     */
+    static final int SAMPLES_PER_FRAME = 1024;
+
+    /**
+     * Sampling rates in the order of their ADTS frequency index.
+     */
+    private static final int[] ADTS_SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+
+    /**
+     * The file the ADTS stream is written to.
+     */
+    private final File outputFile;
+
+    /**
+     * The sampling rate, in Hz.
+     */
+    private final int sampleRate;
+
+    /**
+     * The number of audio channels (1 for mono).
+     */
+    private final int channelCount;
+
+    /**
+     * The target encoder bit rate, in bits per second.
+     */
+    private final int bitRate;
+
+    /**
+     * The microphone source.
+     */
+    private AudioRecord audioRecord;
+
+    /**
+     * The AAC encoder.
+     */
+    private MediaCodec encoder;
+
+    /**
+     * The output stream of {@link #outputFile}.
+     */
+    private FileOutputStream output;
+
+    /**
+     * The thread reading PCM samples and draining the encoder.
+     */
+    private Thread worker;
+
+    /**
+     * Optional listener notified with every encoded frame.
+     */
+    private volatile FrameListener frameListener;
+
+    /**
+     * Optional detector analyzing the PCM stream as it is encoded.
+     */
+    private VoiceActivityDetector voiceActivityDetector;
+
+    /**
+     * Flag indicating if the recording session is running (until {@link #stop()}).
+     */
+    private volatile boolean running = false;
+
+    /**
+     * Flag telling the worker to flush the encoder and end, set by {@link #stop()}.
+     */
+    private volatile boolean stopRequested = false;
+
+    /**
+     * Flag set by the worker when recording failed, so the file is incomplete.
+     */
+    private volatile boolean failed = false;
+
+    /**
+     * Flag indicating if reading from the microphone is currently paused.
+     */
+    private volatile boolean paused = false;
+
+    /**
+     * Flag set by the worker once it has flushed all pending frames after a pause request.
+     */
+    private boolean pauseFlushed = false;
+
+    /**
+     * Lock used to coordinate pause and resume with the worker thread.
+     */
+    private final Object pauseLock = new Object();
+
+    /**
+     * Number of PCM frames (samples per channel) fed to the encoder so far.
+     * Used to compute gapless presentation timestamps across pauses.
+     */
+    private long samplesEncoded = 0;
+
+    /**
+     * Number of PCM frames covered by the encoded frames written to the file so far.
+     */
+    private long samplesWritten = 0;
+
+    /**
+     * Reusable metadata of the encoder output buffers.
+     */
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+
+    /**
+     * Constructs a new AacStreamRecorder.
+     *
+     * @param outputFile   The file the ADTS stream is written to.
+     * @param sampleRate   The sampling rate, in Hz (must be a standard AAC rate).
+     * @param channelCount The number of channels (1 or 2).
+     * @param bitRate      The target encoder bit rate, in bits per second.
+     */
+    public AacStreamRecorder(File outputFile, int sampleRate, int channelCount, int bitRate) {
+        this.outputFile = outputFile;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.bitRate = bitRate;
+    }
+
+    /**
+     * Sets the listener notified with every encoded frame.
+     *
+     * @param frameListener The listener, or null to remove it.
+     */
+    public void setFrameListener(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Sets the detector fed with the PCM stream. The detector only analyzes the audio; the
+     * whole stream is encoded regardless. Must be called before {@link #start()}.
+     *
+     * @param voiceActivityDetector The detector, or null for none.
+     */
+    public void setVoiceActivityDetector(VoiceActivityDetector voiceActivityDetector) {
+        this.voiceActivityDetector = voiceActivityDetector;
+    }
+
+    /**
+     * Opens the microphone and the encoder and starts recording.
+     * The caller must hold the RECORD_AUDIO permission.
+     *
+     * @throws IOException If the encoder or the output file cannot be opened.
+     */
+    @SuppressLint("MissingPermission")
+    public void start() throws IOException {
+        int channelMask = (channelCount == 1) ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+        int minBufferSize = AudioRecord.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBufferSize <= 0) {
+            throw new IOException("Unsupported recording format: " + sampleRate + " Hz");
+        }
+
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, channelCount);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+        format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, minBufferSize * 2);
+
+        try {
+            encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+
+            audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate, channelMask,
+                    AudioFormat.ENCODING_PCM_16BIT, minBufferSize * 2);
+            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+                throw new IOException("AudioRecord could not be initialized");
+            }
+
+            output = new FileOutputStream(outputFile);
+        } catch (IOException | RuntimeException e) {
+            releaseResources();
+            throw (e instanceof IOException) ? (IOException) e : new IOException("Failed to start encoder", e);
+        }
+
+        running = true;
+        stopRequested = false;
+        failed = false;
+        paused = false;
+        audioRecord.startRecording();
+
+        final int readSize = minBufferSize;
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                recordLoop(readSize);
+            }
+        }, "AacStreamRecorder");
+        worker.start();
+    }
+
+    /**
+     * Pauses recording. The encoder stays alive; every complete frame captured so far is
+     * written to the file before this method returns, so the file can be played while paused.
+     * The last partial frame (less than {@link #SAMPLES_PER_FRAME} samples) stays in the
+     * encoder until recording resumes or stops.
+     */
+    public void pause() {
+        if (!running || paused) return;
+        synchronized (pauseLock) {
+            pauseFlushed = false;
+            paused = true;
+            long deadline = System.currentTimeMillis() + PAUSE_FLUSH_TIMEOUT_MS;
+            while (!pauseFlushed && !failed) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) break;
+                try {
+                    pauseLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resumes recording after {@link #pause()}, appending to the same stream.
+     * The worker thread restarts the microphone once it has finished pausing.
+     */
+    public void resume() {
+        if (!running || !paused) return;
+        synchronized (pauseLock) {
+            paused = false;
+            pauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * Stops recording, flushes the remaining frames and releases the microphone and encoder.
+     * The resources are released even if the worker already ended on a failure.
+     *
+     * @return true if the whole recording was written, false if it failed and the file is incomplete.
+     */
+    public boolean stop() {
+        if (!running) return !failed;
+        synchronized (pauseLock) {
+            stopRequested = true;
+            pauseLock.notifyAll();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        releaseResources();
+        running = false;
+        return !failed;
+    }
+
+    /**
+     * Checks if the recorder is currently paused.
+     * @return true if paused, false otherwise.
+     */
+    public boolean isPaused() { return paused; }
+
+    /**
+     * Checks if the recording session is running.
+     * @return true if started and not yet stopped, false otherwise.
+     */
+    public boolean isRunning() { return running; }
+
+    /**
+     * Body of the worker thread: reads PCM from the microphone, feeds the encoder and
+     * writes the encoded frames, until {@link #stop()} is called or recording fails.
+     *
+     * @param readSize The number of bytes read from the microphone at a time.
+     */
+    private void recordLoop(int readSize) {
+        byte[] pcm = new byte[readSize];
+
+        try {
+            while (!stopRequested) {
+                if (paused) {
+                    audioRecord.stop();
+                    drainPending(System.currentTimeMillis() + PAUSE_DRAIN_TIMEOUT_MS);
+                    synchronized (pauseLock) {
+                        pauseFlushed = true;
+                        pauseLock.notifyAll();
+                        while (paused && !stopRequested) {
+                            pauseLock.wait();
+                        }
+                    }
+                    if (!stopRequested) {
+                        audioRecord.startRecording();
+                    }
+                    continue;
+                }
+
+                int read = audioRecord.read(pcm, 0, pcm.length);
+                if (read > 0) {
+                    if (voiceActivityDetector != null) {
+                        voiceActivityDetector.process(pcm, read);
+                    }
+                    queuePcm(pcm, 0, read, false);
+                }
+                drainEncoder(false);
+            }
+
+            if (voiceActivityDetector != null) {
+                voiceActivityDetector.finish();
+            }
+            queuePcm(pcm, 0, 0, true);
+            drainEncoder(true);
+        } catch (IOException | InterruptedException | IllegalStateException e) {
+            Log.e("AacStreamRecorder", "Recording failed", e);
+            synchronized (pauseLock) {
+                failed = true;
+                pauseLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Queues PCM data into the encoder, waiting for a free input buffer (and draining the
+     * output to free one) as long as needed, so nothing is dropped, not even while stopping.
+     *
+     * @param pcm         The PCM samples (16-bit little endian).
+     * @param offset      The offset of the data in pcm.
+     * @param length      The number of bytes to queue.
+     * @param endOfStream true to signal the end of the stream instead of data.
+     */
+    private void queuePcm(byte[] pcm, int offset, int length, boolean endOfStream) {
+        int end = offset + length;
+        do {
+            int index = encoder.dequeueInputBuffer(CODEC_TIMEOUT_US);
+            if (index < 0) {
+                // Free input buffers by draining the output the encoder is holding
+                try {
+                    drainEncoder(false);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed writing encoded audio", e);
+                }
+                continue;
+            }
+
+            ByteBuffer input = encoder.getInputBuffer(index);
+            input.clear();
+            int chunk = Math.min(end - offset, input.remaining());
+            input.put(pcm, offset, chunk);
+
+            long presentationTimeUs = samplesEncoded * 1000000L / sampleRate;
+            samplesEncoded += chunk / (2L * channelCount);
+            offset += chunk;
+
+            int flags = (endOfStream && offset >= end) ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0;
+            encoder.queueInputBuffer(index, 0, chunk, presentationTimeUs, flags);
+        } while (offset < end);
+    }
+
+    /**
+     * Waits until every complete frame of the PCM queued so far has been written to the
+     * output file, or the deadline passes, then flushes the file.
+     *
+     * @param deadline The time to give up at, in {@link System#currentTimeMillis()} terms.
+     * @throws IOException If writing to the file fails.
+     */
+    private void drainPending(long deadline) throws IOException {
+        while (samplesWritten + SAMPLES_PER_FRAME <= samplesEncoded
+                && System.currentTimeMillis() < deadline) {
+            drainEncoder(false);
+        }
+        output.flush();
+    }
+
+    /**
+     * Writes every frame currently available from the encoder to the output file.
+     *
+     * @param endOfStream true to keep draining until the end-of-stream frame is received.
+     * @throws IOException If writing to the file fails.
+     */
+    private void drainEncoder(boolean endOfStream) throws IOException {
+        MediaCodec.BufferInfo info = bufferInfo;
+        while (true) {
+            int index = encoder.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!endOfStream) return;
+                continue;
+            }
+            if (index < 0) continue; // Output format or buffers changed
+
+            boolean isConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (!isConfig && info.size > 0) {
+                ByteBuffer encoded = encoder.getOutputBuffer(index);
+                byte[] frame = new byte[info.size + 7];
+                writeAdtsHeader(frame, frame.length);
+                encoded.position(info.offset);
+                encoded.get(frame, 7, info.size);
+                output.write(frame);
+                samplesWritten = info.presentationTimeUs * sampleRate / 1000000L + SAMPLES_PER_FRAME;
+
+                FrameListener listener = frameListener;
+                if (listener != null) {
+                    listener.onFrame(frame);
+                }
+            }
+            encoder.releaseOutputBuffer(index, false);
+
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                output.flush();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a 7-byte ADTS header (AAC LC, no CRC) at the start of a frame.
+     *
+     * @param frame       The frame buffer.
+     * @param frameLength The total frame length, including the header.
+     */
+    private void writeAdtsHeader(byte[] frame, int frameLength) {
+        int profile = 2; // AAC LC
+        int frequencyIndex = 4; // 44.1 kHz by default
+        for (int i = 0; i < ADTS_SAMPLE_RATES.length; i++) {
+            if (ADTS_SAMPLE_RATES[i] == sampleRate) {
+                frequencyIndex = i;
+                break;
+            }
+        }
+
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xF1;
+        frame[2] = (byte) (((profile - 1) << 6) + (frequencyIndex << 2) + (channelCount >> 2));
+        frame[3] = (byte) (((channelCount & 3) << 6) + (frameLength >> 11));
+        frame[4] = (byte) ((frameLength & 0x7FF) >> 3);
+        frame[5] = (byte) (((frameLength & 7) << 5) + 0x1F);
+        frame[6] = (byte) 0xFC;
+    }
+
+    /**
+     * Releases the microphone, the encoder and the output file.
+     */
+    private void releaseResources() {
+        if (audioRecord != null) {
+            try {
+                audioRecord.stop();
+            } catch (IllegalStateException ignored) {
+                // Already stopped
+            }
+            audioRecord.release();
+            audioRecord = null;
+        }
+        if (encoder != null) {
+            try {
+                encoder.stop();
+            } catch (IllegalStateException ignored) {
+                // Never started or already stopped
+            }
+            encoder.release();
+            encoder = null;
+        }
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                Log.e("AacStreamRecorder", "Failed closing output", e);
+            }
+            output = null;
+        }
+    }
+}
@@ -2,7 +2,7 @@ package com.example.speakup.Activities;
 
 import static com.example.speakup.Utils.FBRef.refAuth;
 import static com.example.speakup.Utils.FBRef.refRecordings;
-import static com.example.speakup.Utils.FBRef.refRecordingsMedia;
+import static com.example.speakup.Utils.Prompts.EMPTY_AUDIO_RESULT;
 import static com.example.speakup.Utils.Prompts.PERSONAL_PROMPT;
 import static com.example.speakup.Utils.Prompts.PROJECT_PROMPT;
 import static com.example.speakup.Utils.Prompts.VIDEO_CLIPS_PROMPT;
@@ -37,20 +37,19 @@ import androidx.core.content.ContextCompat;
 
 import com.example.speakup.GeminiCallback;
 import com.example.speakup.GeminiManager;
+import com.example.speakup.GeminiRequest;
+import com.example.speakup.GradingCache;
 import com.example.speakup.Objects.Question;
 import com.example.speakup.Objects.Recording;
 import com.example.speakup.Objects.TopicDetail;
 import com.example.speakup.R;
 import com.example.speakup.RecordingManager;
 import com.example.speakup.TtsHelper;
+import com.example.speakup.UploadQueue;
 import com.example.speakup.Utils.Utilities;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
 import com.pierfrancescosoffritti.androidyoutubeplayer.core.player.PlayerConstants;
 import com.pierfrancescosoffritti.androidyoutubeplayer.core.player.YouTubePlayer;
 import com.pierfrancescosoffritti.androidyoutubeplayer.core.player.listeners.AbstractYouTubePlayerListener;
@@ -63,8 +62,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 /**
  * Activity responsible for handling a full speaking practice session.
  *
@@ -107,6 +108,7 @@ public class PracticeQuestionActivity extends Utilities {
     private TtsHelper tts;
     private RecordingManager recordingManager;
     private MediaPlayer mediaPlayer;
+    private GeminiRequest gradingRequest; // Pending AI evaluation, cancelled in onDestroy
 
     // State variables
     private int currentProgress = 0, maxProgress = 0, recordedSeconds = 0;
@@ -246,6 +248,7 @@ public class PracticeQuestionActivity extends Utilities {
     private void initLogic() {
         recordingTimerHandler = new Handler();
         tts = new TtsHelper(this);
+        GeminiManager.getInstance().setGradingCache(GradingCache.getInstance(this));
         tts.setTtsInitListener(new TtsHelper.TtsInitListener() {
             @Override
             public void onInitStatus(final boolean success) {
@@ -351,7 +354,7 @@ public class PracticeQuestionActivity extends Utilities {
             return;
         }
 
-        String path = recordingManager.getFinalFilePath();
+        String path = recordingManager.getPreviewFilePath();
         if (path == null) {
             Toast.makeText(this, "No recording found", Toast.LENGTH_SHORT).show();
             return;
@@ -676,18 +679,21 @@ public class PracticeQuestionActivity extends Utilities {
                     .setPositiveButton("Proceed", new DialogInterface.OnClickListener() {
                         @Override
                         public void onClick(DialogInterface dialog, int which) {
-                            String filePath = recordingManager.getFinalFilePath();
-
-                            byte[] bytes;
-                            try {
-                                bytes = recordingManager.getBytes(filePath);
-                            } catch (IOException e) {
-                                Log.e("PracticeQuestion", "Error reading file", e);
+                            // Grading gets the trimmed copy; the upload keeps the full recording
+                            String audioPath = recordingManager.getGradingFilePath();
+                            File audioFile = audioPath == null ? null : new File(audioPath);
+                            if (audioFile == null || !audioFile.exists()) {
                                 Toast.makeText(PracticeQuestionActivity.this, "Error reading recording file",
                                         Toast.LENGTH_SHORT).show();
                                 return;
                             }
 
+                            if (!recordingManager.hasSpeech()) {
+                                // Entirely silent answer: apply the empty audio rule without calling the model
+                                createRecordingToFirebase(EMPTY_AUDIO_RESULT);
+                                return;
+                            }
+
                             ProgressDialog pD = new ProgressDialog(PracticeQuestionActivity.this);
                             pD.setTitle("Analyzing answer...");
                             pD.setMessage("Waiting for response...");
@@ -706,9 +712,9 @@ public class PracticeQuestionActivity extends Utilities {
                                     basePrompt = VIDEO_CLIPS_PROMPT;
                                     break;
                             }
-                            String prompt = basePrompt.replace("{QUESTION_TEXT}", question.getFullQuestion());
+                            final String prompt = basePrompt.replace("{QUESTION_TEXT}", question.getFullQuestion());
 
-                            GeminiManager.getInstance().sendTextWithFilePrompt(prompt, bytes, "audio/aac",
+                            gradingRequest = GeminiManager.getInstance().sendTextWithAudioFilePrompt(prompt, audioFile, "audio/aac",
                                     new GeminiCallback() {
                                         @Override
                                         public void onSuccess(String result) {
@@ -716,7 +722,11 @@ public class PracticeQuestionActivity extends Utilities {
                                             runOnUiThread(new Runnable() {
                                                 @Override
                                                 public void run() {
-                                                    createRecordingToFirebase(result);
+                                                    if (!createRecordingToFirebase(result)) {
+                                                        // Otherwise checking again would be served the same cached response
+                                                        GeminiManager.getInstance().evictCachedResponse(prompt,
+                                                                audioFile, "audio/aac");
+                                                    }
                                                 }
                                             });
                                         }
@@ -740,8 +750,9 @@ public class PracticeQuestionActivity extends Utilities {
      * Parses AI JSON response and prepares feedback.
      *
      * @param json AI response
+     * @return false if the response is malformed
      */
-    private void createRecordingToFirebase(String json) {
+    private boolean createRecordingToFirebase(String json) {
         Map<String, TopicDetail> aiFeedBack = new HashMap<>();
         Log.e("JSON", "JSON: " + json);
         try {
@@ -767,6 +778,7 @@ public class PracticeQuestionActivity extends Utilities {
             aiFeedBack.put("overall", new TopicDetail(totalScore, feedback.getString("overallSummary")));
 
             showNamingDialog(aiFeedBack, totalScore);
+            return true;
         } catch (JSONException e) {
             Log.e("JSON_ERROR", "Failed to parse: " + json, e);
             runOnUiThread(new Runnable() {
@@ -775,6 +787,7 @@ public class PracticeQuestionActivity extends Utilities {
                     Toast.makeText(PracticeQuestionActivity.this, "AI Formatting Error", Toast.LENGTH_SHORT).show();
                 }
             });
+            return false;
         }
     }
 
@@ -813,69 +826,99 @@ public class PracticeQuestionActivity extends Utilities {
     private void processFirebaseStorageAndDatabase(final String displayTitle, final Map<String, TopicDetail> feedback,
             final int score) {
         final String userId = refAuth.getCurrentUser().getUid();
-        refRecordings.child(userId).child(question.getQuestionId())
-                .addListenerForSingleValueEvent(new ValueEventListener() {
+        // get() asks the server first, while a single-value listener would answer from the disk cache
+        refRecordings.child(userId).child(question.getQuestionId()).get()
+                .addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
                     @Override
-                    public void onDataChange(@NonNull DataSnapshot dS) {
-                        String finalTitle = displayTitle;
-                        if (finalTitle.isEmpty()) {
-                            long count = dS.getChildrenCount() + 1;
-                            String base = (question.getSubTopic() == null || question.getSubTopic().equals("null"))
-                                    ? question.getTopic()
-                                    : question.getSubTopic();
-                            finalTitle = base + " " + count;
+                    public void onSuccess(DataSnapshot dS) {
+                        Set<String> committedIds = new HashSet<>();
+                        for (DataSnapshot child : dS.getChildren()) {
+                            committedIds.add(child.getKey());
                         }
-                        String recordingId = refRecordings.child(userId).push().getKey();
-                        Recording rec = new Recording(userId, question.getQuestionId(), finalTitle, new Date(), score,
-                                feedback);
-                        rec.setRecordingId(recordingId);
-                        uploadAudioFile(rec);
+                        countAndQueueRecording(userId, committedIds, displayTitle, feedback, score);
+                    }
+                }).addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        // Offline with nothing cached: still save the answer rather than lose it
+                        Log.e("PracticeQuestionActivity", "Failed counting recordings", e);
+                        countAndQueueRecording(userId, new HashSet<String>(), displayTitle, feedback, score);
                     }
+                });
+    }
 
+    /**
+     * Adds the recordings of the question still waiting in the upload queue to those already
+     * in the database, then queues the new recording numbered after all of them.
+     * A recording committed while this runs is in both sets, so it is counted once.
+     *
+     * @param userId       The user ID.
+     * @param committedIds The IDs of the recordings of the question in the database.
+     * @param displayTitle The title entered by the user, possibly empty.
+     * @param feedback     The AI feedback.
+     * @param score        The total score.
+     */
+    private void countAndQueueRecording(final String userId, final Set<String> committedIds,
+            final String displayTitle, final Map<String, TopicDetail> feedback, final int score) {
+        UploadQueue.getInstance(this).getQueuedRecordingIds(userId, question.getQuestionId(),
+                new UploadQueue.RecordingIdsCallback() {
                     @Override
-                    public void onCancelled(@NonNull DatabaseError e) {
+                    public void onRecordingIds(Set<String> recordingIds) {
+                        recordingIds.addAll(committedIds);
+                        queueTitledRecording(userId, displayTitle, recordingIds.size(), feedback, score);
                     }
                 });
     }
 
     /**
-     * Uploads audio file to Firebase Storage.
+     * Builds the recording, numbering its title after the existing recordings of the question
+     * when the user left it empty, and queues it for upload.
+     *
+     * @param userId        The user ID.
+     * @param displayTitle  The title entered by the user, possibly empty.
+     * @param existingCount The number of recordings the user already has for the question,
+     *                      committed or queued.
+     * @param feedback      The AI feedback.
+     * @param score         The total score.
+     */
+    private void queueTitledRecording(String userId, String displayTitle, long existingCount,
+            Map<String, TopicDetail> feedback, int score) {
+        String finalTitle = displayTitle;
+        if (finalTitle.isEmpty()) {
+            String base = (question.getSubTopic() == null || question.getSubTopic().equals("null"))
+                    ? question.getTopic()
+                    : question.getSubTopic();
+            finalTitle = base + " " + (existingCount + 1);
+        }
+        String recordingId = refRecordings.child(userId).push().getKey();
+        Recording rec = new Recording(userId, question.getQuestionId(), finalTitle, new Date(), score,
+                feedback);
+        rec.setRecordingId(recordingId);
+        queueRecording(rec);
+    }
+
+    /**
+     * Hands the recording to the {@link UploadQueue} and opens its results right away; the
+     * upload continues in the background.
      *
      * @param rec Recording object
      */
-    private void uploadAudioFile(final Recording rec) {
+    private void queueRecording(final Recording rec) {
         final String filePath = recordingManager.getFinalFilePath();
-        StorageReference fileRef = refRecordingsMedia.child(rec.getUserId() + "/" + rec.getRecordingId() + ".aac");
-
-        final ProgressDialog pD = new ProgressDialog(this);
-        pD.setCancelable(false);
-        pD.setMessage("Saving recording...");
-        pD.show();
-
-        fileRef.putFile(Uri.fromFile(new File(filePath)))
-                .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
+        UploadQueue.getInstance(this).enqueueRecording(rec, question.getCategory(), new File(filePath),
+                new UploadQueue.Callback() {
                     @Override
-                    public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
-                        refRecordings.child(rec.getUserId()).child(rec.getQuestionId()).child(rec.getRecordingId())
-                                .setValue(rec).addOnSuccessListener(new OnSuccessListener<Void>() {
-                                    @Override
-                                    public void onSuccess(Void aVoid) {
-                                        pD.dismiss();
-                                        Intent si = new Intent(PracticeQuestionActivity.this, ResultsActivity.class);
-                                        si.putExtra("recording", rec);
-                                        si.putExtra("audio_path", filePath);
-                                        startActivity(si);
-                                        finish();
-                                    }
-                                });
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        pD.dismiss();
-                        Toast.makeText(PracticeQuestionActivity.this, "Upload failed: " + e.getMessage(),
-                                Toast.LENGTH_LONG).show();
+                    public void onQueued(boolean queued) {
+                        if (!queued) {
+                            Toast.makeText(PracticeQuestionActivity.this, "Failed saving recording.",
+                                    Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        Intent si = new Intent(PracticeQuestionActivity.this, ResultsActivity.class);
+                        si.putExtra("recording", rec);
+                        si.putExtra("audio_path", filePath);
+                        startActivity(si);
+                        finish();
                     }
                 });
     }
@@ -944,6 +987,8 @@ public class PracticeQuestionActivity extends Utilities {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (gradingRequest != null)
+            gradingRequest.cancel();
         if (recordingManager != null)
             recordingManager.release();
         if (tts != null)
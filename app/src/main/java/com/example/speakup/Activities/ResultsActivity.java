@@ -1,7 +1,5 @@
 package com.example.speakup.Activities;
 
-import static com.example.speakup.Utils.FBRef.refRecordingsMedia;
-
 import android.content.Intent;
 import android.media.MediaPlayer;
 import android.os.Bundle;
@@ -16,16 +14,12 @@ import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
-
+import com.example.speakup.AudioCache;
 import com.example.speakup.Objects.Recording;
 import com.example.speakup.Objects.TopicDetail;
 import com.example.speakup.R;
+import com.example.speakup.Utils.StreamingAudioSource;
 import com.example.speakup.Utils.Utilities;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.firebase.storage.FileDownloadTask;
-import com.google.firebase.storage.StorageReference;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -166,10 +160,26 @@ public class ResultsActivity extends Utilities {
     private Intent gi;
 
     /**
-     * Reference to the local audio file (.aac) for playback.
+     * The recording being displayed.
+     */
+    private Recording recording;
+
+    /**
+     * Local audio file (.aac) of a recording that is still on the device, e.g. waiting in the
+     * upload queue.
      */
     private File localAudioFile;
 
+    /**
+     * Audio streamed through the {@link AudioCache} when there is no local file, or null.
+     */
+    private StreamingAudioSource audioSource;
+
+    /**
+     * Whether {@link #mediaPlayer} finished preparing and can be started.
+     */
+    private boolean playerPrepared;
+
     /**
      * MediaPlayer instance for handling audio playback of the recording.
      */
@@ -190,7 +200,7 @@ public class ResultsActivity extends Utilities {
      * <p>
      * It retrieves the {@link Recording} data and the audio path from the intent. 
      * If coming from the practice screen, it attempts to move the cached recording to internal storage.
-     * Otherwise, it downloads the file from Firebase.
+     * Otherwise, it opens the audio through the {@link AudioCache}, which starts streaming it.
      * </p>
      *
      * @param savedInstanceState If the activity is being re-initialized after previously being 
@@ -205,6 +215,7 @@ public class ResultsActivity extends Utilities {
         initViews();
 
         Recording rec = (Recording) gi.getSerializableExtra("recording");
+        recording = rec;
         if (rec != null) {
             setDataRecording(rec);
         }
@@ -260,7 +271,7 @@ public class ResultsActivity extends Utilities {
         recordingSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                if (fromUser && mediaPlayer != null) {
+                if (fromUser && mediaPlayer != null && playerPrepared) {
                     mediaPlayer.seekTo(progress);
                     updateTimeUI(progress);
                 }
@@ -276,8 +287,9 @@ public class ResultsActivity extends Utilities {
      * Handles the acquisition of the audio file for playback.
      * <p>
      * If the file exists in internal storage, it uses it. If a cache path is provided (from a 
-     * fresh recording), it moves that file to internal storage. Otherwise, it triggers a 
-     * download from Firebase Storage.
+     * fresh recording), it moves that file to internal storage. Otherwise, it opens the audio
+     * through the {@link AudioCache}, which serves it from disk or starts streaming it now, so
+     * it is ready by the time the user presses play.
      * </p>
      *
      * @param rec       The {@link Recording} object containing the unique ID.
@@ -295,27 +307,7 @@ public class ResultsActivity extends Utilities {
                 return;
             }
         }
-        downloadFromFirebase(rec);
-    }
-
-    /**
-     * Downloads the audio recording file from Firebase Storage and saves it to internal storage.
-     *
-     * @param rec The {@link Recording} object containing metadata required for the storage path.
-     */
-    private void downloadFromFirebase(Recording rec) {
-        StorageReference refFile = refRecordingsMedia.child(rec.getUserId() + "/" + rec.getRecordingId() + ".aac");
-        refFile.getFile(localAudioFile).addOnSuccessListener(new OnSuccessListener<FileDownloadTask.TaskSnapshot>() {
-            @Override
-            public void onSuccess(FileDownloadTask.TaskSnapshot taskSnapshot) {
-                Log.d("Audio", "Downloaded successfully");
-            }
-        }).addOnFailureListener(new OnFailureListener() {
-            @Override
-            public void onFailure(@NonNull Exception e) {
-                Log.e("Audio", "Download failed", e);
-            }
-        });
+        audioSource = AudioCache.getInstance(this).open(rec);
     }
 
     /**
@@ -395,12 +387,11 @@ public class ResultsActivity extends Utilities {
      * @param view The view that was clicked (Play/Pause button).
      */
     public void playPauseRecording(View view) {
-        if (localAudioFile == null || !localAudioFile.exists()) {
-            Toast.makeText(this, "Loading audio...", Toast.LENGTH_SHORT).show();
-            return;
-        }
+        if (recording == null) return;
 
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+        if (mediaPlayer != null && !playerPrepared) {
+            Toast.makeText(this, "Loading audio...", Toast.LENGTH_SHORT).show();
+        } else if (mediaPlayer != null && mediaPlayer.isPlaying()) {
             mediaPlayer.pause();
             playRecordingBtn.setImageResource(android.R.drawable.ic_media_play);
         } else if (mediaPlayer != null) {
@@ -413,19 +404,34 @@ public class ResultsActivity extends Utilities {
     }
 
     /**
-     * Configures and starts the {@link MediaPlayer} with the local audio file.
-     * Sets the SeekBar max value and defines the completion listener.
+     * Configures the {@link MediaPlayer} with the local audio file, or else the streamed audio,
+     * and starts it once prepared. Streamed audio starts playing as soon as its first bytes
+     * arrive. Sets the SeekBar max value and defines the completion listener.
      */
     private void initMediaPlayer() {
         mediaPlayer = new MediaPlayer();
+        playerPrepared = false;
         try {
-            mediaPlayer.setDataSource(localAudioFile.getAbsolutePath());
-            mediaPlayer.prepare();
-            recordingSeekBar.setMax(mediaPlayer.getDuration());
-            mediaPlayer.start();
-            playRecordingBtn.setImageResource(android.R.drawable.ic_media_pause);
-            startSeekBarUpdate();
+            if (localAudioFile.exists()) {
+                mediaPlayer.setDataSource(localAudioFile.getAbsolutePath());
+            } else {
+                // The upload queue hands finished uploads to the cache; reopen after a failed stream.
+                if (audioSource == null || audioSource.isFailed()) {
+                    audioSource = AudioCache.getInstance(this).open(recording);
+                }
+                mediaPlayer.setDataSource(audioSource);
+            }
 
+            mediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+                @Override
+                public void onPrepared(MediaPlayer mp) {
+                    playerPrepared = true;
+                    recordingSeekBar.setMax(mp.getDuration());
+                    mp.start();
+                    playRecordingBtn.setImageResource(android.R.drawable.ic_media_pause);
+                    startSeekBarUpdate();
+                }
+            });
             mediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
                 @Override
                 public void onCompletion(MediaPlayer mp) {
@@ -435,11 +441,35 @@ public class ResultsActivity extends Utilities {
                     updateTimeUI(0);
                 }
             });
+            mediaPlayer.setOnErrorListener(new MediaPlayer.OnErrorListener() {
+                @Override
+                public boolean onError(MediaPlayer mp, int what, int extra) {
+                    Log.e("MediaPlayer", "Playback failed: " + what + "/" + extra);
+                    Toast.makeText(ResultsActivity.this, "Audio unavailable.", Toast.LENGTH_SHORT).show();
+                    releaseMediaPlayer();
+                    return true;
+                }
+            });
+            mediaPlayer.prepareAsync();
         } catch (IOException e) {
             Log.e("MediaPlayer", "Initialization failed", e);
+            releaseMediaPlayer();
         }
     }
 
+    /**
+     * Releases the {@link MediaPlayer} and resets the play button, so the next tap starts over.
+     */
+    private void releaseMediaPlayer() {
+        if (mediaPlayer != null) {
+            mediaPlayer.release();
+            mediaPlayer = null;
+        }
+        playerPrepared = false;
+        stopSeekBarUpdate();
+        playRecordingBtn.setImageResource(android.R.drawable.ic_media_play);
+    }
+
     /**
      * Begins the periodic update of the SeekBar and time UI during audio playback.
      */
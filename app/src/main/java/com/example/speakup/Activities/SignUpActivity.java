@@ -27,6 +27,7 @@ import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 
 import com.example.speakup.Objects.User;
+import com.example.speakup.ProfileImageProcessor;
 import com.example.speakup.R;
 import com.example.speakup.Utils.Utilities;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -40,7 +41,7 @@ import com.google.firebase.auth.FirebaseAuthInvalidUserException;
 import com.google.firebase.auth.FirebaseAuthUserCollisionException;
 import com.google.firebase.auth.FirebaseAuthWeakPasswordException;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.storage.OnProgressListener;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
@@ -291,38 +292,63 @@ public class SignUpActivity extends Utilities {
     }
 
     /**
-     * Uploads the selected profile picture to Firebase Storage.
+     * Shrinks the selected profile picture in the background (see {@link ProfileImageProcessor})
+     * and uploads it to Firebase Storage.
      *
      * @param imageUri The URI of the image to upload.
      */
     private void uploadImage(Uri imageUri) {
         if (imageUri != null) {
-            String fileName =  refAuth.getUid().toString() + ".jpg";
-            StorageReference refFile = refUserProfiles.child(fileName);
-
-            refFile.putFile(imageUri)
-                    .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
-                        @Override
-                        public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
-                            Toast.makeText(SignUpActivity.this, "Upload successful", Toast.LENGTH_LONG).show();
-                        }
-                    })
-                    .addOnFailureListener(new OnFailureListener() {
-                        @Override
-                        public void onFailure(@NonNull Exception e) {
-                            Toast.makeText(SignUpActivity.this, "Upload Failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                        }
-                    })
-                    .addOnProgressListener(new OnProgressListener<UploadTask.TaskSnapshot>() {
-                        @Override
-                        public void onProgress(@NonNull UploadTask.TaskSnapshot snapshot) {
-                        }
-                    });
+            final String fileName =  refAuth.getUid().toString() + ".jpg";
+            ProfileImageProcessor.process(this, imageUri, new ProfileImageProcessor.Callback() {
+                @Override
+                public void onProcessed(@Nullable File processed) {
+                    if (processed == null) {
+                        Toast.makeText(SignUpActivity.this, "Could not read the selected image", Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    uploadProcessedImage(processed, fileName);
+                }
+            });
         } else {
             Toast.makeText(this, "No image URI provided for upload", Toast.LENGTH_LONG).show();
         }
     }
 
+    /**
+     * Uploads a processed profile picture to Firebase Storage and deletes it once the
+     * upload ends.
+     *
+     * @param processed The processed JPEG.
+     * @param fileName  The name of the picture in the profiles directory.
+     */
+    private void uploadProcessedImage(final File processed, String fileName) {
+        StorageReference refFile = refUserProfiles.child(fileName);
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/jpeg")
+                .build();
+
+        refFile.putFile(Uri.fromFile(processed), metadata)
+                .addOnCompleteListener(new OnCompleteListener<UploadTask.TaskSnapshot>() {
+                    @Override
+                    public void onComplete(@NonNull Task<UploadTask.TaskSnapshot> task) {
+                        processed.delete();
+                    }
+                })
+                .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
+                    @Override
+                    public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
+                        Toast.makeText(SignUpActivity.this, "Upload successful", Toast.LENGTH_LONG).show();
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        Toast.makeText(SignUpActivity.this, "Upload Failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
     /**
      * Attempts to create a new user account with the provided details.
      * <p>
@@ -1,9 +1,7 @@
 package com.example.speakup.Activities;
 
 import static com.example.speakup.Utils.FBRef.refAuth;
-import static com.example.speakup.Utils.FBRef.refQuestions;
 import static com.example.speakup.Utils.FBRef.refRecordings;
-import static com.example.speakup.Utils.FBRef.refRecordingsMedia;
 import static com.example.speakup.Utils.FBRef.refSimulations;
 
 import android.Manifest;
@@ -35,24 +33,25 @@ import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.example.speakup.AudioProfile;
 import com.example.speakup.GeminiCallback;
 import com.example.speakup.GeminiManager;
+import com.example.speakup.GeminiRequest;
+import com.example.speakup.GeminiStreamCallback;
+import com.example.speakup.GradingCache;
 import com.example.speakup.Objects.Question;
 import com.example.speakup.Objects.Recording;
 import com.example.speakup.Objects.Simulation;
 import com.example.speakup.Objects.TopicDetail;
+import com.example.speakup.QuestionSampler;
 import com.example.speakup.R;
 import com.example.speakup.RecordingManager;
 import com.example.speakup.TtsHelper;
+import com.example.speakup.UploadQueue;
 import com.example.speakup.Utils.Prompts;
+import com.example.speakup.Utils.StreamingJsonParser;
 import com.example.speakup.Utils.Utilities;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
+import com.example.speakup.VoiceActivityDetector;
 import com.pierfrancescosoffritti.androidyoutubeplayer.core.player.PlayerConstants;
 import com.pierfrancescosoffritti.androidyoutubeplayer.core.player.YouTubePlayer;
 import com.pierfrancescosoffritti.androidyoutubeplayer.core.player.listeners.AbstractYouTubePlayerListener;
@@ -68,6 +67,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
@@ -80,7 +80,8 @@ import java.util.Random;
  * <li>Random selection of questions (1 Personal, 1 Project, 2 Video).</li>
  * <li>A 30-minute global countdown timer.</li>
  * <li>Multi-question navigation and audio recording.</li>
- * <li>Batch AI analysis of all 4 recordings via Gemini.</li>
+ * <li>AI analysis of all 4 recordings via Gemini, either as 4 parallel per-question requests
+ * or as one streamed batch request.</li>
  * <li>Saving simulation results and individual recordings to Firebase.</li>
  * </ul>
  * </p>
@@ -160,6 +161,9 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
      */
     private int currentQuestionIndex = 0;
 
+    /** Pending Gemini grading requests, cancelled when the activity is destroyed. */
+    private final ArrayList<GeminiRequest> gradingRequests = new ArrayList<GeminiRequest>();
+
     /** The recording manager for the current question being practiced. */
     private RecordingManager currentRecordingManager;
 
@@ -184,6 +188,12 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
      */
     private static final long SIMULATION_DURATION_MS = 30 * 60 * 1000L;
 
+    /**
+     * Whether answers are graded as 4 concurrent per-question requests (true) or as a
+     * single batched request for the whole simulation (false).
+     */
+    private static final boolean USE_PARALLEL_GRADING = true;
+
     /**
      * Remaining time in the simulation.
      */
@@ -324,6 +334,7 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
     private void initLogic() {
         recordingTimerHandler = new Handler();
         tts = new TtsHelper(this);
+        GeminiManager.getInstance().setGradingCache(GradingCache.getInstance(this));
 
         tts.setTtsInitListener(new TtsHelper.TtsInitListener() {
             @Override
@@ -379,8 +390,8 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
     }
 
     /**
-     * Fetches a randomized set of 4 questions from Firebase to form a COBE exam
-     * simulation.
+     * Picks a set of 4 questions with a {@link QuestionSampler} to form a COBE exam
+     * simulation, favoring questions the student has not answered or answered poorly.
      * Selects 1 Personal Response, 1 Project Presentation, and 2 questions from a
      * single Video Clip.
      */
@@ -390,55 +401,27 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
         pd.setCancelable(false);
         pd.show();
 
-        refQuestions.addListenerForSingleValueEvent(new ValueEventListener() {
+        String userId = (refAuth.getCurrentUser() != null) ? refAuth.getCurrentUser().getUid() : null;
+        QuestionSampler.create(this, userId, new QuestionSampler.Callback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                ArrayList<Question> personalList = new ArrayList<>();
-                ArrayList<Question> projectList = new ArrayList<>();
-                ArrayList<ArrayList<Question>> videoGroups = new ArrayList<>();
-                ArrayList<String> videoUrls = new ArrayList<>();
-
-                for (DataSnapshot categorySnap : snapshot.getChildren()) {
-                    String category = categorySnap.getKey();
-
-                    for (DataSnapshot topicSnap : categorySnap.getChildren()) {
-                        for (DataSnapshot questionSnap : topicSnap.getChildren()) {
-                            Question q = questionSnap.getValue(Question.class);
-                            if (q == null || q.getQuestionId() == null)
-                                continue;
-
-                            String catSafe = (category != null) ? category.trim() : "";
-
-                            if (catSafe.equals("Personal Questions")) {
-                                personalList.add(q);
-                            } else if (catSafe.equals("Project Questions")) {
-                                projectList.add(q);
-                            } else if (catSafe.equals("Video Clip Questions")) {
-                                groupVideoQuestions(q, videoUrls, videoGroups);
-                            }
-                        }
-                    }
-                }
+            public void onReady(QuestionSampler sampler) {
+                if (isFinishing() || isDestroyed()) return;
 
                 Random random = new Random();
                 questions.clear();
 
-                if (!personalList.isEmpty()) {
-                    questions.add(personalList.get(random.nextInt(personalList.size())));
-                }
-
-                if (!projectList.isEmpty()) {
-                    questions.add(projectList.get(random.nextInt(projectList.size())));
+                Question personal = sampler.sample("Personal Questions", random);
+                if (personal != null) {
+                    questions.add(personal);
                 }
 
-                ArrayList<ArrayList<Question>> eligibleGroups = new ArrayList<>();
-                for (ArrayList<Question> group : videoGroups) {
-                    if (group.size() >= 2)
-                        eligibleGroups.add(group);
+                Question project = sampler.sample("Project Questions", random);
+                if (project != null) {
+                    questions.add(project);
                 }
 
-                if (!eligibleGroups.isEmpty()) {
-                    ArrayList<Question> chosen = eligibleGroups.get(random.nextInt(eligibleGroups.size()));
+                List<Question> chosen = sampler.sampleVideoGroup(random);
+                if (chosen != null) {
                     questions.add(chosen.get(0));
                     questions.add(chosen.get(1));
                 }
@@ -455,39 +438,9 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
                     startSimulationFlow();
                 }
             }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                pd.dismiss();
-                Log.e("Firebase", error.getMessage());
-            }
         });
     }
 
-    /**
-     * Helper to group video questions by their shared YouTube URL.
-     *
-     * @param q           The question to evaluate.
-     * @param videoUrls   A list of already processed video URLs.
-     * @param videoGroups A list of question lists grouped by URL.
-     */
-    private void groupVideoQuestions(Question q, ArrayList<String> videoUrls,
-            ArrayList<ArrayList<Question>> videoGroups) {
-        String url = q.getVideoUrl();
-        if (url == null || url.isEmpty() || url.equals("null"))
-            return;
-
-        int index = videoUrls.indexOf(url);
-        if (index == -1) {
-            videoUrls.add(url);
-            ArrayList<Question> newList = new ArrayList<>();
-            newList.add(q);
-            videoGroups.add(newList);
-        } else {
-            videoGroups.get(index).add(q);
-        }
-    }
-
     /**
      * Sets up {@link RecordingManager} instances for each question in the
      * simulation.
@@ -498,7 +451,9 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
         }
         recordingManagers.clear();
         for (Question q : questions) {
-            recordingManagers.add(new RecordingManager(this, "SIM_" + q.getQuestionId() + ".aac"));
+            RecordingManager rm = new RecordingManager(this, "SIM_" + q.getQuestionId() + ".aac", AudioProfile.GRADING);
+            rm.setCompressPauses(true);
+            recordingManagers.add(rm);
         }
     }
 
@@ -724,7 +679,7 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
             return;
         }
 
-        String path = currentRecordingManager.getFinalFilePath();
+        String path = currentRecordingManager.getPreviewFilePath();
         if (path == null) {
             Toast.makeText(this, "No recording found", Toast.LENGTH_SHORT).show();
             return;
@@ -846,18 +801,17 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
                 .setPositiveButton("Finish", new DialogInterface.OnClickListener() {
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
-                        ArrayList<byte[]> filesBytes = new ArrayList<>();
                         ArrayList<String> mimeTypes = new ArrayList<>();
                         ArrayList<String> audioFilePaths = new ArrayList<>();
 
-                        if (!prepareSimulationPayload(filesBytes, mimeTypes, audioFilePaths)) {
+                        if (!prepareSimulationPayload(mimeTypes, audioFilePaths)) {
                             isFinishDialogOpen = false;
                             return;
                         }
 
                         pauseSimulationTimer();
                         isFinishDialogOpen = false;
-                        analyzeAndSaveSimulation(filesBytes, mimeTypes, audioFilePaths);
+                        gradeSimulation(mimeTypes, audioFilePaths);
                     }
                 })
                 .setNegativeButton("Cancel", null)
@@ -874,74 +828,371 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
      * Direct entry point for grading all answers after force-finishing.
      */
     private void gradeAllSimulationAnswersAndSave() {
-        ArrayList<byte[]> filesBytes = new ArrayList<>();
         ArrayList<String> mimeTypes = new ArrayList<>();
         ArrayList<String> audioFilePaths = new ArrayList<>();
 
-        if (!prepareSimulationPayload(filesBytes, mimeTypes, audioFilePaths))
+        if (!prepareSimulationPayload(mimeTypes, audioFilePaths))
             return;
-        analyzeAndSaveSimulation(filesBytes, mimeTypes, audioFilePaths);
+        gradeSimulation(mimeTypes, audioFilePaths);
     }
 
     /**
      * Collects audio data and metadata for all 4 questions to prepare for AI
      * analysis.
      *
-     * @param filesBytes     List to populate with audio data byte arrays.
      * @param mimeTypes      List to populate with audio MIME types.
      * @param audioFilePaths List to populate with local file paths.
      * @return true if all data was successfully prepared; false otherwise.
      */
-    private boolean prepareSimulationPayload(ArrayList<byte[]> filesBytes,
-            ArrayList<String> mimeTypes,
+    private boolean prepareSimulationPayload(ArrayList<String> mimeTypes,
             ArrayList<String> audioFilePaths) {
         if (questions == null || recordingManagers == null || questions.size() < 4 || recordingManagers.size() < 4) {
             Toast.makeText(this, "Simulation is not ready (missing questions/recordings).", Toast.LENGTH_SHORT).show();
             return false;
         }
 
+        // Check every answer before finalizing any, so a missing one leaves the others resumable
         for (int i = 0; i < 4; i++) {
             RecordingManager rm = recordingManagers.get(i);
             if (rm == null) {
                 Toast.makeText(this, "Missing recording manager for question " + (i + 1), Toast.LENGTH_SHORT).show();
                 return false;
             }
-
-            if (rm.isRecording()) {
-                rm.stopRecordingChunk();
+            if (!rm.hasRecording()) {
+                Toast.makeText(this, "Please record an answer for question " + (i + 1), Toast.LENGTH_SHORT).show();
+                return false;
             }
+        }
 
+        for (int i = 0; i < 4; i++) {
+            RecordingManager rm = recordingManagers.get(i);
+
+            // Stops the encoder and closes the file before its path is handed out
             String filePath = rm.getFinalFilePath();
             if (filePath == null) {
-                Toast.makeText(this, "Please record an answer for question " + (i + 1), Toast.LENGTH_SHORT).show();
+                Toast.makeText(this, "Failed saving the answer to question " + (i + 1), Toast.LENGTH_SHORT).show();
                 return false;
             }
 
+            mimeTypes.add("audio/aac");
+            audioFilePaths.add(filePath);
+        }
+
+        return true;
+    }
+
+    /**
+     * Grades the simulation answers using the configured grading mode.
+     *
+     * @param mimeTypes      MIME types for the audio files.
+     * @param audioFilePaths Local paths for the audio files.
+     */
+    private void gradeSimulation(ArrayList<String> mimeTypes,
+            ArrayList<String> audioFilePaths) {
+        if (USE_PARALLEL_GRADING) {
+            analyzeAndSaveSimulationInParallel(mimeTypes, audioFilePaths);
+        } else {
+            analyzeAndSaveSimulation(mimeTypes, audioFilePaths);
+        }
+    }
+
+    /**
+     * Gives the screen back to the user after grading was cancelled or failed: the countdown
+     * resumes so the answers can be submitted again, or the screen closes if time is up.
+     */
+    private void onGradingAbandoned() {
+        if (remainingSimulationMillis > 0) {
+            startOrResumeSimulationTimer();
+        } else {
+            Toast.makeText(this, "Simulation was not saved.", Toast.LENGTH_SHORT).show();
+            finish();
+        }
+    }
+
+    /**
+     * Builds the category-specific grading prompt for a single simulation question.
+     *
+     * @param q The question that was answered.
+     * @return The prompt with the question text (and video URL, if any) filled in.
+     */
+    private String buildTaskPrompt(Question q) {
+        String basePrompt = "";
+        switch (q.getCategory()) {
+            case "Personal Questions":
+                basePrompt = Prompts.PERSONAL_PROMPT;
+                break;
+            case "Project Questions":
+                basePrompt = Prompts.PROJECT_PROMPT;
+                break;
+            case "Video Clip Questions":
+                basePrompt = Prompts.VIDEO_CLIPS_PROMPT;
+                break;
+        }
+
+        String taskPrompt = basePrompt.replace("{QUESTION_TEXT}", q.getFullQuestion());
+        if ("Video Clip Questions".equals(q.getCategory()) && q.getVideoUrl() != null
+                && !q.getVideoUrl().equals("null")) {
+            taskPrompt = taskPrompt.replace("</input>",
+                    "<video_url>" + q.getVideoUrl() + "</video_url>\n</input>");
+        }
+        return taskPrompt;
+    }
+
+    /**
+     * Adds the pause report of a recording to its task prompt, if long pauses were
+     * shortened in the audio sent for grading.
+     *
+     * @param taskPrompt The task prompt built by {@link #buildTaskPrompt}.
+     * @param rm         The RecordingManager of the answer.
+     * @return The prompt, with the pause report inside its input section when relevant.
+     */
+    private String addPauseReport(String taskPrompt, RecordingManager rm) {
+        VoiceActivityDetector vad = rm.getVoiceActivity();
+        if (vad == null || vad.getCompressedPauseMs() == 0) {
+            return taskPrompt;
+        }
+
+        String report = Prompts.PAUSE_REPORT
+                .replace("{PAUSE_COUNT}", String.valueOf(vad.getLongPauseCount()))
+                .replace("{LONG_PAUSE_SECONDS}", String.valueOf(VoiceActivityDetector.LONG_PAUSE_MS / 1000))
+                .replace("{LONGEST_PAUSE_SECONDS}", String.format(Locale.US, "%.1f", vad.getLongestPauseMs() / 1000.0))
+                .replace("{REMOVED_SECONDS}", String.format(Locale.US, "%.1f", vad.getCompressedPauseMs() / 1000.0));
+        return taskPrompt.replace("</input>", report + "</input>");
+    }
+
+    /**
+     * Grades the 4 recordings as 4 concurrent per-question requests, each with its own
+     * category prompt.
+     * <p>
+     * The total wait is that of the slowest single answer instead of one giant request,
+     * and a failed or malformed answer is retried on its own without re-sending the others.
+     * Recordings are sent from disk (uploaded once through the File API), so their bytes are
+     * never held in memory here.
+     * </p>
+     *
+     * @param mimeTypes      MIME types for the audio files.
+     * @param audioFilePaths Local paths for the audio files.
+     */
+    private void analyzeAndSaveSimulationInParallel(ArrayList<String> mimeTypes,
+            ArrayList<String> audioFilePaths) {
+        ProgressDialog pd = new ProgressDialog(this);
+        pd.setCancelable(false);
+        pd.setTitle("Analyzing simulation...");
+        pd.setMessage("Waiting for Gemini...");
+        pd.show();
+
+        JSONObject[] sections = new JSONObject[4];
+        boolean[] settled = new boolean[4];
+        for (int i = 0; i < 4; i++) {
+            gradeSingleAnswer(i, mimeTypes, audioFilePaths, sections, settled, pd);
+        }
+    }
+
+    /**
+     * Sends a single simulation answer for grading and records its result.
+     * Transient failures are already retried by {@link GeminiManager}; once every answer has
+     * settled, the simulation is either saved or the user is offered to retry only the
+     * answers that failed.
+     *
+     * @param index          Index of the answer to grade (0-3).
+     * @param mimeTypes      MIME types for the audio files.
+     * @param audioFilePaths Local paths for the audio files.
+     * @param sections       Graded JSON sections, filled in as answers complete.
+     * @param settled        Whether the grading request of each answer has finished.
+     * @param pd             The progress dialog shown while grading.
+     */
+    private void gradeSingleAnswer(final int index,
+            final ArrayList<String> mimeTypes,
+            final ArrayList<String> audioFilePaths,
+            final JSONObject[] sections,
+            final boolean[] settled,
+            final ProgressDialog pd) {
+        settled[index] = false;
+        RecordingManager rm = recordingManagers.get(index);
+        if (!rm.hasSpeech()) {
+            // Entirely silent answer: apply the empty audio rule without calling the model
             try {
-                byte[] bytes = rm.getBytes(filePath);
-                filesBytes.add(bytes);
-                mimeTypes.add("audio/aac");
-                audioFilePaths.add(filePath);
-            } catch (IOException e) {
-                Toast.makeText(this, "Failed reading audio for question " + (i + 1), Toast.LENGTH_SHORT).show();
-                return false;
+                sections[index] = new JSONObject(Prompts.EMPTY_AUDIO_RESULT);
+            } catch (JSONException e) {
+                Log.e("SimulationsActivity", "Invalid empty audio result", e);
             }
+            onAnswerSettled(index, mimeTypes, audioFilePaths, sections, settled, pd);
+            return;
         }
+        final String prompt = addPauseReport(buildTaskPrompt(questions.get(index)), rm);
+        // Grading gets the trimmed copy; audioFilePaths keep the full recordings for the upload
+        final File gradingFile = new File(rm.getGradingFilePath());
 
-        return true;
+        GeminiRequest request = GeminiManager.getInstance().sendTextWithAudioFilePrompt(prompt,
+                gradingFile, mimeTypes.get(index), new GeminiCallback() {
+                    @Override
+                    public void onSuccess(String result) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    String cleanedJson = (result == null) ? ""
+                                            : result.replaceAll("```json", "").replaceAll("```", "").trim();
+                                    JSONObject section = new JSONObject(cleanedJson);
+                                    if (isValidSection(section)) {
+                                        sections[index] = section;
+                                    }
+                                } catch (JSONException e) {
+                                    Log.e("SimulationsActivity", "Parse error for answer " + (index + 1), e);
+                                }
+                                if (sections[index] == null) {
+                                    // Otherwise a retry would be served the same cached response
+                                    GeminiManager.getInstance().evictCachedResponse(prompt,
+                                            gradingFile, mimeTypes.get(index));
+                                }
+                                onAnswerSettled(index, mimeTypes, audioFilePaths, sections, settled, pd);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Log.e("SimulationsActivity", "Grading failed for answer " + (index + 1), error);
+                                onAnswerSettled(index, mimeTypes, audioFilePaths, sections, settled, pd);
+                            }
+                        });
+                    }
+                });
+        gradingRequests.add(request);
+    }
+
+    /**
+     * Checks that a graded JSON section contains every field needed to build a Recording.
+     *
+     * @param section The graded JSON section of a single answer.
+     * @return true if all scores and feedback entries are present.
+     */
+    private boolean isValidSection(JSONObject section) {
+        JSONObject feedback = section.optJSONObject("feedback");
+        return section.has("topicDevelopment") && section.has("delivery") && section.has("vocabulary")
+                && section.has("language") && section.has("totalSectionScore") && feedback != null
+                && feedback.has("topicDevelopment") && feedback.has("delivery") && feedback.has("vocabulary")
+                && feedback.has("language") && feedback.has("overallSummary");
+    }
+
+    /**
+     * Builds the progress message listing the score and summary of every answer graded so far.
+     *
+     * @param sections The graded JSON sections, null for answers still being graded.
+     * @return The message to show in the progress dialog.
+     */
+    private String describeGradedSections(JSONObject[] sections) {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < sections.length; i++) {
+            if (message.length() > 0) message.append("\n\n");
+            message.append("Answer ").append(i + 1).append(": ");
+            if (sections[i] == null) {
+                message.append("grading...");
+                continue;
+            }
+            message.append(sections[i].optInt("totalSectionScore")).append("/100");
+            JSONObject feedback = sections[i].optJSONObject("feedback");
+            String summary = feedback == null ? "" : feedback.optString("overallSummary");
+            if (!summary.isEmpty()) {
+                message.append("\n").append(summary);
+            }
+        }
+        return message.toString();
+    }
+
+    /**
+     * Handles the outcome of a single grading request in parallel mode.
+     *
+     * @param index          Index of the answer that settled.
+     * @param mimeTypes      MIME types for the audio files.
+     * @param audioFilePaths Local paths for the audio files.
+     * @param sections       Graded JSON sections, filled in as answers complete.
+     * @param settled        Whether the grading request of each answer has finished.
+     * @param pd             The progress dialog shown while grading.
+     */
+    private void onAnswerSettled(int index,
+            ArrayList<String> mimeTypes,
+            ArrayList<String> audioFilePaths,
+            JSONObject[] sections,
+            boolean[] settled,
+            ProgressDialog pd) {
+        settled[index] = true;
+
+        int graded = 0;
+        final ArrayList<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            if (sections[i] != null) {
+                graded++;
+            } else if (settled[i]) {
+                failed.add(i);
+            }
+        }
+        pd.setMessage(describeGradedSections(sections));
+
+        // Wait until every answer has either been graded or given up on
+        if (graded + failed.size() < 4) return;
+
+        if (failed.isEmpty()) {
+            pd.dismiss();
+            saveGradedSections(sections, audioFilePaths);
+            return;
+        }
+
+        StringBuilder failedLabels = new StringBuilder();
+        for (int i : failed) {
+            if (failedLabels.length() > 0) failedLabels.append(", ");
+            failedLabels.append(i + 1);
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Grading failed")
+                .setMessage("Could not grade answer(s) " + failedLabels + ". Retry only these answers?")
+                .setCancelable(false)
+                .setPositiveButton("Retry", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        pd.setMessage("Retrying failed answers...");
+                        for (int i : failed) {
+                            gradeSingleAnswer(i, mimeTypes, audioFilePaths, sections, settled, pd);
+                        }
+                    }
+                })
+                .setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        pd.dismiss();
+                        onGradingAbandoned();
+                    }
+                })
+                .show();
     }
 
     /**
      * Constructs the batch prompt for Gemini and initiates the AI analysis for all
      * recordings.
      *
-     * @param filesBytes     Audio data for the 4 recordings.
      * @param mimeTypes      MIME types for the audio files.
      * @param audioFilePaths Local paths for the audio files.
      */
-    private void analyzeAndSaveSimulation(ArrayList<byte[]> filesBytes,
-            ArrayList<String> mimeTypes,
+    private void analyzeAndSaveSimulation(ArrayList<String> mimeTypes,
             ArrayList<String> audioFilePaths) {
+        // The batch request embeds the audio, so only this mode reads the files into memory.
+        // Grading gets the trimmed copies; audioFilePaths keep the full recordings for the upload
+        ArrayList<byte[]> filesBytes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            try {
+                RecordingManager rm = recordingManagers.get(i);
+                filesBytes.add(rm.getBytes(rm.getGradingFilePath()));
+            } catch (IOException e) {
+                Toast.makeText(this, "Failed reading audio for question " + (i + 1), Toast.LENGTH_SHORT).show();
+                onGradingAbandoned();
+                return;
+            }
+        }
+
         ProgressDialog pd = new ProgressDialog(this);
         pd.setCancelable(false);
         pd.setTitle("Analyzing simulation...");
@@ -963,40 +1214,41 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
             }
 
             categoryPrompts.append("\n--- Recording ").append(i + 1).append(" ---\n");
-
-            String basePrompt = "";
-            switch (q.getCategory()) {
-                case "Personal Questions":
-                    basePrompt = Prompts.PERSONAL_PROMPT;
-                    break;
-                case "Project Questions":
-                    basePrompt = Prompts.PROJECT_PROMPT;
-                    break;
-                case "Video Clip Questions":
-                    basePrompt = Prompts.VIDEO_CLIPS_PROMPT;
-                    break;
-            }
-
-            String taskPrompt = basePrompt.replace("{QUESTION_TEXT}", q.getFullQuestion());
-            if ("Video Clip Questions".equals(q.getCategory()) && q.getVideoUrl() != null
-                    && !q.getVideoUrl().equals("null")) {
-                taskPrompt = taskPrompt.replace("</input>",
-                        "<video_url>" + q.getVideoUrl() + "</video_url>\n</input>");
-            }
-            categoryPrompts.append(taskPrompt).append("\n");
+            categoryPrompts.append(addPauseReport(buildTaskPrompt(q), recordingManagers.get(i))).append("\n");
         }
 
         String finalPrompt = Prompts.SIMULATION_MASTER_PROMPT
                 .replace("{RECORDINGS_DETAILS}", recordingsDetails.toString())
                 .replace("{CATEGORY_TASKS}", categoryPrompts.toString());
 
-        GeminiManager.getInstance().sendTextWithFilesPrompt(finalPrompt, filesBytes, mimeTypes, new GeminiCallback() {
+        // Show each graded answer's feedback as soon as its section of the JSON is complete
+        final JSONObject[] sections = new JSONObject[4];
+        final StreamingJsonParser parser = new StreamingJsonParser(new StreamingJsonParser.SectionListener() {
             @Override
-            public void onSuccess(String result) {
-                pd.dismiss();
+            public void onSectionComplete(int index, JSONObject section) {
+                if (index >= sections.length) return;
+                sections[index] = section;
                 runOnUiThread(new Runnable() {
                     @Override
                     public void run() {
+                        pd.setMessage(describeGradedSections(sections));
+                    }
+                });
+            }
+        });
+
+        GeminiRequest request = GeminiManager.getInstance().sendTextWithFilesPromptStream(finalPrompt, filesBytes, mimeTypes, new GeminiStreamCallback() {
+            @Override
+            public void onPartial(String chunk) {
+                parser.feed(chunk);
+            }
+
+            @Override
+            public void onComplete(String result) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        pd.dismiss();
                         parseAndSaveSimulation(result, audioFilePaths);
                     }
                 });
@@ -1004,11 +1256,18 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
 
             @Override
             public void onFailure(Throwable error) {
-                pd.dismiss();
-                Toast.makeText(SimulationsActivity.this, "Gemini error: " + error.getMessage(), Toast.LENGTH_LONG)
-                        .show();
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        pd.dismiss();
+                        Toast.makeText(SimulationsActivity.this, "Gemini error: " + error.getMessage(), Toast.LENGTH_LONG)
+                                .show();
+                        onGradingAbandoned();
+                    }
+                });
             }
         });
+        gradingRequests.add(request);
     }
 
     /**
@@ -1028,6 +1287,26 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
                 return;
             }
 
+            JSONObject[] sections = new JSONObject[4];
+            for (int i = 0; i < 4; i++) {
+                sections[i] = recordingsArr.getJSONObject(i);
+            }
+            saveGradedSections(sections, audioFilePaths);
+        } catch (JSONException e) {
+            Toast.makeText(this, "Failed parsing Gemini JSON.", Toast.LENGTH_SHORT).show();
+            Log.e("SimulationsActivity", "Parse error", e);
+        }
+    }
+
+    /**
+     * Builds Recording objects from the 4 graded JSON sections, aggregates the overall
+     * simulation score and starts saving them.
+     *
+     * @param sections       The graded JSON section of each answer, in question order.
+     * @param audioFilePaths Local paths for the audio files.
+     */
+    private void saveGradedSections(JSONObject[] sections, ArrayList<String> audioFilePaths) {
+        try {
             ArrayList<Recording> recordingsToSave = new ArrayList<>();
             ArrayList<String> recordingIds = new ArrayList<>();
             ArrayList<Integer> scores = new ArrayList<>();
@@ -1056,7 +1335,7 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
                 int totalScore;
                 Map<String, TopicDetail> aiFeedBack = new HashMap<>();
 
-                JSONObject obj = recordingsArr.getJSONObject(i);
+                JSONObject obj = sections[i];
                 int topicDevelopmentScore = obj.getInt("topicDevelopment");
                 int deliveryScore = obj.getInt("delivery");
                 int vocabularyScore = obj.getInt("vocabulary");
@@ -1088,93 +1367,29 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
                 overallScore += s;
             overallScore = Math.round(overallScore / 4f);
 
-            uploadRecordingsSequentially(0, recordingsToSave, recordingIds, audioFilePaths, overallScore,
+            queueSimulationAndNavigate(recordingsToSave, recordingIds, audioFilePaths, overallScore,
                     simulationDate);
         } catch (JSONException e) {
-            Toast.makeText(this, "Failed parsing Gemini JSON.", Toast.LENGTH_SHORT).show();
-            Log.e("SimulationsActivity", "Parse error", e);
-        }
-    }
-
-    /**
-     * Sequentially uploads recording files to Firebase Storage and their metadata
-     * to the Database.
-     *
-     * @param idx              Current index in the recordings list.
-     * @param recordingsToSave List of Recording objects.
-     * @param recordingIds     List of recording IDs.
-     * @param audioFilePaths   List of local file paths.
-     * @param overallScore     Average score of the simulation.
-     * @param simulationDate   Date the simulation was completed.
-     */
-    private void uploadRecordingsSequentially(final int idx,
-            final ArrayList<Recording> recordingsToSave,
-            final ArrayList<String> recordingIds,
-            final ArrayList<String> audioFilePaths,
-            final int overallScore,
-            final Date simulationDate) {
-        final int total = recordingsToSave.size();
-        if (idx >= total) {
-            createSimulationAndNavigate(recordingsToSave, recordingIds, overallScore, simulationDate);
-            return;
+            Toast.makeText(this, "AI returned unexpected format.", Toast.LENGTH_SHORT).show();
+            Log.e("SimulationsActivity", "Section format error", e);
         }
-
-        String userId = recordingsToSave.get(idx).getUserId();
-        Recording rec = recordingsToSave.get(idx);
-        String filePath = audioFilePaths.get(idx);
-
-        StorageReference fileRef = refRecordingsMedia.child(userId + "/" + rec.getRecordingId() + ".aac");
-        ProgressDialog savingPd = new ProgressDialog(this);
-        savingPd.setCancelable(false);
-        savingPd.setMessage("Saving simulation recordings (" + (idx + 1) + "/" + total + ")...");
-        savingPd.show();
-
-        fileRef.putFile(Uri.fromFile(new File(filePath)))
-                .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
-                    @Override
-                    public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
-                        refRecordings.child(userId).child(rec.getQuestionId()).child(rec.getRecordingId())
-                                .setValue(rec)
-                                .addOnSuccessListener(new OnSuccessListener<Void>() {
-                                    @Override
-                                    public void onSuccess(Void unused) {
-                                        savingPd.dismiss();
-                                        uploadRecordingsSequentially(idx + 1, recordingsToSave, recordingIds,
-                                                audioFilePaths, overallScore, simulationDate);
-                                    }
-                                })
-                                .addOnFailureListener(new OnFailureListener() {
-                                    @Override
-                                    public void onFailure(@NonNull Exception e) {
-                                        savingPd.dismiss();
-                                        Toast.makeText(SimulationsActivity.this,
-                                                "Failed saving recording: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                                    }
-                                });
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        savingPd.dismiss();
-                        Toast.makeText(SimulationsActivity.this, "Upload failed: " + e.getMessage(), Toast.LENGTH_LONG)
-                                .show();
-                    }
-                });
     }
 
     /**
-     * Persists the global Simulation object to Firebase and navigates to the
-     * results screen.
+     * Hands the simulation and its recordings to the {@link UploadQueue} and opens the results
+     * right away; the four recordings upload in parallel in the background and the simulation
+     * is saved once they are all stored.
      *
      * @param recordingsToSave List of finalized Recording objects.
      * @param recordingIds     List of finalized recording IDs.
+     * @param audioFilePaths   List of local file paths.
      * @param overallScore     Calculated overall score.
      * @param simulationDate   Completion timestamp.
      */
-    private void createSimulationAndNavigate(ArrayList<Recording> recordingsToSave,
+    private void queueSimulationAndNavigate(final ArrayList<Recording> recordingsToSave,
             ArrayList<String> recordingIds,
-            int overallScore,
+            ArrayList<String> audioFilePaths,
+            final int overallScore,
             Date simulationDate) {
         String userId = recordingsToSave.get(0).getUserId();
         String simulationId = refSimulations.push().getKey();
@@ -1190,23 +1405,28 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
         sim.setOverAllScore(overallScore);
         sim.setRecordingsIds(recordingIds);
 
-        refSimulations.child(userId).child(simulationId).setValue(sim)
-                .addOnSuccessListener(new OnSuccessListener<Void>() {
+        ArrayList<String> categories = new ArrayList<>();
+        ArrayList<File> audioFiles = new ArrayList<>();
+        for (int i = 0; i < recordingsToSave.size(); i++) {
+            categories.add(questions.get(i).getCategory());
+            audioFiles.add(new File(audioFilePaths.get(i)));
+        }
+
+        UploadQueue.getInstance(this).enqueueSimulation(sim, recordingsToSave, categories, audioFiles,
+                new UploadQueue.Callback() {
                     @Override
-                    public void onSuccess(Void unused) {
+                    public void onQueued(boolean queued) {
+                        if (!queued) {
+                            Toast.makeText(SimulationsActivity.this, "Failed saving simulation.",
+                                    Toast.LENGTH_LONG).show();
+                            return;
+                        }
                         Intent i = new Intent(SimulationsActivity.this, SimulationResultsActivity.class);
                         i.putExtra("overallScore", overallScore);
                         i.putExtra("recordings", recordingsToSave);
                         startActivity(i);
                         finish();
                     }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Toast.makeText(SimulationsActivity.this, "Failed saving simulation: " + e.getMessage(),
-                                Toast.LENGTH_LONG).show();
-                    }
                 });
     }
 
@@ -1277,6 +1497,9 @@ public class SimulationsActivity extends Utilities implements View.OnClickListen
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        for (GeminiRequest request : gradingRequests) {
+            request.cancel();
+        }
         if (tts != null)
             tts.destroy();
         if (simulationTimer != null)
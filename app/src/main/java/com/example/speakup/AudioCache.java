@@ -0,0 +1,615 @@
+package com.example.speakup;
+
+import static com.example.speakup.Utils.FBRef.refRecordingsMedia;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.speakup.Objects.Recording;
+import com.example.speakup.Utils.StreamingAudioSource;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded on-disk cache of recording audio, keyed by recording ID.
+ * <p>
+ * A recording's audio never changes once uploaded, so its ID identifies its content. Entries
+ * are stored as individual files in the app's files directory and evicted in least-recently-used
+ * order once they take more than {@link #MAX_CACHE_BYTES}. Missing audio is streamed from its
+ * Storage download URL straight into the cache with HTTP range requests, one
+ * {@link StreamingAudioSource#CHUNK_SIZE} chunk at a time, starting from wherever the player
+ * is reading. Playback therefore starts once the first chunk is in, and a seek only waits
+ * for the chunk it lands on. On unmetered networks, the user's latest recordings are
+ * prefetched so opening them plays at once.
+ * </p>
+ * <p>
+ * Audio opened for playback always comes first: its download runs on its own threads, a
+ * prefetch of the same recording still waiting for its turn is moved there, and running
+ * prefetches pause between chunks until no opened audio is downloading.
+ * </p>
+ */
+public class AudioCache {
+    /**
+     * The single instance of AudioCache.
+     */
+    private static AudioCache instance;
+
+    /**
+     * Maximum total size of the cached audio, in bytes.
+     */
+    private static final long MAX_CACHE_BYTES = 50L * 1024 * 1024;
+
+    /**
+     * Number of most recent recordings prefetched on unmetered networks.
+     */
+    private static final int PREFETCH_COUNT = 5;
+
+    /**
+     * Maximum number of audio files opened for playback downloaded at the same time.
+     */
+    private static final int MAX_PARALLEL_DOWNLOADS = 2;
+
+    /**
+     * Number of times a chunk is requested before the download fails.
+     */
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    /**
+     * Connect and read timeout of a chunk request, in milliseconds.
+     */
+    private static final int TIMEOUT_MS = 15000;
+
+    /**
+     * Name of the directory (inside the app files directory) holding the entries.
+     */
+    private static final String CACHE_DIR_NAME = "audio_cache";
+
+    /**
+     * Suffix of a file still being downloaded.
+     */
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    /**
+     * The application context.
+     */
+    private final Context context;
+
+    /**
+     * The directory holding one file per cached recording.
+     */
+    private final File cacheDir;
+
+    /**
+     * Access-ordered index of the cached entries, from least to most recently used.
+     */
+    private final LinkedHashMap<String, File> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Threads running the chunked downloads of audio opened for playback.
+     */
+    private final ExecutorService downloadExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_DOWNLOADS);
+
+    /**
+     * Thread running the prefetches one at a time; queued ones can be taken back when opened.
+     */
+    private final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>());
+
+    /**
+     * The downloads in progress, by recording ID.
+     */
+    private final Map<String, Download> downloads = new HashMap<>();
+
+    /**
+     * Number of downloads in progress for audio opened for playback; prefetches wait while
+     * it is not zero.
+     */
+    private int urgentDownloads;
+
+    /**
+     * Total size of the cached entries, in bytes.
+     */
+    private long totalBytes;
+
+    /**
+     * A download in progress.
+     */
+    private static class Download {
+        /**
+         * The recording ID.
+         */
+        final String recordingId;
+
+        /**
+         * The file being written.
+         */
+        final File partial;
+
+        /**
+         * The source fed by the download.
+         */
+        final StreamingAudioSource source;
+
+        /**
+         * Whether the audio was opened for playback. Guarded by the cache.
+         */
+        boolean urgent;
+
+        /**
+         * The task fetching the chunks, or null while the download URL is requested.
+         * Guarded by the cache.
+         */
+        Runnable task;
+
+        /**
+         * Creates a download.
+         *
+         * @param recordingId The recording ID.
+         * @param partial     The file being written.
+         * @param urgent      Whether the audio was opened for playback.
+         */
+        Download(String recordingId, File partial, boolean urgent) {
+            this.recordingId = recordingId;
+            this.partial = partial;
+            this.source = new StreamingAudioSource(partial);
+            this.urgent = urgent;
+        }
+    }
+
+    /**
+     * Private constructor that loads the existing entries from disk.
+     *
+     * @param context The application context.
+     */
+    private AudioCache(Context context) {
+        this.context = context;
+        cacheDir = new File(context.getFilesDir(), CACHE_DIR_NAME);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            // Restore the LRU order from the last access time stored in the file timestamps
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    return Long.compare(a.lastModified(), b.lastModified());
+                }
+            });
+            for (File file : files) {
+                if (file.getName().endsWith(PARTIAL_SUFFIX)) {
+                    // Left over by a download the process did not finish.
+                    file.delete();
+                    continue;
+                }
+                entries.put(keyOf(file), file);
+                totalBytes += file.length();
+            }
+        }
+    }
+
+    /**
+     * Returns the singleton instance of AudioCache.
+     *
+     * @param context Any Context; the application context is retained.
+     * @return The AudioCache instance.
+     */
+    public static synchronized AudioCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AudioCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Looks up the cached audio of a recording.
+     *
+     * @param recordingId The recording ID.
+     * @return The audio file, or null if it is not cached.
+     */
+    @Nullable
+    public synchronized File get(String recordingId) {
+        File file = entries.get(recordingId);
+        if (file == null) return null;
+        if (!file.exists()) {
+            entries.remove(recordingId);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Moves audio that is already on the device (e.g., a recording that was just uploaded)
+     * into the cache.
+     *
+     * @param recordingId The recording ID.
+     * @param source      The audio file; it is moved.
+     */
+    public synchronized void put(String recordingId, File source) {
+        File target = fileFor(recordingId);
+        if (!source.renameTo(target)) {
+            try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+                byte[] buffer = new byte[8192];
+                int len;
+                while ((len = in.read(buffer)) > 0) out.write(buffer, 0, len);
+            } catch (IOException e) {
+                Log.e("AudioCache", "Failed caching audio", e);
+                target.delete();
+                return;
+            }
+            source.delete();
+        }
+        addEntry(recordingId, target);
+    }
+
+    /**
+     * Opens a recording's audio for playback, from the cache if possible and otherwise by
+     * streaming it into the cache.
+     *
+     * @param rec The recording.
+     * @return A source that can be played right away; reads wait for the bytes to arrive.
+     */
+    public synchronized StreamingAudioSource open(Recording rec) {
+        File cached = get(rec.getRecordingId());
+        if (cached != null) return StreamingAudioSource.forCompleteFile(cached);
+        return download(rec, true);
+    }
+
+    /**
+     * Prefetches the audio of the user's most recent recordings when on an unmetered network,
+     * so opening them plays at once.
+     *
+     * @param userId The user ID.
+     */
+    public void prefetchRecent(String userId) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        if (activeNetwork == null || !activeNetwork.isConnected() || cm.isActiveNetworkMetered()) return;
+
+        RecordingRepository.getInstance(context).getRecordings(userId, null,
+                new RecordingRepository.Callback<ArrayList<Recording>>() {
+            @Override
+            public void onResult(ArrayList<Recording> recordings) {
+                // Recordings come oldest first.
+                List<Recording> recent = recordings.subList(Math.max(0, recordings.size() - PREFETCH_COUNT),
+                        recordings.size());
+                for (Recording rec : recent) {
+                    prefetch(rec);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts downloading a recording's audio unless it is cached, downloading or still on the
+     * device waiting to be uploaded.
+     *
+     * @param rec The recording.
+     */
+    private synchronized void prefetch(Recording rec) {
+        if (new File(context.getFilesDir(), rec.getRecordingId() + ".aac").exists()) return;
+        if (get(rec.getRecordingId()) != null) return;
+        download(rec, false);
+    }
+
+    /**
+     * Streams a recording's audio from Storage into the cache, or joins the download already
+     * in progress, moving it ahead of the prefetches if the audio is now opened.
+     *
+     * @param rec    The recording.
+     * @param urgent Whether the audio is opened for playback rather than prefetched.
+     * @return The source fed by the download.
+     */
+    private synchronized StreamingAudioSource download(Recording rec, boolean urgent) {
+        final String recordingId = rec.getRecordingId();
+        Download running = downloads.get(recordingId);
+        if (running != null) {
+            if (urgent && !running.urgent) promote(running);
+            return running.source;
+        }
+
+        final Download download = new Download(recordingId,
+                new File(cacheDir, recordingId + ".aac" + PARTIAL_SUFFIX), urgent);
+        downloads.put(recordingId, download);
+        if (urgent) urgentDownloads++;
+
+        refRecordingsMedia.child(rec.getUserId() + "/" + recordingId + ".aac").getDownloadUrl()
+                .addOnSuccessListener(new OnSuccessListener<Uri>() {
+                    @Override
+                    public void onSuccess(final Uri uri) {
+                        schedule(download, uri.toString());
+                    }
+                })
+                .addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception e) {
+                        failDownload(download, e);
+                    }
+                });
+        return download.source;
+    }
+
+    /**
+     * Queues the chunk fetching of a download whose URL is known, on the playback threads
+     * or behind the other prefetches.
+     *
+     * @param download The download.
+     * @param url      The download URL of the audio.
+     */
+    private synchronized void schedule(final Download download, final String url) {
+        download.task = new Runnable() {
+            @Override
+            public void run() {
+                fetchChunks(download, url);
+            }
+        };
+        if (download.urgent) {
+            downloadExecutor.execute(download.task);
+        } else {
+            prefetchExecutor.execute(download.task);
+        }
+    }
+
+    /**
+     * Marks a prefetch as opened for playback: a prefetch still waiting for its turn moves to
+     * the playback threads, and a running one stops pausing for other opened audio.
+     *
+     * @param download The download.
+     */
+    private synchronized void promote(Download download) {
+        download.urgent = true;
+        urgentDownloads++;
+        if (download.task != null && prefetchExecutor.remove(download.task)) {
+            downloadExecutor.execute(download.task);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Ends a download, letting the prefetches resume if it was the last opened one.
+     *
+     * @param download The download.
+     */
+    private synchronized void endDownload(Download download) {
+        downloads.remove(download.recordingId);
+        if (download.urgent && --urgentDownloads == 0) notifyAll();
+    }
+
+    /**
+     * Blocks a prefetch until no audio opened for playback is downloading, so it does not
+     * compete with it for bandwidth. Returns at once for opened audio. Download thread only.
+     *
+     * @param download The download about to fetch a chunk.
+     */
+    private synchronized void awaitTurn(Download download) {
+        while (!download.urgent && urgentDownloads > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Downloads every chunk of a file with HTTP range requests, always fetching next the first
+     * missing chunk from where the player is reading. Download thread only.
+     *
+     * @param download The download.
+     * @param url      The download URL of the audio.
+     */
+    private void fetchChunks(Download download, String url) {
+        StreamingAudioSource source = download.source;
+        try (RandomAccessFile out = new RandomAccessFile(download.partial, "rw")) {
+            // The first chunk also reveals the size, which is needed to pick the next ones.
+            awaitTurn(download);
+            fetchChunk(url, 0, out, source);
+            int chunk;
+            while ((chunk = source.nextMissingChunk()) >= 0) {
+                awaitTurn(download);
+                fetchChunk(url, chunk, out, source);
+            }
+        } catch (IOException e) {
+            failDownload(download, e);
+            return;
+        }
+
+        synchronized (this) {
+            endDownload(download);
+            File target = fileFor(download.recordingId);
+            if (download.partial.renameTo(target)) {
+                addEntry(download.recordingId, target);
+                source.onComplete(target);
+            } else {
+                source.onComplete(download.partial);
+            }
+        }
+    }
+
+    /**
+     * Downloads one chunk, retrying a few times on network errors. Download thread only.
+     *
+     * @param url    The download URL of the audio.
+     * @param chunk  The chunk index.
+     * @param out    The file being written.
+     * @param source The source to report progress to.
+     * @throws IOException If every attempt failed.
+     */
+    private void fetchChunk(String url, int chunk, RandomAccessFile out, StreamingAudioSource source)
+            throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < MAX_CHUNK_ATTEMPTS; attempt++) {
+            try {
+                fetchChunkOnce(url, chunk, out, source);
+                return;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Downloads one chunk with a single range request. If the server ignores the range and
+     * sends the whole file, the whole file is written instead. Download thread only.
+     *
+     * @param url    The download URL of the audio.
+     * @param chunk  The chunk index.
+     * @param out    The file being written.
+     * @param source The source to report progress to.
+     * @throws IOException If the request fails or returns fewer bytes than announced.
+     */
+    private void fetchChunkOnce(String url, int chunk, RandomAccessFile out, StreamingAudioSource source)
+            throws IOException {
+        int chunkSize = StreamingAudioSource.CHUNK_SIZE;
+        long start = (long) chunk * chunkSize;
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(TIMEOUT_MS);
+        conn.setReadTimeout(TIMEOUT_MS);
+        conn.setRequestProperty("Range", "bytes=" + start + "-" + (start + chunkSize - 1));
+        try {
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                // Content-Range: bytes <first>-<last>/<total>
+                String range = conn.getHeaderField("Content-Range");
+                long total = (range != null && range.contains("/"))
+                        ? Long.parseLong(range.substring(range.indexOf('/') + 1).trim()) : -1;
+                if (total < 0) throw new IOException("Missing Content-Range");
+                long expected = Math.min(chunkSize, total - start);
+                if (copy(conn.getInputStream(), out, start, expected) != expected) {
+                    throw new IOException("Truncated chunk " + chunk);
+                }
+                source.onSize(total);
+                source.onChunk(chunk);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                long total = copy(conn.getInputStream(), out, 0, Long.MAX_VALUE);
+                source.onSize(total);
+                for (int i = 0; (long) i * chunkSize < total; i++) {
+                    source.onChunk(i);
+                }
+            } else if (code == 416) {
+                // Range not satisfiable: the file is empty.
+                source.onSize(0);
+            } else {
+                throw new IOException("HTTP " + code);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed Content-Range", e);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Copies a response body into the file at a position.
+     *
+     * @param in       The response body.
+     * @param out      The file being written.
+     * @param position Where to write.
+     * @param limit    Maximum number of bytes to copy.
+     * @return The number of bytes copied.
+     * @throws IOException If reading or writing fails.
+     */
+    private static long copy(InputStream in, RandomAccessFile out, long position, long limit) throws IOException {
+        try {
+            out.seek(position);
+            byte[] buffer = new byte[8192];
+            long copied = 0;
+            int len;
+            while (copied < limit && (len = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied))) > 0) {
+                out.write(buffer, 0, len);
+                copied += len;
+            }
+            return copied;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Ends a failed download; its readers fail and the partial file is removed.
+     *
+     * @param download The download.
+     * @param e        The failure.
+     */
+    private synchronized void failDownload(Download download, Exception e) {
+        Log.e("AudioCache", "Failed downloading audio", e);
+        endDownload(download);
+        download.partial.delete();
+        download.source.onFailed();
+    }
+
+    /**
+     * Records a new entry and evicts the least recently used ones beyond the size limit.
+     *
+     * @param recordingId The recording ID.
+     * @param file        The cached file.
+     */
+    private void addEntry(String recordingId, File file) {
+        File previous = entries.put(recordingId, file);
+        if (previous != null) totalBytes -= previous.length();
+        totalBytes += file.length();
+
+        Iterator<Map.Entry<String, File>> it = entries.entrySet().iterator();
+        // Never evict the entry just added, even if it alone exceeds the limit.
+        while (totalBytes > MAX_CACHE_BYTES && entries.size() > 1 && it.hasNext()) {
+            File evicted = it.next().getValue();
+            totalBytes -= evicted.length();
+            evicted.delete();
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the cache file of a recording.
+     *
+     * @param recordingId The recording ID.
+     * @return The file, which may not exist.
+     */
+    private File fileFor(String recordingId) {
+        return new File(cacheDir, recordingId + ".aac");
+    }
+
+    /**
+     * Returns the recording ID a cache file belongs to.
+     *
+     * @param file The cache file.
+     * @return The recording ID.
+     */
+    private static String keyOf(File file) {
+        String name = file.getName();
+        return name.endsWith(".aac") ? name.substring(0, name.length() - 4) : name;
+    }
+}
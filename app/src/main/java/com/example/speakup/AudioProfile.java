@@ -0,0 +1,81 @@
+package com.example.speakup;
+
+/**
+ * Encoding settings used by {@link RecordingManager} for a recording.
+ * <p>
+ * The app only records speech, so the default profiles are mono and use sampling rates and
+ * bit rates suited to voice rather than music. {@link #GRADING} matches what the model uses
+ * internally (16 kHz), keeping uploads as small as possible. {@link #ARCHIVAL} keeps a little
+ * more detail for recordings the student replays later.
+ * </p>
+ */
+public class AudioProfile {
+    /**
+     * Mono, 16 kHz, 32 kbps AAC: for recordings that are mainly sent for grading.
+     */
+    public static final AudioProfile GRADING = new AudioProfile("grading", 16000, 1, 32000);
+
+    /**
+     * Mono, 24 kHz, 48 kbps AAC: for recordings kept for playback.
+     */
+    public static final AudioProfile ARCHIVAL = new AudioProfile("archival", 24000, 1, 48000);
+
+    /**
+     * Short name of the profile, used in logs.
+     */
+    private final String name;
+
+    /**
+     * The sampling rate, in Hz.
+     */
+    private final int sampleRate;
+
+    /**
+     * The number of audio channels.
+     */
+    private final int channelCount;
+
+    /**
+     * The encoder bit rate, in bits per second.
+     */
+    private final int bitRate;
+
+    /**
+     * Constructs a new AudioProfile.
+     *
+     * @param name         Short name of the profile.
+     * @param sampleRate   The sampling rate, in Hz (must be a standard AAC rate).
+     * @param channelCount The number of channels (1 or 2).
+     * @param bitRate      The encoder bit rate, in bits per second.
+     */
+    public AudioProfile(String name, int sampleRate, int channelCount, int bitRate) {
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.bitRate = bitRate;
+    }
+
+    /**
+     * Gets the short name of the profile.
+     * @return The profile name.
+     */
+    public String getName() { return name; }
+
+    /**
+     * Gets the sampling rate.
+     * @return The sampling rate, in Hz.
+     */
+    public int getSampleRate() { return sampleRate; }
+
+    /**
+     * Gets the number of audio channels.
+     * @return The channel count.
+     */
+    public int getChannelCount() { return channelCount; }
+
+    /**
+     * Gets the encoder bit rate.
+     * @return The bit rate, in bits per second.
+     */
+    public int getBitRate() { return bitRate; }
+}
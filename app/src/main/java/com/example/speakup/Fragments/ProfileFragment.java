@@ -2,7 +2,6 @@ package com.example.speakup.Fragments;
 
 import static android.content.Context.MODE_PRIVATE;
 import static com.example.speakup.Utils.FBRef.refAuth;
-import static com.example.speakup.Utils.FBRef.refRecordings;
 import static com.example.speakup.Utils.FBRef.refST;
 import static com.example.speakup.Utils.FBRef.refUsers;
 
@@ -16,6 +15,7 @@ import android.content.pm.PackageManager;
 import android.provider.Settings;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
 
@@ -39,23 +39,32 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
 import com.example.speakup.Activities.HelpAndAboutActivity;
 import com.example.speakup.Activities.RemindersActivity;
 import com.example.speakup.Activities.WelcomeScreenActivity;
-import com.example.speakup.Objects.Recording;
 import com.example.speakup.Objects.User;
+import com.example.speakup.Objects.UserStats;
+import com.example.speakup.ProfileImageProcessor;
 import com.example.speakup.R;
+import com.example.speakup.RecordingRepository;
+import com.example.speakup.StatsManager;
+import com.example.speakup.StorageUrlCache;
 import com.example.speakup.Utils.Utilities;
+import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.google.firebase.auth.FirebaseUserMetadata;
 import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
@@ -206,9 +215,10 @@ public class ProfileFragment extends Fragment {
 
         setProfilePicture(profileImage);
 
-        refUsers.child(uid).addListenerForSingleValueEvent(new ValueEventListener() {
+        // get() asks the server first, while a single-value listener would answer from the disk cache
+        refUsers.child(uid).get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dS) {
+            public void onSuccess(DataSnapshot dS) {
                 User user = dS.getValue(User.class);
                 if (user != null) {
                     userNameTv.setText(user.getUsername());
@@ -229,52 +239,40 @@ public class ProfileFragment extends Fragment {
                 }
                 pD.dismiss();
             }
-
+        }).addOnFailureListener(new OnFailureListener() {
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
+            public void onFailure(@NonNull Exception e) {
+                Log.e("ProfileFragment", "Failed loading user data", e);
                 pD.dismiss();
             }
         });
     }
 
     /**
-     * Calculates and displays the total number of recordings and the average score of the user.
+     * Displays the total number of recordings and the average score of the user.
+     * <p>
+     * Both values are read from the user's aggregated statistics node, so the cost does not
+     * depend on how many recordings the user has.
+     * </p>
      *
      * @param recordingCountTv The TextView to display the recording count.
      * @param avgScoreTv       The TextView to display the average score.
      */
     private void setRecordingCountAndAvgScore(TextView recordingCountTv, TextView avgScoreTv) {
-        refRecordings.child(uid).addListenerForSingleValueEvent(new ValueEventListener() {
+        StatsManager.loadStats(requireContext(), uid, new StatsManager.StatsCallback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dS) {
-                int totalCount = 0;
-                double totalScore = 0;
-
-                // Iterate through questionId nodes
-                for (DataSnapshot questionSnapshot : dS.getChildren()) {
-                    // Iterate through recordingId nodes
-                    for (DataSnapshot recordingSnapshot : questionSnapshot.getChildren()) {
-                        Recording recording = recordingSnapshot.getValue(Recording.class);
-                        if (recording != null) {
-                            totalCount++;
-                            totalScore += recording.getScore();
-                        }
-                    }
-                }
+            public void onStats(UserStats stats) {
+                if (!isAdded()) return;
 
-                // Update UI on the main thread
-                recordingCountTv.setText(String.valueOf(totalCount));
-                if (totalCount > 0) {
-                    int avg = (int) (totalScore / totalCount);
-                    avgScoreTv.setText(String.valueOf(avg));
-                } else {
-                    avgScoreTv.setText("0");
-                }
+                recordingCountTv.setText(String.valueOf(stats.getTotal().getCount()));
+                avgScoreTv.setText(String.valueOf(stats.getTotal().getAverage()));
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
+            public void onFailure(Exception error) {
+                if (!isAdded()) return;
 
+                Toast.makeText(requireActivity(), "Failed to load statistics", Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -285,6 +283,7 @@ public class ProfileFragment extends Fragment {
      * @param view The clicked view.
      */
     public void logOut(View view) {
+        RecordingRepository.getInstance(requireContext()).stopSync();
         refAuth.signOut();
 
         // Clear the "stayConnected" preference
@@ -302,31 +301,37 @@ public class ProfileFragment extends Fragment {
 
     /**
      * Fetches the user's profile picture from Firebase Storage and loads it using Glide.
+     * The download URL comes from the {@link StorageUrlCache}, and the picture is cached
+     * until the user uploads a new one.
      *
      * @param profilePicture The ShapeableImageView to load the image into.
      */
     private void setProfilePicture(ShapeableImageView profilePicture) {
         StorageReference refFile = refST.child("User_Profiles/" + uid + ".jpg");
 
-        refFile.getDownloadUrl().addOnSuccessListener(new OnSuccessListener<Uri>() {
-            @Override
-            public void onSuccess(Uri uri) {
-                if (getContext() != null && isAdded()) {
-                    Glide.with(ProfileFragment.this)
-                            .load(uri)
-                            .diskCacheStrategy(DiskCacheStrategy.ALL)
-                            .error(R.drawable.error_image)
-                            .centerCrop()
-                            .into(profilePicture);
-                }
-            }
-        }).addOnFailureListener(new OnFailureListener() {
-            @Override
-            public void onFailure(@NonNull Exception e) {
-                profilePicture.setImageResource(R.drawable.placeholder);
-                Toast.makeText(getActivity(), "Profile image failed to load", Toast.LENGTH_LONG).show();
-            }
-        });
+        Glide.with(this)
+                .load(refFile)
+                .signature(StorageUrlCache.getInstance(requireContext()).signatureOf(refFile))
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .error(R.drawable.placeholder)
+                .centerCrop()
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                            @NonNull Target<Drawable> target, boolean isFirstResource) {
+                        if (isAdded()) {
+                            Toast.makeText(getActivity(), "Profile image failed to load", Toast.LENGTH_LONG).show();
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model,
+                            Target<Drawable> target, @NonNull DataSource dataSource, boolean isFirstResource) {
+                        return false;
+                    }
+                })
+                .into(profilePicture);
     }
 
     /**
@@ -527,7 +532,8 @@ public class ProfileFragment extends Fragment {
     }
 
     /**
-     * Uploads the selected profile picture to Firebase Storage and updates the UI on success.
+     * Shrinks the selected profile picture in the background (see {@link ProfileImageProcessor}),
+     * uploads it to Firebase Storage and updates the UI on success.
      *
      * @param imageUri          The URI of the image to be uploaded.
      * @param mainProfileView   The ImageView on the profile screen to be updated.
@@ -539,13 +545,55 @@ public class ProfileFragment extends Fragment {
         pD.setCancelable(false);
         pD.show();
 
+        ProfileImageProcessor.process(requireContext(), imageUri, new ProfileImageProcessor.Callback() {
+            @Override
+            public void onProcessed(@Nullable File processed) {
+                if (!isAdded()) {
+                    pD.dismiss();
+                    if (processed != null) processed.delete();
+                    return;
+                }
+                if (processed == null) {
+                    pD.dismiss();
+                    Toast.makeText(requireActivity(), "Could not read the selected image", Toast.LENGTH_LONG).show();
+                    return;
+                }
+                uploadProfilePicture(processed, pD, mainProfileView, dialog);
+            }
+        });
+    }
+
+    /**
+     * Uploads a processed profile picture to Firebase Storage and updates the UI on success.
+     * The processed file is deleted once the upload ends.
+     *
+     * @param processed         The processed JPEG.
+     * @param pD                The progress dialog shown during the upload.
+     * @param mainProfileView   The ImageView on the profile screen to be updated.
+     * @param dialog            The selection dialog to be dismissed on success.
+     */
+    private void uploadProfilePicture(File processed, ProgressDialog pD, ShapeableImageView mainProfileView,
+            AlertDialog dialog) {
+        final StorageUrlCache urlCache = StorageUrlCache.getInstance(requireContext());
         StorageReference refFile = refST.child("User_Profiles/" + uid + ".jpg");
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType("image/jpeg")
+                .build();
 
-        refFile.putFile(imageUri)
+        refFile.putFile(Uri.fromFile(processed), metadata)
+                .addOnCompleteListener(new OnCompleteListener<UploadTask.TaskSnapshot>() {
+                    @Override
+                    public void onComplete(@NonNull Task<UploadTask.TaskSnapshot> task) {
+                        processed.delete();
+                    }
+                })
                 .addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
                     @Override
                     public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
                         pD.dismiss();
+                        // Drop the old picture's URL and cached image
+                        urlCache.invalidate(refFile.getPath());
+                        if (!isAdded()) return;
                         Toast.makeText(requireActivity(), "Profile Updated!", Toast.LENGTH_LONG).show();
 
                         // Refresh the image in the fragment
@@ -558,6 +606,7 @@ public class ProfileFragment extends Fragment {
                     @Override
                     public void onFailure(@NonNull Exception e) {
                         pD.dismiss();
+                        if (!isAdded()) return;
                         Toast.makeText(requireActivity(), "Upload Failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
                     }
                 });
@@ -1,16 +1,10 @@
 package com.example.speakup.Fragments;
 
-import static com.example.speakup.Utils.FBRef.refQuestionMedia;
-import static com.example.speakup.Utils.FBRef.refQuestions;
-
 import android.app.ProgressDialog;
 import android.content.Intent;
-import android.net.Uri;
 import android.os.Bundle;
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -26,20 +20,19 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.example.speakup.Activities.PracticeQuestionActivity;
 import com.example.speakup.Objects.Question;
+import com.example.speakup.QuestionBank;
 import com.example.speakup.R;
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
+import com.example.speakup.StorageUrlCache;
+import com.example.speakup.Utils.TopicImage;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 
 /**
  * A generic Fragment for displaying lists of practice questions for a specific category.
  * <p>
- * This fragment fetches questions from Firebase Database based on a provided category path.
+ * This fragment reads questions from the local {@link QuestionBank} based on a provided category path.
  * It displays questions in a two-column layout. For specific categories (like "Personal Questions"),
  * it includes a Spinner to filter questions by topic.
  * Clicking a card navigates to the {@link PracticeQuestionActivity} to practice the selected question.
@@ -139,66 +132,48 @@ public class QuestionsGeneralFragment extends Fragment {
 
         allQuestionsList = new ArrayList<>();
 
-        fetchTopicsFromFirebase();
+        loadQuestions();
         return view;
     }
 
     /**
-     * Fetches questions for the current category from Firebase Database.
+     * Loads the questions of the current category from the question bank.
      * <p>
-     * Iterates through topics and questions, populates the {@code allQuestionsList},
-     * and sets up the spinner with unique topics found in the data.
+     * Populates the {@code allQuestionsList} and sets up the spinner with the
+     * topics of the category.
      * </p>
      */
-    private void fetchTopicsFromFirebase() {
+    private void loadQuestions() {
         if (categoryPath == null) {
             if (pD != null) pD.dismiss();
             return;
         }
 
-        refQuestions.child(categoryPath).addListenerForSingleValueEvent(new ValueEventListener() {
+        QuestionBank.getInstance(requireContext()).load(new QuestionBank.Callback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot dS) {
+            public void onLoaded(QuestionBank bank) {
                 // Dismiss the dialog as soon as data arrives
                 if (pD != null && pD.isShowing()) {
                     pD.dismiss();
                 }
+                if (!isAdded()) return;
 
-                if (!dS.exists()) {
+                allQuestionsList.clear();
+                allQuestionsList.addAll(bank.getQuestions(categoryPath));
+                if (allQuestionsList.isEmpty()) {
                     Toast.makeText(getContext(), "No questions found", Toast.LENGTH_SHORT).show();
                     return;
                 }
 
-                allQuestionsList.clear();
                 ArrayList<String> uniqueTopicsList = new ArrayList<>();
                 uniqueTopicsList.add("All Topics");
-
-                for (DataSnapshot topicSnapshot : dS.getChildren()) {
-                    for (DataSnapshot questionSnapshot : topicSnapshot.getChildren()) {
-                        Question question = questionSnapshot.getValue(Question.class);
-                        if (question != null && question.getQuestionId() != null) {
-                            allQuestionsList.add(question);
-
-                            // Collect unique topic names for the spinner
-                            String topic = question.getTopic();
-                            if (!uniqueTopicsList.contains(topic)) {
-                                uniqueTopicsList.add(topic);
-                            }
-                        }
-                    }
-                }
+                uniqueTopicsList.addAll(bank.getTopics(categoryPath));
 
                 setupSpinner(uniqueTopicsList);
 
                 // Manually trigger the display so it doesn't wait for a Spinner click
                 filterAndDisplay("All Topics");
             }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError dbError) {
-                if (pD != null) pD.dismiss();
-                Log.e("Firebase", "Error: " + dbError.getMessage());
-            }
         });
     }
 
@@ -253,6 +228,18 @@ public class QuestionsGeneralFragment extends Fragment {
         columnRight.removeAllViews();
         int index = 0;
 
+        // Resolve every image URL at once before the cards start loading them.
+        StorageUrlCache urlCache = StorageUrlCache.getInstance(requireContext());
+        int cardWidth = TopicImage.estimateGridCardWidth(getResources());
+        HashSet<String> imageKeys = new HashSet<>();
+        ArrayList<StorageReference> imageRefs = new ArrayList<>();
+        for (Question q : allQuestionsList) {
+            if ((topic.equals("All Topics") || q.getTopic().equalsIgnoreCase(topic)) && imageKeys.add(imageKeyOf(q))) {
+                imageRefs.add(new TopicImage(imageKeyOf(q)).refForWidth(cardWidth, urlCache));
+            }
+        }
+        urlCache.prefetch(imageRefs);
+
         for (Question q : allQuestionsList) {
             if (topic.equals("All Topics") || q.getTopic().equalsIgnoreCase(topic)) {
                 LinearLayout targetColumn = (index % 2 == 0) ? columnLeft : columnRight;
@@ -281,7 +268,7 @@ public class QuestionsGeneralFragment extends Fragment {
             textView.setText(question.getTopic());
         }
 
-        loadTopicImage(imageView, question.getSubTopic().split(" Set")[0].replace(' ', '_').toLowerCase());
+        loadTopicImage(imageView, imageKeyOf(question));
 
         cardView.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -297,32 +284,36 @@ public class QuestionsGeneralFragment extends Fragment {
 
     /**
      * Loads the image associated with a question from Firebase Storage into an ImageView.
-     * Uses Glide for image loading and caching.
+     * Uses Glide for image loading and caching, downloading the variant matching the card's
+     * width (or the full-size image if the variant is missing), with the download URL resolved
+     * through the {@link StorageUrlCache}.
      *
      * @param imageView The target ImageView.
-     * @param questionId The ID of the question used to construct the image filename.
+     * @param imageKey The image key of the question, used to construct the image filename.
      */
-    private void loadTopicImage(ImageView imageView, String questionId) {
-        String fileName = questionId + ".jpg";
-        StorageReference refFile = refQuestionMedia.child(fileName);
+    private void loadTopicImage(ImageView imageView, String imageKey) {
+        TopicImage image = new TopicImage(imageKey);
+        Glide.with(this)
+                .load(image)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .placeholder(R.drawable.placeholder)
+                .error(Glide.with(this)
+                        .load(image.originalRef())
+                        .diskCacheStrategy(DiskCacheStrategy.ALL)
+                        .error(R.drawable.error_image)
+                        .centerCrop())
+                .centerCrop()
+                .into(imageView);
+    }
 
-        refFile.getDownloadUrl().addOnSuccessListener(new OnSuccessListener<Uri>() {
-            @Override
-            public void onSuccess(Uri uri) {
-                if (getContext() != null && isAdded()) {
-                    Glide.with(QuestionsGeneralFragment.this)
-                            .load(uri)
-                            .diskCacheStrategy(DiskCacheStrategy.ALL)
-                            .error(R.drawable.error_image)
-                            .centerCrop()
-                            .into(imageView);
-                }
-            }
-        }).addOnFailureListener(new OnFailureListener() {
-            @Override
-            public void onFailure(@NonNull Exception e) {
-                imageView.setImageResource(R.drawable.error_image);
-            }
-        });
+    /**
+     * Returns the image key of a question: its subtopic without the set number, in
+     * lowercase with underscores.
+     *
+     * @param question The question.
+     * @return The image key.
+     */
+    private static String imageKeyOf(Question question) {
+        return question.getSubTopic().split(" Set")[0].replace(' ', '_').toLowerCase();
     }
 }
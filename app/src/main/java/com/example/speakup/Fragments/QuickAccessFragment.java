@@ -1,9 +1,6 @@
 package com.example.speakup.Fragments;
 
 import static com.example.speakup.Utils.FBRef.refAuth;
-import static com.example.speakup.Utils.FBRef.refQuestions;
-import static com.example.speakup.Utils.FBRef.refRecordings;
-import static com.example.speakup.Utils.FBRef.refSimulations;
 
 import android.app.ProgressDialog;
 import android.content.Intent;
@@ -22,13 +19,13 @@ import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
 import android.widget.TextView;
-import android.widget.Toast;
 
 import com.example.speakup.Activities.MasterActivity;
 import com.example.speakup.Activities.RemindersActivity;
 import com.example.speakup.Objects.Recording;
 import com.example.speakup.Objects.Simulation;
 import com.example.speakup.R;
+import com.example.speakup.RecordingRepository;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.Description;
 import com.github.mikephil.charting.components.XAxis;
@@ -39,17 +36,10 @@ import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButton;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Fragment providing quick access to the main features of the application.
@@ -77,9 +67,19 @@ public class QuickAccessFragment extends Fragment {
     private TextView tvAvgGrade;
 
     /**
-     * Reference to the user's recordings in the Firebase database.
+     * Local-first store serving the user's recordings and simulations.
      */
-    private DatabaseReference userRecordingsRef;
+    private RecordingRepository repository;
+
+    /**
+     * Listener redrawing the chart when a background sync changed local data.
+     */
+    private RecordingRepository.OnDataChangedListener dataChangedListener;
+
+    /**
+     * The category currently selected in the spinner.
+     */
+    private String selectedCategory;
 
     /**
      * The unique identifier of the currently authenticated user.
@@ -156,7 +156,15 @@ public class QuickAccessFragment extends Fragment {
         tvAvgGrade = view.findViewById(R.id.tvAvgGrade);
 
         currentUserId = (refAuth.getCurrentUser() != null) ? refAuth.getCurrentUser().getUid() : null;
-        userRecordingsRef = (currentUserId != null) ? refRecordings.child(currentUserId) : null;
+        repository = RecordingRepository.getInstance(requireContext());
+        dataChangedListener = new RecordingRepository.OnDataChangedListener() {
+            @Override
+            public void onDataChanged() {
+                if (selectedCategory != null) reloadChartForSelection(selectedCategory);
+            }
+        };
+        repository.addOnDataChangedListener(dataChangedListener);
+        if (currentUserId != null) repository.syncUserData(currentUserId);
 
         setupCategorySpinner(); // spinner + initial load
         configureChartAppearance(); // set description and X,Y axis
@@ -181,6 +189,7 @@ public class QuickAccessFragment extends Fragment {
     public void onDestroyView() {
         super.onDestroyView();
         dismissChartLoading();
+        repository.removeOnDataChangedListener(dataChangedListener);
         spinnerChartCategory = null;
         lineChart = null;
         tvAvgGrade = null;
@@ -261,7 +270,7 @@ public class QuickAccessFragment extends Fragment {
     }
 
     /**
-     * Configures the spinner that selects which category to chart, and triggers Firebase reloads.
+     * Configures the spinner that selects which category to chart, and triggers chart reloads.
      */
     private void setupCategorySpinner() {
         if (spinnerChartCategory == null) return;
@@ -301,8 +310,9 @@ public class QuickAccessFragment extends Fragment {
      * @param selected The name of the selected category.
      */
     private void reloadChartForSelection(String selected) {
+        selectedCategory = selected;
         if (lineChart == null) return;
-        if (currentUserId == null || userRecordingsRef == null) {
+        if (currentUserId == null) {
             lineChart.clear();
             lineChart.setNoDataText("Please log in to see your progress");
             lineChart.invalidate();
@@ -339,112 +349,55 @@ public class QuickAccessFragment extends Fragment {
             return;
         }
 
-        // Build a set of questionIds that belong to this category, then filter recordings by them.
-        refQuestions.child(categoryPath).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot categorySnapshot) {
-                if (!isAdded()) return;
-
-                Set<String> allowedQuestionIds = new HashSet<>();
-                for (DataSnapshot topicSnapshot : categorySnapshot.getChildren()) {
-                    for (DataSnapshot questionSnapshot : topicSnapshot.getChildren()) {
-                        String qId = questionSnapshot.getKey();
-                        if (qId != null) allowedQuestionIds.add(qId);
-                    }
-                }
-                fetchAndRenderChartCumulativeProgress(allowedQuestionIds, label);
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                if (!isAdded()) return;
-                Toast.makeText(getContext(), "Failed to load chart category", Toast.LENGTH_SHORT).show();
-                fetchAndRenderChartCumulativeProgress(null, "Over All Progress");
-            }
-        });
+        // The local store filters by category through its questions table.
+        repository.syncQuestions(categoryPath);
+        fetchAndRenderChartCumulativeProgress(categoryPath, label);
     }
 
     /**
-     * Fetches all recordings from Firebase, optionally filters them by a set of allowed question IDs,
-     * sorts them chronologically, calculates the cumulative average score, and renders the chart.
+     * Loads the user's recordings from the local store, optionally filtered by category,
+     * calculates the cumulative average score in chronological order, and renders the chart.
      *
-     * @param allowedQuestionIds A set of question IDs to include; if null, all recordings are included.
-     * @param label              The label to display for the data set in the chart.
+     * @param category The question category to include; if null, all recordings are included.
+     * @param label    The label to display for the data set in the chart.
      */
-    private void fetchAndRenderChartCumulativeProgress(@Nullable Set<String> allowedQuestionIds, @NonNull String label) {
-        if (userRecordingsRef == null) return;
-
-        userRecordingsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+    private void fetchAndRenderChartCumulativeProgress(@Nullable String category, @NonNull String label) {
+        repository.getRecordings(currentUserId, category, new RecordingRepository.Callback<ArrayList<Recording>>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot userSnapshot) {
+            public void onResult(ArrayList<Recording> recordings) {
                 if (!isAdded() || lineChart == null) return;
 
-                ArrayList<Recording> recordings = new ArrayList<>();
-                for (DataSnapshot questionSnapshot : userSnapshot.getChildren()) {
-                    String questionId = questionSnapshot.getKey();
-                    if (allowedQuestionIds != null && (questionId == null || !allowedQuestionIds.contains(questionId))) {
-                        continue;
-                    }
-                    for (DataSnapshot recSnapshot : questionSnapshot.getChildren()) {
-                        Recording rec = recSnapshot.getValue(Recording.class);
-                        if (rec != null && rec.getDateRecorded() != null) {
-                            recordings.add(rec);
-                        }
-                    }
-                }
-
-                sortRecordingsByDate(recordings);
-
+                // Recordings arrive ordered by date.
                 ArrayList<Float> cumulativeAverages = new ArrayList<>();
                 float sum = 0;
-                for (int i = 0; i < recordings.size(); i++) {
-                    sum += recordings.get(i).getScore();
-                    cumulativeAverages.add(sum / (i + 1));
+                for (Recording rec : recordings) {
+                    if (rec.getDateRecorded() == null) continue;
+                    sum += rec.getScore();
+                    cumulativeAverages.add(sum / (cumulativeAverages.size() + 1));
                 }
 
                 renderChartProgress(cumulativeAverages, label, false);
             }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                if (!isAdded()) return;
-                dismissChartLoading();
-            }
         });
     }
 
     /**
-     * Fetches all simulation scores, sorts by date, and renders them as dots on a line.
+     * Loads all simulation scores from the local store and renders them as dots on a line.
      */
     private void fetchAndRenderChartSimulationsProgress() {
-        refSimulations.child(currentUserId).addListenerForSingleValueEvent(new ValueEventListener() {
+        repository.getSimulations(currentUserId, new RecordingRepository.Callback<ArrayList<Simulation>>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
+            public void onResult(ArrayList<Simulation> sims) {
                 if (!isAdded() || lineChart == null) return;
 
-                ArrayList<Simulation> sims = new ArrayList<>();
-                for (DataSnapshot simSnapshot : snapshot.getChildren()) {
-                    Simulation sim = simSnapshot.getValue(Simulation.class);
-                    if (sim != null && sim.getDateCompleted() != null) {
-                        sims.add(sim);
-                    }
-                }
-
-                sortSimulationsByDate(sims);
-
+                // Simulations arrive ordered by date.
                 ArrayList<Float> scores = new ArrayList<>();
                 for (Simulation sim : sims) {
-                    scores.add((float) sim.getOverAllScore());
+                    if (sim.getDateCompleted() != null) scores.add((float) sim.getOverAllScore());
                 }
 
                 renderChartProgress(scores, "Simulations Progress", true);
             }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                if (!isAdded()) return;
-                dismissChartLoading();
-            }
         });
     }
 
@@ -507,42 +460,6 @@ public class QuickAccessFragment extends Fragment {
         lineChart.invalidate();
         dismissChartLoading();
     }
-    /**
-     * Manually sorts a list of recordings by date using bubble sort.
-     *
-     * @param recordings The list to sort.
-     */
-    private void sortRecordingsByDate(ArrayList<Recording> recordings) {
-        int n = recordings.size();
-        for (int i = 0; i < n - 1; i++) {
-            for (int j = 0; j < n - i - 1; j++) {
-                if (recordings.get(j).getDateRecorded().after(recordings.get(j + 1).getDateRecorded())) {
-                    Recording temp = recordings.get(j);
-                    recordings.set(j, recordings.get(j + 1));
-                    recordings.set(j + 1, temp);
-                }
-            }
-        }
-    }
-
-    /**
-     * Manually sorts a list of simulations by date using bubble sort.
-     *
-     * @param sims The list of simulations to sort.
-     */
-    private void sortSimulationsByDate(ArrayList<Simulation> sims) {
-        int n = sims.size();
-        for (int i = 0; i < n - 1; i++) {
-            for (int j = 0; j < n - i - 1; j++) {
-                if (sims.get(j).getDateCompleted().after(sims.get(j + 1).getDateCompleted())) {
-                    Simulation temp = sims.get(j);
-                    sims.set(j, sims.get(j + 1));
-                    sims.set(j + 1, temp);
-                }
-            }
-        }
-    }
-
     /**
      * Shows the chart loading progress dialog.
      */
@@ -1,26 +1,26 @@
 package com.example.speakup.Fragments;
 
 import static com.example.speakup.Utils.FBRef.refAuth;
-import static com.example.speakup.Utils.FBRef.refQuestionMedia;
-import static com.example.speakup.Utils.FBRef.refQuestions;
 import static com.example.speakup.Utils.FBRef.refRecordings;
-import static com.example.speakup.Utils.FBRef.refSimulations;
 
 import android.app.ProgressDialog;
 import android.content.Intent;
+import android.graphics.Rect;
 import android.os.Bundle;
 
 import androidx.activity.OnBackPressedCallback;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -28,32 +28,35 @@ import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.example.speakup.Activities.ResultsActivity;
 import com.example.speakup.Activities.SimulationResultsActivity;
+import com.example.speakup.AudioCache;
 import com.example.speakup.Objects.Question;
 import com.example.speakup.Objects.Recording;
 import com.example.speakup.Objects.Simulation;
 import com.example.speakup.R;
+import com.example.speakup.RecordingRepository;
+import com.example.speakup.StorageUrlCache;
+import com.example.speakup.TopicCardAdapter;
+import com.example.speakup.Utils.TopicImage;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.button.MaterialButtonToggleGroup;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.ValueEventListener;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
 /**
  * A fragment that displays a sortable grid of recordings for a specific
  * category.
  * <p>
- * This fragment fetches recording data from Firebase Realtime Database, filters
- * them by category,
- * and displays them in a two-column staggered layout. It supports:
+ * This fragment reads recording data from the local {@link RecordingRepository},
+ * filtered by category, while Firebase is synced in the background,
+ * and displays them in a recycled two-column staggered grid. Items are read
+ * from the store one page at a time, already sorted, and the next page is read
+ * as the user scrolls towards the end of the grid. It supports:
  * <ul>
  * <li>Sorting by Grade (Score) or Date Recorded.</li>
  * <li>Toggling sort direction (Ascending vs. Descending).</li>
@@ -66,14 +69,57 @@ import java.util.Set;
 public class RecordingsGeneralFragment extends Fragment {
 
     /**
-     * Left column container for the staggered grid.
+     * Number of items read from the local store per page.
      */
-    private LinearLayout columnLeft;
+    private static final int PAGE_SIZE = 20;
 
     /**
-     * Right column container for the staggered grid.
+     * Identifies recordings and tells whether their card changed.
      */
-    private LinearLayout columnRight;
+    private static final DiffUtil.ItemCallback<Recording> RECORDING_DIFF = new DiffUtil.ItemCallback<Recording>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Recording oldItem, @NonNull Recording newItem) {
+            return Objects.equals(oldItem.getRecordingId(), newItem.getRecordingId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Recording oldItem, @NonNull Recording newItem) {
+            return Objects.equals(oldItem.getDisplayTitle(), newItem.getDisplayTitle())
+                    && Objects.equals(oldItem.getQuestionId(), newItem.getQuestionId())
+                    && oldItem.getScore() == newItem.getScore();
+        }
+    };
+
+    /**
+     * Identifies simulations and tells whether their card changed.
+     */
+    private static final DiffUtil.ItemCallback<Simulation> SIMULATION_DIFF = new DiffUtil.ItemCallback<Simulation>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Simulation oldItem, @NonNull Simulation newItem) {
+            return Objects.equals(oldItem.getSimulationId(), newItem.getSimulationId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Simulation oldItem, @NonNull Simulation newItem) {
+            return Objects.equals(oldItem.getDateCompleted(), newItem.getDateCompleted())
+                    && oldItem.getOverAllScore() == newItem.getOverAllScore();
+        }
+    };
+
+    /**
+     * Recycled two-column grid of cards.
+     */
+    private RecyclerView recyclerCards;
+
+    /**
+     * Adapter of the grid when showing recordings.
+     */
+    private TopicCardAdapter<Recording> recordingsAdapter;
+
+    /**
+     * Adapter of the grid when showing simulations.
+     */
+    private TopicCardAdapter<Simulation> simulationsAdapter;
 
     /**
      * Toggle group for selecting the sorting criteria (Grade vs. Date).
@@ -96,20 +142,30 @@ public class RecordingsGeneralFragment extends Fragment {
     private TextView tvNoDataMessage;
 
     /**
-     * Container for the grid columns.
+     * Recordings of the current category loaded so far, in display order.
      */
-    private LinearLayout mainColumnsContainer;
+    private ArrayList<Recording> allRecordingsList;
 
     /**
-     * List of all recordings fetched from Firebase that belong to the current
-     * category.
+     * Simulations of the current user loaded so far, in display order.
      */
-    private ArrayList<Recording> allRecordingsList;
+    private ArrayList<Simulation> allSimulationsList;
 
     /**
-     * List of all simulations fetched from Firebase.
+     * Whether a page is being read from the local store.
      */
-    private ArrayList<Simulation> allSimulationsList;
+    private boolean isLoadingPage;
+
+    /**
+     * Whether the last page read was full, so more items may follow.
+     */
+    private boolean hasMorePages;
+
+    /**
+     * Incremented whenever the loaded items are replaced, so pages of an older load
+     * (e.g. before a re-sort) are dropped when they arrive.
+     */
+    private int loadGeneration;
 
     /**
      * The UID of the currently authenticated user.
@@ -130,7 +186,7 @@ public class RecordingsGeneralFragment extends Fragment {
     private boolean isAscending = false;
 
     /**
-     * Progress dialog shown while fetching data from Firebase.
+     * Progress dialog shown while loading the local data.
      */
     private ProgressDialog pD;
 
@@ -139,6 +195,16 @@ public class RecordingsGeneralFragment extends Fragment {
      */
     private Map<String, String> questionIdToImageKey;
 
+    /**
+     * Local-first store serving recordings, simulations and questions.
+     */
+    private RecordingRepository repository;
+
+    /**
+     * Listener reloading the grid when a background sync changed local data.
+     */
+    private RecordingRepository.OnDataChangedListener dataChangedListener;
+
     /**
      * Required empty public constructor for fragment instantiation.
      */
@@ -190,13 +256,11 @@ public class RecordingsGeneralFragment extends Fragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_recordings_general, container, false);
 
-        columnLeft = view.findViewById(R.id.columnLeft);
-        columnRight = view.findViewById(R.id.columnRight);
+        recyclerCards = view.findViewById(R.id.recyclerCards);
         toggleGroup = view.findViewById(R.id.toggleGroup);
         btnSortDirection = view.findViewById(R.id.btnSortDirection);
         cardNoData = view.findViewById(R.id.cardNoData);
         tvNoDataMessage = view.findViewById(R.id.tvNoDataMessage);
-        mainColumnsContainer = view.findViewById(R.id.mainColumnsContainer);
 
         pD = new ProgressDialog(getContext());
         if ("Simulation".equals(categoryPath)) {
@@ -215,17 +279,54 @@ public class RecordingsGeneralFragment extends Fragment {
             currentUserId = refAuth.getCurrentUser().getUid();
         }
 
+        repository = RecordingRepository.getInstance(requireContext());
+        dataChangedListener = new RecordingRepository.OnDataChangedListener() {
+            @Override
+            public void onDataChanged() {
+                loadData();
+            }
+        };
+        repository.addOnDataChangedListener(dataChangedListener);
+
+        setupGrid();
         setupToggleLogic();
         setupSortDirectionLogic();
-        if ("Simulation".equals(categoryPath)) {
-            fetchSimulationsFromFirebase();
-        } else {
-            fetchRecordingsFromFirebase();
+        loadData();
+
+        // Refresh the local store; the listener reloads the grid if anything changed.
+        if (currentUserId != null) {
+            repository.syncUserData(currentUserId);
+            AudioCache.getInstance(requireContext()).prefetchRecent(currentUserId);
+        }
+        if (categoryPath != null && !"Simulation".equals(categoryPath)) {
+            repository.syncQuestions(categoryPath);
         }
 
         return view;
     }
 
+    /**
+     * Stops listening for local data changes once the view is gone.
+     */
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        repository.removeOnDataChangedListener(dataChangedListener);
+        if (pD != null && pD.isShowing())
+            pD.dismiss();
+    }
+
+    /**
+     * Loads the simulations or the recordings of the current category from the local store.
+     */
+    private void loadData() {
+        if ("Simulation".equals(categoryPath)) {
+            loadSimulations();
+        } else {
+            loadRecordings();
+        }
+    }
+
     /**
      * Configures behavior after the view has been created, specifically the back
      * button logic.
@@ -249,6 +350,68 @@ public class RecordingsGeneralFragment extends Fragment {
                 });
     }
 
+    /**
+     * Sets up the recycled two-column grid, its adapter and the loading of further pages
+     * as the user scrolls.
+     */
+    private void setupGrid() {
+        final StaggeredGridLayoutManager layoutManager =
+                new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL);
+        recyclerCards.setLayoutManager(layoutManager);
+
+        // Keep the 16dp gap the two columns used to have between them.
+        final int halfGap = Math.round(8 * getResources().getDisplayMetrics().density);
+        recyclerCards.addItemDecoration(new RecyclerView.ItemDecoration() {
+            @Override
+            public void getItemOffsets(@NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent,
+                    @NonNull RecyclerView.State state) {
+                StaggeredGridLayoutManager.LayoutParams params =
+                        (StaggeredGridLayoutManager.LayoutParams) view.getLayoutParams();
+                if (params.getSpanIndex() == 0) {
+                    outRect.right = halfGap;
+                } else {
+                    outRect.left = halfGap;
+                }
+            }
+        });
+
+        if ("Simulation".equals(categoryPath)) {
+            simulationsAdapter = new TopicCardAdapter<>(SIMULATION_DIFF,
+                    new TopicCardAdapter.CardBinder<Simulation>() {
+                @Override
+                public void bind(TopicCardAdapter.CardViewHolder holder, Simulation simulation) {
+                    bindSimulationCard(holder, simulation);
+                }
+            });
+            recyclerCards.setAdapter(simulationsAdapter);
+        } else {
+            recordingsAdapter = new TopicCardAdapter<>(RECORDING_DIFF,
+                    new TopicCardAdapter.CardBinder<Recording>() {
+                @Override
+                public void bind(TopicCardAdapter.CardViewHolder holder, Recording recording) {
+                    bindRecordingCard(holder, recording);
+                }
+            });
+            recyclerCards.setAdapter(recordingsAdapter);
+        }
+
+        recyclerCards.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0)
+                    return;
+                int lastVisible = -1;
+                for (int position : layoutManager.findLastVisibleItemPositions(null)) {
+                    lastVisible = Math.max(lastVisible, position);
+                }
+                // Read the next page before the user actually reaches the end.
+                if (lastVisible >= layoutManager.getItemCount() - PAGE_SIZE / 2) {
+                    loadNextPage();
+                }
+            }
+        });
+    }
+
     /**
      * Sets up the listener for the sort criteria toggle group (Date vs. Grade).
      */
@@ -257,7 +420,7 @@ public class RecordingsGeneralFragment extends Fragment {
             @Override
             public void onButtonChecked(MaterialButtonToggleGroup group, int checkedId, boolean isChecked) {
                 if (isChecked) {
-                    applySortAndDisplay(checkedId == R.id.btnGrade);
+                    applySort();
                 }
             }
         });
@@ -282,282 +445,173 @@ public class RecordingsGeneralFragment extends Fragment {
                     btnSortDirection.setImageResource(android.R.drawable.arrow_down_float);
                 }
 
-                // Re-sort the current list with the new direction
-                applySortAndDisplay(toggleGroup.getCheckedButtonId() == R.id.btnGrade);
+                // Re-read the list from the start in the new direction
+                applySort();
             }
         });
     }
 
     /**
      * <p>
-     * This method performs a two-step data retrieval process:
+     * Loads the recordings of the current {@link #categoryPath} from the local store:
      * </p>
      * <ol>
      * <li>
-     * Retrieves all questions under the current {@link #categoryPath} and builds a
-     * set of
-     * allowed question IDs. During this step, it also prepares a mapping between
-     * question IDs and their corresponding image keys for later use.
+     * Reads the questions of the category to build the mapping between question IDs
+     * and their corresponding image keys.
      * </li>
      * <li>
-     * Fetches all recordings for the current user and filters them by checking
-     * whether
-     * their question ID exists in the allowed set.
+     * Reads the user's recordings of the category in the current sort order, using
+     * the indexed local tables, as many as are already shown (at least one page).
      * </li>
      * </ol>
      *
      * <p>
-     * All matching recordings are stored in {@link #allRecordingsList}, after which
-     * the UI
-     * is updated by applying sorting and displaying the results.
-     * </p>
-     *
-     * <p>
-     * If no recordings are found for the selected category, a toast message is
-     * shown.
+     * The recordings replace {@link #allRecordingsList} and are diffed against the
+     * grid, so only cards that changed are rebound. If no recordings are found for the
+     * selected category, the "No Data" card is shown.
      * </p>
      */
-    private void fetchRecordingsFromFirebase() {
+    private void loadRecordings() {
         if (categoryPath == null || currentUserId == null) {
             if (pD != null)
                 pD.dismiss();
             return;
         }
 
-        // get allowed question IDs
-        refQuestions.child(categoryPath).addListenerForSingleValueEvent(new ValueEventListener() {
+        repository.getQuestions(categoryPath, new RecordingRepository.Callback<ArrayList<Question>>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot catSnapshot) {
-
-                Set<String> allowedIds = new HashSet<>();
-
-                for (DataSnapshot topicSnapshot : catSnapshot.getChildren()) {
-                    for (DataSnapshot qSnap : topicSnapshot.getChildren()) {
-                        String qId = qSnap.getKey();
-                        if (qId != null) {
-                            allowedIds.add(qId);
-
-                            // build image key
-                            Question q = qSnap.getValue(Question.class);
-                            if (q != null) {
-                                String sub = q.getSubTopic();
-                                if (sub == null || sub.equals("null"))
-                                    sub = q.getTopic();
-
-                                if (sub != null) {
-                                    String key = sub.split(" Set")[0]
-                                            .replace(' ', '_')
-                                            .toLowerCase();
-                                    questionIdToImageKey.put(qId, key);
-                                }
-                            }
-                        }
+            public void onResult(ArrayList<Question> questions) {
+                // build image keys
+                for (Question q : questions) {
+                    String sub = q.getSubTopic();
+                    if (sub == null || sub.equals("null"))
+                        sub = q.getTopic();
+
+                    if (sub != null) {
+                        String key = sub.split(" Set")[0]
+                                .replace(' ', '_')
+                                .toLowerCase();
+                        questionIdToImageKey.put(q.getQuestionId(), key);
                     }
                 }
-
-                // fetch recordings once
-                refRecordings.child(currentUserId).addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot userSnapshot) {
-                        if (pD != null)
-                            pD.dismiss();
-
-                        allRecordingsList.clear();
-
-                        for (DataSnapshot questionSnapshot : userSnapshot.getChildren()) {
-                            String qId = questionSnapshot.getKey();
-                            if (!allowedIds.contains(qId))
-                                continue;
-
-                            for (DataSnapshot recSnap : questionSnapshot.getChildren()) {
-                                Recording rec = recSnap.getValue(Recording.class);
-                                if (rec != null)
-                                    allRecordingsList.add(rec);
-                            }
-                        }
-
-                        if (allRecordingsList.isEmpty()) {
-                            updateVisibility(false, "No recordings for this tab");
-                            return;
-                        }
-
-                        updateVisibility(true, null);
-
-                        applySortAndDisplay(true);
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        if (pD != null)
-                            pD.dismiss();
-                    }
-                });
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                if (pD != null)
-                    pD.dismiss();
+                if (isAdded())
+                    prefetchTopicImageUrls();
             }
         });
+
+        fetchPage(0, Math.max(PAGE_SIZE, allRecordingsList.size()), true, false);
     }
 
     /**
-     * Sorts the recording list based on the chosen criteria and direction, then
-     * refreshes the UI.
-     * <p>
-     * Uses a Selection Sort implementation to reorder {@link #allRecordingsList} or
-     * {@link #allSimulationsList}.
-     * </p>
-     *
-     * @param sortByGrade If true, sorts by score. If false, sorts by recording
-     *                    date.
+     * Re-reads the first page in the selected sort order and scrolls back to the top.
+     * Cards still shown after the re-sort are moved rather than inflated again.
      */
-    private void applySortAndDisplay(boolean sortByGrade) {
-        if ("Simulation".equals(categoryPath)) {
-            applySortAndDisplaySimulation(sortByGrade);
-            return;
-        }
-        if (allRecordingsList == null || allRecordingsList.isEmpty())
+    private void applySort() {
+        if (currentUserId == null || categoryPath == null)
             return;
-        int n = allRecordingsList.size();
-
-        // Selection Sort Implementation
-        for (int i = 0; i < n - 1; i++) {
-            int targetIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                Recording r1 = allRecordingsList.get(targetIndex);
-                Recording r2 = allRecordingsList.get(j);
-                boolean shouldSwap = false;
-
-                if (sortByGrade) {
-                    if (isAscending) {
-                        // Low to High
-                        shouldSwap = r2.getScore() < r1.getScore();
-                    } else {
-                        // High to Low
-                        shouldSwap = r2.getScore() > r1.getScore();
-                    }
-                } else {
-                    if (r2.getDateRecorded() != null && r1.getDateRecorded() != null) {
-                        if (isAscending) {
-                            // Oldest to Newest
-                            shouldSwap = r2.getDateRecorded().before(r1.getDateRecorded());
-                        } else {
-                            // Newest to Oldest
-                            shouldSwap = r2.getDateRecorded().after(r1.getDateRecorded());
-                        }
-                    }
-                }
-
-                if (shouldSwap) {
-                    targetIndex = j;
-                }
-            }
-            Recording temp = allRecordingsList.get(targetIndex);
-            allRecordingsList.set(targetIndex, allRecordingsList.get(i));
-            allRecordingsList.set(i, temp);
-        }
-
-        displayRecordings();
+        fetchPage(0, PAGE_SIZE, true, true);
     }
 
     /**
-     * Sorts the simulation list based on the chosen criteria and direction, then
-     * refreshes the UI.
-     *
-     * @param sortByGrade If true, sorts by score. If false, sorts by completion
-     *                    date.
+     * Reads the page following the loaded items, unless one is already being read or
+     * the last page was reached.
      */
-    private void applySortAndDisplaySimulation(boolean sortByGrade) {
-        if (allSimulationsList == null || allSimulationsList.isEmpty())
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMorePages)
             return;
-        int n = allSimulationsList.size();
-
-        for (int i = 0; i < n - 1; i++) {
-            int targetIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                Simulation s1 = allSimulationsList.get(targetIndex);
-                Simulation s2 = allSimulationsList.get(j);
-                boolean shouldSwap = false;
-
-                if (sortByGrade) {
-                    if (isAscending) {
-                        shouldSwap = s2.getOverAllScore() < s1.getOverAllScore();
-                    } else {
-                        shouldSwap = s2.getOverAllScore() > s1.getOverAllScore();
-                    }
-                } else {
-                    Date d1 = s1.getDateCompleted();
-                    Date d2 = s2.getDateCompleted();
-                    if (d1 != null && d2 != null) {
-                        if (isAscending) {
-                            shouldSwap = d2.before(d1);
-                        } else {
-                            shouldSwap = d2.after(d1);
-                        }
-                    }
-                }
-
-                if (shouldSwap) {
-                    targetIndex = j;
-                }
-            }
-            Simulation temp = allSimulationsList.get(targetIndex);
-            allSimulationsList.set(targetIndex, allSimulationsList.get(i));
-            allSimulationsList.set(i, temp);
-        }
-
-        displaySimulations();
+        int offset = "Simulation".equals(categoryPath) ? allSimulationsList.size() : allRecordingsList.size();
+        fetchPage(offset, PAGE_SIZE, false, false);
     }
 
     /**
-     * Clears and repopulates the two-column grid with recording cards.
-     */
-    private void displayRecordings() {
-        if (columnLeft == null || columnRight == null)
-            return;
-        columnLeft.removeAllViews();
-        columnRight.removeAllViews();
+     * Reads a page of recordings or simulations from the local store, sorted by the
+     * selected criteria and direction, and submits the loaded items to the grid.
+     *
+     * @param offset      The number of items to skip.
+     * @param limit       The maximum number of items to read.
+     * @param replace     True to replace the loaded items, false to append the page.
+     * @param scrollToTop True to scroll the grid back to the first card afterwards.
+     */
+    private void fetchPage(int offset, final int limit, final boolean replace, final boolean scrollToTop) {
+        final int generation = replace ? ++loadGeneration : loadGeneration;
+        final Runnable commitCallback = scrollToTop ? new Runnable() {
+            @Override
+            public void run() {
+                if (recyclerCards != null)
+                    recyclerCards.scrollToPosition(0);
+            }
+        } : null;
+        boolean byScore = toggleGroup.getCheckedButtonId() == R.id.btnGrade;
+        isLoadingPage = true;
 
-        for (int i = 0; i < allRecordingsList.size(); i++) {
-            LinearLayout target = (i % 2 == 0) ? columnLeft : columnRight;
-            addRecordingCard(target, allRecordingsList.get(i));
+        if ("Simulation".equals(categoryPath)) {
+            repository.getSimulationsPage(currentUserId, byScore, isAscending, offset, limit,
+                    new RecordingRepository.Callback<ArrayList<Simulation>>() {
+                @Override
+                public void onResult(ArrayList<Simulation> page) {
+                    if (generation != loadGeneration || !isAdded())
+                        return;
+                    onPageLoaded(allSimulationsList, page, limit, replace, "No simulations for this tab");
+                    simulationsAdapter.submitList(new ArrayList<>(allSimulationsList), commitCallback);
+                }
+            });
+        } else {
+            repository.getRecordingsPage(currentUserId, categoryPath, byScore, isAscending, offset, limit,
+                    new RecordingRepository.Callback<ArrayList<Recording>>() {
+                @Override
+                public void onResult(ArrayList<Recording> page) {
+                    if (generation != loadGeneration || !isAdded())
+                        return;
+                    onPageLoaded(allRecordingsList, page, limit, replace, "No recordings for this tab");
+                    recordingsAdapter.submitList(new ArrayList<>(allRecordingsList), commitCallback);
+                }
+            });
         }
     }
 
     /**
-     * Clears and repopulates the two-column grid with simulation cards.
-     */
-    private void displaySimulations() {
-        if (columnLeft == null || columnRight == null)
-            return;
-        columnLeft.removeAllViews();
-        columnRight.removeAllViews();
-
-        for (int i = 0; i < allSimulationsList.size(); i++) {
-            LinearLayout target = (i % 2 == 0) ? columnLeft : columnRight;
-            addSimulationCard(target, allSimulationsList.get(i));
+     * Adds a page read from the local store to the loaded items and updates the
+     * loading state and the "No Data" card.
+     *
+     * @param loaded        The loaded items.
+     * @param page          The page that was read.
+     * @param limit         The size the page was requested with.
+     * @param replace       True if the page replaces the loaded items.
+     * @param emptyMessage  The message shown when there are no items.
+     * @param <T>           The type of the items.
+     */
+    private <T> void onPageLoaded(ArrayList<T> loaded, ArrayList<T> page, int limit, boolean replace,
+            String emptyMessage) {
+        if (pD != null && pD.isShowing())
+            pD.dismiss();
+        isLoadingPage = false;
+        hasMorePages = page.size() == limit;
+
+        if (replace)
+            loaded.clear();
+        loaded.addAll(page);
+
+        if (loaded.isEmpty()) {
+            updateVisibility(false, emptyMessage);
+        } else {
+            updateVisibility(true, null);
         }
     }
 
     /**
-     * Inflates a recording card view and adds it to the specified container.
+     * Binds a recording to a (possibly recycled) card.
      *
-     * @param container The layout column to add the card to.
+     * @param holder    The card.
      * @param recording The recording data to display on the card.
      */
-    private void addRecordingCard(LinearLayout container, Recording recording) {
-        View cardView = getLayoutInflater().inflate(R.layout.item_topic_card, container, false);
-        TextView titleText = cardView.findViewById(R.id.topicTitleText);
-        ImageView imageView = cardView.findViewById(R.id.topicImageView);
-
-        titleText.setText(recording.getDisplayTitle() + "\nScore: " + recording.getScore());
+    private void bindRecordingCard(TopicCardAdapter.CardViewHolder holder, final Recording recording) {
+        holder.titleText.setText(recording.getDisplayTitle() + "\nScore: " + recording.getScore());
         String imageKey = (questionIdToImageKey != null) ? questionIdToImageKey.get(recording.getQuestionId()) : null;
         // Fallback to questionId if we couldn't determine image key.
-        loadTopicImage(imageView, (imageKey != null) ? imageKey : recording.getQuestionId());
+        loadTopicImage(holder.imageView, (imageKey != null) ? imageKey : recording.getQuestionId());
 
-        cardView.setOnClickListener(new View.OnClickListener() {
+        holder.itemView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
                 Intent si = new Intent(getContext(), ResultsActivity.class);
@@ -566,85 +620,51 @@ public class RecordingsGeneralFragment extends Fragment {
             }
         });
 
-        cardView.setOnLongClickListener(new View.OnLongClickListener() {
+        holder.itemView.setOnLongClickListener(new View.OnLongClickListener() {
             @Override
             public boolean onLongClick(View v) {
                 showRenameDialog(recording);
                 return true; // Returns true to indicate the click was handled
             }
         });
-
-        container.addView(cardView);
     }
 
     /**
-     * Inflates a simulation card view and adds it to the specified container.
+     * Binds a simulation to a (possibly recycled) card.
      *
-     * @param container  The layout column to add the card to.
+     * @param holder     The card.
      * @param simulation The simulation data to display on the card.
      */
-    private void addSimulationCard(LinearLayout container, Simulation simulation) {
-        View cardView = getLayoutInflater().inflate(R.layout.item_topic_card, container, false);
-        TextView titleText = cardView.findViewById(R.id.topicTitleText);
-        ImageView imageView = cardView.findViewById(R.id.topicImageView);
+    private void bindSimulationCard(TopicCardAdapter.CardViewHolder holder, final Simulation simulation) {
 
         String dateText = "-";
         if (simulation.getDateCompleted() != null) {
             java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
             dateText = sdf.format(simulation.getDateCompleted());
         }
-        titleText.setText("Simulation\nScore: " + simulation.getOverAllScore() + "\n" + dateText);
-        loadSimulationCardImage(imageView);
+        holder.titleText.setText("Simulation\nScore: " + simulation.getOverAllScore() + "\n" + dateText);
+        loadSimulationCardImage(holder.imageView);
 
-        cardView.setOnClickListener(new View.OnClickListener() {
+        holder.itemView.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
                 openSimulationResult(simulation);
             }
         });
-        container.addView(cardView);
     }
 
     /**
-     * Fetches simulation data from Firebase Realtime Database for the current user.
+     * Loads the current user's simulations from the local store in the current sort
+     * order, as many as are already shown (at least one page).
      */
-    private void fetchSimulationsFromFirebase() {
+    private void loadSimulations() {
         if (currentUserId == null) {
             if (pD != null)
                 pD.dismiss();
             return;
         }
 
-        refSimulations.child(currentUserId).addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (pD != null && pD.isShowing())
-                    pD.dismiss();
-                allSimulationsList.clear();
-
-                for (DataSnapshot simSnapshot : snapshot.getChildren()) {
-                    Simulation simulation = simSnapshot.getValue(Simulation.class);
-                    if (simulation != null) {
-                        allSimulationsList.add(simulation);
-                    }
-                }
-
-                if (allSimulationsList.isEmpty()) {
-                    updateVisibility(false, "No simulations for this tab");
-                    return;
-                }
-
-                updateVisibility(true, null);
-
-                applySortAndDisplay(toggleGroup.getCheckedButtonId() == R.id.btnGrade);
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                if (pD != null)
-                    pD.dismiss();
-            }
-        });
+        fetchPage(0, Math.max(PAGE_SIZE, allSimulationsList.size()), true, false);
     }
 
     /**
@@ -666,19 +686,14 @@ public class RecordingsGeneralFragment extends Fragment {
         loadingDialog.setCancelable(false);
         loadingDialog.show();
 
-        refRecordings.child(currentUserId).addListenerForSingleValueEvent(new ValueEventListener() {
+        repository.getRecordingsByIds(currentUserId, simulation.getRecordingsIds(),
+                new RecordingRepository.Callback<ArrayList<Recording>>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot userRecordingsSnapshot) {
+            public void onResult(ArrayList<Recording> resolvedRecordings) {
                 if (loadingDialog.isShowing())
                     loadingDialog.dismiss();
-
-                ArrayList<Recording> resolvedRecordings = new ArrayList<>();
-                for (String recordingId : simulation.getRecordingsIds()) {
-                    Recording resolved = findRecordingById(userRecordingsSnapshot, recordingId);
-                    if (resolved != null) {
-                        resolvedRecordings.add(resolved);
-                    }
-                }
+                if (!isAdded())
+                    return;
 
                 if (resolvedRecordings.isEmpty()) {
                     Toast.makeText(getContext(), "Simulation recordings not found", Toast.LENGTH_SHORT).show();
@@ -690,36 +705,9 @@ public class RecordingsGeneralFragment extends Fragment {
                 intent.putExtra("recordings", resolvedRecordings);
                 startActivity(intent);
             }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                if (loadingDialog.isShowing())
-                    loadingDialog.dismiss();
-                Toast.makeText(getContext(), "Failed to load simulation details", Toast.LENGTH_SHORT).show();
-            }
         });
     }
 
-    /**
-     * Searches for a recording by ID within the user's recordings snapshot.
-     *
-     * @param userRecordingsSnapshot The snapshot containing all the user's
-     *                               recordings.
-     * @param recordingId            The ID of the recording to find.
-     * @return The resolved Recording object, or null if not found.
-     */
-    private Recording findRecordingById(DataSnapshot userRecordingsSnapshot, String recordingId) {
-        for (DataSnapshot questionNode : userRecordingsSnapshot.getChildren()) {
-            DataSnapshot recNode = questionNode.child(recordingId);
-            if (!recNode.exists())
-                continue;
-            Recording rec = recNode.getValue(Recording.class);
-            if (rec != null)
-                return rec;
-        }
-        return null;
-    }
-
     /**
      * Displays a dialog allowing the user to rename a specific recording.
      *
@@ -786,11 +774,14 @@ public class RecordingsGeneralFragment extends Fragment {
                     @Override
                     public void onSuccess(Void aVoid) {
                         if (isAdded()) {
-                            // 1. Update the local object now that we know Firebase is updated
+                            // 1. Update the local object and store now that we know Firebase is updated
                             recording.setDisplayTitle(newName);
+                            repository.renameRecording(recording.getRecordingId(), newName);
 
-                            // 2. Refresh the UI columns to show the new name
-                            displayRecordings();
+                            // 2. Rebind the card to show the new name
+                            int position = recordingsAdapter.getCurrentList().indexOf(recording);
+                            if (position >= 0)
+                                recordingsAdapter.notifyItemChanged(position);
 
                             Toast.makeText(getContext(), "Renamed successfully!", Toast.LENGTH_SHORT).show();
                         }
@@ -808,33 +799,16 @@ public class RecordingsGeneralFragment extends Fragment {
     }
 
     /**
-     * Asynchronously loads a topic image from Firebase Storage using Glide.
+     * Loads a topic image from Firebase Storage using Glide, which downloads the variant
+     * matching the card's width and resolves its download URL through the
+     * {@link StorageUrlCache}. Loading into a recycled card cancels the load of its previous
+     * item.
      *
      * @param imageView  The target ImageView.
      * @param questionId The ID of the question used to locate the image in storage.
      */
     private void loadTopicImage(ImageView imageView, String questionId) {
-        String fileName = questionId + ".jpg";
-        StorageReference refFile = refQuestionMedia.child(fileName);
-
-        refFile.getDownloadUrl().addOnSuccessListener(new com.google.android.gms.tasks.OnSuccessListener<android.net.Uri>() {
-            @Override
-            public void onSuccess(android.net.Uri uri) {
-                if (getContext() != null && isAdded()) {
-                    Glide.with(RecordingsGeneralFragment.this)
-                            .load(uri)
-                            .diskCacheStrategy(DiskCacheStrategy.ALL)
-                            .error(R.drawable.error_image)
-                            .centerCrop()
-                            .into(imageView);
-                }
-            }
-        }).addOnFailureListener(new com.google.android.gms.tasks.OnFailureListener() {
-            @Override
-            public void onFailure(@NonNull Exception e) {
-                imageView.setImageResource(R.drawable.error_image);
-            }
-        });
+        loadCardImage(imageView, new TopicImage(questionId), R.drawable.error_image);
     }
 
     /**
@@ -843,25 +817,44 @@ public class RecordingsGeneralFragment extends Fragment {
      * @param imageView The target ImageView.
      */
     private void loadSimulationCardImage(ImageView imageView) {
-        StorageReference refFile = refQuestionMedia.child("simulation.jpg");
-        refFile.getDownloadUrl().addOnSuccessListener(new com.google.android.gms.tasks.OnSuccessListener<android.net.Uri>() {
-            @Override
-            public void onSuccess(android.net.Uri uri) {
-                if (getContext() != null && isAdded()) {
-                    Glide.with(RecordingsGeneralFragment.this)
-                            .load(uri)
-                            .diskCacheStrategy(DiskCacheStrategy.ALL)
-                            .error(R.drawable.placeholder)
-                            .centerCrop()
-                            .into(imageView);
-                }
-            }
-        }).addOnFailureListener(new com.google.android.gms.tasks.OnFailureListener() {
-            @Override
-            public void onFailure(@NonNull Exception e) {
-                imageView.setImageResource(R.drawable.placeholder);
-            }
-        });
+        loadCardImage(imageView, new TopicImage("simulation"), R.drawable.placeholder);
+    }
+
+    /**
+     * Loads the variant of a topic image matching the card's width, falling back to the
+     * full-size image if the variant is missing.
+     *
+     * @param imageView The target ImageView.
+     * @param image     The topic image.
+     * @param errorRes  The drawable shown if the image cannot be loaded at all.
+     */
+    private void loadCardImage(ImageView imageView, TopicImage image, int errorRes) {
+        Glide.with(this)
+                .load(image)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .placeholder(R.drawable.placeholder)
+                .error(Glide.with(this)
+                        .load(image.originalRef())
+                        .diskCacheStrategy(DiskCacheStrategy.ALL)
+                        .error(errorRes)
+                        .centerCrop())
+                .centerCrop()
+                .into(imageView);
+    }
+
+    /**
+     * Resolves the download URLs of all the topic images of the category at once, so the
+     * cards do not each wait for their own round trip.
+     */
+    private void prefetchTopicImageUrls() {
+        StorageUrlCache urlCache = StorageUrlCache.getInstance(requireContext());
+        int cardWidth = TopicImage.estimateGridCardWidth(getResources());
+        HashSet<String> keys = new HashSet<>(questionIdToImageKey.values());
+        ArrayList<StorageReference> refs = new ArrayList<>();
+        for (String key : keys) {
+            refs.add(new TopicImage(key).refForWidth(cardWidth, urlCache));
+        }
+        urlCache.prefetch(refs);
     }
 
     /**
@@ -873,11 +866,11 @@ public class RecordingsGeneralFragment extends Fragment {
     private void updateVisibility(boolean hasData, String message) {
         if (!isAdded()) return;
         
-        if (mainColumnsContainer == null) return;
+        if (recyclerCards == null) return;
 
         if (hasData) {
             if (cardNoData != null) cardNoData.setVisibility(View.GONE);
-            mainColumnsContainer.setVisibility(View.VISIBLE);
+            recyclerCards.setVisibility(View.VISIBLE);
             if (toggleGroup != null) toggleGroup.setVisibility(View.VISIBLE);
             if (btnSortDirection != null) btnSortDirection.setVisibility(View.VISIBLE);
         } else {
@@ -887,7 +880,7 @@ public class RecordingsGeneralFragment extends Fragment {
                     tvNoDataMessage.setText(message);
                 }
             }
-            mainColumnsContainer.setVisibility(View.GONE);
+            recyclerCards.setVisibility(View.GONE);
             if (toggleGroup != null) toggleGroup.setVisibility(View.GONE);
             if (btnSortDirection != null) btnSortDirection.setVisibility(View.GONE);
         }
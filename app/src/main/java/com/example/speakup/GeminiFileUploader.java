@@ -0,0 +1,366 @@
+package com.example.speakup;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uploads audio files to the Gemini File API so prompts can reference them by URI.
+ * <p>
+ * Files are sent with the resumable upload protocol and streamed straight from disk with a
+ * small fixed buffer, so the recording is never fully loaded into the heap or base64-encoded
+ * in memory. If the connection drops mid-upload, the server is asked how many bytes it
+ * received and the upload continues from that offset. Uploaded files are remembered (by path,
+ * size and modification time) until shortly before the API expires them, so re-grading the
+ * same recording reuses the existing upload.
+ * </p>
+ * <p>
+ * The base URL is configurable so tests can point the uploader at a local stand-in server.
+ * </p>
+ */
+public class GeminiFileUploader {
+    /**
+     * Base URL of the production Gemini API.
+     */
+    public static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com";
+
+    /**
+     * How long an uploaded file is reused before uploading again. The API keeps files for 48 hours.
+     */
+    private static final long UPLOAD_REUSE_MS = 47 * 60 * 60 * 1000L;
+
+    /**
+     * Maximum number of times an interrupted upload is resumed.
+     */
+    private static final int MAX_RESUME_ATTEMPTS = 3;
+
+    /**
+     * Maximum number of times the file state is polled while the API processes it.
+     */
+    private static final int MAX_STATE_POLLS = 10;
+
+    /**
+     * Delay between two polls of the file state, in milliseconds.
+     */
+    private static final long STATE_POLL_INTERVAL_MS = 1000L;
+
+    /**
+     * Size of the buffer used to stream files from disk.
+     */
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Base URL of the API (without a trailing slash).
+     */
+    private final String baseUrl;
+
+    /**
+     * The API key sent with every call.
+     */
+    private final String apiKey;
+
+    /**
+     * Files already uploaded, keyed by {@link #identify(File)}.
+     */
+    private final Map<String, UploadedFile> uploads = new HashMap<>();
+
+    /**
+     * A file that has been uploaded and can be referenced in prompts.
+     */
+    private static class UploadedFile {
+        /**
+         * The URI used to reference the file in a prompt.
+         */
+        final String uri;
+
+        /**
+         * The time (in milliseconds) until which the upload is reused.
+         */
+        final long reuseUntil;
+
+        /**
+         * Constructs a new UploadedFile.
+         *
+         * @param uri        The URI used to reference the file in a prompt.
+         * @param reuseUntil The time until which the upload is reused.
+         */
+        UploadedFile(String uri, long reuseUntil) {
+            this.uri = uri;
+            this.reuseUntil = reuseUntil;
+        }
+    }
+
+    /**
+     * Constructs a new GeminiFileUploader.
+     *
+     * @param baseUrl The base URL of the API, e.g. {@link #DEFAULT_BASE_URL}.
+     * @param apiKey  The API key sent with every call.
+     */
+    public GeminiFileUploader(String baseUrl, String apiKey) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Uploads a file (or reuses a previous upload of it) and returns its URI.
+     * This call blocks and must be run off the main thread.
+     *
+     * @param file     The file to upload.
+     * @param mimeType The MIME type of the file (e.g., "audio/aac").
+     * @return The URI referencing the uploaded file.
+     * @throws IOException If the upload fails.
+     */
+    public String upload(File file, String mimeType) throws IOException {
+        String identity = identify(file);
+        synchronized (uploads) {
+            UploadedFile previous = uploads.get(identity);
+            if (previous != null && previous.reuseUntil > System.currentTimeMillis()) {
+                return previous.uri;
+            }
+        }
+
+        String uploadUrl = startUpload(file, mimeType);
+        JSONObject fileInfo = sendBytes(uploadUrl, file);
+        String uri = waitUntilActive(fileInfo);
+
+        synchronized (uploads) {
+            uploads.put(identity, new UploadedFile(uri, System.currentTimeMillis() + UPLOAD_REUSE_MS));
+        }
+        return uri;
+    }
+
+    /**
+     * Starts a resumable upload session.
+     *
+     * @param file     The file to upload.
+     * @param mimeType The MIME type of the file.
+     * @return The session URL to send the bytes to.
+     * @throws IOException If the session could not be created.
+     */
+    private String startUpload(File file, String mimeType) throws IOException {
+        HttpURLConnection conn = open(baseUrl + "/upload/v1beta/files?key=" + apiKey, "POST");
+        conn.setRequestProperty("X-Goog-Upload-Protocol", "resumable");
+        conn.setRequestProperty("X-Goog-Upload-Command", "start");
+        conn.setRequestProperty("X-Goog-Upload-Header-Content-Length", String.valueOf(file.length()));
+        conn.setRequestProperty("X-Goog-Upload-Header-Content-Type", mimeType);
+        conn.setRequestProperty("Content-Type", "application/json");
+        try {
+            String body = "{\"file\": {\"display_name\": " + JSONObject.quote(file.getName()) + "}}";
+            writeFully(conn, body.getBytes(StandardCharsets.UTF_8));
+            checkResponse(conn);
+            String uploadUrl = conn.getHeaderField("X-Goog-Upload-URL");
+            if (uploadUrl == null) {
+                throw new IOException("Upload session URL missing from response");
+            }
+            return uploadUrl;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Streams the file to the upload session, resuming from the last acknowledged offset
+     * if the connection drops.
+     *
+     * @param uploadUrl The session URL returned by {@link #startUpload}.
+     * @param file      The file to upload.
+     * @return The "file" object of the final response.
+     * @throws IOException If the upload fails after all resume attempts.
+     */
+    private JSONObject sendBytes(String uploadUrl, File file) throws IOException {
+        long length = file.length();
+        long offset = 0;
+        IOException lastError = null;
+
+        for (int attempt = 0; attempt <= MAX_RESUME_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                offset = queryReceivedBytes(uploadUrl);
+            }
+
+            HttpURLConnection conn = open(uploadUrl, "POST");
+            conn.setFixedLengthStreamingMode(length - offset);
+            conn.setRequestProperty("X-Goog-Upload-Command", "upload, finalize");
+            conn.setRequestProperty("X-Goog-Upload-Offset", String.valueOf(offset));
+            try (InputStream in = RecordingManager.openAudioStream(file)) {
+                skipFully(in, offset);
+                try (OutputStream out = conn.getOutputStream()) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                checkResponse(conn);
+                return new JSONObject(readBody(conn)).getJSONObject("file");
+            } catch (JSONException e) {
+                throw new IOException("Malformed upload response", e);
+            } catch (IOException e) {
+                Log.w("GeminiFileUploader", "Upload interrupted, resuming", e);
+                lastError = e;
+            } finally {
+                conn.disconnect();
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Asks the upload session how many bytes have been received so far.
+     *
+     * @param uploadUrl The session URL.
+     * @return The number of bytes already stored by the server.
+     * @throws IOException If the session could not be queried.
+     */
+    private long queryReceivedBytes(String uploadUrl) throws IOException {
+        HttpURLConnection conn = open(uploadUrl, "POST");
+        conn.setRequestProperty("X-Goog-Upload-Command", "query");
+        try {
+            writeFully(conn, new byte[0]);
+            checkResponse(conn);
+            String received = conn.getHeaderField("X-Goog-Upload-Size-Received");
+            return (received == null) ? 0 : Long.parseLong(received.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Waits until the API has finished processing the uploaded file.
+     *
+     * @param fileInfo The "file" object returned by the upload.
+     * @return The URI of the file, once it is ready to be used in prompts.
+     * @throws IOException If the file failed processing or did not become ready in time.
+     */
+    private String waitUntilActive(JSONObject fileInfo) throws IOException {
+        try {
+            for (int poll = 0; poll < MAX_STATE_POLLS; poll++) {
+                String state = fileInfo.optString("state", "ACTIVE");
+                if ("ACTIVE".equals(state)) {
+                    return fileInfo.getString("uri");
+                }
+                if ("FAILED".equals(state)) {
+                    throw new IOException("File processing failed: " + fileInfo.optString("name"));
+                }
+
+                Thread.sleep(STATE_POLL_INTERVAL_MS);
+                HttpURLConnection conn = open(baseUrl + "/v1beta/" + fileInfo.getString("name") + "?key=" + apiKey, "GET");
+                try {
+                    checkResponse(conn);
+                    fileInfo = new JSONObject(readBody(conn));
+                } finally {
+                    conn.disconnect();
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Malformed file state response", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for file processing", e);
+        }
+        throw new IOException("File was not ready in time");
+    }
+
+    /**
+     * Builds the key used to recognize a file that was already uploaded.
+     *
+     * @param file The file.
+     * @return A key combining the path, size and modification time of the file.
+     */
+    private String identify(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+
+    /**
+     * Opens a connection to the given URL.
+     *
+     * @param url    The URL.
+     * @param method The HTTP method.
+     * @return The configured connection.
+     * @throws IOException If the connection could not be opened.
+     */
+    private HttpURLConnection open(String url, String method) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(15 * 1000);
+        conn.setReadTimeout(60 * 1000);
+        conn.setDoOutput("POST".equals(method));
+        return conn;
+    }
+
+    /**
+     * Writes a small request body.
+     *
+     * @param conn The connection.
+     * @param body The body bytes.
+     * @throws IOException If writing fails.
+     */
+    private void writeFully(HttpURLConnection conn, byte[] body) throws IOException {
+        conn.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Throws if the response status is not successful.
+     *
+     * @param conn The connection.
+     * @throws IOException If the server returned an error status.
+     */
+    private void checkResponse(HttpURLConnection conn) throws IOException {
+        int code = conn.getResponseCode();
+        if (code < 200 || code >= 300) {
+            throw new IOException("File API returned HTTP " + code);
+        }
+    }
+
+    /**
+     * Reads the whole (small, JSON) response body.
+     *
+     * @param conn The connection.
+     * @return The response body as text.
+     * @throws IOException If reading fails.
+     */
+    private String readBody(HttpURLConnection conn) throws IOException {
+        try (InputStream in = conn.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Skips exactly the given number of bytes of a stream.
+     *
+     * @param in    The stream.
+     * @param count The number of bytes to skip.
+     * @throws IOException If the stream ends early.
+     */
+    private void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of file while resuming upload");
+            }
+            count -= skipped;
+        }
+    }
+}
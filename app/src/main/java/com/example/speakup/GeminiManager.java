@@ -1,23 +1,42 @@
 package com.example.speakup;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
-
 import com.google.ai.client.generativeai.GenerativeModel;
+import com.google.ai.client.generativeai.java.GenerativeModelFutures;
 import com.google.ai.client.generativeai.type.BlobPart;
 import com.google.ai.client.generativeai.type.Content;
+import com.google.ai.client.generativeai.type.FileDataPart;
 import com.google.ai.client.generativeai.type.GenerateContentResponse;
 import com.google.ai.client.generativeai.type.Part;
+import com.google.ai.client.generativeai.type.QuotaExceededException;
+import com.google.ai.client.generativeai.type.RequestTimeoutException;
+import com.google.ai.client.generativeai.type.ServerException;
 import com.google.ai.client.generativeai.type.TextPart;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-
-import kotlin.Result;
-import kotlin.coroutines.Continuation;
-import kotlin.coroutines.CoroutineContext;
-import kotlin.coroutines.EmptyCoroutineContext;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Manager class for interacting with the Gemini generative AI model.
@@ -26,8 +45,45 @@ import kotlin.coroutines.EmptyCoroutineContext;
  * sending prompts (optionally with file data like audio) to the Gemini AI and handling
  * the responses via callbacks.
  * </p>
+ * <p>
+ * Requests are run by a small scheduler that owns a bounded pool of worker threads.
+ * Each attempt has a deadline, transient failures (quota, server errors, timeouts) are
+ * retried with jittered exponential backoff, identical in-flight requests are merged into
+ * one call, and every send method returns a {@link GeminiRequest} handle that the caller
+ * can cancel. Callbacks are always delivered on the main thread.
+ * </p>
+ * <p>
+ * Audio can be sent either inline (the bytes embedded in the request) or, by default for
+ * recordings on disk, uploaded once through the File API with {@link GeminiFileUploader}
+ * and referenced by URI.
+ * </p>
  */
 public class GeminiManager {
+    /**
+     * Maximum number of requests running against the API at the same time.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    /**
+     * Deadline for a single attempt of a request, in milliseconds.
+     */
+    private static final long REQUEST_TIMEOUT_MS = 90 * 1000L;
+
+    /**
+     * Maximum number of attempts made for a request before reporting failure.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Base delay before the first retry, in milliseconds. Doubles on every retry.
+     */
+    private static final long BASE_BACKOFF_MS = 1000L;
+
+    /**
+     * Upper bound of the delay between retries, in milliseconds.
+     */
+    private static final long MAX_BACKOFF_MS = 16 * 1000L;
+
     /**
      * The single instance of GeminiManager.
      */
@@ -38,6 +94,107 @@ public class GeminiManager {
      */
     private GenerativeModel gemini;
 
+    /**
+     * Java-friendly wrapper of {@link #gemini}, used by the scheduler's worker threads.
+     */
+    private GenerativeModelFutures geminiFutures;
+
+    /**
+     * Optional cache of previous grading responses, consulted before every request.
+     */
+    private GradingCache gradingCache;
+
+    /**
+     * Uploader used to send audio files through the File API.
+     */
+    private GeminiFileUploader fileUploader;
+
+    /**
+     * Whether audio files are uploaded and referenced by URI (true) or embedded inline (false).
+     */
+    private boolean useFileUploads = true;
+
+    /**
+     * Bounded pool of worker threads running the requests.
+     */
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+
+    /**
+     * Handler used to deliver callbacks on the main thread.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Source of randomness for the backoff jitter.
+     */
+    private final Random random = new Random();
+
+    /**
+     * Requests currently in flight, keyed by the hash of their prompt and files.
+     */
+    private final Map<String, ScheduledCall> inFlight = new HashMap<>();
+
+    /**
+     * A request being run by the scheduler, shared by every caller that sent the same content.
+     */
+    private static class ScheduledCall {
+        /**
+         * Callbacks of every caller waiting for this request. Callers of the non-streamed
+         * send methods are adapted with {@link GeminiManager#asStreamCallback}.
+         */
+        final ArrayList<GeminiStreamCallback> callbacks = new ArrayList<>();
+
+        /**
+         * Handles returned to each caller, in the same order as {@link #callbacks}.
+         */
+        final ArrayList<GeminiRequest> handles = new ArrayList<>();
+
+        /**
+         * The worker task running the request and its retries.
+         */
+        Future<?> worker;
+
+        /**
+         * The API call of the current attempt.
+         */
+        volatile Future<?> currentAttempt;
+
+        /**
+         * Text streamed so far by a streamed request, replayed to callers that join it late.
+         * Guarded by the {@link #inFlight} lock.
+         */
+        final StringBuilder streamed = new StringBuilder();
+    }
+
+    /**
+     * The scheduled request a caller's handle joined, known once the request key has been
+     * computed on a worker thread.
+     */
+    private static class Attachment {
+        /**
+         * The key of the joined request, or null before it is known.
+         */
+        String key;
+
+        /**
+         * The joined request, or null before it is known.
+         */
+        ScheduledCall call;
+    }
+
+    /**
+     * Builds the content of a request on a worker thread, right before it is sent.
+     */
+    private interface ContentSource {
+        /**
+         * Builds the content to send.
+         *
+         * @return The content of the request.
+         * @throws IOException If reading or uploading the attached files fails.
+         */
+        Content build() throws IOException;
+    }
+
     /**
      * Private constructor for initializing the GenerativeModel.
      * Uses the "gemini-2.5-flash" model and the API key from BuildConfig.
@@ -47,6 +204,8 @@ public class GeminiManager {
                 "gemini-2.5-flash",
                 BuildConfig.Gemini_API_Key
         );
+        geminiFutures = GenerativeModelFutures.from(gemini);
+        fileUploader = new GeminiFileUploader(GeminiFileUploader.DEFAULT_BASE_URL, BuildConfig.Gemini_API_Key);
     }
 
     /**
@@ -61,85 +220,697 @@ public class GeminiManager {
         return instance;
     }
 
+    /**
+     * Sets the cache used to serve repeated grading requests without a network call.
+     *
+     * @param gradingCache The cache to use, or null to disable caching.
+     */
+    public void setGradingCache(GradingCache gradingCache) {
+        this.gradingCache = gradingCache;
+    }
+
+    /**
+     * Drops the cached response of a request whose result the caller rejected (e.g. JSON
+     * missing required fields), so retrying it asks the model again instead of getting the
+     * same response back. The audio is hashed on a worker thread.
+     *
+     * @param prompt   The prompt of the rejected request.
+     * @param file     The audio file of the rejected request.
+     * @param mimeType The MIME type of the file.
+     */
+    public void evictCachedResponse(final String prompt, final File file, final String mimeType) {
+        final GradingCache cache = gradingCache;
+        if (cache == null) return;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cache.remove(GradingCache.buildFileKey(prompt, Collections.singletonList(file),
+                            Collections.singletonList(mimeType)));
+                } catch (IOException e) {
+                    Log.w("GeminiManager", "Could not hash audio to evict it from the cache", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the uploader used for audio files, e.g. one pointing at a local test server.
+     *
+     * @param fileUploader The uploader to use.
+     */
+    public void setFileUploader(GeminiFileUploader fileUploader) {
+        this.fileUploader = fileUploader;
+    }
+
+    /**
+     * Sets whether audio files are uploaded once and referenced by URI, or embedded inline.
+     *
+     * @param useFileUploads true to upload through the File API, false to send the bytes inline.
+     */
+    public void setUseFileUploads(boolean useFileUploads) {
+        this.useFileUploads = useFileUploads;
+    }
+
     /**
      * Sends a text prompt along with a single file (blob) to the Gemini AI model.
      * <p>
-     * This method constructs a multi-part content request and executes it asynchronously.
-     * The result or error is returned through the provided {@link GeminiCallback}.
+     * This method constructs a multi-part content request and schedules it asynchronously.
+     * The result or error is returned on the main thread through the provided {@link GeminiCallback}.
+     * If a {@link GradingCache} is set and already holds the response for the same prompt
+     * and file, the cached result is returned without a network call.
      * </p>
      *
      * @param prompt   The text prompt describing the task for the AI.
      * @param bytes    The byte array of the file data (e.g., audio recording).
      * @param mimeType The MIME type of the file data (e.g., "audio/aac").
      * @param callback The callback to handle success or failure of the AI request.
+     * @return A handle that can be used to cancel the request.
      */
-    public void sendTextWithFilePrompt(String prompt, byte[] bytes, String mimeType, GeminiCallback callback) {
-        List<Part> parts = new ArrayList<>();
-        parts.add(new TextPart(prompt));
-        parts.add(new BlobPart(mimeType, bytes));
+    public GeminiRequest sendTextWithFilePrompt(String prompt, byte[] bytes, String mimeType, GeminiCallback callback) {
+        ArrayList<byte[]> filesBytes = new ArrayList<>();
+        filesBytes.add(bytes);
+        ArrayList<String> mimeTypes = new ArrayList<>();
+        mimeTypes.add(mimeType);
+        return sendTextWithFilesPrompt(prompt, filesBytes, mimeTypes, callback);
+    }
 
-        Content[] content = new Content[1];
-        content[0] = new Content(parts);
+    /**
+     * Sends a text prompt along with multiple files (blobs) to the Gemini AI model.
+     * <p>
+     * This method iterates through the provided byte arrays and MIME types to construct
+     * a multi-part content request and schedules it asynchronously. Cached responses are
+     * returned without a network call when a {@link GradingCache} is set, and a request
+     * identical to one already in flight joins it instead of being sent again. The request
+     * key is hashed and the cache is read on a worker thread, never on the caller's thread.
+     * </p>
+     *
+     * @param prompt     The text prompt describing the task for the AI.
+     * @param filesBytes A list of byte arrays, each representing a file's data.
+     * @param mimeType   A list of MIME types corresponding to each file in filesBytes.
+     * @param callback   The callback to handle success or failure of the AI request.
+     * @return A handle that can be used to cancel the request.
+     */
+    public GeminiRequest sendTextWithFilesPrompt(String prompt, ArrayList<byte[]> filesBytes,
+            ArrayList<String> mimeType, GeminiCallback callback) {
+        return schedule(prompt, filesBytes, mimeType, asStreamCallback(callback), false);
+    }
 
-        gemini.generateContent(content,
-                new Continuation<GenerateContentResponse>() {
-                    @NonNull
-                    @Override
-                    public CoroutineContext getContext() {
-                        return EmptyCoroutineContext.INSTANCE;
-                    }
+    /**
+     * Sends a text prompt along with a single audio file stored on disk to the Gemini AI model.
+     *
+     * @param prompt   The text prompt describing the task for the AI.
+     * @param file     The audio file (e.g., a finalized recording).
+     * @param mimeType The MIME type of the file (e.g., "audio/aac").
+     * @param callback The callback to handle success or failure of the AI request.
+     * @return A handle that can be used to cancel the request.
+     * @see #sendTextWithAudioFilesPrompt
+     */
+    public GeminiRequest sendTextWithAudioFilePrompt(String prompt, File file, String mimeType, GeminiCallback callback) {
+        ArrayList<File> files = new ArrayList<>();
+        files.add(file);
+        ArrayList<String> mimeTypes = new ArrayList<>();
+        mimeTypes.add(mimeType);
+        return sendTextWithAudioFilesPrompt(prompt, files, mimeTypes, callback);
+    }
 
-                    @Override
-                    public void resumeWith(@NonNull Object result) {
-                        if (result instanceof Result.Failure) {
-                            Log.i("GeminiManager", "Error: " + ((Result.Failure) result).exception.getMessage());
-                            callback.onFailure(((Result.Failure) result).exception);
-                        } else {
-                            callback.onSuccess(((GenerateContentResponse) result).getText());
+    /**
+     * Sends a text prompt along with audio files stored on disk to the Gemini AI model.
+     * <p>
+     * Nothing is read on the calling thread. On a worker thread, the files are hashed (streamed)
+     * for the {@link GradingCache} lookup and then, unless disabled with {@link #setUseFileUploads},
+     * uploaded once through the File API and referenced by URI, avoiding the heap spike of
+     * embedding several recordings inline. Previous uploads of the same file are reused.
+     * </p>
+     *
+     * @param prompt    The text prompt describing the task for the AI.
+     * @param files     The audio files.
+     * @param mimeTypes The MIME types corresponding to each file.
+     * @param callback  The callback to handle success or failure of the AI request.
+     * @return A handle that can be used to cancel the request.
+     */
+    public GeminiRequest sendTextWithAudioFilesPrompt(final String prompt, final ArrayList<File> files, final ArrayList<String> mimeTypes, GeminiCallback callback) {
+        GeminiStreamCallback streamCallback = asStreamCallback(callback);
+        // Cheap identity (path, size, modification time) used to merge duplicate in-flight requests
+        StringBuilder identity = new StringBuilder("files:").append(prompt);
+        for (File file : files) {
+            identity.append('\n').append(file.getAbsolutePath()).append(':').append(file.length())
+                    .append(':').append(file.lastModified());
+        }
+        final String key = identity.toString();
+
+        synchronized (inFlight) {
+            ScheduledCall existing = inFlight.get(key);
+            if (existing != null) {
+                return attach(key, existing, streamCallback);
+            }
+
+            final ScheduledCall call = new ScheduledCall();
+            inFlight.put(key, call);
+            GeminiRequest handle = attach(key, call, streamCallback);
+            call.worker = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    String cacheKey = null;
+                    if (gradingCache != null) {
+                        try {
+                            cacheKey = GradingCache.buildFileKey(prompt, files, mimeTypes);
+                            String cached = gradingCache.get(cacheKey);
+                            if (cached != null) {
+                                finish(key, call, cached, null);
+                                return;
+                            }
+                        } catch (IOException e) {
+                            Log.w("GeminiManager", "Could not hash audio for the cache", e);
                         }
                     }
-                });
+
+                    runWithRetries(key, call, new ContentSource() {
+                        @Override
+                        public Content build() throws IOException {
+                            return buildFileContent(prompt, files, mimeTypes);
+                        }
+                    }, cacheKey);
+                }
+            });
+            return handle;
+        }
     }
 
     /**
-     * Sends a text prompt along with multiple files (blobs) to the Gemini AI model.
+     * Sends a text prompt along with multiple files (blobs) to the Gemini AI model and streams the response.
      * <p>
-     * This method iterates through the provided byte arrays and MIME types to construct
-     * a multi-part content request and executes it asynchronously.
+     * Instead of waiting for the whole response, the callback is notified with every chunk of text
+     * as soon as the model produces it, so callers can show progress or parse completed sections
+     * (see {@link com.example.speakup.Utils.StreamingJsonParser}) early. A failed attempt is only
+     * retried if no text has been delivered yet. The cache is looked up on a worker thread, and
+     * a request identical to a stream already in flight joins it, receiving the text streamed
+     * so far first.
      * </p>
      *
      * @param prompt     The text prompt describing the task for the AI.
      * @param filesBytes A list of byte arrays, each representing a file's data.
      * @param mimeType   A list of MIME types corresponding to each file in filesBytes.
-     * @param callback   The callback to handle success or failure of the AI request.
+     * @param callback   The callback notified with partial text, completion or failure.
+     * @return A handle that can be used to cancel the request.
      */
-    public void sendTextWithFilesPrompt(String prompt, ArrayList<byte[]> filesBytes, ArrayList<String> mimeType, GeminiCallback callback) {
+    public GeminiRequest sendTextWithFilesPromptStream(String prompt, ArrayList<byte[]> filesBytes,
+            ArrayList<String> mimeType, GeminiStreamCallback callback) {
+        return schedule(prompt, filesBytes, mimeType, callback, true);
+    }
+
+    /**
+     * Schedules a request whose audio is given as bytes.
+     * <p>
+     * The handle is returned right away. On a worker thread, the request key is hashed and
+     * the {@link GradingCache} is read; a miss then joins the identical request in flight,
+     * or starts it. Streamed and non-streamed requests are never merged with each other.
+     * </p>
+     *
+     * @param prompt     The text prompt describing the task for the AI.
+     * @param filesBytes A list of byte arrays, each representing a file's data.
+     * @param mimeType   A list of MIME types corresponding to each file in filesBytes.
+     * @param callback   The callback to notify.
+     * @param stream     True to stream the response, false to deliver it once complete.
+     * @return A handle that can be used to cancel the request.
+     */
+    private GeminiRequest schedule(final String prompt, final List<byte[]> filesBytes,
+            final List<String> mimeType, final GeminiStreamCallback callback, final boolean stream) {
+        final Attachment attachment = new Attachment();
+        final GeminiRequest handle = new GeminiRequest(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (inFlight) {
+                    if (attachment.call != null) {
+                        detach(attachment.key, attachment.call, callback);
+                    }
+                }
+            }
+        });
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String cacheKey = GradingCache.buildKey(prompt, filesBytes, mimeType);
+                if (gradingCache != null) {
+                    String cached = gradingCache.get(cacheKey);
+                    if (cached != null) {
+                        deliverCached(cached, handle, callback);
+                        return;
+                    }
+                }
+
+                final String key = stream ? "stream:" + cacheKey : cacheKey;
+                synchronized (inFlight) {
+                    if (handle.isCancelled()) return;
+                    ScheduledCall call = inFlight.get(key);
+                    if (call == null) {
+                        call = new ScheduledCall();
+                        inFlight.put(key, call);
+                        final ScheduledCall newCall = call;
+                        final Content content = buildContent(prompt, filesBytes, mimeType);
+                        call.worker = executor.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (stream) {
+                                    streamWithRetries(key, newCall, content, cacheKey);
+                                } else {
+                                    runWithRetries(key, newCall, new ContentSource() {
+                                        @Override
+                                        public Content build() {
+                                            return content;
+                                        }
+                                    }, cacheKey);
+                                }
+                            }
+                        });
+                    } else if (call.streamed.length() > 0) {
+                        // Catch a late caller up with the text already streamed
+                        final String soFar = call.streamed.toString();
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (handle.isCancelled()) return;
+                                callback.onPartial(soFar);
+                            }
+                        });
+                    }
+                    join(call, callback, handle);
+                    attachment.key = key;
+                    attachment.call = call;
+                }
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Adapts a callback of the non-streamed send methods to a scheduled request, ignoring
+     * partial text.
+     *
+     * @param callback The callback to adapt.
+     * @return A stream callback forwarding the outcome to callback.
+     */
+    private static GeminiStreamCallback asStreamCallback(final GeminiCallback callback) {
+        return new GeminiStreamCallback() {
+            @Override
+            public void onPartial(String chunk) {
+            }
+
+            @Override
+            public void onComplete(String result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                callback.onFailure(error);
+            }
+        };
+    }
+
+    /**
+     * Builds the multi-part content of a request.
+     *
+     * @param prompt     The text prompt describing the task for the AI.
+     * @param filesBytes A list of byte arrays, each representing a file's data.
+     * @param mimeType   A list of MIME types corresponding to each file in filesBytes.
+     * @return The content to send to the model.
+     */
+    private Content buildContent(String prompt, List<byte[]> filesBytes, List<String> mimeType) {
         List<Part> parts = new ArrayList<>();
         parts.add(new TextPart(prompt));
         for (int i = 0; i < filesBytes.size(); i++) {
             parts.add(new BlobPart(mimeType.get(i), filesBytes.get(i)));
         }
+        return new Content(parts);
+    }
 
-        Content[] content = new Content[1];
-        content[0] = new Content(parts);
+    /**
+     * Builds the multi-part content of a request whose audio is stored on disk.
+     * Files are either uploaded and referenced by URI, or read and embedded inline.
+     *
+     * @param prompt    The text prompt describing the task for the AI.
+     * @param files     The audio files.
+     * @param mimeTypes The MIME types corresponding to each file.
+     * @return The content to send to the model.
+     * @throws IOException If reading or uploading a file fails.
+     */
+    private Content buildFileContent(String prompt, List<File> files, List<String> mimeTypes) throws IOException {
+        List<Part> parts = new ArrayList<>();
+        parts.add(new TextPart(prompt));
+        for (int i = 0; i < files.size(); i++) {
+            if (useFileUploads) {
+                String uri = fileUploader.upload(files.get(i), mimeTypes.get(i));
+                parts.add(new FileDataPart(uri, mimeTypes.get(i)));
+            } else {
+                parts.add(new BlobPart(mimeTypes.get(i), readFile(files.get(i))));
+            }
+        }
+        return new Content(parts);
+    }
 
-        gemini.generateContent(content,
-                new Continuation<GenerateContentResponse>() {
-                    @NonNull
-                    @Override
-                    public CoroutineContext getContext() {
-                        return EmptyCoroutineContext.INSTANCE;
+    /**
+     * Reads a whole file for inline embedding.
+     *
+     * @param file The file to read.
+     * @return The content of the file.
+     * @throws IOException If the file cannot be read completely.
+     */
+    private byte[] readFile(File file) throws IOException {
+        ByteBuffer audio = RecordingManager.openAudioBuffer(file);
+        try {
+            byte[] bytes = new byte[audio.remaining()];
+            audio.get(bytes);
+            return bytes;
+        } finally {
+            RecordingManager.releaseAudioBuffer(audio);
+        }
+    }
+
+    /**
+     * Delivers a cached result on the main thread.
+     *
+     * @param cached   The cached response text.
+     * @param handle   The caller's handle.
+     * @param callback The callback to notify.
+     */
+    private void deliverCached(final String cached, final GeminiRequest handle, final GeminiStreamCallback callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (handle.isCancelled()) return;
+                handle.setFinished();
+                callback.onPartial(cached);
+                callback.onComplete(cached);
+            }
+        });
+    }
+
+    /**
+     * Registers a caller on a scheduled request and returns its handle.
+     * Must be called while holding the {@link #inFlight} lock.
+     *
+     * @param key      The key of the request.
+     * @param call     The scheduled request.
+     * @param callback The callback of the caller.
+     * @return The caller's handle.
+     */
+    private GeminiRequest attach(final String key, final ScheduledCall call, final GeminiStreamCallback callback) {
+        GeminiRequest handle = new GeminiRequest(new Runnable() {
+            @Override
+            public void run() {
+                detach(key, call, callback);
+            }
+        });
+        join(call, callback, handle);
+        return handle;
+    }
+
+    /**
+     * Registers a caller with an existing handle on a scheduled request.
+     * Must be called while holding the {@link #inFlight} lock.
+     *
+     * @param call     The scheduled request.
+     * @param callback The callback of the caller.
+     * @param handle   The caller's handle.
+     */
+    private void join(ScheduledCall call, GeminiStreamCallback callback, GeminiRequest handle) {
+        call.callbacks.add(callback);
+        call.handles.add(handle);
+    }
+
+    /**
+     * Removes a cancelled caller from a scheduled request, aborting the request
+     * if no other caller is waiting for it.
+     *
+     * @param key      The key of the request.
+     * @param call     The scheduled request.
+     * @param callback The callback of the cancelled caller.
+     */
+    private void detach(String key, ScheduledCall call, GeminiStreamCallback callback) {
+        synchronized (inFlight) {
+            int index = call.callbacks.indexOf(callback);
+            if (index != -1) {
+                call.callbacks.remove(index);
+                call.handles.remove(index);
+            }
+            if (!call.callbacks.isEmpty()) return;
+
+            if (inFlight.get(key) == call) {
+                inFlight.remove(key);
+            }
+            Future<?> attempt = call.currentAttempt;
+            if (attempt != null) attempt.cancel(true);
+            if (call.worker != null) call.worker.cancel(true);
+        }
+    }
+
+    /**
+     * Runs a scheduled request on a worker thread, retrying transient failures.
+     *
+     * @param key      The key of the request.
+     * @param call     The scheduled request.
+     * @param source   Builds the content to send.
+     * @param cacheKey The key under which to cache the response, or null to skip caching.
+     */
+    private void runWithRetries(String key, ScheduledCall call, ContentSource source, String cacheKey) {
+        Throwable lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (Thread.currentThread().isInterrupted()) return;
+
+            Content content;
+            try {
+                content = source.build();
+            } catch (IOException e) {
+                lastError = e;
+                if (attempt < MAX_ATTEMPTS && !sleepBeforeRetry(attempt)) return;
+                continue;
+            }
+
+            ListenableFuture<GenerateContentResponse> future = geminiFutures.generateContent(content);
+            call.currentAttempt = future;
+            try {
+                String text = future.get(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS).getText();
+                if (gradingCache != null && cacheKey != null) {
+                    gradingCache.put(cacheKey, text);
+                }
+                finish(key, call, text, null);
+                return;
+            } catch (InterruptedException | CancellationException e) {
+                future.cancel(true);
+                return;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                lastError = e;
+            } catch (ExecutionException e) {
+                lastError = (e.getCause() != null) ? e.getCause() : e;
+                if (!isRetryable(lastError)) break;
+            }
+
+            if (attempt < MAX_ATTEMPTS && !sleepBeforeRetry(attempt)) return;
+        }
+
+        Log.i("GeminiManager", "Error: " + lastError.getMessage());
+        finish(key, call, null, lastError);
+    }
+
+    /**
+     * Delivers the outcome of a scheduled request to every caller still waiting for it.
+     *
+     * @param key    The key of the request.
+     * @param call   The scheduled request.
+     * @param result The response text, or null on failure.
+     * @param error  The failure cause, or null on success.
+     */
+    private void finish(String key, ScheduledCall call, final String result, final Throwable error) {
+        final ArrayList<GeminiStreamCallback> callbacks;
+        final ArrayList<GeminiRequest> handles;
+        synchronized (inFlight) {
+            if (inFlight.get(key) == call) {
+                inFlight.remove(key);
+            }
+            callbacks = new ArrayList<>(call.callbacks);
+            handles = new ArrayList<>(call.handles);
+        }
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < callbacks.size(); i++) {
+                    GeminiRequest handle = handles.get(i);
+                    if (handle.isCancelled()) continue;
+                    handle.setFinished();
+                    if (error == null) {
+                        callbacks.get(i).onComplete(result);
+                    } else {
+                        callbacks.get(i).onFailure(error);
                     }
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a streamed request on a worker thread, retrying transient failures that happen
+     * before the first chunk of text is received.
+     *
+     * @param key      The key of the request.
+     * @param call     The scheduled request.
+     * @param content  The content to send.
+     * @param cacheKey The key under which to cache the response.
+     */
+    private void streamWithRetries(String key, ScheduledCall call, Content content, String cacheKey) {
+        Throwable lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            StreamAttempt stream = new StreamAttempt(call);
+            geminiFutures.generateContentStream(content).subscribe(stream);
+            try {
+                if (!stream.done.await(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    stream.cancel();
+                    stream.error = new TimeoutException("Gemini stream timed out");
+                }
+            } catch (InterruptedException e) {
+                stream.cancel();
+                return;
+            }
+
+            if (stream.error == null) {
+                String text;
+                synchronized (inFlight) {
+                    text = call.streamed.toString();
+                }
+                if (gradingCache != null) {
+                    gradingCache.put(cacheKey, text);
+                }
+                finish(key, call, text, null);
+                return;
+            }
+
+            lastError = stream.error;
+            if (stream.receivedAny || !isRetryable(lastError)) break;
+            if (attempt < MAX_ATTEMPTS && !sleepBeforeRetry(attempt)) return;
+        }
+
+        Log.i("GeminiManager", "Error: " + lastError.getMessage());
+        finish(key, call, null, lastError);
+    }
+
+    /**
+     * Subscriber for a single attempt of a streamed request.
+     * Forwards every chunk to the callers on the main thread and signals when the stream ends.
+     */
+    private class StreamAttempt implements Subscriber<GenerateContentResponse> {
+        /**
+         * Released when the stream completes or fails.
+         */
+        final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * The scheduled request this attempt belongs to.
+         */
+        final ScheduledCall call;
+
+        /**
+         * The subscription of this attempt, used to cancel it.
+         */
+        volatile Subscription subscription;
+
+        /**
+         * The failure of this attempt, or null if it succeeded.
+         */
+        volatile Throwable error;
+
+        /**
+         * Flag indicating if any text has already been delivered to the callers.
+         */
+        volatile boolean receivedAny = false;
 
+        /**
+         * Constructs a new StreamAttempt.
+         *
+         * @param call The scheduled request this attempt belongs to.
+         */
+        StreamAttempt(ScheduledCall call) {
+            this.call = call;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(GenerateContentResponse response) {
+            final String chunk = response.getText();
+            if (chunk == null) return;
+            receivedAny = true;
+            synchronized (inFlight) {
+                call.streamed.append(chunk);
+                final ArrayList<GeminiStreamCallback> callbacks = new ArrayList<>(call.callbacks);
+                final ArrayList<GeminiRequest> handles = new ArrayList<>(call.handles);
+                // Posted under the lock so a caller joining late gets its catch-up text first
+                mainHandler.post(new Runnable() {
                     @Override
-                    public void resumeWith(@NonNull Object result) {
-                        if (result instanceof Result.Failure) {
-                            Log.i("GeminiManager", "Error: " + ((Result.Failure) result).exception.getMessage());
-                            callback.onFailure(((Result.Failure) result).exception);
-                        } else {
-                            callback.onSuccess(((GenerateContentResponse) result).getText());
+                    public void run() {
+                        for (int i = 0; i < callbacks.size(); i++) {
+                            if (handles.get(i).isCancelled()) continue;
+                            callbacks.get(i).onPartial(chunk);
                         }
                     }
                 });
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        /**
+         * Cancels the underlying stream.
+         */
+        void cancel() {
+            Subscription s = subscription;
+            if (s != null) s.cancel();
+        }
+    }
+
+    /**
+     * Checks if a failure is transient and worth retrying.
+     *
+     * @param error The failure cause.
+     * @return true for quota (429), server (5xx), timeout and network errors.
+     */
+    private boolean isRetryable(Throwable error) {
+        return error instanceof QuotaExceededException
+                || error instanceof ServerException
+                || error instanceof RequestTimeoutException
+                || error instanceof TimeoutException
+                || error instanceof IOException;
+    }
+
+    /**
+     * Waits before the next attempt using exponential backoff with random jitter.
+     *
+     * @param attempt The number of the attempt that just failed (1-based).
+     * @return true if the wait completed, false if the worker was interrupted (cancelled).
+     */
+    private boolean sleepBeforeRetry(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        delay = (long) (delay * (0.5 + random.nextDouble()));
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,64 @@
+package com.example.speakup;
+
+/**
+ * Handle to a Gemini request scheduled by {@link GeminiManager}.
+ * <p>
+ * Activities keep the handle returned by the send methods and call {@link #cancel()} from
+ * {@code onDestroy()}, so abandoned requests stop retrying and their callbacks are never
+ * delivered to a destroyed screen.
+ * </p>
+ */
+public class GeminiRequest {
+    /**
+     * Flag indicating if the request has been cancelled by its owner.
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Flag indicating if the request has already delivered its result or error.
+     */
+    private volatile boolean finished = false;
+
+    /**
+     * Action run by the scheduler when the request is cancelled.
+     */
+    private final Runnable onCancel;
+
+    /**
+     * Constructs a new GeminiRequest.
+     *
+     * @param onCancel Action run once when the request is cancelled, or null if there is nothing to abort.
+     */
+    GeminiRequest(Runnable onCancel) {
+        this.onCancel = onCancel;
+    }
+
+    /**
+     * Cancels the request. No callback is delivered after this call.
+     * Cancelling a finished or already cancelled request has no effect.
+     */
+    public void cancel() {
+        if (cancelled || finished) return;
+        cancelled = true;
+        if (onCancel != null) {
+            onCancel.run();
+        }
+    }
+
+    /**
+     * Checks if the request has been cancelled.
+     * @return true if cancelled, false otherwise.
+     */
+    public boolean isCancelled() { return cancelled; }
+
+    /**
+     * Checks if the request has delivered its result or error.
+     * @return true if finished, false otherwise.
+     */
+    public boolean isFinished() { return finished; }
+
+    /**
+     * Marks the request as finished once its callback has been delivered.
+     */
+    void setFinished() { finished = true; }
+}
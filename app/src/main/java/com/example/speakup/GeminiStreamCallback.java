@@ -0,0 +1,34 @@
+package com.example.speakup;
+
+/**
+ * Callback interface for handling streamed responses from Gemini AI requests.
+ * <p>
+ * Unlike {@link GeminiCallback}, which fires once the whole response has been generated,
+ * this interface is notified every time a new piece of text arrives from the model,
+ * allowing the UI to react before the full JSON evaluation is available.
+ * </p>
+ */
+public interface GeminiStreamCallback {
+    /**
+     * Called every time a new chunk of text is received from the AI model. Chunks arrive in
+     * order; callers that need the text so far keep their own buffer or incremental parser,
+     * and the full text is passed to {@link #onComplete(String)}.
+     *
+     * @param chunk The newly received piece of text.
+     */
+    void onPartial(String chunk);
+
+    /**
+     * Called once the stream has finished successfully.
+     *
+     * @param result The full generated text response from the AI model.
+     */
+    void onComplete(String result);
+
+    /**
+     * Called when an error occurs during the Gemini AI request.
+     *
+     * @param error The exception or error that caused the failure.
+     */
+    void onFailure(Throwable error);
+}
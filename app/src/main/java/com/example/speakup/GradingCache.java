@@ -0,0 +1,302 @@
+package com.example.speakup;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent, content-addressed cache of Gemini grading responses.
+ * <p>
+ * Each entry is keyed by a SHA-256 hash of the audio bytes, their MIME type and the fully
+ * resolved prompt text, so re-submitting the exact same recording for the same question
+ * returns the previous evaluation without another network call. Entries are stored as
+ * individual files in the app's cache directory and evicted in least-recently-used order
+ * once {@link #MAX_ENTRIES} is exceeded.
+ * </p>
+ */
+public class GradingCache {
+    /**
+     * The single instance of GradingCache.
+     */
+    private static GradingCache instance;
+
+    /**
+     * Maximum number of responses kept on disk.
+     */
+    private static final int MAX_ENTRIES = 200;
+
+    /**
+     * Name of the directory (inside the app cache directory) holding the entries.
+     */
+    private static final String CACHE_DIR_NAME = "grading_cache";
+
+    /**
+     * The directory holding one file per cached response.
+     */
+    private final File cacheDir;
+
+    /**
+     * Maximum number of responses kept in this cache.
+     */
+    private final int maxEntries;
+
+    /**
+     * Access-ordered index of the cached entries, from least to most recently used.
+     */
+    private final LinkedHashMap<String, File> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of lookups that were served from the cache.
+     */
+    private int hitCount = 0;
+
+    /**
+     * Number of lookups that had to go to the network.
+     */
+    private int missCount = 0;
+
+    /**
+     * Private constructor that loads the existing entries from disk.
+     *
+     * @param context The Context used to access the cache directory.
+     */
+    private GradingCache(Context context) {
+        this(new File(context.getCacheDir(), CACHE_DIR_NAME), MAX_ENTRIES);
+    }
+
+    /**
+     * Constructs a cache over a given directory, loading the entries already in it.
+     * Package-private so tests can use a temporary directory and a small capacity.
+     *
+     * @param cacheDir   The directory holding the entries.
+     * @param maxEntries The maximum number of responses kept.
+     */
+    GradingCache(File cacheDir, int maxEntries) {
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            // Restore the LRU order from the last access time stored in the file timestamps
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    return Long.compare(a.lastModified(), b.lastModified());
+                }
+            });
+            for (File file : files) {
+                entries.put(file.getName(), file);
+            }
+        }
+    }
+
+    /**
+     * Returns the singleton instance of GradingCache.
+     *
+     * @param context Any Context; the application context is retained.
+     * @return The GradingCache instance.
+     */
+    public static synchronized GradingCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new GradingCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the cache key for a grading request.
+     *
+     * @param prompt     The fully resolved prompt text.
+     * @param filesBytes The audio data sent with the prompt.
+     * @param mimeTypes  The MIME types corresponding to each entry in filesBytes.
+     * @return A hex-encoded SHA-256 hash identifying the request.
+     */
+    public static String buildKey(String prompt, List<byte[]> filesBytes, List<String> mimeTypes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < filesBytes.size(); i++) {
+                digest.update((byte) 0);
+                digest.update(mimeTypes.get(i).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(filesBytes.get(i));
+            }
+
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Builds the cache key for a grading request whose audio is stored on disk.
+     * The files are hashed from off-heap buffers (see {@link RecordingManager#openAudioBuffer}),
+     * producing the same key as
+     * {@link #buildKey(String, List, List)} would for their bytes.
+     *
+     * @param prompt    The fully resolved prompt text.
+     * @param files     The audio files sent with the prompt.
+     * @param mimeTypes The MIME types corresponding to each file.
+     * @return A hex-encoded SHA-256 hash identifying the request.
+     * @throws IOException If a file cannot be read.
+     */
+    public static String buildFileKey(String prompt, List<File> files, List<String> mimeTypes) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < files.size(); i++) {
+                digest.update((byte) 0);
+                digest.update(mimeTypes.get(i).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                ByteBuffer audio = RecordingManager.openAudioBuffer(files.get(i));
+                try {
+                    digest.update(audio);
+                } finally {
+                    RecordingManager.releaseAudioBuffer(audio);
+                }
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Encodes a hash as lowercase hexadecimal text.
+     *
+     * @param hash The hash bytes.
+     * @return The hex string.
+     */
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Looks up a cached response.
+     *
+     * @param key The key built by {@link #buildKey}.
+     * @return The cached response text, or null if it is not cached.
+     */
+    public synchronized String get(String key) {
+        File file = entries.get(key);
+        if (file == null || !file.exists()) {
+            entries.remove(key);
+            missCount++;
+            return null;
+        }
+
+        try (FileInputStream fis = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = fis.read(bytes, offset, bytes.length - offset);
+                if (read == -1) break;
+                offset += read;
+            }
+            file.setLastModified(System.currentTimeMillis());
+            hitCount++;
+            return new String(bytes, 0, offset, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.e("GradingCache", "Failed reading entry", e);
+            entries.remove(key);
+            missCount++;
+            return null;
+        }
+    }
+
+    /**
+     * Stores a response in the cache, evicting the least recently used entries if needed.
+     * Responses that are not valid JSON are not stored, so a retry after a formatting
+     * error goes back to the model.
+     *
+     * @param key    The key built by {@link #buildKey}.
+     * @param result The response text returned by Gemini.
+     */
+    public synchronized void put(String key, String result) {
+        if (!isCacheable(result)) return;
+
+        File file = new File(cacheDir, key);
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(result.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.e("GradingCache", "Failed writing entry", e);
+            return;
+        }
+        entries.put(key, file);
+
+        Iterator<Map.Entry<String, File>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next().getValue().delete();
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes a cached response, e.g. one the caller found incomplete, so the next identical
+     * request goes back to the model.
+     *
+     * @param key The key built by {@link #buildKey}.
+     */
+    public synchronized void remove(String key) {
+        File file = entries.remove(key);
+        if (file != null) file.delete();
+    }
+
+    /**
+     * Checks if a response is a well-formed JSON evaluation worth caching.
+     *
+     * @param result The response text returned by Gemini.
+     * @return true if the response can be parsed as a JSON object.
+     */
+    private boolean isCacheable(String result) {
+        if (result == null) return false;
+        try {
+            new JSONObject(result.replaceAll("```json", "").replaceAll("```", "").trim());
+            return true;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     * @return The hit count.
+     */
+    public synchronized int getHitCount() { return hitCount; }
+
+    /**
+     * Gets the number of lookups that were not found in the cache.
+     * @return The miss count.
+     */
+    public synchronized int getMissCount() { return missCount; }
+
+    /**
+     * Gets the number of responses currently cached.
+     * @return The number of entries.
+     */
+    public synchronized int size() { return entries.size(); }
+}
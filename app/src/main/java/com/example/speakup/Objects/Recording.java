@@ -13,6 +13,13 @@ import java.util.Map;
  * </p>
  */
 public class Recording implements Serializable {
+    /**
+     * Serialization version. The {@link com.example.speakup.UploadQueue} stores queued recordings
+     * serialized, so the version is pinned (to the value computed before it was declared) and
+     * field changes must keep the stored form readable.
+     */
+    private static final long serialVersionUID = 3986314652866774391L;
+
     /**
      * The unique identifier of the user who created the recording.
      */
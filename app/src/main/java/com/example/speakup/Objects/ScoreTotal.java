@@ -0,0 +1,67 @@
+package com.example.speakup.Objects;
+
+import com.google.firebase.database.Exclude;
+
+import java.io.Serializable;
+
+/**
+ * Running count and sum of scores, from which an average can be read without
+ * scanning the scored items.
+ * <p>
+ * It is stored inside {@link UserStats} in the Firebase Realtime Database.
+ * </p>
+ */
+public class ScoreTotal implements Serializable {
+    /**
+     * Number of scores added.
+     */
+    private long count;
+
+    /**
+     * Sum of the scores added.
+     */
+    private long sum;
+
+    /**
+     * Default constructor required for calls to DataSnapshot.getValue(ScoreTotal.class).
+     */
+    public ScoreTotal() {}
+
+    /**
+     * Gets the number of scores added.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the sum of the scores added.
+     *
+     * @return The sum.
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Adds one score.
+     *
+     * @param score The score.
+     */
+    public void add(int score) {
+        count++;
+        sum += score;
+    }
+
+    /**
+     * Gets the average of the scores added. Not stored in Firebase.
+     *
+     * @return The rounded-down average, or 0 if no score was added.
+     */
+    @Exclude
+    public int getAverage() {
+        return (count == 0) ? 0 : (int) (sum / count);
+    }
+}
@@ -13,6 +13,13 @@ import java.util.List;
  * </p>
  */
 public class Simulation implements Serializable {
+    /**
+     * Serialization version. The {@link com.example.speakup.UploadQueue} stores queued simulations
+     * serialized, so the version is pinned (to the value computed before it was declared) and
+     * field changes must keep the stored form readable.
+     */
+    private static final long serialVersionUID = 6079094754071169850L;
+
     /**
      * The unique identifier of the user who completed the simulation.
      */
@@ -12,6 +12,13 @@ import java.io.Serializable;
  */
 public class TopicDetail implements Serializable {
 
+    /**
+     * Serialization version. The {@link com.example.speakup.UploadQueue} stores the feedback of queued recordings
+     * serialized, so the version is pinned (to the value computed before it was declared) and
+     * field changes must keep the stored form readable.
+     */
+    private static final long serialVersionUID = 4702024615178340110L;
+
     /**
      * The score achieved for the topic/category.
      */
@@ -0,0 +1,122 @@
+package com.example.speakup.Objects;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated performance statistics of a user.
+ * <p>
+ * This node is kept up to date whenever a recording or simulation is saved, so dashboards
+ * can read a user's totals, per-category averages and per-rubric averages in a single read
+ * instead of scanning every {@link Recording}. It is stored in the Firebase Realtime Database
+ * under 'Stats/userId'.
+ * </p>
+ */
+public class UserStats implements Serializable {
+    /**
+     * Count and sum of the scores of all recordings.
+     */
+    private ScoreTotal total = new ScoreTotal();
+
+    /**
+     * Count and sum of recording scores per question category (e.g., "Personal Questions").
+     */
+    private Map<String, ScoreTotal> categories = new HashMap<>();
+
+    /**
+     * Count and sum of scores per AI feedback dimension (e.g., "delivery").
+     */
+    private Map<String, ScoreTotal> rubric = new HashMap<>();
+
+    /**
+     * The overall score of the last completed simulation, or null if none.
+     */
+    private Integer lastSimulationScore;
+
+    /**
+     * Default constructor required for calls to DataSnapshot.getValue(UserStats.class).
+     */
+    public UserStats() {}
+
+    /**
+     * Gets the totals of all recordings.
+     *
+     * @return The totals.
+     */
+    public ScoreTotal getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the totals per question category.
+     *
+     * @return The map of category to totals.
+     */
+    public Map<String, ScoreTotal> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Gets the totals per AI feedback dimension.
+     *
+     * @return The map of dimension to totals.
+     */
+    public Map<String, ScoreTotal> getRubric() {
+        return rubric;
+    }
+
+    /**
+     * Gets the overall score of the last completed simulation.
+     *
+     * @return The score, or null if no simulation was completed.
+     */
+    public Integer getLastSimulationScore() {
+        return lastSimulationScore;
+    }
+
+    /**
+     * Sets the overall score of the last completed simulation.
+     *
+     * @param lastSimulationScore The score.
+     */
+    public void setLastSimulationScore(Integer lastSimulationScore) {
+        this.lastSimulationScore = lastSimulationScore;
+    }
+
+    /**
+     * Adds a recording to the totals.
+     *
+     * @param recording The recording.
+     * @param category  The category of the recording's question, or null if unknown.
+     */
+    public void addRecording(Recording recording, String category) {
+        total.add(recording.getScore());
+        if (category != null) {
+            totalFor(categories, category).add(recording.getScore());
+        }
+        if (recording.getAiFeedBack() != null) {
+            for (Map.Entry<String, TopicDetail> entry : recording.getAiFeedBack().entrySet()) {
+                if (entry.getValue() != null) {
+                    totalFor(rubric, entry.getKey()).add(entry.getValue().getScore());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the totals stored under a key, creating them if needed.
+     *
+     * @param map The map of totals.
+     * @param key The key.
+     * @return The totals.
+     */
+    private static ScoreTotal totalFor(Map<String, ScoreTotal> map, String key) {
+        ScoreTotal t = map.get(key);
+        if (t == null) {
+            t = new ScoreTotal();
+            map.put(key, t);
+        }
+        return t;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.speakup;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.exifinterface.media.ExifInterface;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepares profile pictures for upload.
+ * <p>
+ * Camera photos and gallery images are several megabytes, while a profile picture is only
+ * ever shown as a small circle. Off the main thread, the picture is decoded at the smallest
+ * power-of-two sample size that keeps it above {@link #MAX_DIMENSION}, turned upright
+ * according to its EXIF orientation, scaled to at most {@link #MAX_DIMENSION} pixels and
+ * encoded as a JPEG, lowering the quality until it fits {@link #TARGET_BYTES}. The result is
+ * a small file in the cache directory, ready for {@code putFile}.
+ * </p>
+ */
+public class ProfileImageProcessor {
+    /**
+     * Callback receiving the processed picture.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread when processing finished.
+         *
+         * @param file The processed JPEG, or null if the picture could not be read.
+         */
+        void onProcessed(@Nullable File file);
+    }
+
+    /**
+     * Largest width or height of a processed picture, in pixels.
+     */
+    public static final int MAX_DIMENSION = 512;
+
+    /**
+     * Size the encoded picture should fit in, in bytes.
+     */
+    private static final int TARGET_BYTES = 100 * 1024;
+
+    /**
+     * JPEG quality tried first.
+     */
+    private static final int START_QUALITY = 90;
+
+    /**
+     * Lowest JPEG quality used to reach {@link #TARGET_BYTES}.
+     */
+    private static final int MIN_QUALITY = 60;
+
+    /**
+     * Step by which the JPEG quality is lowered.
+     */
+    private static final int QUALITY_STEP = 10;
+
+    /**
+     * Background thread decoding and encoding pictures.
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Handler delivering results on the main thread.
+     */
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Private constructor; the class only has static methods.
+     */
+    private ProfileImageProcessor() {
+    }
+
+    /**
+     * Processes a picture in the background.
+     *
+     * @param context  Any Context.
+     * @param source   The picture (a file or content URI).
+     * @param callback Receives the processed file.
+     */
+    public static void process(Context context, final Uri source, final Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                File result = null;
+                try {
+                    result = processNow(appContext, source);
+                } catch (IOException | OutOfMemoryError e) {
+                    Log.e("ProfileImageProcessor", "Failed to process profile picture", e);
+                }
+                final File file = result;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onProcessed(file);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Decodes, rotates, scales and encodes a picture on the calling thread.
+     *
+     * @param context Any Context.
+     * @param source  The picture.
+     * @return The processed JPEG.
+     * @throws IOException If the picture cannot be read or the result cannot be written.
+     */
+    private static File processNow(Context context, Uri source) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        // Read the dimensions only, to pick the sample size.
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = openStream(resolver, source)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unreadable image: " + source);
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight);
+        Bitmap decoded;
+        try (InputStream in = openStream(resolver, source)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Unreadable image: " + source);
+        }
+
+        int orientation;
+        try (InputStream in = openStream(resolver, source)) {
+            orientation = new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        }
+
+        Bitmap upright = transform(decoded, orientation);
+        if (upright != decoded) decoded.recycle();
+
+        byte[] jpeg = encode(upright);
+        upright.recycle();
+
+        File out = new File(context.getCacheDir(), "profile_upload_" + System.currentTimeMillis() + ".jpg");
+        try (OutputStream os = new FileOutputStream(out)) {
+            os.write(jpeg);
+        }
+        return out;
+    }
+
+    /**
+     * Opens a picture for reading.
+     *
+     * @param resolver The content resolver.
+     * @param source   The picture.
+     * @return The stream.
+     * @throws IOException If the picture cannot be opened.
+     */
+    private static InputStream openStream(ContentResolver resolver, Uri source) throws IOException {
+        InputStream in = resolver.openInputStream(source);
+        if (in == null) throw new IOException("Cannot open " + source);
+        return in;
+    }
+
+    /**
+     * Returns the largest power-of-two sample size that keeps both sides at least
+     * {@link #MAX_DIMENSION} pixels (or the picture's own size, if smaller).
+     *
+     * @param width  The width of the picture.
+     * @param height The height of the picture.
+     * @return The sample size.
+     */
+    private static int sampleSizeFor(int width, int height) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= MAX_DIMENSION && height / (sampleSize * 2) >= MAX_DIMENSION) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Turns a bitmap upright according to its EXIF orientation and scales it down to at most
+     * {@link #MAX_DIMENSION} pixels, in one pass.
+     *
+     * @param bitmap      The decoded bitmap.
+     * @param orientation The EXIF orientation.
+     * @return The transformed bitmap, or the same bitmap if nothing had to change.
+     */
+    private static Bitmap transform(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) MAX_DIMENSION / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        matrix.postScale(scale, scale);
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+
+        if (matrix.isIdentity()) return bitmap;
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    /**
+     * Encodes a bitmap as a JPEG, lowering the quality until it fits {@link #TARGET_BYTES}
+     * or reaches {@link #MIN_QUALITY}.
+     *
+     * @param bitmap The bitmap.
+     * @return The JPEG bytes.
+     */
+    private static byte[] encode(Bitmap bitmap) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int quality = START_QUALITY;
+        while (true) {
+            bytes.reset();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, quality, bytes);
+            if (bytes.size() <= TARGET_BYTES || quality - QUALITY_STEP < MIN_QUALITY) {
+                return bytes.toByteArray();
+            }
+            quality -= QUALITY_STEP;
+        }
+    }
+}
@@ -0,0 +1,635 @@
+package com.example.speakup;
+
+import static com.example.speakup.Utils.FBRef.refQuestions;
+import static com.example.speakup.Utils.FBRef.refQuestionsVersion;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.speakup.Objects.Question;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.database.DataSnapshot;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Versioned, on-disk snapshot of the question bank with an in-memory index.
+ * <p>
+ * The whole 'Questions' tree is downloaded only when the 'QuestionsVersion' node differs
+ * from the version of the local snapshot, so authors must change that node whenever they
+ * edit questions. The snapshot is stored as a compact JSON file and loaded into an index by
+ * category, topic, video URL and question ID, which makes the bank usable offline and
+ * answers lookups without any Firebase read.
+ * </p>
+ * <p>
+ * The snapshot also carries the groups of video questions that share a video and can fill
+ * the two video slots of a simulation. They are built once per bank version, when it is
+ * downloaded, so {@link #sampleVideoGroup} is a constant-time pick.
+ * </p>
+ * <p>
+ * On a warm start, {@link #load} answers from the snapshot right away and the version is
+ * checked in the background; registered {@link OnBankChangedListener}s are notified if a
+ * newer bank was downloaded. Callbacks are delivered on the main thread.
+ * </p>
+ */
+public class QuestionBank {
+    /**
+     * Callback receiving the loaded bank.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread once the bank is available. If it could neither be read
+         * from disk nor downloaded, the bank is empty.
+         *
+         * @param bank The question bank.
+         */
+        void onLoaded(QuestionBank bank);
+    }
+
+    /**
+     * Listener notified when a newer bank replaced the loaded one.
+     */
+    public interface OnBankChangedListener {
+        /**
+         * Called on the main thread after the bank changed.
+         */
+        void onBankChanged();
+    }
+
+    /**
+     * The single instance of QuestionBank.
+     */
+    private static QuestionBank instance;
+
+    /**
+     * Name of the snapshot file in the app's files directory.
+     */
+    private static final String SNAPSHOT_FILE_NAME = "question_bank.json";
+
+    /**
+     * Number of questions about one video asked in a simulation.
+     */
+    private static final int MIN_VIDEO_GROUP_SIZE = 2;
+
+    /**
+     * The snapshot file.
+     */
+    private final File snapshotFile;
+
+    /**
+     * Single thread reading, parsing and writing the snapshot.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Handler used to deliver callbacks on the main thread.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Callbacks waiting for the first load.
+     */
+    private final ArrayList<Callback> pendingCallbacks = new ArrayList<>();
+
+    /**
+     * Listeners notified when the bank changes.
+     */
+    private final ArrayList<OnBankChangedListener> listeners = new ArrayList<>();
+
+    /**
+     * The current index, or null before the first load. Replaced as a whole, never modified.
+     */
+    private volatile Index index;
+
+    /**
+     * Whether the first load was started.
+     */
+    private boolean loadStarted = false;
+
+    /**
+     * Whether the remote version was already checked in this process.
+     */
+    private boolean versionChecked = false;
+
+    /**
+     * Immutable lookup tables built from one version of the bank.
+     */
+    private static class Index {
+        /**
+         * Version of the bank, or null if Firebase has no version node.
+         */
+        final String version;
+
+        /**
+         * Every question, in bank order.
+         */
+        final List<Question> all = new ArrayList<>();
+
+        /**
+         * Questions by ID.
+         */
+        final Map<String, Question> byId = new HashMap<>();
+
+        /**
+         * Questions by category, then by topic, in bank order.
+         */
+        final Map<String, LinkedHashMap<String, List<Question>>> byCategoryAndTopic = new HashMap<>();
+
+        /**
+         * Questions by category, in bank order.
+         */
+        final Map<String, List<Question>> byCategory = new HashMap<>();
+
+        /**
+         * Questions by video URL, in bank order.
+         */
+        final Map<String, List<Question>> byVideoUrl = new HashMap<>();
+
+        /**
+         * Groups of at least {@link #MIN_VIDEO_GROUP_SIZE} questions about the same video.
+         */
+        final List<List<Question>> videoGroups = new ArrayList<>();
+
+        /**
+         * Builds the lookup tables and derives the video groups from the questions.
+         *
+         * @param version   The version of the bank.
+         * @param questions The questions.
+         */
+        Index(String version, List<Question> questions) {
+            this(version, questions, null);
+        }
+
+        /**
+         * Builds the lookup tables.
+         *
+         * @param version       The version of the bank.
+         * @param questions     The questions.
+         * @param videoGroupIds The question IDs of each video group as stored in the snapshot,
+         *                      or null to derive the groups from the questions.
+         */
+        Index(String version, List<Question> questions, @Nullable List<List<String>> videoGroupIds) {
+            this.version = version;
+            for (Question q : questions) {
+                all.add(q);
+                byId.put(q.getQuestionId(), q);
+                listFor(byCategory, q.getCategory()).add(q);
+
+                LinkedHashMap<String, List<Question>> topics = byCategoryAndTopic.get(q.getCategory());
+                if (topics == null) {
+                    topics = new LinkedHashMap<>();
+                    byCategoryAndTopic.put(q.getCategory(), topics);
+                }
+                listFor(topics, q.getTopic()).add(q);
+
+                String url = q.getVideoUrl();
+                if (url != null && !url.isEmpty() && !url.equals("null")) {
+                    listFor(byVideoUrl, url).add(q);
+                }
+            }
+
+            if (videoGroupIds != null) {
+                for (List<String> ids : videoGroupIds) {
+                    List<Question> group = new ArrayList<>();
+                    for (String id : ids) {
+                        Question q = byId.get(id);
+                        if (q != null) group.add(q);
+                    }
+                    if (group.size() >= MIN_VIDEO_GROUP_SIZE) videoGroups.add(group);
+                }
+            } else {
+                for (List<Question> group : byVideoUrl.values()) {
+                    if (group.size() >= MIN_VIDEO_GROUP_SIZE) videoGroups.add(group);
+                }
+            }
+        }
+
+        /**
+         * Returns the list stored under a key, creating it if needed.
+         *
+         * @param map The map of lists.
+         * @param key The key.
+         * @return The list.
+         */
+        private static List<Question> listFor(Map<String, List<Question>> map, String key) {
+            List<Question> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                map.put(key, list);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Private constructor.
+     *
+     * @param context The application context.
+     */
+    private QuestionBank(Context context) {
+        snapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    /**
+     * Returns the singleton instance of QuestionBank.
+     *
+     * @param context Any Context; the application context is retained.
+     * @return The QuestionBank instance.
+     */
+    public static synchronized QuestionBank getInstance(Context context) {
+        if (instance == null) {
+            instance = new QuestionBank(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener notified when a newer bank is downloaded.
+     *
+     * @param listener The listener.
+     */
+    public void addOnBankChangedListener(OnBankChangedListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addOnBankChangedListener}.
+     *
+     * @param listener The listener.
+     */
+    public void removeOnBankChangedListener(OnBankChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Makes the bank available, from memory, the local snapshot or Firebase (in that order),
+     * and checks once per process whether Firebase has a newer version.
+     * Must be called on the main thread.
+     *
+     * @param callback Receives the bank.
+     */
+    public void load(final Callback callback) {
+        if (index != null) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onLoaded(QuestionBank.this);
+                }
+            });
+            checkVersion();
+            return;
+        }
+
+        pendingCallbacks.add(callback);
+        if (loadStarted) return;
+        loadStarted = true;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Index snapshot = readSnapshot();
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (snapshot != null) {
+                            index = snapshot;
+                            deliverPending();
+                        }
+                        // Without a snapshot the callbacks wait for the download.
+                        checkVersion();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Compares the remote version with the loaded one and downloads the bank if they differ.
+     */
+    private void checkVersion() {
+        if (versionChecked) return;
+        versionChecked = true;
+
+        refQuestionsVersion.get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+            @Override
+            public void onSuccess(DataSnapshot snapshot) {
+                Object value = snapshot.getValue();
+                String remoteVersion = (value != null) ? String.valueOf(value) : null;
+                Index current = index;
+                if (current != null && remoteVersion != null && remoteVersion.equals(current.version)) {
+                    return;
+                }
+                download(remoteVersion);
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception error) {
+                versionChecked = false;
+                Log.e("QuestionBank", "Version check failed", error);
+                deliverPending();
+            }
+        });
+    }
+
+    /**
+     * Downloads the whole bank, stores it as the new snapshot and swaps the index.
+     *
+     * @param version The remote version being downloaded, or null if unknown.
+     */
+    private void download(final String version) {
+        refQuestions.get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+            @Override
+            public void onSuccess(final DataSnapshot snapshot) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ArrayList<Question> questions = new ArrayList<>();
+                        for (DataSnapshot categorySnap : snapshot.getChildren()) {
+                            for (DataSnapshot topicSnap : categorySnap.getChildren()) {
+                                for (DataSnapshot questionSnap : topicSnap.getChildren()) {
+                                    Question q = questionSnap.getValue(Question.class);
+                                    if (q == null || q.getQuestionId() == null || q.getCategory() == null)
+                                        continue;
+                                    questions.add(q);
+                                }
+                            }
+                        }
+                        final Index downloaded = new Index(version, questions);
+                        writeSnapshot(downloaded);
+
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                boolean replaced = (index != null);
+                                index = downloaded;
+                                deliverPending();
+                                if (replaced) notifyBankChanged();
+                            }
+                        });
+                    }
+                });
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception error) {
+                versionChecked = false;
+                Log.e("QuestionBank", "Download failed", error);
+                deliverPending();
+            }
+        });
+    }
+
+    // --- LOOKUPS ---
+
+    /**
+     * Returns every question of a category.
+     *
+     * @param category The category (e.g., "Personal Questions").
+     * @return The questions, in bank order; empty if none.
+     */
+    public List<Question> getQuestions(String category) {
+        Index current = index;
+        List<Question> list = (current != null) ? current.byCategory.get(category) : null;
+        return (list != null) ? Collections.unmodifiableList(list) : Collections.<Question>emptyList();
+    }
+
+    /**
+     * Returns the questions of one topic of a category.
+     *
+     * @param category The category.
+     * @param topic    The topic.
+     * @return The questions, in bank order; empty if none.
+     */
+    public List<Question> getQuestions(String category, String topic) {
+        Index current = index;
+        Map<String, List<Question>> topics = (current != null) ? current.byCategoryAndTopic.get(category) : null;
+        List<Question> list = (topics != null) ? topics.get(topic) : null;
+        return (list != null) ? Collections.unmodifiableList(list) : Collections.<Question>emptyList();
+    }
+
+    /**
+     * Returns the topics of a category.
+     *
+     * @param category The category.
+     * @return The topics, in bank order; empty if none.
+     */
+    public List<String> getTopics(String category) {
+        Index current = index;
+        Map<String, List<Question>> topics = (current != null) ? current.byCategoryAndTopic.get(category) : null;
+        return (topics != null) ? new ArrayList<>(topics.keySet()) : new ArrayList<String>();
+    }
+
+    /**
+     * Returns the questions asked about the same video.
+     *
+     * @param videoUrl The video URL.
+     * @return The questions, in bank order; empty if none.
+     */
+    public List<Question> getQuestionsByVideoUrl(String videoUrl) {
+        Index current = index;
+        List<Question> list = (current != null) ? current.byVideoUrl.get(videoUrl) : null;
+        return (list != null) ? Collections.unmodifiableList(list) : Collections.<Question>emptyList();
+    }
+
+    /**
+     * Returns a question by ID.
+     *
+     * @param questionId The question ID.
+     * @return The question, or null if it is not in the bank.
+     */
+    @Nullable
+    public Question getQuestion(String questionId) {
+        Index current = index;
+        return (current != null) ? current.byId.get(questionId) : null;
+    }
+
+    /**
+     * Returns the groups of video questions that share a video and have at least two questions.
+     *
+     * @return The groups, each in bank order; empty if none.
+     */
+    public List<List<Question>> getVideoGroups() {
+        Index current = index;
+        return (current != null) ? Collections.unmodifiableList(current.videoGroups)
+                : Collections.<List<Question>>emptyList();
+    }
+
+    /**
+     * Tells whether the bank has no questions, e.g. because it could not be loaded.
+     *
+     * @return True if there is no question.
+     */
+    public boolean isEmpty() {
+        Index current = index;
+        return current == null || current.byId.isEmpty();
+    }
+
+    /**
+     * Picks a random question of a category.
+     *
+     * @param category The category.
+     * @param random   The source of randomness.
+     * @return The question, or null if the category is empty.
+     */
+    @Nullable
+    public Question sampleQuestion(String category, Random random) {
+        List<Question> list = getQuestions(category);
+        return list.isEmpty() ? null : list.get(random.nextInt(list.size()));
+    }
+
+    /**
+     * Picks a random group of video questions that share a video and have at least two
+     * questions.
+     *
+     * @param random The source of randomness.
+     * @return The questions of the group, in bank order, or null if there is no such group.
+     */
+    @Nullable
+    public List<Question> sampleVideoGroup(Random random) {
+        Index current = index;
+        if (current == null || current.videoGroups.isEmpty()) return null;
+        return Collections.unmodifiableList(current.videoGroups.get(random.nextInt(current.videoGroups.size())));
+    }
+
+    // --- SNAPSHOT ---
+
+    /**
+     * Reads the snapshot file.
+     *
+     * @return The index built from the snapshot, or null if there is no valid snapshot.
+     */
+    private Index readSnapshot() {
+        if (!snapshotFile.exists()) return null;
+
+        try (FileInputStream fis = new FileInputStream(snapshotFile)) {
+            byte[] bytes = new byte[(int) snapshotFile.length()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = fis.read(bytes, offset, bytes.length - offset);
+                if (read == -1) break;
+                offset += read;
+            }
+
+            JSONObject json = new JSONObject(new String(bytes, 0, offset, StandardCharsets.UTF_8));
+            String version = json.isNull("version") ? null : json.getString("version");
+            JSONArray array = json.getJSONArray("questions");
+            ArrayList<Question> questions = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                // Compact rows: [id, category, topic, subTopic, fullQuestion, videoUrl]
+                JSONArray row = array.getJSONArray(i);
+                Question q = new Question(row.getString(1), row.optString(2, null), row.optString(3, null),
+                        row.optString(4, null), row.optString(5, null));
+                q.setQuestionId(row.getString(0));
+                questions.add(q);
+            }
+
+            List<List<String>> videoGroupIds = null;
+            JSONArray groups = json.optJSONArray("videoGroups");
+            if (groups != null) {
+                videoGroupIds = new ArrayList<>();
+                for (int i = 0; i < groups.length(); i++) {
+                    JSONArray group = groups.getJSONArray(i);
+                    List<String> ids = new ArrayList<>();
+                    for (int j = 0; j < group.length(); j++) {
+                        ids.add(group.getString(j));
+                    }
+                    videoGroupIds.add(ids);
+                }
+            }
+            return new Index(version, questions, videoGroupIds);
+        } catch (IOException | JSONException e) {
+            Log.e("QuestionBank", "Failed reading snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes an index as the new snapshot file, replacing the old one atomically.
+     *
+     * @param snapshot The index to store.
+     */
+    private void writeSnapshot(Index snapshot) {
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            JSONArray array = new JSONArray();
+            for (Question q : snapshot.all) {
+                JSONArray row = new JSONArray();
+                row.put(q.getQuestionId());
+                row.put(q.getCategory());
+                row.put(q.getTopic());
+                row.put(q.getSubTopic());
+                row.put(q.getFullQuestion());
+                row.put(q.getVideoUrl());
+                array.put(row);
+            }
+            JSONArray groups = new JSONArray();
+            for (List<Question> group : snapshot.videoGroups) {
+                JSONArray ids = new JSONArray();
+                for (Question q : group) {
+                    ids.put(q.getQuestionId());
+                }
+                groups.put(ids);
+            }
+            JSONObject json = new JSONObject();
+            json.put("version", (snapshot.version != null) ? snapshot.version : JSONObject.NULL);
+            json.put("questions", array);
+            json.put("videoGroups", groups);
+            fos.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e("QuestionBank", "Failed writing snapshot", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(snapshotFile)) {
+            Log.e("QuestionBank", "Failed replacing snapshot");
+            tmp.delete();
+        }
+    }
+
+    // --- DELIVERY ---
+
+    /**
+     * Delivers the bank to the callbacks waiting for the first load. Main thread only.
+     */
+    private void deliverPending() {
+        ArrayList<Callback> callbacks = new ArrayList<>(pendingCallbacks);
+        pendingCallbacks.clear();
+        // A failed first load is retried by the next call to load().
+        if (index == null) loadStarted = false;
+        for (Callback callback : callbacks) {
+            callback.onLoaded(this);
+        }
+    }
+
+    /**
+     * Notifies the listeners that the bank changed. Main thread only.
+     */
+    private void notifyBankChanged() {
+        for (OnBankChangedListener listener : new ArrayList<>(listeners)) {
+            listener.onBankChanged();
+        }
+    }
+}
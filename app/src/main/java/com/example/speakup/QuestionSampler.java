@@ -0,0 +1,199 @@
+package com.example.speakup;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.example.speakup.Objects.Question;
+import com.example.speakup.Objects.Recording;
+import com.example.speakup.Utils.AliasTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * History-aware question sampler over the {@link QuestionBank} and the user's recordings.
+ * <p>
+ * Each question gets a weight from the student's history: questions never answered weigh
+ * the most, and answered ones weigh more the lower their last score and the longer ago they
+ * were last practiced, in the spirit of spaced repetition. Weights are turned into one
+ * {@link AliasTable} per category (and one over the video groups) when the sampler is
+ * created, so each pick takes constant time however large the bank grows.
+ * </p>
+ * <p>
+ * A sampler is a snapshot: create a new one with {@link #create} to take newer recordings
+ * into account.
+ * </p>
+ */
+public class QuestionSampler {
+    /**
+     * Callback receiving a ready sampler.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread with the sampler.
+         *
+         * @param sampler The sampler.
+         */
+        void onReady(QuestionSampler sampler);
+    }
+
+    /**
+     * Weight of a question the user never answered.
+     */
+    private static final double UNSEEN_WEIGHT = 3.0;
+
+    /**
+     * Smallest weight of an answered question, so no question is ever excluded.
+     */
+    private static final double MIN_WEIGHT = 0.1;
+
+    /**
+     * Number of days after which an answered question gets its full staleness weight.
+     */
+    private static final double STALE_DAYS = 14.0;
+
+    /**
+     * Milliseconds in a day.
+     */
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /**
+     * Questions of each category, in the order of the matching alias table.
+     */
+    private final Map<String, List<Question>> questionsByCategory = new HashMap<>();
+
+    /**
+     * Alias table of each category.
+     */
+    private final Map<String, AliasTable> tablesByCategory = new HashMap<>();
+
+    /**
+     * The video groups, in the order of {@link #videoGroupTable}.
+     */
+    private final List<List<Question>> videoGroups;
+
+    /**
+     * Alias table over the video groups, or null if there are none.
+     */
+    private final AliasTable videoGroupTable;
+
+    /**
+     * Builds the alias tables.
+     *
+     * @param bank       The loaded question bank.
+     * @param recordings The user's recordings, oldest first.
+     * @param now        The current time, in milliseconds.
+     */
+    QuestionSampler(QuestionBank bank, List<Recording> recordings, long now) {
+        // Later recordings overwrite earlier ones, leaving the latest attempt per question.
+        Map<String, Recording> latest = new HashMap<>();
+        for (Recording rec : recordings) {
+            latest.put(rec.getQuestionId(), rec);
+        }
+
+        for (String category : new String[]{"Personal Questions", "Project Questions", "Video Clip Questions"}) {
+            List<Question> questions = bank.getQuestions(category);
+            if (questions.isEmpty()) continue;
+            double[] weights = new double[questions.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = weightOf(latest.get(questions.get(i).getQuestionId()), now);
+            }
+            questionsByCategory.put(category, questions);
+            tablesByCategory.put(category, new AliasTable(weights));
+        }
+
+        // A video group weighs as much as its most needed question.
+        videoGroups = bank.getVideoGroups();
+        if (videoGroups.isEmpty()) {
+            videoGroupTable = null;
+        } else {
+            double[] weights = new double[videoGroups.size()];
+            for (int i = 0; i < weights.length; i++) {
+                for (Question q : videoGroups.get(i)) {
+                    weights[i] = Math.max(weights[i], weightOf(latest.get(q.getQuestionId()), now));
+                }
+            }
+            videoGroupTable = new AliasTable(weights);
+        }
+    }
+
+    /**
+     * Loads the question bank and the user's local recordings and builds a sampler.
+     * Must be called on the main thread.
+     *
+     * @param context  Any Context.
+     * @param userId   The user ID, or null to sample without history.
+     * @param callback Receives the sampler.
+     */
+    public static void create(final Context context, @Nullable final String userId, final Callback callback) {
+        QuestionBank.getInstance(context).load(new QuestionBank.Callback() {
+            @Override
+            public void onLoaded(final QuestionBank bank) {
+                if (userId == null) {
+                    callback.onReady(new QuestionSampler(bank, Collections.<Recording>emptyList(),
+                            System.currentTimeMillis()));
+                    return;
+                }
+                RecordingRepository.getInstance(context).getRecordings(userId, null,
+                        new RecordingRepository.Callback<ArrayList<Recording>>() {
+                    @Override
+                    public void onResult(ArrayList<Recording> recordings) {
+                        callback.onReady(new QuestionSampler(bank, recordings, System.currentTimeMillis()));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Computes the sampling weight of a question from the user's latest attempt at it.
+     *
+     * @param latest The latest recording of the question, or null if never answered.
+     * @param now    The current time, in milliseconds.
+     * @return The weight.
+     */
+    static double weightOf(@Nullable Recording latest, long now) {
+        if (latest == null) return UNSEEN_WEIGHT;
+
+        double score = Math.max(0, Math.min(100, latest.getScore()));
+        double weakness = 1.0 - score / 100.0;
+        double staleness = 1.0;
+        if (latest.getDateRecorded() != null) {
+            double days = (now - latest.getDateRecorded().getTime()) / (double) DAY_MS;
+            staleness = Math.max(0, Math.min(1, days / STALE_DAYS));
+        }
+        return MIN_WEIGHT + weakness + staleness;
+    }
+
+    /**
+     * Picks a question of a category, favoring unseen, weak and stale questions.
+     *
+     * @param category The category (e.g., "Personal Questions").
+     * @param random   The source of randomness.
+     * @return The question, or null if the category is empty.
+     */
+    @Nullable
+    public Question sample(String category, Random random) {
+        AliasTable table = tablesByCategory.get(category);
+        if (table == null) return null;
+        return questionsByCategory.get(category).get(table.sample(random));
+    }
+
+    /**
+     * Picks a group of at least two questions about the same video, favoring groups with
+     * unseen, weak or stale questions.
+     *
+     * @param random The source of randomness.
+     * @return The questions of the group, in bank order, or null if there is no such group.
+     */
+    @Nullable
+    public List<Question> sampleVideoGroup(Random random) {
+        if (videoGroupTable == null) return null;
+        return videoGroups.get(videoGroupTable.sample(random));
+    }
+}
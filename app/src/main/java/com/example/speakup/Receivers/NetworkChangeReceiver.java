@@ -8,20 +8,24 @@ import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 
+import com.example.speakup.UploadQueue;
+
 /**
  * BroadcastReceiver that monitors changes in network connectivity.
  * <p>
  * This receiver detects when the device connects to or disconnects from the internet.
  * If the connection is lost, it displays a non-cancelable alert dialog to the user,
- * prompting them to reconnect.
+ * prompting them to reconnect. When the connection is available, pending uploads are resumed,
+ * and retried right away if the connection had been lost.
  * </p>
  */
 public class NetworkChangeReceiver extends BroadcastReceiver {
 
     /**
-     * Static flag indicating the current connection status.
+     * Static flag indicating the current connection status. Assumed connected until a broadcast
+     * says otherwise, so only a real offline to online transition counts as reconnecting.
      */
-    private static boolean isConnected = false;
+    private static boolean isConnected = true;
 
     /**
      * Static reference to the network connection warning dialog.
@@ -46,7 +50,10 @@ public class NetworkChangeReceiver extends BroadcastReceiver {
      * Called when the network state changes.
      * <p>
      * Checks the active network info and updates the {@link #isConnected} flag.
-     * Displays or dismisses the warning dialog based on the connectivity status.
+     * Displays or dismisses the warning dialog based on the connectivity status, and resumes the
+     * {@link UploadQueue} when connected. The receiver is registered by every screen, which
+     * delivers the current state each time, so the queue's backoff is only skipped when the
+     * connection comes back after being lost.
      * </p>
      *
      * @param context The Context in which the receiver is running.
@@ -56,12 +63,18 @@ public class NetworkChangeReceiver extends BroadcastReceiver {
     public void onReceive(Context context, Intent intent) {
         ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        boolean wasConnected = isConnected;
         isConnected = (activeNetwork != null && activeNetwork.isConnected());
 
         if (!isConnected) {
             showDialog();
         } else {
             dismissDialog();
+            if (wasConnected) {
+                UploadQueue.getInstance(context).resume();
+            } else {
+                UploadQueue.getInstance(context).retryNow();
+            }
         }
     }
 
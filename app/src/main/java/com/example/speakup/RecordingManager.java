@@ -5,27 +5,101 @@ import android.media.MediaPlayer;
 import android.media.MediaRecorder;
 import android.util.Log;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Manager class responsible for handling multi-stage audio recording.
  * <p>
- * This class allows recording audio in multiple chunks (to support pause/resume functionality),
- * merging those chunks into a single finalized AAC file, and managing the lifecycle of
- * recording files in the application's external cache directory.
+ * Audio is captured by an {@link AacStreamRecorder} that writes one continuous ADTS stream
+ * straight to the final file, so pausing and resuming happen in-process and finalizing only
+ * flushes the encoder. On devices where the encoder pipeline cannot be started, the manager
+ * falls back to recording one MediaRecorder chunk per pause and merging the chunks into a
+ * single AAC file. Recording files live in the application's external cache directory.
+ * </p>
+ * <p>
+ * The finalized file always holds the whole recording, as the student said it. Silence
+ * trimming and pause compression only apply to a separate copy made for grading, see
+ * {@link #getGradingFilePath()}.
  * </p>
  */
 public class RecordingManager {
+    /**
+     * Size of the direct buffers pooled by {@link #openAudioBuffer}. Larger files are memory-mapped.
+     */
+    private static final int POOLED_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Maximum number of idle direct buffers kept in the pool.
+     */
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    /**
+     * Size of the buffer used by {@link #openAudioStream}.
+     */
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Idle direct buffers available for reuse.
+     */
+    private static final ArrayDeque<ByteBuffer> bufferPool = new ArrayDeque<>();
+
+    /**
+     * Pooled buffers currently handed out, compared by identity.
+     */
+    private static final Set<ByteBuffer> lentBuffers =
+            Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+
     /**
      * The MediaRecorder instance used for capturing audio.
      */
     private MediaRecorder recorder;
 
+    /**
+     * The continuous encoder writing the recording, or null before the first chunk
+     * or when falling back to MediaRecorder chunks.
+     */
+    private AacStreamRecorder streamRecorder;
+
+    /**
+     * Flag indicating if the encoder pipeline is unavailable and MediaRecorder chunks are used instead.
+     */
+    private boolean useLegacyChunks = false;
+
+    /**
+     * Optional listener notified with every encoded frame of the stream.
+     */
+    private AacStreamRecorder.FrameListener frameListener;
+
+    /**
+     * The detector analyzing the stream, or null before the first chunk
+     * or when falling back to MediaRecorder chunks.
+     */
+    private VoiceActivityDetector voiceActivityDetector;
+
+    /**
+     * Flag indicating if long pauses between words are shortened in the grading copy.
+     */
+    private boolean compressPauses = false;
+
+    /**
+     * The trimmed copy of the finalized file sent for grading, or null until it is written.
+     */
+    private File gradingFile;
+
     /**
      * The MediaPlayer instance used for cleaning up resources.
      */
@@ -72,22 +146,53 @@ public class RecordingManager {
     private Context context;
 
     /**
-     * Constructs a new RecordingManager.
+     * The encoding settings of the recording.
+     */
+    private final AudioProfile profile;
+
+    /**
+     * Constructs a new RecordingManager using the {@link AudioProfile#ARCHIVAL} profile.
      *
      * @param context  The Context used to access the cache directory.
      * @param fileName The desired name for the finalized audio file (e.g., "my_recording.aac").
      */
     public RecordingManager(Context context, String fileName) {
+        this(context, fileName, AudioProfile.ARCHIVAL);
+    }
+
+    /**
+     * Constructs a new RecordingManager with specific encoding settings.
+     *
+     * @param context  The Context used to access the cache directory.
+     * @param fileName The desired name for the finalized audio file (e.g., "my_recording.aac").
+     * @param profile  The encoding settings, e.g. {@link AudioProfile#GRADING}.
+     */
+    public RecordingManager(Context context, String fileName, AudioProfile profile) {
         this.context = context;
         this.finalFileName = context.getExternalCacheDir().getAbsolutePath() + "/" + fileName;
+        this.profile = profile;
     }
 
     /**
      * Starts recording a new audio chunk.
-     * Creates a temporary file for the chunk and configures the MediaRecorder for AAC output.
+     * <p>
+     * The first call opens the stream encoder; later calls resume it, appending to the same
+     * file. If the encoder cannot be started, a temporary chunk file is recorded with
+     * MediaRecorder instead.
+     * </p>
      */
     public void startRecordingChunk() {
         isRecording = true;
+
+        if (!useLegacyChunks) {
+            if (streamRecorder != null) {
+                streamRecorder.resume();
+                return;
+            }
+            if (startStream()) return;
+            useLegacyChunks = true;
+        }
+
         chunkCount++;
         File chunkFile = new File(context.getExternalCacheDir(), "chunk_" + System.currentTimeMillis() + "_" + chunkCount + ".aac");
         audioChunks.add(chunkFile);
@@ -96,8 +201,9 @@ public class RecordingManager {
         recorder.setAudioSource(MediaRecorder.AudioSource.MIC);
         recorder.setOutputFormat(MediaRecorder.OutputFormat.AAC_ADTS);
         recorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-        recorder.setAudioEncodingBitRate(128000);
-        recorder.setAudioSamplingRate(44100);
+        recorder.setAudioChannels(profile.getChannelCount());
+        recorder.setAudioEncodingBitRate(profile.getBitRate());
+        recorder.setAudioSamplingRate(profile.getSampleRate());
         recorder.setOutputFile(chunkFile.getAbsolutePath());
 
         try {
@@ -109,9 +215,42 @@ public class RecordingManager {
     }
 
     /**
-     * Stops the current recording chunk and releases the MediaRecorder resources.
+     * Opens the stream encoder writing directly to the final file.
+     *
+     * @return true if the encoder started, false if MediaRecorder chunks must be used instead.
+     */
+    private boolean startStream() {
+        File streamFile = new File(finalFileName);
+        AacStreamRecorder stream = new AacStreamRecorder(streamFile,
+                profile.getSampleRate(), profile.getChannelCount(), profile.getBitRate());
+        VoiceActivityDetector detector = new VoiceActivityDetector(profile.getSampleRate(),
+                profile.getChannelCount(), compressPauses);
+        stream.setFrameListener(frameListener);
+        stream.setVoiceActivityDetector(detector);
+        try {
+            stream.start();
+        } catch (IOException e) {
+            Log.e("RecordingManager", "Stream encoder unavailable for profile " + profile.getName() + ", using chunks", e);
+            return false;
+        }
+
+        streamRecorder = stream;
+        voiceActivityDetector = detector;
+        // The stream file doubles as the only chunk, so it is playable before finalization
+        audioChunks.add(streamFile);
+        return true;
+    }
+
+    /**
+     * Stops the current recording chunk.
+     * With the stream encoder this only pauses the microphone and the stream file stays open,
+     * so it may only be previewed (see {@link #getPreviewFilePath()}); use
+     * {@link #getFinalFilePath()} to obtain a file that can be handed out.
      */
     public void stopRecordingChunk() {
+        if (streamRecorder != null) {
+            streamRecorder.pause();
+        }
         if (recorder != null) {
             try {
                 recorder.stop();
@@ -124,28 +263,90 @@ public class RecordingManager {
         isRecording = false;
     }
 
+    /**
+     * Sets a listener notified with every encoded frame as it is produced.
+     * Only frames recorded by the stream encoder are reported.
+     *
+     * @param frameListener The listener, or null to remove it.
+     */
+    public void setFrameListener(AacStreamRecorder.FrameListener frameListener) {
+        this.frameListener = frameListener;
+        if (streamRecorder != null) {
+            streamRecorder.setFrameListener(frameListener);
+        }
+    }
+
+    /**
+     * Stops the stream encoder, flushing its last frames, and releases it.
+     *
+     * @return false if the encoder failed and the stream file is incomplete.
+     */
+    private boolean stopStream() {
+        if (streamRecorder == null) return true;
+        boolean complete = streamRecorder.stop();
+        streamRecorder = null;
+        return complete;
+    }
+
     /**
      * Merges all recorded audio chunks into a single finalized audio file.
-     * Sets the finalized state to true upon successful completion.
+     * Sets the finalized state to true upon successful completion only.
+     * <p>
+     * When the stream encoder was used, the final file already holds the whole recording and
+     * finalizing only flushes the encoder. ADTS frames are self-delimiting, so the chunks are simply appended. The output channel
+     * is opened once and each chunk is copied with {@link FileChannel#transferTo}, which lets
+     * the kernel move the bytes without allocating a heap buffer per chunk, so memory use
+     * does not grow with the recording length.
+     * </p>
      */
     public void mergeChunks() {
-        File finalFile = new File(finalFileName);
-        try (FileOutputStream fos = new FileOutputStream(finalFile)) {
-            for (File chunk : audioChunks) {
-                if (chunk.exists()) {
-                    byte[] chunkBytes = getBytes(chunk.getAbsolutePath());
-                    fos.write(chunkBytes);
-                }
-            }
-            fos.flush();
+        if (!useLegacyChunks) {
+            // A stream cut short by an encoder failure must not be graded or uploaded
+            isFinalized = stopStream();
+            if (!isFinalized) Log.e("RecordingManager", "Stream recording failed, not finalizing");
+            return;
+        }
+
+        try {
+            appendChunks(audioChunks, new File(finalFileName));
             isFinalized = true;
         } catch (IOException e) {
             Log.e("RecordingManager", "Failed to merge", e);
         }
     }
 
+    /**
+     * Writes the chunks one after the other into a file, copying each with
+     * {@link FileChannel#transferTo}. Missing chunks are skipped.
+     *
+     * @param chunks    The chunk files, in order.
+     * @param finalFile The file to write; it is overwritten.
+     * @throws IOException If a chunk cannot be read or the file cannot be written.
+     */
+    static void appendChunks(List<File> chunks, File finalFile) throws IOException {
+        try (FileChannel out = new FileOutputStream(finalFile).getChannel()) {
+            for (File chunk : chunks) {
+                if (chunk.exists()) {
+                    try (FileChannel in = new FileInputStream(chunk).getChannel()) {
+                        long position = 0;
+                        long size = in.size();
+                        // transferTo may copy fewer bytes than requested, so loop until done
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                }
+            }
+            out.force(false);
+        }
+    }
+
     /**
      * Reads the content of a file into a byte array.
+     * <p>
+     * This materializes the whole file on the heap and is only meant for requests that must
+     * embed the audio inline. Prefer {@link #openAudioStream} or {@link #openAudioBuffer}.
+     * </p>
      *
      * @param filePath The absolute path of the file to read.
      * @return A byte array containing the file's content.
@@ -159,24 +360,232 @@ public class RecordingManager {
 
         byte[] bytes = new byte[(int) file.length()];
         try (FileInputStream fis = new FileInputStream(file)) {
-            fis.read(bytes);
+            // A single read may return fewer bytes than requested
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = fis.read(bytes, offset, bytes.length - offset);
+                if (read == -1) {
+                    throw new IOException("Unexpected end of file: " + filePath);
+                }
+                offset += read;
+            }
         }
         return bytes;
     }
 
     /**
-     * Returns the path to the finalized merged file if it exists, otherwise returns the first chunk path.
+     * Opens a buffered stream over an audio file, for consumers that process it sequentially
+     * (hashing, uploading) without holding the whole file in memory.
      *
-     * @return The absolute path to the recording file, or null if no recording exists.
+     * @param file The audio file.
+     * @return A buffered input stream; the caller must close it.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static InputStream openAudioStream(File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("File not found: " + file.getAbsolutePath());
+        }
+        return new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns the content of an audio file as a read-only-use {@link ByteBuffer} that lives
+     * outside the Java heap.
+     * <p>
+     * Files larger than {@link #POOLED_BUFFER_SIZE} are memory-mapped read-only, so pages are
+     * loaded on demand by the OS. Smaller files are read into a pooled direct buffer.
+     * Every buffer must be handed back with {@link #releaseAudioBuffer} once consumed.
+     * </p>
+     *
+     * @param file The audio file.
+     * @return A buffer positioned at the start of the file content.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ByteBuffer openAudioBuffer(File file) throws IOException {
+        if (!file.exists()) {
+            throw new FileNotFoundException("File not found: " + file.getAbsolutePath());
+        }
+
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            long size = channel.size();
+            if (size > POOLED_BUFFER_SIZE) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            ByteBuffer buffer;
+            synchronized (bufferPool) {
+                buffer = bufferPool.poll();
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocateDirect(POOLED_BUFFER_SIZE);
+                }
+                lentBuffers.add(buffer);
+            }
+            try {
+                buffer.clear();
+                buffer.limit((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) == -1) break;
+                }
+            } catch (IOException | RuntimeException e) {
+                // The caller never gets the buffer, so it must go back to the pool here.
+                releaseAudioBuffer(buffer);
+                throw e;
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Hands back a buffer obtained from {@link #openAudioBuffer}.
+     * Pooled buffers are reused by later calls; mapped buffers are simply dropped.
+     *
+     * @param buffer The buffer to release.
+     */
+    public static void releaseAudioBuffer(ByteBuffer buffer) {
+        synchronized (bufferPool) {
+            if (lentBuffers.remove(buffer) && bufferPool.size() < MAX_POOLED_BUFFERS) {
+                buffer.clear();
+                bufferPool.push(buffer);
+            }
+        }
+    }
+
+    /**
+     * Returns the path to the finalized recording, for uploading or grading.
+     * If the recording is not finalized yet, it is stopped and finalized first, so no
+     * caller ever receives a file the encoder is still writing to.
+     *
+     * @return The absolute path to the finalized file, or null if no recording exists or finalizing failed.
      */
     public String getFinalFilePath() {
+        if (!isFinalized && hasRecording()) {
+            stopRecordingChunk();
+            mergeChunks();
+        }
+        return isFinalized ? finalFileName : null;
+    }
+
+    /**
+     * Returns the path to the audio to send for grading: a copy of the finalized recording
+     * without the silence the voice activity detector left out (and with long pauses
+     * shortened if {@link #setCompressPauses} was enabled). The copy is written on the first
+     * call. The finalized file itself is used when nothing was trimmed, when no speech was
+     * detected (a quiet speaker must not lose most of the answer), when the recording was
+     * made without the stream encoder, or if the copy cannot be written.
+     * The returned file must not be uploaded; use {@link #getFinalFilePath()} for that.
+     *
+     * @return The absolute path to the grading audio, or null if no recording exists or finalizing failed.
+     */
+    public String getGradingFilePath() {
+        String finalPath = getFinalFilePath();
+        if (finalPath == null || voiceActivityDetector == null || !voiceActivityDetector.hasSpeech()
+                || !voiceActivityDetector.hasTrimmedAudio()) {
+            return finalPath;
+        }
+
+        if (gradingFile == null) {
+            File trimmed = new File(context.getExternalCacheDir(), "trimmed_" + new File(finalPath).getName());
+            try {
+                writeKeptFrames(new File(finalPath), trimmed, voiceActivityDetector);
+                gradingFile = trimmed;
+            } catch (IOException e) {
+                Log.e("RecordingManager", "Failed writing the grading copy, using the full recording", e);
+                trimmed.delete();
+                return finalPath;
+            }
+        }
+        return gradingFile.getAbsolutePath();
+    }
+
+    /**
+     * Copies the ADTS frames of a stream that overlap audio the detector kept. Each frame
+     * holds {@link AacStreamRecorder#SAMPLES_PER_FRAME} samples, so frame k covers samples
+     * k * SAMPLES_PER_FRAME to (k + 1) * SAMPLES_PER_FRAME of the recording. A truncated
+     * last frame is dropped.
+     *
+     * @param source   The ADTS stream written by {@link AacStreamRecorder}.
+     * @param target   The file to write; it is overwritten.
+     * @param detector The detector that analyzed the stream.
+     * @throws IOException If the stream cannot be read or is not ADTS, or the file cannot be written.
+     */
+    static void writeKeptFrames(File source, File target, VoiceActivityDetector detector) throws IOException {
+        try (InputStream in = openAudioStream(source);
+             FileOutputStream out = new FileOutputStream(target)) {
+            byte[] frame = new byte[8192];
+            long firstSample = 0;
+            while (readFully(in, frame, 0, 7)) {
+                if ((frame[0] & 0xFF) != 0xFF || (frame[1] & 0xF0) != 0xF0) {
+                    throw new IOException("Not an ADTS frame at sample " + firstSample);
+                }
+                int length = ((frame[3] & 0x03) << 11) | ((frame[4] & 0xFF) << 3) | ((frame[5] & 0xE0) >> 5);
+                if (length < 7) {
+                    throw new IOException("Invalid ADTS frame length " + length);
+                }
+                if (length > frame.length) {
+                    byte[] larger = new byte[length];
+                    System.arraycopy(frame, 0, larger, 0, 7);
+                    frame = larger;
+                }
+                if (!readFully(in, frame, 7, length - 7)) break;
+
+                long nextSample = firstSample + AacStreamRecorder.SAMPLES_PER_FRAME;
+                if (detector.isKept(firstSample, nextSample)) {
+                    out.write(frame, 0, length);
+                }
+                firstSample = nextSample;
+            }
+        }
+    }
+
+    /**
+     * Reads exactly the requested number of bytes, unless the stream ends first.
+     *
+     * @param in     The stream.
+     * @param buffer The buffer to fill.
+     * @param offset The offset in buffer.
+     * @param length The number of bytes to read.
+     * @return true if all the bytes were read, false if the stream ended first.
+     * @throws IOException If reading fails.
+     */
+    private static boolean readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = in.read(buffer, offset, length);
+            if (read == -1) return false;
+            offset += read;
+            length -= read;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a path for playing the recording back without finalizing it: the finalized
+     * file if it exists, otherwise the paused stream file or the first chunk.
+     * The returned file must not be moved or uploaded.
+     *
+     * @return The absolute path to the recording file, or null if no recording exists.
+     */
+    public String getPreviewFilePath() {
         return isFinalized ? finalFileName : (audioChunks.isEmpty() ? null : audioChunks.get(0).getAbsolutePath());
     }
 
     /**
-     * Deletes all temporary chunks and the finalized audio file, resetting the manager state.
+     * Checks if anything has been recorded in this session.
+     * @return true if at least one chunk was started, false otherwise.
+     */
+    public boolean hasRecording() { return !audioChunks.isEmpty(); }
+
+    /**
+     * Deletes all temporary chunks, the grading copy and the finalized audio file, resetting
+     * the manager state.
      */
     public void clearAllFiles() {
+        stopStream();
+        voiceActivityDetector = null;
+        if (gradingFile != null) {
+            gradingFile.delete();
+            gradingFile = null;
+        }
         new File(finalFileName).delete();
         for (File chunk : audioChunks) {
             if (chunk.exists()) chunk.delete();
@@ -193,6 +602,7 @@ public class RecordingManager {
      */
     public void release() {
         stopRecordingChunk();
+        stopStream();
         if (mediaPlayer != null) {
             mediaPlayer.release();
             mediaPlayer = null;
@@ -241,6 +651,38 @@ public class RecordingManager {
      */
     public void setFinalized(boolean finalized) { isFinalized = finalized; }
 
+    /**
+     * Sets whether long pauses between words are shortened in the grading copy returned by
+     * {@link #getGradingFilePath()}. The finalized recording always keeps them.
+     * Must be called before the first chunk is recorded; the original pause lengths remain
+     * available from {@link #getVoiceActivity()}.
+     *
+     * @param compressPauses true to shorten long pauses.
+     */
+    public void setCompressPauses(boolean compressPauses) { this.compressPauses = compressPauses; }
+
+    /**
+     * Gets the voice activity statistics of the recording.
+     * @return The VoiceActivityDetector, or null if the recording was not made with the stream encoder.
+     */
+    public VoiceActivityDetector getVoiceActivity() { return voiceActivityDetector; }
+
+    /**
+     * Checks if the recording may contain speech, so it is worth grading.
+     * Recordings made without voice activity detection are assumed to contain speech, and so
+     * are recordings too quiet for the detector but not clearly silent.
+     * @return false only if the recording is known to be entirely silent.
+     */
+    public boolean hasSpeech() {
+        return voiceActivityDetector == null || !voiceActivityDetector.isSilent();
+    }
+
+    /**
+     * Gets the encoding settings of the recording.
+     * @return The AudioProfile.
+     */
+    public AudioProfile getProfile() { return profile; }
+
     /**
      * Gets the list of temporary audio chunk files.
      * @return An ArrayList of File objects.
@@ -0,0 +1,908 @@
+package com.example.speakup;
+
+import static com.example.speakup.Utils.FBRef.refRecordings;
+import static com.example.speakup.Utils.FBRef.refSimulations;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.speakup.Objects.Question;
+import com.example.speakup.Objects.Recording;
+import com.example.speakup.Objects.Simulation;
+import com.example.speakup.Objects.TopicDetail;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local-first repository for recordings, simulations and questions.
+ * <p>
+ * Screens read from the on-device {@link SpeakUpDatabase}, so opening a screen costs one
+ * indexed query instead of downloading the user's whole Firebase tree. Firebase stays the
+ * source of truth: {@link #syncUserData} and {@link #syncQuestions} refresh the local tables
+ * in the background and notify the registered {@link OnDataChangedListener}s only when
+ * something actually changed. Successful Firebase writes are mirrored locally right away
+ * through the save methods.
+ * </p>
+ * <p>
+ * User data is synced with child listeners that stay attached for the whole process, and
+ * changes are applied one question node (or one simulation) at a time. The Realtime Database
+ * disk cache is enabled in {@link com.example.speakup.Utils.FBRef}, so when a new process
+ * attaches the listeners, only what changed on the server since the cached copy is
+ * transferred; additions, edits and deletions all reach the local tables.
+ * </p>
+ * <p>
+ * All database work runs on a single background thread; callbacks are delivered on the
+ * main thread.
+ * </p>
+ */
+public class RecordingRepository {
+    /**
+     * Callback receiving the result of a local query.
+     *
+     * @param <T> The type of the result.
+     */
+    public interface Callback<T> {
+        /**
+         * Called on the main thread with the query result.
+         *
+         * @param result The result.
+         */
+        void onResult(T result);
+    }
+
+    /**
+     * Listener notified when a background sync changed the local data.
+     */
+    public interface OnDataChangedListener {
+        /**
+         * Called on the main thread after local data changed.
+         */
+        void onDataChanged();
+    }
+
+    /**
+     * The single instance of RecordingRepository.
+     */
+    private static RecordingRepository instance;
+
+    /**
+     * The local database.
+     */
+    private final SpeakUpDatabase database;
+
+    /**
+     * Single thread running every database operation, in submission order.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Handler used to deliver callbacks on the main thread.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Listeners notified when local data changes.
+     */
+    private final ArrayList<OnDataChangedListener> listeners = new ArrayList<>();
+
+    /**
+     * Question categories copied from the question bank. Main thread only.
+     */
+    private final Set<String> syncedCategories = new HashSet<>();
+
+    /**
+     * The versioned question bank the questions table is copied from.
+     */
+    private final QuestionBank questionBank;
+
+    /**
+     * Whether a data-changed notification is already posted to the main thread.
+     */
+    private final AtomicBoolean notifyPending = new AtomicBoolean(false);
+
+    /**
+     * The user whose data is currently being synced, or null.
+     */
+    private String syncedUserId;
+
+    /**
+     * Listener applying recording changes of {@link #syncedUserId}.
+     */
+    private ChildEventListener recordingsListener;
+
+    /**
+     * Listener applying simulation changes of {@link #syncedUserId}.
+     */
+    private ChildEventListener simulationsListener;
+
+    /**
+     * Private constructor that opens the local database.
+     *
+     * @param context The application context.
+     */
+    private RecordingRepository(Context context) {
+        database = SpeakUpDatabase.getInstance(context);
+        questionBank = QuestionBank.getInstance(context);
+        questionBank.addOnBankChangedListener(new QuestionBank.OnBankChangedListener() {
+            @Override
+            public void onBankChanged() {
+                for (String category : syncedCategories) {
+                    copyQuestions(category);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the singleton instance of RecordingRepository.
+     *
+     * @param context Any Context; the application context is retained.
+     * @return The RecordingRepository instance.
+     */
+    public static synchronized RecordingRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new RecordingRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a listener notified when a sync changes local data.
+     *
+     * @param listener The listener.
+     */
+    public void addOnDataChangedListener(OnDataChangedListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addOnDataChangedListener}.
+     *
+     * @param listener The listener.
+     */
+    public void removeOnDataChangedListener(OnDataChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    // --- READS ---
+
+    /**
+     * Loads the user's recordings, oldest first.
+     *
+     * @param userId   The user ID.
+     * @param category The question category to filter by, or null for all recordings.
+     * @param callback Receives the recordings.
+     */
+    public void getRecordings(final String userId, @Nullable final String category,
+            final Callback<ArrayList<Recording>> callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = database.getReadableDatabase();
+                Cursor c;
+                if (category == null) {
+                    c = db.rawQuery("SELECT * FROM " + SpeakUpDatabase.TABLE_RECORDINGS
+                            + " WHERE user_id = ? ORDER BY date_recorded ASC", new String[]{userId});
+                } else {
+                    c = db.rawQuery("SELECT r.* FROM " + SpeakUpDatabase.TABLE_RECORDINGS + " r JOIN "
+                            + SpeakUpDatabase.TABLE_QUESTIONS + " q ON r.question_id = q.question_id"
+                            + " WHERE r.user_id = ? AND q.category = ? ORDER BY r.date_recorded ASC",
+                            new String[]{userId, category});
+                }
+                deliver(callback, readRecordings(c));
+            }
+        });
+    }
+
+    /**
+     * Loads one page of the user's recordings, sorted by date or by score.
+     * <p>
+     * The sort runs on the indexed columns, and ties are broken by recording ID so that
+     * consecutive pages never overlap or skip a row.
+     * </p>
+     *
+     * @param userId    The user ID.
+     * @param category  The question category to filter by, or null for all recordings.
+     * @param byScore   True to sort by score, false to sort by date recorded.
+     * @param ascending True for lowest/oldest first, false for highest/newest first.
+     * @param offset    The number of recordings to skip.
+     * @param limit     The maximum number of recordings to load.
+     * @param callback  Receives the recordings of the page.
+     */
+    public void getRecordingsPage(final String userId, @Nullable final String category, boolean byScore,
+            boolean ascending, final int offset, final int limit, final Callback<ArrayList<Recording>> callback) {
+        final String sql = recordingsPageSql(category != null, byScore, ascending);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = database.getReadableDatabase();
+                Cursor c;
+                if (category == null) {
+                    c = db.rawQuery(sql, new String[]{userId, String.valueOf(limit), String.valueOf(offset)});
+                } else {
+                    c = db.rawQuery(sql, new String[]{userId, category, String.valueOf(limit), String.valueOf(offset)});
+                }
+                deliver(callback, readRecordings(c));
+            }
+        });
+    }
+
+    /**
+     * Builds the query of {@link #getRecordingsPage}. Its parameters are the user ID, the
+     * category (if filtered), the limit and the offset.
+     *
+     * @param byCategory True to filter by question category.
+     * @param byScore    True to sort by score, false to sort by date recorded.
+     * @param ascending  True for lowest/oldest first, false for highest/newest first.
+     * @return The SQL query.
+     */
+    static String recordingsPageSql(boolean byCategory, boolean byScore, boolean ascending) {
+        String direction = ascending ? " ASC" : " DESC";
+        String order = " ORDER BY r." + (byScore ? "score" : "date_recorded") + direction
+                + ", r.recording_id" + direction + " LIMIT ? OFFSET ?";
+        if (!byCategory) {
+            return "SELECT r.* FROM " + SpeakUpDatabase.TABLE_RECORDINGS + " r"
+                    + " WHERE r.user_id = ?" + order;
+        }
+        return "SELECT r.* FROM " + SpeakUpDatabase.TABLE_RECORDINGS + " r JOIN "
+                + SpeakUpDatabase.TABLE_QUESTIONS + " q ON r.question_id = q.question_id"
+                + " WHERE r.user_id = ? AND q.category = ?" + order;
+    }
+
+    /**
+     * Loads specific recordings, in the order of the given IDs.
+     * Recordings that are not stored locally are skipped.
+     *
+     * @param userId       The user ID.
+     * @param recordingIds The recording IDs.
+     * @param callback     Receives the recordings.
+     */
+    public void getRecordingsByIds(final String userId, final List<String> recordingIds,
+            final Callback<ArrayList<Recording>> callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = database.getReadableDatabase();
+                ArrayList<Recording> result = new ArrayList<>();
+                for (String recordingId : recordingIds) {
+                    Cursor c = db.rawQuery("SELECT * FROM " + SpeakUpDatabase.TABLE_RECORDINGS
+                            + " WHERE user_id = ? AND recording_id = ?", new String[]{userId, recordingId});
+                    result.addAll(readRecordings(c));
+                }
+                deliver(callback, result);
+            }
+        });
+    }
+
+    /**
+     * Loads the user's simulations, oldest first.
+     *
+     * @param userId   The user ID.
+     * @param callback Receives the simulations.
+     */
+    public void getSimulations(final String userId, final Callback<ArrayList<Simulation>> callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Cursor c = database.getReadableDatabase().rawQuery("SELECT * FROM "
+                        + SpeakUpDatabase.TABLE_SIMULATIONS + " WHERE user_id = ? ORDER BY date_completed ASC",
+                        new String[]{userId});
+                ArrayList<Simulation> result = new ArrayList<>();
+                try {
+                    while (c.moveToNext()) {
+                        result.add(readSimulation(c));
+                    }
+                } finally {
+                    c.close();
+                }
+                deliver(callback, result);
+            }
+        });
+    }
+
+    /**
+     * Loads one page of the user's simulations, sorted by completion date or by score.
+     *
+     * @param userId    The user ID.
+     * @param byScore   True to sort by overall score, false to sort by completion date.
+     * @param ascending True for lowest/oldest first, false for highest/newest first.
+     * @param offset    The number of simulations to skip.
+     * @param limit     The maximum number of simulations to load.
+     * @param callback  Receives the simulations of the page.
+     */
+    public void getSimulationsPage(final String userId, boolean byScore, boolean ascending, final int offset,
+            final int limit, final Callback<ArrayList<Simulation>> callback) {
+        final String sql = simulationsPageSql(byScore, ascending);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Cursor c = database.getReadableDatabase().rawQuery(sql,
+                        new String[]{userId, String.valueOf(limit), String.valueOf(offset)});
+                ArrayList<Simulation> result = new ArrayList<>();
+                try {
+                    while (c.moveToNext()) {
+                        result.add(readSimulation(c));
+                    }
+                } finally {
+                    c.close();
+                }
+                deliver(callback, result);
+            }
+        });
+    }
+
+    /**
+     * Builds the query of {@link #getSimulationsPage}. Its parameters are the user ID, the
+     * limit and the offset.
+     *
+     * @param byScore   True to sort by overall score, false to sort by completion date.
+     * @param ascending True for lowest/oldest first, false for highest/newest first.
+     * @return The SQL query.
+     */
+    static String simulationsPageSql(boolean byScore, boolean ascending) {
+        String direction = ascending ? " ASC" : " DESC";
+        return "SELECT * FROM " + SpeakUpDatabase.TABLE_SIMULATIONS + " WHERE user_id = ?"
+                + " ORDER BY " + (byScore ? "overall_score" : "date_completed") + direction
+                + ", simulation_id" + direction + " LIMIT ? OFFSET ?";
+    }
+
+    /**
+     * Loads the questions of a category.
+     *
+     * @param category The category (e.g., "Personal Questions").
+     * @param callback Receives the questions.
+     */
+    public void getQuestions(final String category, final Callback<ArrayList<Question>> callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Cursor c = database.getReadableDatabase().rawQuery("SELECT * FROM "
+                        + SpeakUpDatabase.TABLE_QUESTIONS + " WHERE category = ?", new String[]{category});
+                ArrayList<Question> result = new ArrayList<>();
+                try {
+                    while (c.moveToNext()) {
+                        Question q = new Question(category,
+                                c.getString(c.getColumnIndexOrThrow("topic")),
+                                c.getString(c.getColumnIndexOrThrow("sub_topic")),
+                                c.getString(c.getColumnIndexOrThrow("full_question")),
+                                c.getString(c.getColumnIndexOrThrow("video_url")));
+                        q.setQuestionId(c.getString(c.getColumnIndexOrThrow("question_id")));
+                        result.add(q);
+                    }
+                } finally {
+                    c.close();
+                }
+                deliver(callback, result);
+            }
+        });
+    }
+
+    // --- WRITES ---
+
+    /**
+     * Stores a recording locally after it was written to Firebase.
+     *
+     * @param recording The recording.
+     */
+    public void saveRecording(final Recording recording) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                database.getWritableDatabase().insertWithOnConflict(SpeakUpDatabase.TABLE_RECORDINGS, null,
+                        toValues(recording), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    /**
+     * Stores a simulation locally after it was written to Firebase.
+     *
+     * @param simulation The simulation.
+     */
+    public void saveSimulation(final Simulation simulation) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                database.getWritableDatabase().insertWithOnConflict(SpeakUpDatabase.TABLE_SIMULATIONS, null,
+                        toValues(simulation), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    /**
+     * Updates the title of a recording locally after it was renamed in Firebase.
+     *
+     * @param recordingId The recording ID.
+     * @param newTitle    The new title.
+     */
+    public void renameRecording(final String recordingId, final String newTitle) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ContentValues values = new ContentValues();
+                values.put("display_title", newTitle);
+                database.getWritableDatabase().update(SpeakUpDatabase.TABLE_RECORDINGS, values,
+                        "recording_id = ?", new String[]{recordingId});
+            }
+        });
+    }
+
+    // --- SYNC ---
+
+    /**
+     * Starts syncing the user's recordings and simulations from Firebase in the background.
+     * <p>
+     * The listeners stay attached until another user is synced or {@link #stopSync} is called,
+     * so calling this again for the same user does nothing. Listeners are notified whenever a
+     * change reaches the local tables.
+     * </p>
+     *
+     * @param userId The user ID.
+     */
+    public void syncUserData(final String userId) {
+        if (userId.equals(syncedUserId)) return;
+        stopSync();
+        syncedUserId = userId;
+
+        // Recordings are nested under their question, so the smallest unit Firebase can
+        // report is one question node. With the disk cache, only the question nodes that
+        // changed since the cached copy are transferred.
+        recordingsListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                applyQuestionRecordings(userId, snapshot);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                applyQuestionRecordings(userId, snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull final DataSnapshot snapshot) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int deleted = database.getWritableDatabase().delete(SpeakUpDatabase.TABLE_RECORDINGS,
+                                "user_id = ? AND question_id = ?", new String[]{userId, snapshot.getKey()});
+                        if (deleted > 0) notifyDataChanged();
+                    }
+                });
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e("RecordingRepository", "Recordings sync failed", error.toException());
+            }
+        };
+        refRecordings.child(userId).addChildEventListener(recordingsListener);
+
+        simulationsListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                applySimulation(userId, snapshot);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                applySimulation(userId, snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull final DataSnapshot snapshot) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int deleted = database.getWritableDatabase().delete(SpeakUpDatabase.TABLE_SIMULATIONS,
+                                "simulation_id = ?", new String[]{snapshot.getKey()});
+                        if (deleted > 0) notifyDataChanged();
+                    }
+                });
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e("RecordingRepository", "Simulations sync failed", error.toException());
+            }
+        };
+        refSimulations.child(userId).addChildEventListener(simulationsListener);
+    }
+
+    /**
+     * Detaches the sync listeners of the current user, if any.
+     */
+    public void stopSync() {
+        if (syncedUserId == null) return;
+        refRecordings.child(syncedUserId).removeEventListener(recordingsListener);
+        refSimulations.child(syncedUserId).removeEventListener(simulationsListener);
+        syncedUserId = null;
+        recordingsListener = null;
+        simulationsListener = null;
+    }
+
+    /**
+     * Makes the local recordings of one question match its Firebase node.
+     *
+     * @param userId           The user ID.
+     * @param questionSnapshot The question node holding the user's recordings of that question.
+     */
+    private void applyQuestionRecordings(final String userId, final DataSnapshot questionSnapshot) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ArrayList<ContentValues> rows = new ArrayList<>();
+                for (DataSnapshot recSnapshot : questionSnapshot.getChildren()) {
+                    Recording rec = recSnapshot.getValue(Recording.class);
+                    if (rec == null) continue;
+                    if (rec.getRecordingId() == null) rec.setRecordingId(recSnapshot.getKey());
+                    rows.add(toValues(rec));
+                }
+                boolean changed = replaceRows(SpeakUpDatabase.TABLE_RECORDINGS, "recording_id",
+                        "user_id = ? AND question_id = ?", new String[]{userId, questionSnapshot.getKey()}, rows);
+                if (changed) notifyDataChanged();
+            }
+        });
+    }
+
+    /**
+     * Stores a simulation received from Firebase.
+     *
+     * @param userId      The user ID.
+     * @param simSnapshot The simulation node.
+     */
+    private void applySimulation(final String userId, final DataSnapshot simSnapshot) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Simulation sim = simSnapshot.getValue(Simulation.class);
+                if (sim == null) return;
+                if (sim.getSimulationId() == null) sim.setSimulationId(simSnapshot.getKey());
+                if (sim.getUserId() == null) sim.setUserId(userId);
+
+                ArrayList<ContentValues> rows = new ArrayList<>();
+                rows.add(toValues(sim));
+                boolean changed = replaceRows(SpeakUpDatabase.TABLE_SIMULATIONS, "simulation_id",
+                        "simulation_id = ?", new String[]{sim.getSimulationId()}, rows);
+                if (changed) notifyDataChanged();
+            }
+        });
+    }
+
+    /**
+     * Copies the questions of a category from the {@link QuestionBank} into the local table,
+     * once per process and again whenever the bank changes. Listeners are notified if
+     * anything changed. Must be called on the main thread.
+     *
+     * @param category The category (e.g., "Personal Questions").
+     */
+    public void syncQuestions(final String category) {
+        if (!syncedCategories.add(category)) return;
+        copyQuestions(category);
+    }
+
+    /**
+     * Loads the question bank and copies the questions of a category into the local table.
+     *
+     * @param category The category.
+     */
+    private void copyQuestions(final String category) {
+        questionBank.load(new QuestionBank.Callback() {
+            @Override
+            public void onLoaded(QuestionBank bank) {
+                final List<Question> questions = bank.getQuestions(category);
+                // An empty bank means it could not be loaded; keep the current rows.
+                if (questions.isEmpty()) {
+                    syncedCategories.remove(category);
+                    return;
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (replaceQuestions(category, questions)) notifyDataChanged();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Makes the local questions of a category match the given remote list.
+     *
+     * @param category The category.
+     * @param remote   The questions currently in the question bank.
+     * @return true if local data changed.
+     */
+    private boolean replaceQuestions(String category, List<Question> remote) {
+        ArrayList<ContentValues> rows = new ArrayList<>();
+        for (Question q : remote) {
+            ContentValues values = new ContentValues();
+            values.put("question_id", q.getQuestionId());
+            values.put("category", category);
+            values.put("topic", q.getTopic());
+            values.put("sub_topic", q.getSubTopic());
+            values.put("full_question", q.getFullQuestion());
+            values.put("video_url", q.getVideoUrl());
+            rows.add(values);
+        }
+        return replaceRows(SpeakUpDatabase.TABLE_QUESTIONS, "question_id", "category = ?",
+                new String[]{category}, rows);
+    }
+
+    /**
+     * Replaces a subset of a table (selected by a WHERE clause) with the given rows, in one
+     * transaction. Unchanged rows are left untouched, changed or new rows are written and rows
+     * missing from the new set are deleted.
+     *
+     * @param table     The table.
+     * @param keyColumn The primary key column.
+     * @param where     The WHERE clause selecting the subset.
+     * @param whereArgs The WHERE clause arguments.
+     * @param rows      The new content of the subset.
+     * @return true if any row was written or deleted.
+     */
+    private boolean replaceRows(String table, String keyColumn, String where, String[] whereArgs,
+            List<ContentValues> rows) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        boolean changed = false;
+        db.beginTransaction();
+        try {
+            Map<String, ContentValues> existing = new HashMap<>();
+            Cursor c = db.query(table, null, where, whereArgs, null, null, null);
+            try {
+                while (c.moveToNext()) {
+                    ContentValues values = new ContentValues();
+                    for (int i = 0; i < c.getColumnCount(); i++) {
+                        values.put(c.getColumnName(i), c.isNull(i) ? null : c.getString(i));
+                    }
+                    existing.put(values.getAsString(keyColumn), values);
+                }
+            } finally {
+                c.close();
+            }
+
+            for (ContentValues row : rows) {
+                ContentValues old = existing.remove(row.getAsString(keyColumn));
+                if (old == null || !sameRow(old, row)) {
+                    db.insertWithOnConflict(table, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+                    changed = true;
+                }
+            }
+            Iterator<String> stale = existing.keySet().iterator();
+            while (stale.hasNext()) {
+                db.delete(table, keyColumn + " = ?", new String[]{stale.next()});
+                changed = true;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return changed;
+    }
+
+    /**
+     * Compares a stored row (read back as strings) with a new row.
+     *
+     * @param stored The row read from the database.
+     * @param row    The new row.
+     * @return true if every column of the new row has the same value.
+     */
+    private boolean sameRow(ContentValues stored, ContentValues row) {
+        for (String column : row.keySet()) {
+            Object value = row.get(column);
+            String expected = (value == null) ? null : String.valueOf(value);
+            String actual = stored.getAsString(column);
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- MAPPING ---
+
+    /**
+     * Converts a recording to a database row.
+     *
+     * @param rec The recording.
+     * @return The row values.
+     */
+    private ContentValues toValues(Recording rec) {
+        ContentValues values = new ContentValues();
+        values.put("recording_id", rec.getRecordingId());
+        values.put("user_id", rec.getUserId());
+        values.put("question_id", rec.getQuestionId());
+        values.put("display_title", rec.getDisplayTitle());
+        values.put("date_recorded", (rec.getDateRecorded() != null) ? rec.getDateRecorded().getTime() : null);
+        values.put("score", rec.getScore());
+        values.put("ai_feedback", feedbackToJson(rec.getAiFeedBack()));
+        return values;
+    }
+
+    /**
+     * Converts a simulation to a database row.
+     *
+     * @param sim The simulation.
+     * @return The row values.
+     */
+    private ContentValues toValues(Simulation sim) {
+        ContentValues values = new ContentValues();
+        values.put("simulation_id", sim.getSimulationId());
+        values.put("user_id", sim.getUserId());
+        values.put("date_completed", (sim.getDateCompleted() != null) ? sim.getDateCompleted().getTime() : null);
+        values.put("overall_score", sim.getOverAllScore());
+        values.put("recording_ids", (sim.getRecordingsIds() != null)
+                ? new JSONArray(sim.getRecordingsIds()).toString() : null);
+        return values;
+    }
+
+    /**
+     * Reads every recording of a cursor and closes it.
+     *
+     * @param c The cursor over the recordings table.
+     * @return The recordings.
+     */
+    private ArrayList<Recording> readRecordings(Cursor c) {
+        ArrayList<Recording> result = new ArrayList<>();
+        try {
+            while (c.moveToNext()) {
+                int dateIndex = c.getColumnIndexOrThrow("date_recorded");
+                Date date = c.isNull(dateIndex) ? null : new Date(c.getLong(dateIndex));
+                Recording rec = new Recording(
+                        c.getString(c.getColumnIndexOrThrow("user_id")),
+                        c.getString(c.getColumnIndexOrThrow("question_id")),
+                        c.getString(c.getColumnIndexOrThrow("display_title")),
+                        date,
+                        c.getInt(c.getColumnIndexOrThrow("score")),
+                        feedbackFromJson(c.getString(c.getColumnIndexOrThrow("ai_feedback"))));
+                rec.setRecordingId(c.getString(c.getColumnIndexOrThrow("recording_id")));
+                result.add(rec);
+            }
+        } finally {
+            c.close();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the simulation at the current cursor position.
+     *
+     * @param c The cursor over the simulations table.
+     * @return The simulation.
+     */
+    private Simulation readSimulation(Cursor c) {
+        Simulation sim = new Simulation();
+        sim.setSimulationId(c.getString(c.getColumnIndexOrThrow("simulation_id")));
+        sim.setUserId(c.getString(c.getColumnIndexOrThrow("user_id")));
+        int dateIndex = c.getColumnIndexOrThrow("date_completed");
+        sim.setDateCompleted(c.isNull(dateIndex) ? null : new Date(c.getLong(dateIndex)));
+        sim.setOverAllScore(c.getInt(c.getColumnIndexOrThrow("overall_score")));
+
+        String ids = c.getString(c.getColumnIndexOrThrow("recording_ids"));
+        if (ids != null) {
+            ArrayList<String> recordingIds = new ArrayList<>();
+            try {
+                JSONArray array = new JSONArray(ids);
+                for (int i = 0; i < array.length(); i++) {
+                    recordingIds.add(array.getString(i));
+                }
+            } catch (JSONException e) {
+                Log.e("RecordingRepository", "Invalid recording IDs", e);
+            }
+            sim.setRecordingsIds(recordingIds);
+        }
+        return sim;
+    }
+
+    /**
+     * Serializes the AI feedback map of a recording.
+     *
+     * @param feedback The feedback map, may be null.
+     * @return The JSON text, or null.
+     */
+    private String feedbackToJson(Map<String, TopicDetail> feedback) {
+        if (feedback == null) return null;
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<String, TopicDetail> entry : feedback.entrySet()) {
+                JSONObject detail = new JSONObject();
+                detail.put("score", entry.getValue().getScore());
+                detail.put("summary", entry.getValue().getSummary());
+                json.put(entry.getKey(), detail);
+            }
+        } catch (JSONException e) {
+            Log.e("RecordingRepository", "Failed serializing feedback", e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Parses the AI feedback map stored by {@link #feedbackToJson}.
+     *
+     * @param text The JSON text, may be null.
+     * @return The feedback map, or null.
+     */
+    private Map<String, TopicDetail> feedbackFromJson(String text) {
+        if (text == null) return null;
+        Map<String, TopicDetail> feedback = new HashMap<>();
+        try {
+            JSONObject json = new JSONObject(text);
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONObject detail = json.getJSONObject(key);
+                feedback.put(key, new TopicDetail(detail.optInt("score"), detail.optString("summary", null)));
+            }
+        } catch (JSONException e) {
+            Log.e("RecordingRepository", "Invalid stored feedback", e);
+        }
+        return feedback;
+    }
+
+    // --- DELIVERY ---
+
+    /**
+     * Delivers a result on the main thread.
+     *
+     * @param callback The callback.
+     * @param result   The result.
+     * @param <T>      The type of the result.
+     */
+    private <T> void deliver(final Callback<T> callback, final T result) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onResult(result);
+            }
+        });
+    }
+
+    /**
+     * Notifies the listeners on the main thread that local data changed.
+     */
+    private void notifyDataChanged() {
+        // Coalesce bursts of changes (e.g. the initial sync) into one notification.
+        if (!notifyPending.compareAndSet(false, true)) return;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                notifyPending.set(false);
+                for (OnDataChangedListener listener : new ArrayList<>(listeners)) {
+                    listener.onDataChanged();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.speakup;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * On-device SQLite database mirroring the parts of Firebase the screens read.
+ * <p>
+ * It holds the user's recordings and simulations and the question bank, so screens can be
+ * served locally (see {@link RecordingRepository}) while Firebase is synced in the background.
+ * Tables are indexed on the columns the screens filter and sort by (question, date, score).
+ * The sort indexes end with the row's ID, the tie-breaker of the paged reads, so a page in
+ * either direction is read straight off the index, with no sort step.
+ * It also holds the {@link UploadQueue}'s pending uploads.
+ * The mirrored tables are a cache: when the schema changes, they are simply rebuilt from
+ * Firebase, while pending uploads are kept.
+ * </p>
+ */
+public class SpeakUpDatabase extends SQLiteOpenHelper {
+    /**
+     * Name of the database file.
+     */
+    private static final String DATABASE_NAME = "speakup.db";
+
+    /**
+     * Version of the schema.
+     */
+    private static final int DATABASE_VERSION = 1;
+
+    /**
+     * Table holding one row per recording.
+     */
+    public static final String TABLE_RECORDINGS = "recordings";
+
+    /**
+     * Table holding one row per simulation.
+     */
+    public static final String TABLE_SIMULATIONS = "simulations";
+
+    /**
+     * Table holding one row per question of the question bank.
+     */
+    public static final String TABLE_QUESTIONS = "questions";
+
+    /**
+     * Table holding one row per recording waiting to be uploaded.
+     */
+    public static final String TABLE_UPLOAD_TASKS = "upload_tasks";
+
+    /**
+     * Table holding one row per simulation waiting for its recordings to be uploaded.
+     */
+    public static final String TABLE_UPLOAD_BATCHES = "upload_batches";
+
+    /**
+     * Table holding queued items whose stored form could not be read back, kept aside instead
+     * of being retried forever.
+     */
+    public static final String TABLE_UPLOAD_DEAD_LETTERS = "upload_dead_letters";
+
+    /**
+     * The single instance of SpeakUpDatabase, shared so that every writer goes through one
+     * connection.
+     */
+    private static SpeakUpDatabase instance;
+
+    /**
+     * Constructs a new SpeakUpDatabase.
+     *
+     * @param context The Context used to open the database.
+     */
+    private SpeakUpDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Returns the singleton instance of SpeakUpDatabase.
+     *
+     * @param context Any Context; the application context is retained.
+     * @return The SpeakUpDatabase instance.
+     */
+    public static synchronized SpeakUpDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new SpeakUpDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Statements creating the mirrored tables and their indexes.
+     * Package-private so the query plans of the paged reads can be checked on the host.
+     */
+    static final String[] MIRROR_SCHEMA = {
+            "CREATE TABLE " + TABLE_RECORDINGS + " ("
+                    + "recording_id TEXT PRIMARY KEY, "
+                    + "user_id TEXT NOT NULL, "
+                    + "question_id TEXT NOT NULL, "
+                    + "display_title TEXT, "
+                    + "date_recorded INTEGER, "
+                    + "score INTEGER NOT NULL, "
+                    + "ai_feedback TEXT)",
+            "CREATE INDEX idx_recordings_question ON " + TABLE_RECORDINGS + " (user_id, question_id)",
+            "CREATE INDEX idx_recordings_date ON " + TABLE_RECORDINGS + " (user_id, date_recorded, recording_id)",
+            "CREATE INDEX idx_recordings_score ON " + TABLE_RECORDINGS + " (user_id, score, recording_id)",
+
+            "CREATE TABLE " + TABLE_SIMULATIONS + " ("
+                    + "simulation_id TEXT PRIMARY KEY, "
+                    + "user_id TEXT NOT NULL, "
+                    + "date_completed INTEGER, "
+                    + "overall_score INTEGER NOT NULL, "
+                    + "recording_ids TEXT)",
+            "CREATE INDEX idx_simulations_date ON " + TABLE_SIMULATIONS + " (user_id, date_completed, simulation_id)",
+            "CREATE INDEX idx_simulations_score ON " + TABLE_SIMULATIONS + " (user_id, overall_score, simulation_id)",
+
+            "CREATE TABLE " + TABLE_QUESTIONS + " ("
+                    + "question_id TEXT PRIMARY KEY, "
+                    + "category TEXT NOT NULL, "
+                    + "topic TEXT, "
+                    + "sub_topic TEXT, "
+                    + "full_question TEXT, "
+                    + "video_url TEXT)",
+            "CREATE INDEX idx_questions_category ON " + TABLE_QUESTIONS + " (category, topic)"
+    };
+
+    /**
+     * Creates the tables and their indexes.
+     *
+     * @param db The database.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        for (String statement : MIRROR_SCHEMA) {
+            db.execSQL(statement);
+        }
+
+        createUploadTables(db);
+    }
+
+    /**
+     * Creates the tables of the upload queue.
+     *
+     * @param db The database.
+     */
+    private void createUploadTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_UPLOAD_TASKS + " ("
+                + "recording_id TEXT PRIMARY KEY, "
+                + "user_id TEXT NOT NULL, "
+                + "batch_id TEXT, "
+                + "recording BLOB NOT NULL, "
+                + "category TEXT, "
+                + "file_path TEXT NOT NULL, "
+                + "session_uri TEXT, "
+                + "uploaded INTEGER NOT NULL DEFAULT 0, "
+                + "committing INTEGER NOT NULL DEFAULT 0, "
+                + "attempts INTEGER NOT NULL DEFAULT 0, "
+                + "next_attempt_at INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_upload_tasks_batch ON " + TABLE_UPLOAD_TASKS + " (batch_id)");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_UPLOAD_BATCHES + " ("
+                + "batch_id TEXT PRIMARY KEY, "
+                + "user_id TEXT NOT NULL, "
+                + "simulation BLOB NOT NULL, "
+                + "committing INTEGER NOT NULL DEFAULT 0, "
+                + "attempts INTEGER NOT NULL DEFAULT 0, "
+                + "next_attempt_at INTEGER NOT NULL DEFAULT 0)");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_UPLOAD_DEAD_LETTERS + " ("
+                + "item_id TEXT PRIMARY KEY, "
+                + "source_table TEXT NOT NULL, "
+                + "user_id TEXT NOT NULL, "
+                + "payload BLOB NOT NULL, "
+                + "file_path TEXT, "
+                + "failed_at INTEGER NOT NULL)");
+    }
+
+    /**
+     * Rebuilds the mirrored tables when the schema changes, since they can be synced again from
+     * Firebase. The upload queue tables are never dropped, as they hold data not yet in Firebase.
+     *
+     * @param db         The database.
+     * @param oldVersion The previous schema version.
+     * @param newVersion The new schema version.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECORDINGS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SIMULATIONS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_QUESTIONS);
+        onCreate(db);
+    }
+}
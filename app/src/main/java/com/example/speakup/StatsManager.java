@@ -0,0 +1,305 @@
+package com.example.speakup;
+
+import static com.example.speakup.Utils.FBRef.refRecordings;
+import static com.example.speakup.Utils.FBRef.refSimulations;
+import static com.example.speakup.Utils.FBRef.refStats;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.speakup.Objects.Question;
+import com.example.speakup.Objects.Recording;
+import com.example.speakup.Objects.ScoreTotal;
+import com.example.speakup.Objects.Simulation;
+import com.example.speakup.Objects.UserStats;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the per-user {@link UserStats} node in Firebase.
+ * <p>
+ * Saved recordings and simulations are folded into the node by the same multi-path update that
+ * writes them (see {@link #addStatsUpdates}), using server-side increments so concurrent saves
+ * never lose an update. Dashboards read the node once instead of scanning every recording. {@link #loadStats}
+ * rebuilds the node from the user's recordings and simulations when it does not exist yet,
+ * which migrates users who recorded before the node was introduced, taking the category of
+ * each question from the {@link QuestionBank}.
+ * </p>
+ */
+public class StatsManager {
+    /**
+     * Callback receiving a user's statistics.
+     */
+    public interface StatsCallback {
+        /**
+         * Called with the statistics.
+         *
+         * @param stats The statistics, never null.
+         */
+        void onStats(UserStats stats);
+
+        /**
+         * Called instead of {@link #onStats} when the statistics could not be read or rebuilt.
+         *
+         * @param error The cause of the failure.
+         */
+        void onFailure(Exception error);
+    }
+
+    /**
+     * Callback receiving whether a statistics node exists.
+     */
+    public interface ExistsCallback {
+        /**
+         * Called with the answer.
+         *
+         * @param exists True if the node exists.
+         */
+        void onResult(boolean exists);
+    }
+
+    /**
+     * Users whose statistics node is known to exist.
+     */
+    private static final Set<String> existingStats = Collections.synchronizedSet(new HashSet<String>());
+
+    /**
+     * Private constructor; this class only has static methods.
+     */
+    private StatsManager() {}
+
+    /**
+     * Adds to a multi-path update the changes that fold new recordings (and optionally a
+     * simulation) into a user's statistics. Counts and sums use server-side increments, so the
+     * update can be written together with the recordings without reading the node first.
+     * <p>
+     * Only use this when {@link #checkStatsExist} reported an existing node: incrementing a
+     * missing node would start it from zero and drop older recordings.
+     * </p>
+     *
+     * @param updates         The multi-path update, keyed by path from the database root.
+     * @param userId          The user ID.
+     * @param recordings      The new recordings.
+     * @param categories      The category of each recording's question; entries may be null.
+     * @param simulationScore The overall score of the new simulation, or null if there is none.
+     */
+    public static void addStatsUpdates(Map<String, Object> updates, String userId, List<Recording> recordings,
+            List<String> categories, @Nullable Integer simulationScore) {
+        UserStats delta = new UserStats();
+        for (int i = 0; i < recordings.size(); i++) {
+            delta.addRecording(recordings.get(i), categories.get(i));
+        }
+
+        String base = refStats.getKey() + "/" + userId;
+        addIncrements(updates, base + "/total", delta.getTotal());
+        for (Map.Entry<String, ScoreTotal> entry : delta.getCategories().entrySet()) {
+            addIncrements(updates, base + "/categories/" + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, ScoreTotal> entry : delta.getRubric().entrySet()) {
+            addIncrements(updates, base + "/rubric/" + entry.getKey(), entry.getValue());
+        }
+        if (simulationScore != null) {
+            updates.put(base + "/lastSimulationScore", simulationScore);
+        }
+    }
+
+    /**
+     * Adds the increments of one score total to a multi-path update.
+     *
+     * @param updates The multi-path update.
+     * @param path    The path of the stored total.
+     * @param delta   The count and sum to add.
+     */
+    private static void addIncrements(Map<String, Object> updates, String path, ScoreTotal delta) {
+        if (delta.getCount() == 0) return;
+        updates.put(path + "/count", ServerValue.increment(delta.getCount()));
+        updates.put(path + "/sum", ServerValue.increment(delta.getSum()));
+    }
+
+    /**
+     * Tells whether a user's statistics node exists. A positive answer is remembered for the
+     * rest of the process, as the node is never deleted.
+     *
+     * @param userId   The user ID.
+     * @param callback Receives the answer; false if Firebase fails.
+     */
+    public static void checkStatsExist(final String userId, final ExistsCallback callback) {
+        if (existingStats.contains(userId)) {
+            callback.onResult(true);
+            return;
+        }
+        refStats.child(userId).child("total").get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+            @Override
+            public void onSuccess(DataSnapshot snapshot) {
+                if (snapshot.exists()) existingStats.add(userId);
+                callback.onResult(snapshot.exists());
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception error) {
+                Log.e("StatsManager", "Failed checking stats", error);
+                callback.onResult(false);
+            }
+        });
+    }
+
+    /**
+     * Loads a user's statistics, rebuilding them first if the node does not exist.
+     * Must be called on the main thread.
+     *
+     * @param context  Any Context, for the question bank.
+     * @param userId   The user ID.
+     * @param callback Receives the statistics or the failure.
+     */
+    public static void loadStats(final Context context, final String userId, final StatsCallback callback) {
+        refStats.child(userId).get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+            @Override
+            public void onSuccess(DataSnapshot snapshot) {
+                UserStats stats = snapshot.getValue(UserStats.class);
+                if (stats != null) {
+                    existingStats.add(userId);
+                    callback.onStats(stats);
+                } else {
+                    rebuildStats(context, userId, callback);
+                }
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception error) {
+                Log.e("StatsManager", "Failed loading stats", error);
+                callback.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * Recomputes a user's statistics from all their recordings and simulations and stores them
+     * if the node is still missing. This reads the user's trees, so it is only meant for
+     * migrating or repairing the node. Must be called on the main thread.
+     *
+     * @param context  Any Context, for the question bank.
+     * @param userId   The user ID.
+     * @param callback Receives the rebuilt statistics or the failure, may be null.
+     */
+    public static void rebuildStats(Context context, final String userId, @Nullable final StatsCallback callback) {
+        QuestionBank.getInstance(context).load(new QuestionBank.Callback() {
+            @Override
+            public void onLoaded(QuestionBank bank) {
+                if (bank.isEmpty()) {
+                    // Without categories the rebuilt node would lose its breakdown; keep it missing.
+                    fail(callback, new IllegalStateException("Question bank unavailable"));
+                    return;
+                }
+                rebuildFromRecordings(userId, bank, callback);
+            }
+        });
+    }
+
+    /**
+     * Reports a failed rebuild.
+     *
+     * @param callback The callback of the rebuild, may be null.
+     * @param error    The cause of the failure.
+     */
+    private static void fail(@Nullable StatsCallback callback, Exception error) {
+        Log.e("StatsManager", "Failed rebuilding stats", error);
+        if (callback != null) callback.onFailure(error);
+    }
+
+    /**
+     * Second step of {@link #rebuildStats}: folds in the user's recordings and last simulation.
+     *
+     * @param userId   The user ID.
+     * @param bank     The loaded question bank, giving the category of each question.
+     * @param callback Receives the rebuilt statistics or the failure, may be null.
+     */
+    private static void rebuildFromRecordings(final String userId, final QuestionBank bank,
+            @Nullable final StatsCallback callback) {
+        refRecordings.child(userId).get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+            @Override
+            public void onSuccess(DataSnapshot recordingsSnapshot) {
+                final UserStats stats = new UserStats();
+                for (DataSnapshot questionSnapshot : recordingsSnapshot.getChildren()) {
+                    Question question = bank.getQuestion(questionSnapshot.getKey());
+                    String category = (question != null) ? question.getCategory() : null;
+                    for (DataSnapshot recSnapshot : questionSnapshot.getChildren()) {
+                        Recording rec = recSnapshot.getValue(Recording.class);
+                        if (rec != null) stats.addRecording(rec, category);
+                    }
+                }
+
+                // Push keys sort chronologically, so the last simulation is the last child.
+                refSimulations.child(userId).orderByKey().limitToLast(1)
+                        .get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+                    @Override
+                    public void onSuccess(DataSnapshot simulationsSnapshot) {
+                        for (DataSnapshot simSnapshot : simulationsSnapshot.getChildren()) {
+                            Simulation sim = simSnapshot.getValue(Simulation.class);
+                            if (sim != null) stats.setLastSimulationScore(sim.getOverAllScore());
+                        }
+                        storeIfMissing(userId, stats, callback);
+                    }
+                }).addOnFailureListener(new OnFailureListener() {
+                    @Override
+                    public void onFailure(@NonNull Exception error) {
+                        fail(callback, error);
+                    }
+                });
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception error) {
+                fail(callback, error);
+            }
+        });
+    }
+
+    /**
+     * Last step of {@link #rebuildStats}: writes the rebuilt statistics in a transaction that
+     * only succeeds while the node is missing. A node written meanwhile, by a concurrent
+     * rebuild or by increments of a commit that saw it, is kept as it is and reported instead,
+     * so those updates are never overwritten.
+     *
+     * @param userId   The user ID.
+     * @param stats    The rebuilt statistics.
+     * @param callback Receives the stored statistics or the failure, may be null.
+     */
+    private static void storeIfMissing(final String userId, final UserStats stats,
+            @Nullable final StatsCallback callback) {
+        refStats.child(userId).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                if (currentData.getValue() != null) return Transaction.abort();
+                currentData.setValue(stats);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                    @Nullable DataSnapshot currentData) {
+                if (error != null) {
+                    fail(callback, error.toException());
+                    return;
+                }
+                existingStats.add(userId);
+                UserStats stored = committed || currentData == null ? null : currentData.getValue(UserStats.class);
+                if (callback != null) callback.onStats(stored != null ? stored : stats);
+            }
+        });
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.speakup;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.signature.ObjectKey;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent cache of Firebase Storage download URLs.
+ * <p>
+ * {@link StorageReference#getDownloadUrl()} costs a network round trip before an image can
+ * even start downloading. This cache keeps the tokenized URL of each Storage path, with an
+ * expiry, in shared preferences, so after a warm start images are fetched (or served from
+ * Glide's disk cache) without asking Storage again. Concurrent lookups of the same path
+ * share one request, and {@link #prefetch} resolves the URLs of a whole screen at once.
+ * </p>
+ * <p>
+ * Glide loads {@link StorageReference}s through this cache (see
+ * {@link com.example.speakup.Utils.StorageReferenceModelLoader}), keyed by Storage path.
+ * Objects that get overwritten, like profile pictures, must be {@link #invalidate}d after
+ * the upload and loaded with {@link #signatureOf} so the new picture replaces the cached one.
+ * </p>
+ * <p>
+ * Paths that Storage reports as not found are remembered for {@link #MISSING_TTL_MS}, so
+ * optional objects like topic image variants that were never generated fail at once
+ * instead of costing a round trip on every bind and prefetch (see {@link #isMissing}).
+ * </p>
+ */
+public class StorageUrlCache {
+    /**
+     * The single instance of StorageUrlCache.
+     */
+    private static StorageUrlCache instance;
+
+    /**
+     * Name of the shared preferences holding the URLs.
+     */
+    private static final String PREFS_NAME = "StorageUrls";
+
+    /**
+     * Prefix of the preference keys holding the URL of a path.
+     */
+    private static final String URL_PREFIX = "url:";
+
+    /**
+     * Prefix of the preference keys holding the expiry time of a path's URL.
+     */
+    private static final String EXPIRY_PREFIX = "expiry:";
+
+    /**
+     * Prefix of the preference keys holding until when a path is known not to exist.
+     */
+    private static final String MISSING_PREFIX = "missing:";
+
+    /**
+     * Prefix of the preference keys holding the version of an overwritten path.
+     */
+    private static final String VERSION_PREFIX = "version:";
+
+    /**
+     * How long a URL is trusted, in milliseconds. Download tokens stay valid until revoked;
+     * the expiry only bounds how long a revoked token can linger.
+     */
+    private static final long URL_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * How long a path is trusted to be missing, in milliseconds, so objects uploaded later
+     * are eventually picked up.
+     */
+    private static final long MISSING_TTL_MS = 24L * 60 * 60 * 1000;
+
+    /**
+     * The stored URLs, expiry times and versions.
+     */
+    private final SharedPreferences prefs;
+
+    /**
+     * URL requests in flight, by Storage path.
+     */
+    private final Map<String, Task<Uri>> pending = new HashMap<>();
+
+    /**
+     * Private constructor.
+     *
+     * @param context The application context.
+     */
+    private StorageUrlCache(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns the single instance of StorageUrlCache.
+     *
+     * @param context Any Context; the application context is kept.
+     * @return The StorageUrlCache instance.
+     */
+    public static synchronized StorageUrlCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new StorageUrlCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached URL of a path, if it has not expired.
+     *
+     * @param path The Storage path.
+     * @return The URL, or null if it must be requested.
+     */
+    @Nullable
+    public synchronized Uri getCachedUrl(String path) {
+        String url = prefs.getString(URL_PREFIX + path, null);
+        if (url == null || prefs.getLong(EXPIRY_PREFIX + path, 0) < System.currentTimeMillis()) {
+            return null;
+        }
+        return Uri.parse(url);
+    }
+
+    /**
+     * Tells whether Storage recently reported a path as not found.
+     *
+     * @param path The Storage path.
+     * @return True if the path is known not to exist.
+     */
+    public synchronized boolean isMissing(String path) {
+        return prefs.getLong(MISSING_PREFIX + path, 0) >= System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the download URL of a Storage object, from the cache or from Storage.
+     *
+     * @param ref The Storage object.
+     * @return A task resolving to the URL, or failing at once if the object is known missing.
+     */
+    public synchronized Task<Uri> getUrl(StorageReference ref) {
+        final String path = ref.getPath();
+        Uri cached = getCachedUrl(path);
+        if (cached != null) return Tasks.forResult(cached);
+        if (isMissing(path)) return Tasks.forException(new FileNotFoundException(path));
+
+        Task<Uri> task = pending.get(path);
+        if (task != null) return task;
+
+        task = ref.getDownloadUrl();
+        pending.put(path, task);
+        task.addOnCompleteListener(new OnCompleteListener<Uri>() {
+            @Override
+            public void onComplete(@NonNull Task<Uri> done) {
+                synchronized (StorageUrlCache.this) {
+                    pending.remove(path);
+                    if (done.isSuccessful() && done.getResult() != null) {
+                        prefs.edit()
+                                .putString(URL_PREFIX + path, done.getResult().toString())
+                                .putLong(EXPIRY_PREFIX + path, System.currentTimeMillis() + URL_TTL_MS)
+                                .remove(MISSING_PREFIX + path)
+                                .apply();
+                    } else if (done.getException() instanceof StorageException
+                            && ((StorageException) done.getException()).getErrorCode()
+                                    == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                        prefs.edit()
+                                .putLong(MISSING_PREFIX + path, System.currentTimeMillis() + MISSING_TTL_MS)
+                                .apply();
+                    }
+                }
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Resolves the URLs of several Storage objects in parallel, so the images of a screen
+     * do not each wait for their own round trip.
+     *
+     * @param refs The Storage objects.
+     */
+    public void prefetch(Collection<StorageReference> refs) {
+        for (StorageReference ref : refs) {
+            getUrl(ref);
+        }
+    }
+
+    /**
+     * Forgets the URL of a path, e.g. when it stopped working or the object was overwritten,
+     * and gives the path a new {@link #signatureOf signature}. A path known missing is looked
+     * up again.
+     *
+     * @param path The Storage path.
+     */
+    public synchronized void invalidate(String path) {
+        prefs.edit()
+                .remove(URL_PREFIX + path)
+                .remove(EXPIRY_PREFIX + path)
+                .remove(MISSING_PREFIX + path)
+                .putLong(VERSION_PREFIX + path, System.currentTimeMillis())
+                .apply();
+    }
+
+    /**
+     * Returns a Glide signature that changes whenever the path is {@link #invalidate}d, so
+     * images of overwritten objects are not served from Glide's caches.
+     *
+     * @param ref The Storage object.
+     * @return The signature.
+     */
+    public synchronized ObjectKey signatureOf(StorageReference ref) {
+        return new ObjectKey(prefs.getLong(VERSION_PREFIX + ref.getPath(), 0));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.speakup;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView adapter showing items as {@code item_topic_card} cards.
+ *
+ * <p>Cards are recycled as the grid scrolls, so only the visible cards are inflated and
+ * bound. New lists are diffed on a background thread with the given
+ * {@link DiffUtil.ItemCallback}, so re-sorting or appending a page only moves, inserts
+ * and rebinds the cards that actually changed.</p>
+ *
+ * <p>What a card shows and does on click is left to a {@link CardBinder}, so the same
+ * adapter serves recordings and simulations.</p>
+ *
+ * @param <T> The type of the items.
+ */
+public class TopicCardAdapter<T> extends ListAdapter<T, TopicCardAdapter.CardViewHolder> {
+
+    /**
+     * Fills a card with an item.
+     *
+     * @param <T> The type of the items.
+     */
+    public interface CardBinder<T> {
+        /**
+         * Binds an item to a (possibly recycled) card, including its click listeners.
+         *
+         * @param holder The card.
+         * @param item   The item to show.
+         */
+        void bind(CardViewHolder holder, T item);
+    }
+
+    /**
+     * Holder of one topic card and its child views.
+     */
+    public static class CardViewHolder extends RecyclerView.ViewHolder {
+        /**
+         * Title shown at the bottom of the card.
+         */
+        public final TextView titleText;
+
+        /**
+         * Background image of the card.
+         */
+        public final ImageView imageView;
+
+        /**
+         * Looks up the child views of a card.
+         *
+         * @param itemView The inflated card.
+         */
+        public CardViewHolder(@NonNull View itemView) {
+            super(itemView);
+            titleText = itemView.findViewById(R.id.topicTitleText);
+            imageView = itemView.findViewById(R.id.topicImageView);
+        }
+    }
+
+    /**
+     * Binds items to cards.
+     */
+    private final CardBinder<T> binder;
+
+    /**
+     * Creates the adapter.
+     *
+     * @param diffCallback Tells which items are the same and whether their card changed.
+     * @param binder       Binds items to cards.
+     */
+    public TopicCardAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback, CardBinder<T> binder) {
+        super(diffCallback);
+        this.binder = binder;
+    }
+
+    /**
+     * Inflates a new card.
+     *
+     * @param parent   The RecyclerView.
+     * @param viewType The view type (unused, all cards are alike).
+     * @return The holder of the new card.
+     */
+    @NonNull
+    @Override
+    public CardViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View cardView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_topic_card, parent, false);
+        return new CardViewHolder(cardView);
+    }
+
+    /**
+     * Binds the item at a position to a card.
+     *
+     * @param holder   The card.
+     * @param position The position of the item.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull CardViewHolder holder, int position) {
+        binder.bind(holder, getItem(position));
+    }
+}
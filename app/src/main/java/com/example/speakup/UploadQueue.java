@@ -0,0 +1,1070 @@
+package com.example.speakup;
+
+import static com.example.speakup.Utils.FBRef.refAuth;
+import static com.example.speakup.Utils.FBRef.refRecordings;
+import static com.example.speakup.Utils.FBRef.refRecordingsMedia;
+import static com.example.speakup.Utils.FBRef.refRoot;
+import static com.example.speakup.Utils.FBRef.refSimulations;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.speakup.Objects.Recording;
+import com.example.speakup.Objects.Simulation;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.storage.OnProgressListener;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable background queue uploading recordings and simulations to Firebase.
+ * <p>
+ * Screens hand a graded recording (or a whole simulation) to the queue and move on right away.
+ * The queue moves the audio into internal storage, where {@code ResultsActivity} also plays it
+ * from until it is saved and handed over to the {@link AudioCache}, and persists the pending work in the {@link SpeakUpDatabase}, so nothing is lost if the
+ * process dies or the device goes offline. Each recording's audio is uploaded to Storage first.
+ * Then a single {@code updateChildren} call writes the recording, together with its
+ * simulation's other recordings and the simulation itself, and the matching statistics
+ * increments. A simulation is therefore never half saved, and its results cost one database
+ * round trip.
+ * </p>
+ * <p>
+ * Up to {@link #MAX_PARALLEL_UPLOADS} files upload in parallel, so the four recordings of a
+ * simulation go up together. Storage upload sessions are persisted as soon as they start, so an
+ * interrupted upload resumes where it stopped instead of sending the file again. Failures are
+ * retried with exponential backoff, and immediately when connectivity returns after being lost
+ * (see {@link #retryNow}). Items whose stored form can no longer be read are moved to
+ * {@link SpeakUpDatabase#TABLE_UPLOAD_DEAD_LETTERS} instead of being retried.
+ * </p>
+ * <p>
+ * Database work runs on a single background thread; Firebase callbacks and listeners run on the
+ * main thread.
+ * </p>
+ */
+public class UploadQueue {
+    /**
+     * Callback telling whether work was added to the queue.
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread once the work is persisted.
+         *
+         * @param queued True if the work was queued, false if its audio could not be stored.
+         */
+        void onQueued(boolean queued);
+    }
+
+    /**
+     * Callback receiving the IDs of queued recordings.
+     */
+    public interface RecordingIdsCallback {
+        /**
+         * Called on the main thread with the IDs.
+         *
+         * @param recordingIds The IDs of the recordings still in the queue; the set may be modified.
+         */
+        void onRecordingIds(Set<String> recordingIds);
+    }
+
+    /**
+     * Maximum number of files uploaded at the same time.
+     */
+    private static final int MAX_PARALLEL_UPLOADS = 4;
+
+    /**
+     * Delay before the first retry of a failed item, in milliseconds.
+     */
+    static final long BASE_RETRY_DELAY_MS = 5000;
+
+    /**
+     * Longest delay between two retries, in milliseconds.
+     */
+    static final long MAX_RETRY_DELAY_MS = 30 * 60 * 1000;
+
+    /**
+     * The single instance of UploadQueue.
+     */
+    private static UploadQueue instance;
+
+    /**
+     * The application context.
+     */
+    private final Context context;
+
+    /**
+     * The database holding the queue.
+     */
+    private final SpeakUpDatabase database;
+
+    /**
+     * Single thread running every database operation, in submission order.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Handler used to run Firebase work and callbacks on the main thread.
+     */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * IDs of the recordings currently being uploaded or written. Main thread only.
+     */
+    private final Set<String> runningTasks = new HashSet<>();
+
+    /**
+     * IDs of the simulations currently being written. Main thread only.
+     */
+    private final Set<String> runningBatches = new HashSet<>();
+
+    /**
+     * Number of {@link #pump} calls so far. A pump only acts on what it read if no newer pump
+     * was issued, since a newer one sees every row change made before it. Main thread only.
+     */
+    private int pumpGeneration;
+
+    /**
+     * Runs the queue again when the earliest backoff expires.
+     */
+    private final Runnable retryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            pump();
+        }
+    };
+
+    /**
+     * Callback telling whether a multi-path update was applied.
+     */
+    private interface CommitCallback {
+        /**
+         * Called on the main thread once the update is applied.
+         */
+        void onCommitted();
+
+        /**
+         * Called on the main thread when the update failed.
+         *
+         * @param e The failure.
+         */
+        void onFailed(Exception e);
+    }
+
+    /**
+     * A recording waiting in the queue.
+     */
+    private static class Task {
+        /**
+         * The recording to save.
+         */
+        Recording recording;
+
+        /**
+         * The simulation the recording belongs to, or null for a practice recording.
+         */
+        String batchId;
+
+        /**
+         * The category of the recording's question, or null.
+         */
+        String category;
+
+        /**
+         * The queued audio file.
+         */
+        File file;
+
+        /**
+         * The resumable Storage session of the upload, or null if none started.
+         */
+        String sessionUri;
+
+        /**
+         * Whether the audio is already in Storage and only the metadata is left.
+         */
+        boolean uploaded;
+
+        /**
+         * Whether an earlier attempt may have sent the recording's database update.
+         */
+        boolean committing;
+
+        /**
+         * Number of failed attempts so far.
+         */
+        int attempts;
+    }
+
+    /**
+     * A simulation waiting for its recordings.
+     */
+    private static class Batch {
+        /**
+         * The simulation to save.
+         */
+        Simulation simulation;
+
+        /**
+         * The simulation's recordings, all uploaded.
+         */
+        List<Task> tasks;
+
+        /**
+         * Whether an earlier attempt may have sent the simulation's database update.
+         */
+        boolean committing;
+
+        /**
+         * Number of failed attempts so far.
+         */
+        int attempts;
+    }
+
+    /**
+     * Private constructor.
+     *
+     * @param context The application context.
+     */
+    private UploadQueue(Context context) {
+        this.context = context;
+        database = SpeakUpDatabase.getInstance(context);
+    }
+
+    /**
+     * Returns the singleton instance of UploadQueue.
+     *
+     * @param context Any Context; the application context is retained.
+     * @return The UploadQueue instance.
+     */
+    public static synchronized UploadQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new UploadQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a practice recording.
+     *
+     * @param recording The graded recording, with its ID set.
+     * @param category  The category of the recording's question, or null if unknown.
+     * @param audioFile The recorded audio; it is moved into the queue.
+     * @param callback  Told whether the recording was queued.
+     */
+    public void enqueueRecording(final Recording recording, @Nullable final String category,
+            final File audioFile, final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean queued = false;
+                try {
+                    File file = takeAudio(recording, audioFile);
+                    database.getWritableDatabase().insertWithOnConflict(SpeakUpDatabase.TABLE_UPLOAD_TASKS, null,
+                            toValues(recording, null, category, file), SQLiteDatabase.CONFLICT_REPLACE);
+                    queued = true;
+                } catch (IOException e) {
+                    Log.e("UploadQueue", "Failed queueing recording", e);
+                }
+                deliver(callback, queued);
+            }
+        });
+    }
+
+    /**
+     * Queues a simulation and its recordings. They are written together once all of the
+     * recordings are uploaded.
+     *
+     * @param simulation The simulation, with its ID set.
+     * @param recordings The graded recordings, in question order.
+     * @param categories The category of each recording's question.
+     * @param audioFiles The recorded audio of each recording; they are moved into the queue.
+     * @param callback   Told whether the simulation was queued.
+     */
+    public void enqueueSimulation(final Simulation simulation, final List<Recording> recordings,
+            final List<String> categories, final List<File> audioFiles, final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean queued = false;
+                SQLiteDatabase db = database.getWritableDatabase();
+                try {
+                    List<File> files = new ArrayList<>();
+                    for (int i = 0; i < recordings.size(); i++) {
+                        files.add(takeAudio(recordings.get(i), audioFiles.get(i)));
+                    }
+
+                    db.beginTransaction();
+                    try {
+                        for (int i = 0; i < recordings.size(); i++) {
+                            db.insertWithOnConflict(SpeakUpDatabase.TABLE_UPLOAD_TASKS, null,
+                                    toValues(recordings.get(i), simulation.getSimulationId(), categories.get(i),
+                                            files.get(i)), SQLiteDatabase.CONFLICT_REPLACE);
+                        }
+                        ContentValues values = new ContentValues();
+                        values.put("batch_id", simulation.getSimulationId());
+                        values.put("user_id", simulation.getUserId());
+                        values.put("simulation", toBytes(simulation));
+                        db.insertWithOnConflict(SpeakUpDatabase.TABLE_UPLOAD_BATCHES, null, values,
+                                SQLiteDatabase.CONFLICT_REPLACE);
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    queued = true;
+                } catch (IOException e) {
+                    Log.e("UploadQueue", "Failed queueing simulation", e);
+                }
+                deliver(callback, queued);
+            }
+        });
+    }
+
+    /**
+     * Looks up the recordings of a question that are queued but not written to the database
+     * yet, including those of queued simulations. Work queued before this call is always seen.
+     *
+     * @param userId     The user ID.
+     * @param questionId The question ID.
+     * @param callback   Receives the IDs of the queued recordings.
+     */
+    public void getQueuedRecordingIds(final String userId, final String questionId,
+            final RecordingIdsCallback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Set<String> recordingIds = new HashSet<>();
+                for (Task task : readTasks(database.getWritableDatabase(), "user_id = ?", new String[]{userId})) {
+                    if (questionId.equals(task.recording.getQuestionId())) {
+                        recordingIds.add(task.recording.getRecordingId());
+                    }
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onRecordingIds(recordingIds);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Starts the items that are due, including those left by a previous process. Items that are
+     * backing off keep waiting. Called when a screen opens while the device is online.
+     */
+    public void resume() {
+        pump();
+    }
+
+    /**
+     * Retries every waiting item right away, ignoring their backoff. Called only when
+     * connectivity returns after being lost, since that is what most failures were waiting for.
+     */
+    public void retryNow() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ContentValues values = new ContentValues();
+                values.put("next_attempt_at", 0);
+                SQLiteDatabase db = database.getWritableDatabase();
+                db.update(SpeakUpDatabase.TABLE_UPLOAD_TASKS, values, null, null);
+                db.update(SpeakUpDatabase.TABLE_UPLOAD_BATCHES, values, null, null);
+            }
+        });
+        pump();
+    }
+
+    /**
+     * Reads the items that are due for the signed-in user and starts them, up to the parallel
+     * upload limit, then schedules the next retry.
+     */
+    private void pump() {
+        final String userId = refAuth.getCurrentUser() != null ? refAuth.getCurrentUser().getUid() : null;
+        if (userId == null) return;
+        final int generation = ++pumpGeneration;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long now = System.currentTimeMillis();
+                SQLiteDatabase db = database.getWritableDatabase();
+                // Uploads of any task, and commits of practice recordings; batched tasks commit with their simulation.
+                final List<Task> dueTasks = readTasks(db,
+                        "user_id = ? AND next_attempt_at <= ? AND (uploaded = 0 OR batch_id IS NULL)",
+                        new String[]{userId, String.valueOf(now)});
+                final List<Batch> dueBatches = readDueBatches(db, userId, now);
+                final long nextAttemptAt = readNextAttempt(db, userId, now);
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != pumpGeneration) return;
+                        for (Task task : dueTasks) {
+                            start(task);
+                        }
+                        for (Batch batch : dueBatches) {
+                            commitSimulation(batch);
+                        }
+                        mainHandler.removeCallbacks(retryRunnable);
+                        if (nextAttemptAt > 0) {
+                            mainHandler.postDelayed(retryRunnable, Math.max(0, nextAttemptAt - now));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Starts a task unless it is already running or the parallel upload limit is reached.
+     *
+     * @param task The task.
+     */
+    private void start(Task task) {
+        String recordingId = task.recording.getRecordingId();
+        if (runningTasks.contains(recordingId) || runningTasks.size() >= MAX_PARALLEL_UPLOADS) return;
+        runningTasks.add(recordingId);
+
+        if (task.uploaded) {
+            commitRecording(task);
+        } else if (!task.file.exists()) {
+            // The audio is gone for good; the grade and feedback are still worth saving.
+            Log.e("UploadQueue", "Audio missing for recording " + recordingId);
+            onUploaded(task);
+        } else {
+            upload(task);
+        }
+    }
+
+    /**
+     * Uploads a task's audio to Storage, resuming its previous session if there is one.
+     *
+     * @param task The task.
+     */
+    private void upload(final Task task) {
+        final String recordingId = task.recording.getRecordingId();
+        StorageReference fileRef = refRecordingsMedia.child(task.recording.getUserId() + "/" + recordingId + ".aac");
+        StorageMetadata metadata = new StorageMetadata.Builder().setContentType("audio/aac").build();
+        Uri fileUri = Uri.fromFile(task.file);
+
+        UploadTask uploadTask = (task.sessionUri != null)
+                ? fileRef.putFile(fileUri, metadata, Uri.parse(task.sessionUri))
+                : fileRef.putFile(fileUri, metadata);
+
+        uploadTask.addOnProgressListener(new OnProgressListener<UploadTask.TaskSnapshot>() {
+            @Override
+            public void onProgress(@NonNull UploadTask.TaskSnapshot snapshot) {
+                Uri sessionUri = snapshot.getUploadSessionUri();
+                if (sessionUri != null && !sessionUri.toString().equals(task.sessionUri)) {
+                    task.sessionUri = sessionUri.toString();
+                    ContentValues values = new ContentValues();
+                    values.put("session_uri", task.sessionUri);
+                    updateTask(recordingId, values);
+                }
+            }
+        }).addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
+            @Override
+            public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
+                onUploaded(task);
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception e) {
+                // Network timeouts keep the session; other errors (e.g., an expired session) restart it.
+                boolean keepSession = e instanceof StorageException
+                        && ((StorageException) e).getErrorCode() == StorageException.ERROR_RETRY_LIMIT_EXCEEDED;
+                if (!keepSession) task.sessionUri = null;
+                failTask(task, e);
+            }
+        });
+    }
+
+    /**
+     * Marks a task's audio as stored, then commits a practice recording right away. A
+     * simulation's recording waits for the others and is committed with its simulation.
+     *
+     * @param task The task.
+     */
+    private void onUploaded(Task task) {
+        String recordingId = task.recording.getRecordingId();
+        task.uploaded = true;
+        ContentValues values = new ContentValues();
+        values.put("uploaded", 1);
+        values.putNull("session_uri");
+        updateTask(recordingId, values);
+
+        if (task.batchId == null) {
+            commitRecording(task);
+        } else {
+            runningTasks.remove(recordingId);
+            pump();
+        }
+    }
+
+    /**
+     * Writes a practice recording and its statistics in one multi-path update, then mirrors it
+     * locally and removes the task.
+     *
+     * @param task The task, whose audio is already stored.
+     */
+    private void commitRecording(final Task task) {
+        final Recording rec = task.recording;
+        final List<Recording> recordings = Collections.singletonList(rec);
+        DatabaseReference marker = refRecordings.child(rec.getUserId()).child(rec.getQuestionId())
+                .child(rec.getRecordingId());
+
+        commit(SpeakUpDatabase.TABLE_UPLOAD_TASKS, "recording_id", rec.getRecordingId(), task.committing, marker,
+                rec.getUserId(), recordings, Collections.singletonList(task.category), null,
+                new CommitCallback() {
+                    @Override
+                    public void onCommitted() {
+                        RecordingRepository.getInstance(context).saveRecording(rec);
+                        cacheAudio(task);
+                        deleteRow(SpeakUpDatabase.TABLE_UPLOAD_TASKS, "recording_id", rec.getRecordingId());
+                        runningTasks.remove(rec.getRecordingId());
+                        pump();
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        task.committing = true;
+                        failTask(task, e);
+                    }
+                });
+    }
+
+    /**
+     * Writes a simulation, its four recordings and the statistics in one multi-path update,
+     * then mirrors them locally and removes the batch and its tasks.
+     *
+     * @param batch The batch, whose audio is all stored.
+     */
+    private void commitSimulation(final Batch batch) {
+        final Simulation sim = batch.simulation;
+        if (!runningBatches.add(sim.getSimulationId())) return;
+
+        final List<Recording> recordings = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+        for (Task task : batch.tasks) {
+            recordings.add(task.recording);
+            categories.add(task.category);
+        }
+        DatabaseReference marker = refSimulations.child(sim.getUserId()).child(sim.getSimulationId());
+
+        commit(SpeakUpDatabase.TABLE_UPLOAD_BATCHES, "batch_id", sim.getSimulationId(), batch.committing, marker,
+                sim.getUserId(), recordings, categories, sim,
+                new CommitCallback() {
+                    @Override
+                    public void onCommitted() {
+                        RecordingRepository repository = RecordingRepository.getInstance(context);
+                        for (Recording rec : recordings) {
+                            repository.saveRecording(rec);
+                        }
+                        repository.saveSimulation(sim);
+                        for (Task task : batch.tasks) {
+                            cacheAudio(task);
+                        }
+                        deleteRow(SpeakUpDatabase.TABLE_UPLOAD_TASKS, "batch_id", sim.getSimulationId());
+                        deleteRow(SpeakUpDatabase.TABLE_UPLOAD_BATCHES, "batch_id", sim.getSimulationId());
+                        runningBatches.remove(sim.getSimulationId());
+                        pump();
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        Log.e("UploadQueue", "Failed saving simulation", e);
+                        batch.committing = true;
+                        batch.attempts++;
+                        ContentValues values = new ContentValues();
+                        values.put("attempts", batch.attempts);
+                        values.put("next_attempt_at", System.currentTimeMillis() + retryDelay(batch.attempts));
+                        updateRow(SpeakUpDatabase.TABLE_UPLOAD_BATCHES, "batch_id", sim.getSimulationId(), values);
+                        runningBatches.remove(sim.getSimulationId());
+                        pump();
+                    }
+                });
+    }
+
+    /**
+     * Commits queued recordings, and optionally their simulation, with a single
+     * {@code updateChildren} call that also folds them into the user's statistics.
+     * <p>
+     * The recording or simulation node doubles as an idempotency key: it is written by the same
+     * atomic update, so if an earlier attempt may have gone through (the row is marked as
+     * committing), its existence proves the update was applied and it is not sent again, which
+     * would count the recordings twice in the statistics.
+     * </p>
+     *
+     * @param table      The queue table of the item.
+     * @param keyColumn  The primary key column of the item.
+     * @param key        The primary key of the item.
+     * @param sentBefore Whether an earlier attempt may have sent the update.
+     * @param marker     The node whose existence shows the update was applied.
+     * @param userId     The user ID.
+     * @param recordings The recordings to write.
+     * @param categories The category of each recording's question.
+     * @param simulation The simulation to write, or null.
+     * @param callback   Told whether the update was applied.
+     */
+    private void commit(final String table, final String keyColumn, final String key, boolean sentBefore,
+            DatabaseReference marker, final String userId, final List<Recording> recordings,
+            final List<String> categories, @Nullable final Simulation simulation, final CommitCallback callback) {
+        final Runnable send = new Runnable() {
+            @Override
+            public void run() {
+                StatsManager.checkStatsExist(userId, new StatsManager.ExistsCallback() {
+                    @Override
+                    public void onResult(final boolean statsExist) {
+                        Map<String, Object> updates = new HashMap<>();
+                        for (Recording rec : recordings) {
+                            updates.put(refRecordings.getKey() + "/" + userId + "/" + rec.getQuestionId() + "/"
+                                    + rec.getRecordingId(), rec);
+                        }
+                        if (simulation != null) {
+                            updates.put(refSimulations.getKey() + "/" + userId + "/"
+                                    + simulation.getSimulationId(), simulation);
+                        }
+                        if (statsExist) {
+                            StatsManager.addStatsUpdates(updates, userId, recordings, categories,
+                                    simulation != null ? simulation.getOverAllScore() : null);
+                        }
+                        sendUpdates(table, keyColumn, key, updates, new CommitCallback() {
+                            @Override
+                            public void onCommitted() {
+                                // Without a node, rebuild it now that it can include these recordings.
+                                if (!statsExist) StatsManager.rebuildStats(context, userId, null);
+                                callback.onCommitted();
+                            }
+
+                            @Override
+                            public void onFailed(Exception e) {
+                                callback.onFailed(e);
+                            }
+                        });
+                    }
+                });
+            }
+        };
+
+        if (!sentBefore) {
+            send.run();
+            return;
+        }
+        marker.get().addOnSuccessListener(new OnSuccessListener<DataSnapshot>() {
+            @Override
+            public void onSuccess(DataSnapshot snapshot) {
+                if (snapshot.exists()) {
+                    callback.onCommitted();
+                } else {
+                    send.run();
+                }
+            }
+        }).addOnFailureListener(new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception error) {
+                callback.onFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Marks an item as committing, then sends its multi-path update. The mark is stored first,
+     * so a retry after the process dies knows to check the idempotency key.
+     *
+     * @param table     The queue table of the item.
+     * @param keyColumn The primary key column of the item.
+     * @param key       The primary key of the item.
+     * @param updates   The multi-path update.
+     * @param callback  Told whether the update was applied.
+     */
+    private void sendUpdates(final String table, final String keyColumn, final String key,
+            final Map<String, Object> updates, final CommitCallback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ContentValues values = new ContentValues();
+                values.put("committing", 1);
+                database.getWritableDatabase().update(table, values, keyColumn + " = ?", new String[]{key});
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        refRoot.updateChildren(updates)
+                                .addOnSuccessListener(new OnSuccessListener<Void>() {
+                                    @Override
+                                    public void onSuccess(Void unused) {
+                                        callback.onCommitted();
+                                    }
+                                })
+                                .addOnFailureListener(new OnFailureListener() {
+                                    @Override
+                                    public void onFailure(@NonNull Exception e) {
+                                        callback.onFailed(e);
+                                    }
+                                });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Hands the audio of a saved recording over to the {@link AudioCache}, which bounds how much
+     * played-back audio stays on the device.
+     *
+     * @param task The committed task.
+     */
+    private void cacheAudio(final Task task) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (task.file.exists()) {
+                    AudioCache.getInstance(context).put(task.recording.getRecordingId(), task.file);
+                }
+            }
+        });
+    }
+
+    /**
+     * Records a failed attempt of a task and schedules its retry.
+     *
+     * @param task The task.
+     * @param e    The failure.
+     */
+    private void failTask(Task task, Exception e) {
+        String recordingId = task.recording.getRecordingId();
+        Log.e("UploadQueue", "Failed saving recording " + recordingId, e);
+        task.attempts++;
+        ContentValues values = new ContentValues();
+        values.put("attempts", task.attempts);
+        values.put("next_attempt_at", System.currentTimeMillis() + retryDelay(task.attempts));
+        values.put("session_uri", task.sessionUri);
+        updateTask(recordingId, values);
+        runningTasks.remove(recordingId);
+        pump();
+    }
+
+    /**
+     * Computes the exponential backoff after a number of failed attempts.
+     *
+     * Package-private for the unit tests.
+     *
+     * @param attempts The number of failed attempts, at least 1.
+     * @return The delay before the next attempt, in milliseconds.
+     */
+    static long retryDelay(int attempts) {
+        long delay = BASE_RETRY_DELAY_MS << Math.min(attempts - 1, 20);
+        return Math.min(delay, MAX_RETRY_DELAY_MS);
+    }
+
+    /**
+     * Moves a recording's audio to the internal file {@code ResultsActivity} plays it from.
+     * Database thread only.
+     *
+     * @param recording The recording.
+     * @param source    The recorded audio.
+     * @return The queued file.
+     * @throws IOException If the audio cannot be moved.
+     */
+    private File takeAudio(Recording recording, File source) throws IOException {
+        File target = new File(context.getFilesDir(), recording.getRecordingId() + ".aac");
+        if (target.exists() || source.renameTo(target)) return target;
+
+        // The recording lives in external cache, which is usually another file system.
+        try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) > 0) out.write(buffer, 0, len);
+        } catch (IOException e) {
+            target.delete();
+            throw e;
+        }
+        source.delete();
+        return target;
+    }
+
+    /**
+     * Reads queued tasks. Tasks whose recording cannot be read are dead-lettered. Database
+     * thread only.
+     *
+     * @param db        The database.
+     * @param selection The WHERE clause.
+     * @param args      The arguments of the WHERE clause.
+     * @return The tasks, oldest first.
+     */
+    private List<Task> readTasks(SQLiteDatabase db, String selection, String[] args) {
+        List<Task> tasks = new ArrayList<>();
+        List<String> unreadable = new ArrayList<>();
+        Cursor c = db.query(SpeakUpDatabase.TABLE_UPLOAD_TASKS, null, selection, args, null, null, "rowid ASC");
+        try {
+            while (c.moveToNext()) {
+                Recording rec = (Recording) fromBytes(c.getBlob(c.getColumnIndexOrThrow("recording")));
+                if (rec == null) {
+                    unreadable.add(c.getString(c.getColumnIndexOrThrow("recording_id")));
+                    continue;
+                }
+                Task task = new Task();
+                task.recording = rec;
+                task.batchId = c.getString(c.getColumnIndexOrThrow("batch_id"));
+                task.category = c.getString(c.getColumnIndexOrThrow("category"));
+                task.file = new File(c.getString(c.getColumnIndexOrThrow("file_path")));
+                task.sessionUri = c.getString(c.getColumnIndexOrThrow("session_uri"));
+                task.uploaded = c.getInt(c.getColumnIndexOrThrow("uploaded")) != 0;
+                task.committing = c.getInt(c.getColumnIndexOrThrow("committing")) != 0;
+                task.attempts = c.getInt(c.getColumnIndexOrThrow("attempts"));
+                tasks.add(task);
+            }
+        } finally {
+            c.close();
+        }
+        for (String recordingId : unreadable) {
+            deadLetter(db, "SELECT recording_id, '" + SpeakUpDatabase.TABLE_UPLOAD_TASKS
+                    + "', user_id, recording, file_path, ? FROM " + SpeakUpDatabase.TABLE_UPLOAD_TASKS
+                    + " WHERE recording_id = ?", SpeakUpDatabase.TABLE_UPLOAD_TASKS, "recording_id", recordingId);
+        }
+        return tasks;
+    }
+
+    /**
+     * Reads the simulations of a user that are due and whose audio is all uploaded, with their
+     * tasks.
+     * Database thread only.
+     *
+     * @param db     The database.
+     * @param userId The user ID.
+     * @param now    The current time, in milliseconds.
+     * @return The due batches.
+     */
+    private List<Batch> readDueBatches(SQLiteDatabase db, String userId, long now) {
+        List<Batch> batches = new ArrayList<>();
+        List<String> unreadable = new ArrayList<>();
+        Cursor c = db.rawQuery("SELECT simulation, committing, attempts, batch_id FROM "
+                + SpeakUpDatabase.TABLE_UPLOAD_BATCHES + " b"
+                + " WHERE user_id = ? AND next_attempt_at <= ? AND NOT EXISTS (SELECT 1 FROM "
+                + SpeakUpDatabase.TABLE_UPLOAD_TASKS + " t WHERE t.batch_id = b.batch_id AND t.uploaded = 0)",
+                new String[]{userId, String.valueOf(now)});
+        try {
+            while (c.moveToNext()) {
+                Simulation sim = (Simulation) fromBytes(c.getBlob(0));
+                if (sim == null) {
+                    unreadable.add(c.getString(3));
+                    continue;
+                }
+                Batch batch = new Batch();
+                batch.simulation = sim;
+                batch.committing = c.getInt(1) != 0;
+                batch.attempts = c.getInt(2);
+                batches.add(batch);
+            }
+        } finally {
+            c.close();
+        }
+        for (String batchId : unreadable) {
+            // Without its simulation, the batch's recordings could never be committed
+            deadLetter(db, "SELECT recording_id, '" + SpeakUpDatabase.TABLE_UPLOAD_TASKS
+                    + "', user_id, recording, file_path, ? FROM " + SpeakUpDatabase.TABLE_UPLOAD_TASKS
+                    + " WHERE batch_id = ?", SpeakUpDatabase.TABLE_UPLOAD_TASKS, "batch_id", batchId);
+            deadLetter(db, "SELECT batch_id, '" + SpeakUpDatabase.TABLE_UPLOAD_BATCHES
+                    + "', user_id, simulation, NULL, ? FROM " + SpeakUpDatabase.TABLE_UPLOAD_BATCHES
+                    + " WHERE batch_id = ?", SpeakUpDatabase.TABLE_UPLOAD_BATCHES, "batch_id", batchId);
+        }
+        for (Batch batch : batches) {
+            batch.tasks = readTasks(db, "batch_id = ?", new String[]{batch.simulation.getSimulationId()});
+        }
+        return batches;
+    }
+
+    /**
+     * Moves queue rows that cannot be read back to the dead-letter table, so they stop being
+     * retried but their data and audio are kept. Database thread only.
+     *
+     * @param db        The database.
+     * @param select    Query selecting the dead-letter columns of the rows, taking the current
+     *                  time and the key as arguments.
+     * @param table     The queue table of the rows.
+     * @param keyColumn The column matched against key.
+     * @param key       The key of the rows.
+     */
+    private void deadLetter(SQLiteDatabase db, String select, String table, String keyColumn, String key) {
+        Log.e("UploadQueue", "Dead-lettering unreadable rows of " + table + " with " + keyColumn + " " + key);
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT OR REPLACE INTO " + SpeakUpDatabase.TABLE_UPLOAD_DEAD_LETTERS
+                    + " (item_id, source_table, user_id, payload, file_path, failed_at) " + select,
+                    new Object[]{System.currentTimeMillis(), key});
+            db.delete(table, keyColumn + " = ?", new String[]{key});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Finds when the next backed-off item of a user becomes due. Database thread only.
+     *
+     * @param db     The database.
+     * @param userId The user ID.
+     * @param now    The current time, in milliseconds.
+     * @return The time of the next attempt, in milliseconds, or 0 if nothing is waiting.
+     */
+    private long readNextAttempt(SQLiteDatabase db, String userId, long now) {
+        String[] args = new String[]{userId, String.valueOf(now), userId, String.valueOf(now)};
+        Cursor c = db.rawQuery("SELECT MIN(next_attempt_at) FROM ("
+                + "SELECT next_attempt_at FROM " + SpeakUpDatabase.TABLE_UPLOAD_TASKS
+                + " WHERE user_id = ? AND next_attempt_at > ? UNION ALL "
+                + "SELECT next_attempt_at FROM " + SpeakUpDatabase.TABLE_UPLOAD_BATCHES
+                + " WHERE user_id = ? AND next_attempt_at > ?)", args);
+        try {
+            return (c.moveToFirst() && !c.isNull(0)) ? c.getLong(0) : 0;
+        } finally {
+            c.close();
+        }
+    }
+
+    /**
+     * Updates the stored row of a task.
+     *
+     * @param recordingId The recording ID of the task.
+     * @param values      The columns to update.
+     */
+    private void updateTask(String recordingId, ContentValues values) {
+        updateRow(SpeakUpDatabase.TABLE_UPLOAD_TASKS, "recording_id", recordingId, values);
+    }
+
+    /**
+     * Updates a row of a queue table on the database thread.
+     *
+     * @param table     The table.
+     * @param keyColumn The primary key column.
+     * @param key       The primary key.
+     * @param values    The columns to update.
+     */
+    private void updateRow(final String table, final String keyColumn, final String key,
+            final ContentValues values) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                database.getWritableDatabase().update(table, values, keyColumn + " = ?", new String[]{key});
+            }
+        });
+    }
+
+    /**
+     * Deletes the rows of a queue table matching a key on the database thread.
+     *
+     * @param table     The table.
+     * @param keyColumn The key column.
+     * @param key       The key.
+     */
+    private void deleteRow(final String table, final String keyColumn, final String key) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                database.getWritableDatabase().delete(table, keyColumn + " = ?", new String[]{key});
+            }
+        });
+    }
+
+    /**
+     * Converts a queued recording into a table row.
+     *
+     * @param rec      The recording.
+     * @param batchId  The simulation ID, or null for a practice recording.
+     * @param category The category of the recording's question, or null.
+     * @param file     The queued audio file.
+     * @return The row values.
+     * @throws IOException If the recording cannot be serialized.
+     */
+    private ContentValues toValues(Recording rec, @Nullable String batchId, @Nullable String category, File file)
+            throws IOException {
+        ContentValues values = new ContentValues();
+        values.put("recording_id", rec.getRecordingId());
+        values.put("user_id", rec.getUserId());
+        values.put("batch_id", batchId);
+        values.put("recording", toBytes(rec));
+        values.put("category", category);
+        values.put("file_path", file.getAbsolutePath());
+        return values;
+    }
+
+    /**
+     * Serializes an object for storage in a BLOB column.
+     *
+     * @param object The object.
+     * @return The serialized bytes.
+     * @throws IOException If the object cannot be serialized.
+     */
+    private static byte[] toBytes(Serializable object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes an object stored with {@link #toBytes}.
+     *
+     * @param bytes The serialized bytes.
+     * @return The object, or null if it cannot be read.
+     */
+    @Nullable
+    private static Object fromBytes(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            Log.e("UploadQueue", "Failed reading queued item", e);
+            return null;
+        }
+    }
+
+    /**
+     * Delivers the result of an enqueue on the main thread and starts the queue.
+     *
+     * @param callback The callback.
+     * @param queued   Whether the work was queued.
+     */
+    private void deliver(final Callback callback, final boolean queued) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onQueued(queued);
+                if (queued) pump();
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.speakup.Utils;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Walker/Vose alias table for sampling indexes from a fixed discrete distribution.
+ * <p>
+ * Building the table takes linear time in the number of weights; every sample afterwards
+ * takes constant time (one uniform index and one biased coin flip), regardless of how many
+ * items there are.
+ * </p>
+ */
+public class AliasTable {
+    /**
+     * Probability of keeping the index drawn, per index.
+     */
+    private final double[] probability;
+
+    /**
+     * Index returned instead when the coin flip fails, per index.
+     */
+    private final int[] alias;
+
+    /**
+     * Builds the table for the given weights.
+     *
+     * @param weights Non-negative weights, at least one of them positive.
+     * @throws IllegalArgumentException If there is no positive weight or a weight is negative.
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double w : weights) {
+            if (w < 0 || Double.isNaN(w)) throw new IllegalArgumentException("Negative weight: " + w);
+            total += w;
+        }
+        if (n == 0 || total <= 0) throw new IllegalArgumentException("No positive weight");
+
+        probability = new double[n];
+        alias = new int[n];
+
+        // Scale so the average weight is 1, then pair each under-full slot with an over-full one.
+        double[] scaled = new double[n];
+        ArrayDeque<Integer> small = new ArrayDeque<>();
+        ArrayDeque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small.push(i);
+            } else {
+                large.push(i);
+            }
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small.push(more);
+            } else {
+                large.push(more);
+            }
+        }
+        // Whatever is left is full up to rounding errors.
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1.0;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1.0;
+        }
+    }
+
+    /**
+     * Draws an index with probability proportional to its weight.
+     *
+     * @param random The source of randomness.
+     * @return The index.
+     */
+    public int sample(Random random) {
+        int i = random.nextInt(probability.length);
+        return (random.nextDouble() < probability[i]) ? i : alias[i];
+    }
+}
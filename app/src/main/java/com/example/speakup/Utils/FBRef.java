@@ -20,9 +20,16 @@ public class FBRef {
     public static FirebaseAuth refAuth = FirebaseAuth.getInstance();
 
     /**
-     * The entry point for accessing the Firebase Realtime Database.
+     * The entry point for accessing the Firebase Realtime Database, with disk persistence
+     * enabled (see {@link #openDatabase()}).
      */
-    public static FirebaseDatabase FBDB = FirebaseDatabase.getInstance();
+    public static FirebaseDatabase FBDB = openDatabase();
+
+    /**
+     * Reference to the root of the Realtime Database.
+     * Used for multi-path updates spanning several top-level nodes.
+     */
+    public static DatabaseReference refRoot = FBDB.getReference();
 
     /**
      * Reference to the 'Users' node in the Realtime Database.
@@ -36,6 +43,12 @@ public class FBRef {
      */
     public static DatabaseReference refQuestions = FBDB.getReference("Questions");
 
+    /**
+     * Reference to the 'QuestionsVersion' node in the Realtime Database.
+     * Holds the version of the question bank; it must change whenever 'Questions' is edited.
+     */
+    public static DatabaseReference refQuestionsVersion = FBDB.getReference("QuestionsVersion");
+
     /**
      * Reference to the 'Recordings' node in the Realtime Database.
      * Contains metadata and analysis for user recordings.
@@ -64,6 +77,13 @@ public class FBRef {
      */
     public static StorageReference refQuestionMedia = refST.child("Question_Media/");
 
+    /**
+     * Storage reference for the downscaled WebP variants of the question media.
+     * Points to the 'Question_Media/thumbnails/' directory, holding
+     * {@code <name>_<width>x<width>.webp} for each width in {@link TopicImage#VARIANT_WIDTHS}.
+     */
+    public static StorageReference refQuestionThumbnails = refST.child("Question_Media/thumbnails/");
+
     /**
      * Storage reference for audio files recorded by users.
      * Points to the 'Recordings/' directory.
@@ -75,4 +95,32 @@ public class FBRef {
      * Stores metadata and AI feedback for full exam simulations.
      */
     public static DatabaseReference refSimulations = FBDB.getReference("Simulations");
+
+    /**
+     * Reference to the 'Stats' node in the Realtime Database.
+     * Stores aggregated performance statistics per user.
+     */
+    public static DatabaseReference refStats = FBDB.getReference("Stats");
+
+    /**
+     * Returns the Realtime Database instance with disk persistence enabled.
+     * <p>
+     * Persistence keeps the data of attached listeners on disk, so re-attaching a listener in a
+     * new process (such as the sync listeners of {@link com.example.speakup.RecordingRepository})
+     * only transfers what changed on the server since the cached copy. It must be enabled before
+     * the instance is used, which is why every reference is taken from this class.
+     * </p>
+     * <p>
+     * With persistence, listeners for a single value answer from the disk cache when it holds
+     * the location, so one-shot reads that must see the server's current data use
+     * {@code get()} instead.
+     * </p>
+     *
+     * @return The database instance.
+     */
+    private static FirebaseDatabase openDatabase() {
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        database.setPersistenceEnabled(true);
+        return database;
+    }
 }
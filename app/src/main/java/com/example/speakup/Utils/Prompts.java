@@ -112,6 +112,37 @@ public class Prompts {
             "- feedback.overallSummary: \"No speech detected.\"\n" +
             "- feedback.*.keep and feedback.*.improve must mention no speech was detected.\n";
 
+    /**
+     * The evaluation prescribed by {@link #EMPTY_AUDIO_RULES}, used directly when the recording
+     * is detected as silent on the device, without calling the model.
+     */
+    public static final String EMPTY_AUDIO_RESULT =
+            "{\n" +
+            "  \"topicDevelopment\": 0,\n" +
+            "  \"delivery\": 0,\n" +
+            "  \"vocabulary\": 0,\n" +
+            "  \"language\": 0,\n" +
+            "  \"totalSectionScore\": 0,\n" +
+            "  \"feedback\": {\n" +
+            "    \"topicDevelopment\": {\"keep\": \"No speech was detected.\", \"improve\": \"No speech was detected. Answer the question out loud.\"},\n" +
+            "    \"delivery\": {\"keep\": \"No speech was detected.\", \"improve\": \"No speech was detected. Check your microphone and speak clearly.\"},\n" +
+            "    \"vocabulary\": {\"keep\": \"No speech was detected.\", \"improve\": \"No speech was detected.\"},\n" +
+            "    \"language\": {\"keep\": \"No speech was detected.\", \"improve\": \"No speech was detected.\"},\n" +
+            "    \"overallSummary\": \"No speech detected.\"\n" +
+            "  }\n" +
+            "}";
+
+    /**
+     * Note added to the input of a task prompt when long pauses were shortened in the attached audio.
+     * Placeholders {PAUSE_COUNT}, {LONG_PAUSE_SECONDS}, {LONGEST_PAUSE_SECONDS} and {REMOVED_SECONDS}
+     * are replaced with the measured values.
+     */
+    public static final String PAUSE_REPORT =
+            "<pause_report>Long pauses were shortened in the attached audio. In the original answer the student " +
+            "paused {PAUSE_COUNT} time(s) for more than {LONG_PAUSE_SECONDS} seconds, the longest pause lasted " +
+            "{LONGEST_PAUSE_SECONDS} seconds, and {REMOVED_SECONDS} seconds of silence were removed. " +
+            "Take these pauses into account when grading Delivery.</pause_report>\n";
+
     /**
      * AI prompt for evaluating the 'Personal Response' section of the exam.
      */
@@ -0,0 +1,45 @@
+package com.example.speakup.Utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.module.AppGlideModule;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.InputStream;
+
+/**
+ * The app's Glide configuration: lets Glide load {@link StorageReference}s directly
+ * through the {@link StorageReferenceModelLoader}, and {@link TopicImage}s at the size
+ * they are shown through the {@link TopicImageModelLoader}.
+ */
+@GlideModule
+public final class SpeakUpGlideModule extends AppGlideModule {
+    /**
+     * Registers the StorageReference and TopicImage loaders.
+     *
+     * @param context  The application context.
+     * @param glide    The Glide instance.
+     * @param registry The registry of loaders.
+     */
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(StorageReference.class, InputStream.class,
+                new StorageReferenceModelLoader.Factory(context));
+        registry.prepend(TopicImage.class, InputStream.class, new TopicImageModelLoader.Factory(context));
+    }
+
+    /**
+     * Disables the legacy manifest scan for Glide modules.
+     *
+     * @return False.
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
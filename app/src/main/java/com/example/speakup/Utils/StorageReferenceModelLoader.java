@@ -0,0 +1,256 @@
+package com.example.speakup.Utils;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.data.HttpUrlFetcher;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import com.example.speakup.StorageUrlCache;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Glide {@link ModelLoader} that loads Firebase Storage objects given as {@link StorageReference}s.
+ * <p>
+ * The download URL comes from the {@link StorageUrlCache}, so a known image costs no
+ * {@code getDownloadUrl} round trip, and images are cached by Glide under their Storage path
+ * rather than their tokenized URL, so a cached image is shown without resolving any URL.
+ * If a cached URL stops working (e.g. its token was revoked), it is dropped and requested
+ * again once.
+ * </p>
+ */
+public class StorageReferenceModelLoader implements ModelLoader<StorageReference, InputStream> {
+    /**
+     * Timeout of the image download, in milliseconds.
+     */
+    private static final int TIMEOUT_MS = 15000;
+
+    /**
+     * The download URL cache.
+     */
+    private final StorageUrlCache urlCache;
+
+    /**
+     * Creates the loader.
+     *
+     * @param urlCache The download URL cache.
+     */
+    public StorageReferenceModelLoader(StorageUrlCache urlCache) {
+        this.urlCache = urlCache;
+    }
+
+    /**
+     * Describes how to load a Storage object, keyed by its path.
+     *
+     * @param ref     The Storage object.
+     * @param width   The target width.
+     * @param height  The target height.
+     * @param options The load options.
+     * @return The load data.
+     */
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull StorageReference ref, int width, int height,
+            @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(ref.getPath()), new StorageFetcher(urlCache, ref));
+    }
+
+    /**
+     * Tells whether this loader can load a model; any StorageReference can be loaded.
+     *
+     * @param ref The Storage object.
+     * @return Always true.
+     */
+    @Override
+    public boolean handles(@NonNull StorageReference ref) {
+        return true;
+    }
+
+    /**
+     * Factory registering the loader with Glide.
+     */
+    public static class Factory implements ModelLoaderFactory<StorageReference, InputStream> {
+        /**
+         * The download URL cache.
+         */
+        private final StorageUrlCache urlCache;
+
+        /**
+         * Creates the factory.
+         *
+         * @param context Any Context.
+         */
+        public Factory(Context context) {
+            urlCache = StorageUrlCache.getInstance(context);
+        }
+
+        /**
+         * Builds the loader.
+         *
+         * @param multiFactory Glide's loader factory (unused).
+         * @return The loader.
+         */
+        @NonNull
+        @Override
+        public ModelLoader<StorageReference, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new StorageReferenceModelLoader(urlCache);
+        }
+
+        /**
+         * Releases the factory's resources (none).
+         */
+        @Override
+        public void teardown() {
+        }
+    }
+
+    /**
+     * Fetches a Storage object over HTTP from its (cached) download URL.
+     * Runs on Glide's background threads, so it can wait for the URL.
+     */
+    private static class StorageFetcher implements DataFetcher<InputStream> {
+        /**
+         * The download URL cache.
+         */
+        private final StorageUrlCache urlCache;
+
+        /**
+         * The Storage object.
+         */
+        private final StorageReference ref;
+
+        /**
+         * The HTTP fetcher of the current attempt, or null before the URL is known.
+         */
+        private volatile HttpUrlFetcher urlFetcher;
+
+        /**
+         * Whether the load was cancelled.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Creates the fetcher.
+         *
+         * @param urlCache The download URL cache.
+         * @param ref      The Storage object.
+         */
+        StorageFetcher(StorageUrlCache urlCache, StorageReference ref) {
+            this.urlCache = urlCache;
+            this.ref = ref;
+        }
+
+        /**
+         * Resolves the download URL and downloads the object.
+         *
+         * @param priority The load priority.
+         * @param callback Receives the stream or the failure.
+         */
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super InputStream> callback) {
+            boolean wasCached = urlCache.getCachedUrl(ref.getPath()) != null;
+            load(priority, callback, wasCached);
+        }
+
+        /**
+         * Downloads the object from its current URL, retrying once with a fresh URL if a
+         * cached one fails.
+         *
+         * @param priority The load priority.
+         * @param callback Receives the stream or the failure.
+         * @param canRetry Whether a failure should drop the URL and try again.
+         */
+        private void load(final Priority priority, final DataCallback<? super InputStream> callback,
+                final boolean canRetry) {
+            Uri uri;
+            try {
+                uri = Tasks.await(urlCache.getUrl(ref));
+            } catch (ExecutionException e) {
+                callback.onLoadFailed(e);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.onLoadFailed(e);
+                return;
+            }
+            if (cancelled) {
+                callback.onDataReady(null);
+                return;
+            }
+
+            HttpUrlFetcher fetcher = new HttpUrlFetcher(new GlideUrl(uri.toString()), TIMEOUT_MS);
+            urlFetcher = fetcher;
+            fetcher.loadData(priority, new DataCallback<InputStream>() {
+                @Override
+                public void onDataReady(@Nullable InputStream data) {
+                    callback.onDataReady(data);
+                }
+
+                @Override
+                public void onLoadFailed(@NonNull Exception e) {
+                    if (canRetry && !cancelled) {
+                        urlCache.invalidate(ref.getPath());
+                        load(priority, callback, false);
+                    } else {
+                        callback.onLoadFailed(e);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Closes the stream of the download.
+         */
+        @Override
+        public void cleanup() {
+            HttpUrlFetcher fetcher = urlFetcher;
+            if (fetcher != null) fetcher.cleanup();
+        }
+
+        /**
+         * Cancels the download.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            HttpUrlFetcher fetcher = urlFetcher;
+            if (fetcher != null) fetcher.cancel();
+        }
+
+        /**
+         * Returns the type of data fetched.
+         *
+         * @return InputStream.
+         */
+        @NonNull
+        @Override
+        public Class<InputStream> getDataClass() {
+            return InputStream.class;
+        }
+
+        /**
+         * Returns where the data comes from.
+         *
+         * @return The remote source.
+         */
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.REMOTE;
+        }
+    }
+}
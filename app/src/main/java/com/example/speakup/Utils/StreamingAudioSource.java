@@ -0,0 +1,243 @@
+package com.example.speakup.Utils;
+
+import android.media.MediaDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.BitSet;
+
+/**
+ * {@link MediaDataSource} over an audio file that may still be downloading.
+ * <p>
+ * The file is downloaded in fixed-size chunks, in any order, and the downloader reports each
+ * chunk it writes. Reads of chunks that are not there yet block until they arrive, and tell the
+ * downloader where the player is reading (see {@link #nextMissingChunk}), so the chunks under
+ * and just ahead of the playback position are always fetched first, even after a seek. A
+ * {@code MediaPlayer} can therefore start as soon as the first chunk is on disk. A source for a
+ * file that is already complete simply reads it.
+ * </p>
+ */
+public class StreamingAudioSource extends MediaDataSource {
+    /**
+     * Size of a download chunk, in bytes.
+     */
+    public static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * Longest time a read waits for missing bytes before failing, in milliseconds.
+     */
+    private static final long READ_TIMEOUT_MS = 30000;
+
+    /**
+     * The file being read.
+     */
+    private File file;
+
+    /**
+     * Open handle on {@link #file}, or null until the first read.
+     */
+    private RandomAccessFile raf;
+
+    /**
+     * Chunks written to the file so far.
+     */
+    private final BitSet chunks = new BitSet();
+
+    /**
+     * Position of the latest read, where the downloader should continue from.
+     */
+    private long readPosition;
+
+    /**
+     * Total size of the audio, or -1 while unknown.
+     */
+    private long totalSize = -1;
+
+    /**
+     * Whether the whole file is written.
+     */
+    private boolean complete;
+
+    /**
+     * Whether the download failed.
+     */
+    private boolean failed;
+
+    /**
+     * Creates a source for a file that is being downloaded.
+     *
+     * @param file The file the downloader writes to.
+     */
+    public StreamingAudioSource(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates a source for a file that is already complete.
+     *
+     * @param file The audio file.
+     * @return The source.
+     */
+    public static StreamingAudioSource forCompleteFile(File file) {
+        StreamingAudioSource source = new StreamingAudioSource(file);
+        source.onComplete(file);
+        return source;
+    }
+
+    /**
+     * Reports the total size of the audio, once the first response reveals it.
+     *
+     * @param total The size in bytes.
+     */
+    public synchronized void onSize(long total) {
+        totalSize = total;
+        notifyAll();
+    }
+
+    /**
+     * Reports that a chunk was written to the file.
+     *
+     * @param index The chunk index.
+     */
+    public synchronized void onChunk(int index) {
+        chunks.set(index);
+        notifyAll();
+    }
+
+    /**
+     * Returns the chunk the downloader should fetch next: the first missing one from the
+     * latest read position onwards, then any missing one before it.
+     *
+     * @return The chunk index, or -1 if every chunk is written or the size is still unknown.
+     */
+    public synchronized int nextMissingChunk() {
+        if (totalSize < 0) return -1;
+        int count = chunkCount();
+        int next = chunks.nextClearBit((int) (readPosition / CHUNK_SIZE));
+        if (next >= count) next = chunks.nextClearBit(0);
+        return (next < count) ? next : -1;
+    }
+
+    /**
+     * Reports that the download finished. Open reads continue on the same handle, so the file
+     * may be renamed before this call.
+     *
+     * @param finalFile Where the complete file now is.
+     */
+    public synchronized void onComplete(File finalFile) {
+        file = finalFile;
+        totalSize = finalFile.length();
+        complete = true;
+        notifyAll();
+    }
+
+    /**
+     * Reports that the download failed; pending and later reads of missing chunks fail.
+     */
+    public synchronized void onFailed() {
+        failed = true;
+        notifyAll();
+    }
+
+    /**
+     * Tells whether the download failed.
+     *
+     * @return True if the download failed.
+     */
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Reads bytes at a position, waiting for their chunk to be downloaded if needed.
+     *
+     * @param position The position in the audio.
+     * @param buffer   The buffer to fill.
+     * @param offset   The offset in the buffer.
+     * @param size     The number of bytes wanted.
+     * @return The number of bytes read, or -1 at the end of the audio.
+     * @throws IOException If the download failed or stalled.
+     */
+    @Override
+    public synchronized int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        readPosition = position;
+        long deadline = System.currentTimeMillis() + READ_TIMEOUT_MS;
+        while (!complete && (totalSize < 0 || (position < totalSize && !chunks.get(chunkOf(position))))) {
+            if (failed) throw new IOException("Audio download failed");
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) throw new IOException("Audio download stalled");
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for audio", e);
+            }
+        }
+        if (position >= totalSize) return -1;
+
+        // Read up to the end of the run of written chunks starting at this position.
+        long available = totalSize - position;
+        if (!complete) {
+            int endChunk = chunks.nextClearBit(chunkOf(position));
+            available = Math.min(available, (long) endChunk * CHUNK_SIZE - position);
+        }
+
+        if (raf == null) raf = new RandomAccessFile(file, "r");
+        raf.seek(position);
+        return raf.read(buffer, offset, (int) Math.min(size, available));
+    }
+
+    /**
+     * Returns the size of the audio, waiting until the download reports it.
+     *
+     * @return The size in bytes, or -1 if it cannot be known.
+     */
+    @Override
+    public synchronized long getSize() {
+        long deadline = System.currentTimeMillis() + READ_TIMEOUT_MS;
+        while (totalSize < 0 && !complete && !failed) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) break;
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return totalSize;
+    }
+
+    /**
+     * Closes the file handle. The source can still be read afterwards, which reopens it.
+     *
+     * @throws IOException If the handle cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (raf != null) {
+            raf.close();
+            raf = null;
+        }
+    }
+
+    /**
+     * Returns the number of chunks of the audio. The size must be known.
+     *
+     * @return The chunk count.
+     */
+    private int chunkCount() {
+        return (int) ((totalSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the chunk holding a position.
+     *
+     * @param position The position in the audio.
+     * @return The chunk index.
+     */
+    private static int chunkOf(long position) {
+        return (int) (position / CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.speakup.Utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Incremental parser that extracts completed sections from a JSON document as it streams in.
+ * <p>
+ * The simulation grading response has the shape {@code { "recordings": [ {...}, {...} ] }}.
+ * This parser is fed the text chunk by chunk and reports each object of the top-level
+ * array as soon as its closing brace arrives, without waiting for the rest of the document.
+ * Text outside of the root object (such as Markdown fences) is ignored.
+ * </p>
+ */
+public class StreamingJsonParser {
+
+    /**
+     * Listener notified whenever a full section of the streamed array has been received.
+     */
+    public interface SectionListener {
+        /**
+         * Called when a section object has been fully received and parsed.
+         *
+         * @param index   The zero-based position of the section in the array.
+         * @param section The parsed JSON object of the section.
+         */
+        void onSectionComplete(int index, JSONObject section);
+    }
+
+    /**
+     * All the text received so far.
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * Stack of currently open containers ('{' or '[').
+     */
+    private final StringBuilder containers = new StringBuilder();
+
+    /**
+     * The listener notified for every completed section.
+     */
+    private final SectionListener listener;
+
+    /**
+     * Position in the buffer up to which the text has already been scanned.
+     */
+    private int scanned = 0;
+
+    /**
+     * Start position of the section currently being received, or -1 if none.
+     */
+    private int sectionStart = -1;
+
+    /**
+     * Number of sections reported so far.
+     */
+    private int sectionCount = 0;
+
+    /**
+     * Flag indicating if the scanner is currently inside a JSON string.
+     */
+    private boolean inString = false;
+
+    /**
+     * Flag indicating if the previous character inside a string was an escape backslash.
+     */
+    private boolean escaped = false;
+
+    /**
+     * Constructs a new StreamingJsonParser.
+     *
+     * @param listener The listener notified for every completed section.
+     */
+    public StreamingJsonParser(SectionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Appends a new chunk of streamed text and reports any section completed by it.
+     *
+     * @param chunk The newly received text.
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) return;
+        buffer.append(chunk);
+
+        for (; scanned < buffer.length(); scanned++) {
+            char c = buffer.charAt(scanned);
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if (c == '"') {
+                if (containers.length() > 0) inString = true;
+            } else if (c == '{' || c == '[') {
+                // A section is an object directly inside the array of the root object
+                if (c == '{' && isInSectionArray()) {
+                    sectionStart = scanned;
+                }
+                containers.append(c);
+            } else if ((c == '}' || c == ']') && containers.length() > 0) {
+                containers.setLength(containers.length() - 1);
+                if (c == '}' && sectionStart != -1 && isInSectionArray()) {
+                    reportSection(buffer.substring(sectionStart, scanned + 1));
+                    sectionStart = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the scanner is positioned directly inside the array of the root object.
+     *
+     * @return true if the open containers are exactly the root object and its array.
+     */
+    private boolean isInSectionArray() {
+        return containers.length() == 2 && containers.charAt(0) == '{' && containers.charAt(1) == '[';
+    }
+
+    /**
+     * Parses a completed section and notifies the listener.
+     *
+     * @param sectionText The raw JSON text of the section.
+     */
+    private void reportSection(String sectionText) {
+        int index = sectionCount++;
+        try {
+            listener.onSectionComplete(index, new JSONObject(sectionText));
+        } catch (JSONException e) {
+            // Malformed sections are skipped here and surface in the final full parse
+        }
+    }
+
+    /**
+     * Gets the number of sections completed so far.
+     *
+     * @return The number of completed sections.
+     */
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Gets all the text received so far.
+     *
+     * @return The accumulated text.
+     */
+    public String getText() {
+        return buffer.toString();
+    }
+}
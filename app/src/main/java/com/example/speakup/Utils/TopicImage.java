@@ -0,0 +1,128 @@
+package com.example.speakup.Utils;
+
+import static com.example.speakup.Utils.FBRef.refQuestionMedia;
+import static com.example.speakup.Utils.FBRef.refQuestionThumbnails;
+
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.speakup.StorageUrlCache;
+import com.google.firebase.storage.StorageReference;
+
+/**
+ * Glide model of a question topic image, loaded at the size it is shown.
+ * <p>
+ * Next to each full-size {@code Question_Media/<key>.jpg}, Storage holds WebP variants that
+ * are {@link #VARIANT_WIDTHS} pixels wide under {@link FBRef#refQuestionThumbnails}. When Glide
+ * loads a TopicImage (see {@link TopicImageModelLoader}), it downloads the smallest variant at
+ * least as wide as the measured view, so small cards no longer download and decode the full
+ * image. Images wider than the largest variant, and variants that were not generated, fall
+ * back to the original (see {@link #originalRef}); once Storage reported a variant missing,
+ * the {@link StorageUrlCache} remembers it and the original is requested directly.
+ * </p>
+ */
+public class TopicImage {
+    /**
+     * Widths of the generated variants, in pixels, smallest first.
+     */
+    public static final int[] VARIANT_WIDTHS = {128, 256, 512};
+
+    /**
+     * The image key (e.g., "hobbies"), the file name without its extension.
+     */
+    private final String key;
+
+    /**
+     * Creates the model of a topic image.
+     *
+     * @param key The image key.
+     */
+    public TopicImage(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the image key.
+     *
+     * @return The image key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the full-size image.
+     *
+     * @return The Storage reference of the original JPEG.
+     */
+    public StorageReference originalRef() {
+        return refQuestionMedia.child(key + ".jpg");
+    }
+
+    /**
+     * Returns the image to download for a view of a given width: the smallest variant at
+     * least that wide, or the original if none is or that variant is known missing.
+     *
+     * @param width    The width of the view, in pixels; not positive if unknown.
+     * @param urlCache The URL cache, which knows the variants Storage reported missing.
+     * @return The Storage reference to download.
+     */
+    public StorageReference refForWidth(int width, StorageUrlCache urlCache) {
+        if (width <= 0) return originalRef();
+        for (int variantWidth : VARIANT_WIDTHS) {
+            if (variantWidth >= width) {
+                StorageReference variant =
+                        refQuestionThumbnails.child(key + "_" + variantWidth + "x" + variantWidth + ".webp");
+                return urlCache.isMissing(variant.getPath()) ? originalRef() : variant;
+            }
+        }
+        return originalRef();
+    }
+
+    /**
+     * Estimates the width of a card in a two-column grid filling the screen, so its image
+     * URL can be prefetched before the card is measured.
+     *
+     * @param resources The resources, for the screen metrics.
+     * @return The estimated card width, in pixels.
+     */
+    public static int estimateGridCardWidth(Resources resources) {
+        // 16dp padding on each side and a 16dp gap between the two columns.
+        float density = resources.getDisplayMetrics().density;
+        return Math.round((resources.getDisplayMetrics().widthPixels - 48 * density) / 2);
+    }
+
+    /**
+     * Tells whether another object is the same topic image.
+     *
+     * @param o The other object.
+     * @return True if it is a TopicImage with the same key.
+     */
+    @Override
+    public boolean equals(@Nullable Object o) {
+        return o instanceof TopicImage && key.equals(((TopicImage) o).key);
+    }
+
+    /**
+     * Returns the hash code of the image key.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    /**
+     * Returns the image key, for Glide's logs.
+     *
+     * @return The image key.
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.speakup.Utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.example.speakup.StorageUrlCache;
+import com.google.firebase.storage.StorageReference;
+
+import java.io.InputStream;
+
+/**
+ * Glide {@link ModelLoader} for {@link TopicImage}s.
+ * <p>
+ * Glide passes the measured size of the target view, which picks the variant to download;
+ * the download itself goes through the {@link StorageReferenceModelLoader}, so variants get
+ * the same URL cache and are cached by Glide under their own Storage path. Variants known
+ * missing are skipped for the original.
+ * </p>
+ */
+public class TopicImageModelLoader implements ModelLoader<TopicImage, InputStream> {
+    /**
+     * Loader downloading the chosen Storage object.
+     */
+    private final ModelLoader<StorageReference, InputStream> storageLoader;
+
+    /**
+     * The download URL cache, which knows the missing variants.
+     */
+    private final StorageUrlCache urlCache;
+
+    /**
+     * Creates the loader.
+     *
+     * @param storageLoader Loader downloading Storage objects.
+     * @param urlCache      The download URL cache.
+     */
+    public TopicImageModelLoader(ModelLoader<StorageReference, InputStream> storageLoader,
+            StorageUrlCache urlCache) {
+        this.storageLoader = storageLoader;
+        this.urlCache = urlCache;
+    }
+
+    /**
+     * Describes how to load the variant of a topic image matching the target width.
+     *
+     * @param image   The topic image.
+     * @param width   The target width, in pixels.
+     * @param height  The target height, in pixels.
+     * @param options The load options.
+     * @return The load data of the chosen Storage object.
+     */
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull TopicImage image, int width, int height,
+            @NonNull Options options) {
+        return storageLoader.buildLoadData(image.refForWidth(width, urlCache), width, height, options);
+    }
+
+    /**
+     * Tells whether this loader can load a model; any TopicImage can be loaded.
+     *
+     * @param image The topic image.
+     * @return Always true.
+     */
+    @Override
+    public boolean handles(@NonNull TopicImage image) {
+        return true;
+    }
+
+    /**
+     * Factory registering the loader with Glide.
+     */
+    public static class Factory implements ModelLoaderFactory<TopicImage, InputStream> {
+        /**
+         * The download URL cache.
+         */
+        private final StorageUrlCache urlCache;
+
+        /**
+         * Creates the factory.
+         *
+         * @param context Any Context.
+         */
+        public Factory(Context context) {
+            urlCache = StorageUrlCache.getInstance(context);
+        }
+
+        /**
+         * Builds the loader on top of the registered StorageReference loader.
+         *
+         * @param multiFactory Glide's loader factory.
+         * @return The loader.
+         */
+        @NonNull
+        @Override
+        public ModelLoader<TopicImage, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new TopicImageModelLoader(multiFactory.build(StorageReference.class, InputStream.class),
+                    urlCache);
+        }
+
+        /**
+         * Releases the factory's resources (none).
+         */
+        @Override
+        public void teardown() {
+        }
+    }
+}
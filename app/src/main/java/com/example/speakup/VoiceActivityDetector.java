@@ -0,0 +1,481 @@
+package com.example.speakup;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * Energy-based voice activity detector run over the PCM stream while it is encoded.
+ * <p>
+ * The signal is split into 20 ms frames and each frame is classified as speech when its RMS
+ * level rises clearly above an adaptive noise floor. The floor is first estimated from the
+ * quietest frame of a short calibration window, and the frames of that window are classified
+ * afterwards, so words spoken right at the start are not mistaken for background noise.
+ * The detector only marks which frames are
+ * worth keeping; the recording itself is encoded untouched, and {@link #isKept} is used
+ * afterwards to cut the copy sent for grading. Silence before the first word and after the
+ * last word is left out (keeping a short margin so words are not clipped). A recording with
+ * no speech at all keeps its silence (up to {@link #MAX_PENDING_MS}), so its grading copy is
+ * still playable. Optionally, long pauses between words are shortened to
+ * {@link #KEPT_PAUSE_MS}; their original length is still measured so it can be reported to
+ * the grader as a delivery metric.
+ * </p>
+ * <p>
+ * {@link #process} and {@link #finish} are called from the recording thread. The getters may
+ * be read from any thread; {@link #isKept} only once the stream is finished.
+ * </p>
+ */
+public class VoiceActivityDetector {
+    /**
+     * Length of an analysis frame, in milliseconds.
+     */
+    private static final int FRAME_MS = 20;
+
+    /**
+     * Minimum RMS level (out of 32768) a frame needs to count as speech, whatever the noise floor.
+     */
+    private static final double MIN_SPEECH_RMS = 300;
+
+    /**
+     * Highest RMS level (out of 32768) a recording may reach and still be reported as silent by
+     * {@link #isSilent()}, well below {@link #MIN_SPEECH_RMS} so a quiet speaker is never
+     * taken for an empty answer.
+     */
+    private static final double MAX_SILENT_RMS = MIN_SPEECH_RMS / 3;
+
+    /**
+     * Number of frames at least as loud as {@link #MIN_NOISE_RMS} whose quietest one seeds the
+     * noise floor (one second).
+     */
+    private static final int CALIBRATION_FRAMES = 1000 / FRAME_MS;
+
+    /**
+     * Lowest RMS level (out of 32768) used to estimate the noise floor. Quieter frames, such as
+     * the digital silence some microphones produce while starting, say nothing about the
+     * background noise and would otherwise pin the floor to zero.
+     */
+    private static final double MIN_NOISE_RMS = 10;
+
+    /**
+     * How far above the noise floor a frame must be to count as speech.
+     */
+    private static final double SPEECH_TO_NOISE_RATIO = 3.0;
+
+    /**
+     * How fast the noise floor follows louder frames (per frame).
+     */
+    private static final double NOISE_FLOOR_RISE = 0.001;
+
+    /**
+     * Silence kept before the first word and after each word, in milliseconds.
+     */
+    private static final int MARGIN_MS = 200;
+
+    /**
+     * Length a long pause is shortened to when pause compression is enabled, in milliseconds.
+     */
+    public static final int KEPT_PAUSE_MS = 1000;
+
+    /**
+     * Minimum length of a pause reported as a long pause, in milliseconds.
+     */
+    public static final int LONG_PAUSE_MS = 2000;
+
+    /**
+     * Maximum silence held back while waiting to know if it is leading or trailing, in
+     * milliseconds. Longer pauses are kept (or, before the first word, dropped) so memory use
+     * stays bounded.
+     */
+    private static final int MAX_PENDING_MS = 30000;
+
+    /**
+     * Size of an analysis frame, in bytes.
+     */
+    private final int frameBytes;
+
+    /**
+     * Size of an analysis frame, in samples per channel.
+     */
+    private final int frameSamples;
+
+    /**
+     * Flag indicating if long pauses are shortened.
+     */
+    private final boolean compressPauses;
+
+    /**
+     * Partial frame carried over between two calls to {@link #process}.
+     */
+    private final byte[] partialFrame;
+
+    /**
+     * Number of valid bytes in {@link #partialFrame}.
+     */
+    private int partialLength = 0;
+
+    /**
+     * RMS levels of the frames held back while the noise floor is calibrated, or null once it
+     * is. Digital silence does not count towards the window, so it may hold up to
+     * {@link #MAX_PENDING_MS} of frames.
+     */
+    private double[] calibrationRms = new double[MAX_PENDING_MS / FRAME_MS];
+
+    /**
+     * Number of frames held in {@link #calibrationRms}.
+     */
+    private int calibrationLength = 0;
+
+    /**
+     * Number of frames in {@link #calibrationRms} at least as loud as {@link #MIN_NOISE_RMS}.
+     */
+    private int calibrationNoiseFrames = 0;
+
+    /**
+     * Number of complete frames analyzed so far, which is also the index of the next frame.
+     */
+    private int frameCount = 0;
+
+    /**
+     * Indices of the frames kept for grading.
+     */
+    private final BitSet keptFrameIndices = new BitSet();
+
+    /**
+     * Indices of the silent frames held back before the first word (at most {@link #MAX_PENDING_MS}). Only the
+     * last {@link #MARGIN_MS} are kept once speech starts; all of them are kept if it never does.
+     */
+    private final ArrayDeque<Integer> preRoll = new ArrayDeque<>();
+
+    /**
+     * Indices of the silent frames held back since the last word, kept if speech resumes.
+     */
+    private final ArrayDeque<Integer> pendingSilence = new ArrayDeque<>();
+
+    /**
+     * Adaptive estimate of the background noise level, or -1 until a frame at least as loud as
+     * {@link #MIN_NOISE_RMS} has been calibrated.
+     */
+    private double noiseFloor = -1;
+
+    /**
+     * Number of frames still treated as speech after the last loud frame.
+     */
+    private int hangoverFrames = 0;
+
+    /**
+     * Length of the current pause (silent frames since the last word), in frames.
+     */
+    private int pauseFrames = 0;
+
+    /**
+     * Number of frames of the current pause that were dropped by compression.
+     */
+    private int droppedPauseFrames = 0;
+
+    /**
+     * Flag indicating if any speech has been detected.
+     */
+    private volatile boolean speechDetected = false;
+
+    /**
+     * Highest RMS level of any frame so far.
+     */
+    private volatile double peakRms = 0;
+
+    /**
+     * Number of frames kept for grading.
+     */
+    private volatile int keptFrames = 0;
+
+    /**
+     * Number of silent frames trimmed at the start and end of the recording.
+     */
+    private volatile int trimmedFrames = 0;
+
+    /**
+     * Number of frames removed by pause compression.
+     */
+    private volatile int compressedFrames = 0;
+
+    /**
+     * Number of pauses longer than {@link #LONG_PAUSE_MS}.
+     */
+    private volatile int longPauseCount = 0;
+
+    /**
+     * Length of the longest pause between two words, in frames.
+     */
+    private volatile int longestPauseFrames = 0;
+
+    /**
+     * Constructs a new VoiceActivityDetector.
+     *
+     * @param sampleRate     The sampling rate of the PCM data, in Hz.
+     * @param channelCount   The number of interleaved channels.
+     * @param compressPauses true to shorten long pauses between words.
+     */
+    public VoiceActivityDetector(int sampleRate, int channelCount, boolean compressPauses) {
+        this.frameSamples = sampleRate * FRAME_MS / 1000;
+        this.frameBytes = frameSamples * 2 * channelCount;
+        this.compressPauses = compressPauses;
+        this.partialFrame = new byte[frameBytes];
+    }
+
+    /**
+     * Analyzes a block of PCM data, marking the frames to keep.
+     *
+     * @param pcm    The PCM samples (16-bit little endian).
+     * @param length The number of valid bytes in pcm.
+     */
+    public void process(byte[] pcm, int length) {
+        int offset = 0;
+        while (offset < length) {
+            int chunk = Math.min(frameBytes - partialLength, length - offset);
+            System.arraycopy(pcm, offset, partialFrame, partialLength, chunk);
+            partialLength += chunk;
+            offset += chunk;
+
+            if (partialLength == frameBytes) {
+                double rms = rms(partialFrame);
+                peakRms = Math.max(peakRms, rms);
+                calibrateOrProcess(rms, frameCount++);
+                partialLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Ends the stream: the silence held back after the last word is left out. If no speech was
+     * detected, the silence held back from the start is kept instead, so the grading copy is
+     * not empty. The last partial frame is never kept.
+     */
+    public void finish() {
+        endCalibration();
+        trimmedFrames += pendingSilence.size();
+        pendingSilence.clear();
+        while (!preRoll.isEmpty()) {
+            keep(preRoll.poll());
+        }
+        partialLength = 0;
+    }
+
+    /**
+     * Holds a frame back while the noise floor is calibrated, or classifies it once it is.
+     *
+     * @param rms   The RMS level of the frame.
+     * @param frame The index of the frame.
+     */
+    private void calibrateOrProcess(double rms, int frame) {
+        if (calibrationRms == null) {
+            processFrame(rms, frame);
+            return;
+        }
+
+        calibrationRms[calibrationLength++] = rms;
+        if (rms >= MIN_NOISE_RMS) {
+            calibrationNoiseFrames++;
+        }
+        if (calibrationNoiseFrames >= CALIBRATION_FRAMES || calibrationLength == calibrationRms.length) {
+            endCalibration();
+        }
+    }
+
+    /**
+     * Seeds the noise floor with the quietest calibration frame at least as loud as
+     * {@link #MIN_NOISE_RMS}, then classifies the frames held back. Calibration frames are
+     * the first frames of the stream, so their index is their position in the window.
+     */
+    private void endCalibration() {
+        if (calibrationRms == null) return;
+        double[] levels = calibrationRms;
+        calibrationRms = null;
+
+        for (int i = 0; i < calibrationLength; i++) {
+            if (levels[i] >= MIN_NOISE_RMS && (noiseFloor < 0 || levels[i] < noiseFloor)) {
+                noiseFloor = levels[i];
+            }
+        }
+        for (int i = 0; i < calibrationLength; i++) {
+            processFrame(levels[i], i);
+        }
+    }
+
+    /**
+     * Classifies one frame and keeps it, holds it back or leaves it out.
+     *
+     * @param rms   The RMS level of the frame.
+     * @param frame The index of the frame.
+     */
+    private void processFrame(double rms, int frame) {
+        if (rms >= MIN_NOISE_RMS) {
+            if (noiseFloor < 0 || rms < noiseFloor) {
+                noiseFloor = rms;
+            } else {
+                noiseFloor += (rms - noiseFloor) * NOISE_FLOOR_RISE;
+            }
+        }
+
+        boolean loud = rms > Math.max(MIN_SPEECH_RMS, noiseFloor * SPEECH_TO_NOISE_RATIO);
+        if (loud) {
+            hangoverFrames = MARGIN_MS / FRAME_MS;
+            onSpeechFrame(frame);
+        } else if (hangoverFrames > 0) {
+            // Keep the tail of the word that just ended
+            hangoverFrames--;
+            onSpeechFrame(frame);
+        } else {
+            onSilentFrame(frame);
+        }
+    }
+
+    /**
+     * Handles a speech frame: keeps the margin or the pause held back, then the frame.
+     *
+     * @param frame The index of the frame.
+     */
+    private void onSpeechFrame(int frame) {
+        if (!speechDetected) {
+            speechDetected = true;
+            while (preRoll.size() > MARGIN_MS / FRAME_MS) {
+                preRoll.poll();
+                trimmedFrames++;
+            }
+            while (!preRoll.isEmpty()) {
+                keep(preRoll.poll());
+            }
+        } else if (pauseFrames > 0) {
+            int pauseMs = pauseFrames * FRAME_MS;
+            if (pauseMs >= LONG_PAUSE_MS) {
+                longPauseCount++;
+            }
+            longestPauseFrames = Math.max(longestPauseFrames, pauseFrames);
+            compressedFrames += droppedPauseFrames;
+        }
+
+        while (!pendingSilence.isEmpty()) {
+            keep(pendingSilence.poll());
+        }
+        pauseFrames = 0;
+        droppedPauseFrames = 0;
+        keep(frame);
+    }
+
+    /**
+     * Handles a silent frame: holds it back before the first word, or until it is known whether
+     * the pause is internal or trailing.
+     *
+     * @param frame The index of the frame.
+     */
+    private void onSilentFrame(int frame) {
+        if (!speechDetected) {
+            preRoll.add(frame);
+            if (preRoll.size() > MAX_PENDING_MS / FRAME_MS) {
+                preRoll.poll();
+                trimmedFrames++;
+            }
+            return;
+        }
+
+        pauseFrames++;
+        if (compressPauses && pauseFrames > KEPT_PAUSE_MS / FRAME_MS) {
+            droppedPauseFrames++;
+            return;
+        }
+
+        pendingSilence.add(frame);
+        if (pendingSilence.size() > MAX_PENDING_MS / FRAME_MS) {
+            keep(pendingSilence.poll());
+        }
+    }
+
+    /**
+     * Marks a frame as kept.
+     *
+     * @param frame The index of the frame.
+     */
+    private void keep(int frame) {
+        keptFrames++;
+        keptFrameIndices.set(frame);
+    }
+
+    /**
+     * Computes the RMS level of a frame of 16-bit little endian samples.
+     *
+     * @param frame The frame.
+     * @return The RMS level, from 0 to 32768.
+     */
+    private static double rms(byte[] frame) {
+        long sum = 0;
+        for (int i = 0; i + 1 < frame.length; i += 2) {
+            int sample = (short) ((frame[i] & 0xFF) | (frame[i + 1] << 8));
+            sum += (long) sample * sample;
+        }
+        return Math.sqrt((double) sum / (frame.length / 2));
+    }
+
+    /**
+     * Checks if any kept frame overlaps a range of the stream. Only valid once {@link #finish}
+     * has been called.
+     *
+     * @param fromSample The first sample of the range, in samples per channel.
+     * @param toSample   The sample just after the range, in samples per channel.
+     * @return true if part of the range should be kept for grading.
+     */
+    public boolean isKept(long fromSample, long toSample) {
+        if (toSample <= fromSample) return false;
+        int first = (int) (fromSample / frameSamples);
+        int last = (int) ((toSample - 1) / frameSamples);
+        int next = keptFrameIndices.nextSetBit(first);
+        return next >= 0 && next <= last;
+    }
+
+    /**
+     * Checks if some of the analyzed audio was left out, so the grading copy is shorter than
+     * the recording.
+     * @return true if any complete frame was trimmed or dropped by pause compression.
+     */
+    public boolean hasTrimmedAudio() { return keptFrames < frameCount; }
+
+    /**
+     * Checks if any speech has been detected so far. A quiet speaker may stay below the
+     * detection threshold, so use {@link #isSilent()} to decide that a recording is empty.
+     * A recording without speech still keeps its (silent) audio, see {@link #finish}.
+     * @return true if speech was detected, false otherwise.
+     */
+    public boolean hasSpeech() { return speechDetected; }
+
+    /**
+     * Checks if the recording stayed far below any speech level the whole time.
+     * @return true if no frame reached {@link #MAX_SILENT_RMS}.
+     */
+    public boolean isSilent() { return peakRms < MAX_SILENT_RMS; }
+
+    /**
+     * Gets the length of the audio kept for grading.
+     * @return The kept duration, in milliseconds.
+     */
+    public int getKeptMs() { return keptFrames * FRAME_MS; }
+
+    /**
+     * Gets the length of the silence trimmed at the start and end of the recording.
+     * @return The trimmed duration, in milliseconds.
+     */
+    public int getTrimmedMs() { return trimmedFrames * FRAME_MS; }
+
+    /**
+     * Gets the length of the silence removed by pause compression.
+     * @return The removed duration, in milliseconds.
+     */
+    public int getCompressedPauseMs() { return compressedFrames * FRAME_MS; }
+
+    /**
+     * Gets the number of pauses between words longer than {@link #LONG_PAUSE_MS}.
+     * @return The number of long pauses.
+     */
+    public int getLongPauseCount() { return longPauseCount; }
+
+    /**
+     * Gets the length of the longest pause between two words.
+     * @return The longest pause, in milliseconds.
+     */
+    public int getLongestPauseMs() { return longestPauseFrames * FRAME_MS; }
+}
@@ -0,0 +1,127 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.speakup.Utils.AliasTable;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link AliasTable}.
+ */
+public class AliasTableTest {
+    /**
+     * Number of samples drawn when checking a distribution.
+     */
+    private static final int SAMPLES = 200000;
+
+    /**
+     * Largest accepted difference between an observed and an expected frequency.
+     */
+    private static final double TOLERANCE = 0.01;
+
+    /**
+     * Uneven weights are sampled in proportion to their share of the total.
+     */
+    @Test
+    public void sample_followsTheWeights() {
+        assertDistribution(new double[]{1, 2, 3, 4}, 1);
+        assertDistribution(new double[]{0.1, 5, 0.1, 0.1, 20, 1}, 2);
+    }
+
+    /**
+     * Equal weights give a uniform distribution.
+     */
+    @Test
+    public void sample_equalWeights_isUniform() {
+        assertDistribution(new double[]{2, 2, 2, 2, 2}, 3);
+    }
+
+    /**
+     * An index with a zero weight is never drawn.
+     */
+    @Test
+    public void sample_neverDrawsZeroWeight() {
+        double[] weights = {0, 3, 0, 1, 0};
+        int[] counts = draw(weights, 4);
+
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[2]);
+        assertEquals(0, counts[4]);
+        assertDistribution(weights, 4);
+    }
+
+    /**
+     * A single weight always gives index 0.
+     */
+    @Test
+    public void sample_singleWeight_alwaysDrawsIt() {
+        assertEquals(SAMPLES, draw(new double[]{0.5}, 5)[0]);
+    }
+
+    /**
+     * Building a table without weights fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNoWeights() {
+        new AliasTable(new double[0]);
+    }
+
+    /**
+     * Building a table whose weights are all zero fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsAllZeroWeights() {
+        new AliasTable(new double[]{0, 0});
+    }
+
+    /**
+     * Building a table with a negative weight fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNegativeWeight() {
+        new AliasTable(new double[]{1, -1, 2});
+    }
+
+    /**
+     * Building a table with a NaN weight fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNaNWeight() {
+        new AliasTable(new double[]{1, Double.NaN});
+    }
+
+    /**
+     * Checks that the frequency of each index matches its share of the total weight.
+     *
+     * @param weights The weights.
+     * @param seed    The random seed.
+     */
+    private static void assertDistribution(double[] weights, long seed) {
+        int[] counts = draw(weights, seed);
+        double total = 0;
+        for (double w : weights) total += w;
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals("index " + i, weights[i] / total, counts[i] / (double) SAMPLES, TOLERANCE);
+        }
+    }
+
+    /**
+     * Samples a table built from the given weights.
+     *
+     * @param weights The weights.
+     * @param seed    The random seed.
+     * @return How many times each index was drawn.
+     */
+    private static int[] draw(double[] weights, long seed) {
+        AliasTable table = new AliasTable(weights);
+        Random random = new Random(seed);
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random)]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs {@link GeminiFileUploader} against a local stand-in for the File API that drops the
+ * first upload connection halfway through the file.
+ */
+public class GeminiFileUploaderTest {
+    /**
+     * Size of the uploaded test file, in bytes.
+     */
+    private static final int FILE_SIZE = 200 * 1024;
+
+    /**
+     * Number of bytes the server keeps before dropping the first upload connection.
+     */
+    private static final int DROP_AFTER = 64 * 1024;
+
+    /**
+     * The local stand-in server.
+     */
+    private HttpServer server;
+
+    /**
+     * The bytes the server has stored for the upload session.
+     */
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+    /**
+     * The calls received by the server, as "METHOD path command".
+     */
+    private final List<String> calls = new ArrayList<>();
+
+    /**
+     * Whether the next upload connection is dropped.
+     */
+    private boolean dropNextUpload = true;
+
+    /**
+     * The file uploaded by the tests.
+     */
+    private File file;
+
+    /**
+     * Starts the server and writes the test file.
+     *
+     * @throws IOException If the server or the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleCall(exchange);
+            }
+        });
+        server.start();
+
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("answer", ".aac");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    /**
+     * Stops the server and deletes the test file.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+        file.delete();
+    }
+
+    /**
+     * An upload whose connection drops is resumed from the offset the server reports, and
+     * the returned URI is the one of the file once it is ACTIVE.
+     *
+     * @throws IOException If the upload fails.
+     */
+    @Test
+    public void upload_resumesAfterDroppedConnectionAndWaitsUntilActive() throws IOException {
+        GeminiFileUploader uploader = new GeminiFileUploader(baseUrl(), "test-key");
+
+        String uri = uploader.upload(file, "audio/aac");
+
+        assertEquals(baseUrl() + "/v1beta/files/answer-1", uri);
+        assertArrayEquals(readFile(), received.toByteArray());
+        assertEquals(5, calls.size());
+        assertEquals("POST /upload/v1beta/files start", calls.get(0));
+        assertEquals("POST /upload/session upload, finalize", calls.get(1));
+        assertEquals("POST /upload/session query", calls.get(2));
+        assertEquals("POST /upload/session upload, finalize", calls.get(3));
+        assertEquals("GET /v1beta/files/answer-1 null", calls.get(4));
+    }
+
+    /**
+     * Uploading the same unchanged file again reuses the first upload.
+     *
+     * @throws IOException If the upload fails.
+     */
+    @Test
+    public void upload_reusesPreviousUploadOfSameFile() throws IOException {
+        GeminiFileUploader uploader = new GeminiFileUploader(baseUrl(), "test-key");
+
+        String first = uploader.upload(file, "audio/aac");
+        int callsAfterFirst = calls.size();
+        String second = uploader.upload(file, "audio/aac");
+
+        assertEquals(first, second);
+        assertEquals(callsAfterFirst, calls.size());
+    }
+
+    /**
+     * Returns the base URL of the local server.
+     *
+     * @return The base URL.
+     */
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Answers one call the way the File API does.
+     *
+     * @param exchange The call.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handleCall(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String command = exchange.getRequestHeaders().getFirst("X-Goog-Upload-Command");
+        synchronized (calls) {
+            calls.add(exchange.getRequestMethod() + " " + path + " " + command);
+        }
+
+        if (path.equals("/upload/v1beta/files")) {
+            drain(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("X-Goog-Upload-URL", baseUrl() + "/upload/session");
+            respond(exchange, 200, "{}");
+        } else if (path.equals("/upload/session") && "query".equals(command)) {
+            drain(exchange.getRequestBody());
+            exchange.getResponseHeaders().add("X-Goog-Upload-Size-Received", String.valueOf(received.size()));
+            respond(exchange, 200, "");
+        } else if (path.equals("/upload/session")) {
+            long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("X-Goog-Upload-Offset"));
+            if (offset != received.size()) {
+                drain(exchange.getRequestBody());
+                respond(exchange, 400, "{}");
+                return;
+            }
+            if (dropNextUpload) {
+                dropNextUpload = false;
+                copy(exchange.getRequestBody(), DROP_AFTER);
+                // Closing without response headers closes the connection, as a dropped network would
+                exchange.close();
+                return;
+            }
+            copy(exchange.getRequestBody(), Integer.MAX_VALUE);
+            respond(exchange, 200, "{\"file\": {\"name\": \"files/answer-1\", \"uri\": \""
+                    + baseUrl() + "/v1beta/files/answer-1\", \"state\": \"PROCESSING\"}}");
+        } else if (path.equals("/v1beta/files/answer-1")) {
+            respond(exchange, 200, "{\"name\": \"files/answer-1\", \"uri\": \""
+                    + baseUrl() + "/v1beta/files/answer-1\", \"state\": \"ACTIVE\"}");
+        } else {
+            respond(exchange, 404, "{}");
+        }
+    }
+
+    /**
+     * Stores up to a number of bytes of a request body in {@link #received}.
+     *
+     * @param in    The request body.
+     * @param limit The maximum number of bytes to store.
+     * @throws IOException If reading fails.
+     */
+    private void copy(InputStream in, int limit) throws IOException {
+        byte[] buffer = new byte[4096];
+        int remaining = limit;
+        int read;
+        while (remaining > 0 && (read = in.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+            received.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Reads and discards a request body.
+     *
+     * @param in The request body.
+     * @throws IOException If reading fails.
+     */
+    private void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (in.read(buffer) != -1) {
+            // Discard
+        }
+    }
+
+    /**
+     * Sends a response.
+     *
+     * @param exchange The call.
+     * @param status   The HTTP status.
+     * @param body     The response body.
+     * @throws IOException If writing fails.
+     */
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the test file back.
+     *
+     * @return The content of the test file.
+     * @throws IOException If reading fails.
+     */
+    private byte[] readFile() throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link GradingCache}.
+ */
+public class GradingCacheTest {
+    /**
+     * A response worth caching.
+     */
+    private static final String RESPONSE = "{\"score\": 80}";
+
+    /**
+     * The directory holding the cache entries.
+     */
+    private File dir;
+
+    /**
+     * Creates the cache directory.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("grading").toFile();
+    }
+
+    /**
+     * Deletes the cache directory.
+     */
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * The same prompt, audio and MIME types always give the same key.
+     */
+    @Test
+    public void buildKey_isStableForSameInput() {
+        String first = GradingCache.buildKey("prompt", audio("abc"), mime("audio/aac"));
+        String second = GradingCache.buildKey("prompt", audio("abc"), mime("audio/aac"));
+
+        assertEquals(first, second);
+        assertEquals(64, first.length());
+    }
+
+    /**
+     * Changing the prompt, the audio or its MIME type changes the key.
+     */
+    @Test
+    public void buildKey_changesWithAnyPart() {
+        String key = GradingCache.buildKey("prompt", audio("abc"), mime("audio/aac"));
+
+        assertNotEquals(key, GradingCache.buildKey("prompt2", audio("abc"), mime("audio/aac")));
+        assertNotEquals(key, GradingCache.buildKey("prompt", audio("abd"), mime("audio/aac")));
+        assertNotEquals(key, GradingCache.buildKey("prompt", audio("abc"), mime("audio/mp4")));
+    }
+
+    /**
+     * Hashing audio files gives the same key as hashing their bytes.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Test
+    public void buildFileKey_matchesBuildKey() throws IOException {
+        File file = new File(dir, "answer.aac");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write("abc".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(GradingCache.buildKey("prompt", audio("abc"), mime("audio/aac")),
+                GradingCache.buildFileKey("prompt", Collections.singletonList(file), mime("audio/aac")));
+    }
+
+    /**
+     * A stored response is returned and counted as a hit; an unknown key is a miss.
+     */
+    @Test
+    public void get_returnsStoredResponse() {
+        GradingCache cache = new GradingCache(dir, 3);
+
+        cache.put("a", RESPONSE);
+
+        assertEquals(RESPONSE, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Once the cache is full, the least recently used entry is evicted and its file deleted.
+     */
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        GradingCache cache = new GradingCache(dir, 3);
+        cache.put("a", RESPONSE);
+        cache.put("b", RESPONSE);
+        cache.put("c", RESPONSE);
+
+        // Reading "a" makes "b" the least recently used entry
+        cache.get("a");
+        cache.put("d", RESPONSE);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("b"));
+        assertFalse(new File(dir, "b").exists());
+        assertEquals(RESPONSE, cache.get("a"));
+        assertEquals(RESPONSE, cache.get("c"));
+        assertEquals(RESPONSE, cache.get("d"));
+    }
+
+    /**
+     * Responses that are not JSON are not cached, so a retry goes back to the model.
+     */
+    @Test
+    public void put_skipsMalformedResponses() {
+        GradingCache cache = new GradingCache(dir, 3);
+
+        cache.put("a", "Sorry, I cannot grade this.");
+        cache.put("b", null);
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    /**
+     * A removed response is no longer served and its file is deleted.
+     */
+    @Test
+    public void remove_forgetsTheResponse() {
+        GradingCache cache = new GradingCache(dir, 3);
+        cache.put("a", RESPONSE);
+
+        cache.remove("a");
+        cache.remove("b");
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+        assertFalse(new File(dir, "a").exists());
+    }
+
+    /**
+     * Entries written by one instance are found by the next one over the same directory.
+     */
+    @Test
+    public void constructor_restoresEntriesFromDisk() {
+        new GradingCache(dir, 3).put("a", RESPONSE);
+
+        GradingCache reopened = new GradingCache(dir, 3);
+
+        assertEquals(1, reopened.size());
+        assertEquals(RESPONSE, reopened.get("a"));
+        assertTrue(new File(dir, "a").exists());
+    }
+
+    /**
+     * Wraps text as the audio of a single file.
+     *
+     * @param text The audio content.
+     * @return The list of file contents.
+     */
+    private static List<byte[]> audio(String text) {
+        return Collections.singletonList(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wraps a MIME type for a single file.
+     *
+     * @param mimeType The MIME type.
+     * @return The list of MIME types.
+     */
+    private static List<String> mime(String mimeType) {
+        return Arrays.asList(mimeType);
+    }
+}
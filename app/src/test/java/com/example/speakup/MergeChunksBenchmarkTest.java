@@ -0,0 +1,169 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares merging recording chunks with {@link RecordingManager#appendChunks} (transferTo)
+ * against the previous approach of reading every chunk into a byte array.
+ * <p>
+ * Timings are printed for reference only; the test asserts the merged content and that the
+ * transferTo merge allocates far less heap than the recording it copies.
+ * </p>
+ */
+public class MergeChunksBenchmarkTest {
+    /**
+     * Number of chunks of the simulated recording (one per pause).
+     */
+    private static final int CHUNK_COUNT = 20;
+
+    /**
+     * Size of each chunk, in bytes.
+     */
+    private static final int CHUNK_SIZE = 512 * 1024;
+
+    /**
+     * Number of timed runs of each approach, after one warm-up run.
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Directory holding the chunks and merged files.
+     */
+    private File dir;
+
+    /**
+     * The chunk files, in order.
+     */
+    private final List<File> chunks = new ArrayList<>();
+
+    /**
+     * The expected merged content.
+     */
+    private byte[] expected;
+
+    /**
+     * Writes the chunk files.
+     *
+     * @throws IOException If a chunk cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("merge").toFile();
+        Random random = new Random(7);
+        expected = new byte[CHUNK_COUNT * CHUNK_SIZE];
+        random.nextBytes(expected);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            File chunk = new File(dir, "chunk_" + i + ".aac");
+            try (OutputStream out = new FileOutputStream(chunk)) {
+                out.write(expected, i * CHUNK_SIZE, CHUNK_SIZE);
+            }
+            chunks.add(chunk);
+        }
+    }
+
+    /**
+     * Deletes the chunk and merged files.
+     */
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Merges the chunks both ways, checks the results and reports time and heap allocation.
+     *
+     * @throws IOException If merging fails.
+     */
+    @Test
+    public void transferToMerge_matchesByteArrayMergeWithConstantHeap() throws IOException {
+        File transferred = new File(dir, "transferTo.aac");
+        File copied = new File(dir, "byteArray.aac");
+
+        RecordingManager.appendChunks(chunks, transferred);
+        mergeWithByteArrays(chunks, copied);
+        assertArrayEquals(expected, Files.readAllBytes(transferred.toPath()));
+        assertArrayEquals(expected, Files.readAllBytes(copied.toPath()));
+
+        long transferNanos = 0;
+        long copyNanos = 0;
+        long transferBytes = 0;
+        long copyBytes = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            RecordingManager.appendChunks(chunks, transferred);
+            transferNanos += System.nanoTime() - start;
+            transferBytes += allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            mergeWithByteArrays(chunks, copied);
+            copyNanos += System.nanoTime() - start;
+            copyBytes += allocatedBytes() - allocated;
+        }
+
+        System.out.println("Merging " + CHUNK_COUNT + " x " + CHUNK_SIZE / 1024 + " KB chunks, mean of " + RUNS + " runs:");
+        System.out.println("  transferTo: " + transferNanos / RUNS / 1000 + " us, "
+                + transferBytes / RUNS / 1024 + " KB allocated");
+        System.out.println("  byte[]:     " + copyNanos / RUNS / 1000 + " us, "
+                + copyBytes / RUNS / 1024 + " KB allocated");
+
+        if (transferBytes >= 0 && copyBytes > 0) {
+            // Allocation tracking is available: transferTo must not copy through the heap
+            assertTrue(transferBytes / RUNS < CHUNK_SIZE);
+            assertTrue(copyBytes / RUNS >= (long) CHUNK_COUNT * CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * The merge used before transferTo: every chunk is read into a byte array and written out.
+     *
+     * @param chunks    The chunk files, in order.
+     * @param finalFile The file to write.
+     * @throws IOException If merging fails.
+     */
+    private static void mergeWithByteArrays(List<File> chunks, File finalFile) throws IOException {
+        try (OutputStream out = new FileOutputStream(finalFile)) {
+            for (File chunk : chunks) {
+                out.write(Files.readAllBytes(chunk.toPath()));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Returns the heap allocated by the current thread so far, if the JVM tracks it.
+     *
+     * @return The allocated bytes, or -1 if unknown.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks, on an SQLite database with the app's schema, that the paged reads of
+ * {@link RecordingRepository} are served by the sort indexes of {@link SpeakUpDatabase}
+ * without a sort step, and times deep pages against the same query without them.
+ */
+public class PageQueryPlanTest {
+    /**
+     * Number of users whose rows are mixed in the tables.
+     */
+    private static final int USERS = 3;
+
+    /**
+     * Number of recordings (and simulations) per user.
+     */
+    private static final int ROWS_PER_USER = 3000;
+
+    /**
+     * Number of questions in the question bank.
+     */
+    private static final int QUESTIONS = 200;
+
+    /**
+     * Categories of the question bank.
+     */
+    private static final String[] CATEGORIES = {"Personal Questions", "Project Questions", "Video Clip Questions"};
+
+    /**
+     * Rows per page, as read by the recordings screen.
+     */
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * The in-memory database.
+     */
+    private Connection db;
+
+    /**
+     * Creates the schema and fills it with random rows.
+     *
+     * @throws SQLException If the database cannot be set up.
+     */
+    @Before
+    public void setUp() throws SQLException {
+        db = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = db.createStatement()) {
+            for (String sql : SpeakUpDatabase.MIRROR_SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+
+        Random random = new Random(3);
+        db.setAutoCommit(false);
+        try (PreparedStatement question = db.prepareStatement("INSERT INTO "
+                + SpeakUpDatabase.TABLE_QUESTIONS + " (question_id, category) VALUES (?, ?)")) {
+            for (int i = 0; i < QUESTIONS; i++) {
+                question.setString(1, "q" + i);
+                question.setString(2, CATEGORIES[i % CATEGORIES.length]);
+                question.executeUpdate();
+            }
+        }
+        try (PreparedStatement recording = db.prepareStatement("INSERT INTO "
+                + SpeakUpDatabase.TABLE_RECORDINGS + " (recording_id, user_id, question_id, date_recorded, score)"
+                + " VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement simulation = db.prepareStatement("INSERT INTO "
+                + SpeakUpDatabase.TABLE_SIMULATIONS + " (simulation_id, user_id, date_completed, overall_score)"
+                + " VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < USERS * ROWS_PER_USER; i++) {
+                String userId = "user" + (i % USERS);
+                recording.setString(1, "r" + i);
+                recording.setString(2, userId);
+                recording.setString(3, "q" + random.nextInt(QUESTIONS));
+                recording.setLong(4, random.nextInt(1000000));
+                // Few distinct scores, so the ID tie-breaker matters
+                recording.setInt(5, random.nextInt(101));
+                recording.executeUpdate();
+
+                simulation.setString(1, "s" + i);
+                simulation.setString(2, userId);
+                simulation.setLong(3, random.nextInt(1000000));
+                simulation.setInt(4, random.nextInt(101));
+                simulation.executeUpdate();
+            }
+        }
+        db.commit();
+        db.setAutoCommit(true);
+    }
+
+    /**
+     * Closes the database.
+     *
+     * @throws SQLException If closing fails.
+     */
+    @After
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    /**
+     * Every recordings page, with and without a category, in both sort orders and directions,
+     * walks the matching sort index and needs no temporary sort.
+     *
+     * @throws SQLException If a query fails.
+     */
+    @Test
+    public void recordingsPage_readsSortIndexWithoutSorting() throws SQLException {
+        for (boolean byCategory : new boolean[]{false, true}) {
+            for (boolean byScore : new boolean[]{false, true}) {
+                for (boolean ascending : new boolean[]{false, true}) {
+                    String sql = RecordingRepository.recordingsPageSql(byCategory, byScore, ascending);
+                    String plan = explain(sql, recordingArgs(byCategory, 0));
+                    assertFalse(plan, plan.contains("TEMP B-TREE"));
+                    assertTrue(plan, plan.contains(byScore ? "idx_recordings_score" : "idx_recordings_date"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Every simulations page, in both sort orders and directions, walks the matching sort
+     * index and needs no temporary sort.
+     *
+     * @throws SQLException If a query fails.
+     */
+    @Test
+    public void simulationsPage_readsSortIndexWithoutSorting() throws SQLException {
+        for (boolean byScore : new boolean[]{false, true}) {
+            for (boolean ascending : new boolean[]{false, true}) {
+                String plan = explain(RecordingRepository.simulationsPageSql(byScore, ascending),
+                        new Object[]{"user1", PAGE_SIZE, 0});
+                assertFalse(plan, plan.contains("TEMP B-TREE"));
+                assertTrue(plan, plan.contains(byScore ? "idx_simulations_score" : "idx_simulations_date"));
+            }
+        }
+    }
+
+    /**
+     * Walking all pages returns every row of the user exactly once, in order, even with
+     * many equal scores.
+     *
+     * @throws SQLException If a query fails.
+     */
+    @Test
+    public void recordingsPages_coverEveryRowOnce() throws SQLException {
+        String sql = RecordingRepository.recordingsPageSql(false, true, false);
+        List<String> ids = new ArrayList<>();
+        int previousScore = Integer.MAX_VALUE;
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            List<String> page = new ArrayList<>();
+            try (PreparedStatement statement = prepare(sql, recordingArgs(false, offset));
+                 ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    int score = rows.getInt("score");
+                    assertTrue(score <= previousScore);
+                    previousScore = score;
+                    page.add(rows.getString("recording_id"));
+                }
+            }
+            if (page.isEmpty()) break;
+            ids.addAll(page);
+        }
+        assertEquals(ROWS_PER_USER, ids.size());
+        assertEquals(ROWS_PER_USER, new HashSet<>(ids).size());
+    }
+
+    /**
+     * Times a page deep into the list with the indexes and with the sort indexes dropped.
+     * The timings are printed for reference only.
+     *
+     * @throws SQLException If a query fails.
+     */
+    @Test
+    public void deepPage_benchmark() throws SQLException {
+        String sql = RecordingRepository.recordingsPageSql(true, false, false);
+        Object[] args = recordingArgs(true, ROWS_PER_USER / CATEGORIES.length / 2);
+        long indexed = timePage(sql, args);
+
+        try (Statement statement = db.createStatement()) {
+            statement.execute("DROP INDEX idx_recordings_date");
+            statement.execute("DROP INDEX idx_recordings_score");
+        }
+        long sorted = timePage(sql, args);
+
+        System.out.println("Deep category page of " + PAGE_SIZE + " recordings: "
+                + indexed / 1000 + " us with sort indexes, " + sorted / 1000 + " us without");
+    }
+
+    /**
+     * Builds the arguments of a recordings page of user1.
+     *
+     * @param byCategory True to filter by the first category.
+     * @param offset     The offset of the page.
+     * @return The query arguments.
+     */
+    private static Object[] recordingArgs(boolean byCategory, int offset) {
+        return byCategory
+                ? new Object[]{"user1", CATEGORIES[0], PAGE_SIZE, offset}
+                : new Object[]{"user1", PAGE_SIZE, offset};
+    }
+
+    /**
+     * Returns the query plan of a query, one step per line.
+     *
+     * @param sql  The query.
+     * @param args The query arguments.
+     * @return The plan.
+     * @throws SQLException If the query cannot be planned.
+     */
+    private String explain(String sql, Object[] args) throws SQLException {
+        StringBuilder plan = new StringBuilder(sql).append('\n');
+        try (PreparedStatement statement = prepare("EXPLAIN QUERY PLAN " + sql, args);
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                plan.append(rows.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Returns the mean time of reading a page, after a warm-up read.
+     *
+     * @param sql  The query.
+     * @param args The query arguments.
+     * @return The mean time, in nanoseconds.
+     * @throws SQLException If the query fails.
+     */
+    private long timePage(String sql, Object[] args) throws SQLException {
+        int runs = 20;
+        long total = 0;
+        for (int run = -1; run < runs; run++) {
+            long start = System.nanoTime();
+            try (PreparedStatement statement = prepare(sql, args);
+                 ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    rows.getString("recording_id");
+                }
+            }
+            if (run >= 0) total += System.nanoTime() - start;
+        }
+        return total / runs;
+    }
+
+    /**
+     * Prepares a statement and binds its arguments.
+     *
+     * @param sql  The statement.
+     * @param args The arguments.
+     * @return The prepared statement.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    private PreparedStatement prepare(String sql, Object[] args) throws SQLException {
+        PreparedStatement statement = db.prepareStatement(sql);
+        for (int i = 0; i < args.length; i++) {
+            statement.setObject(i + 1, args[i]);
+        }
+        return statement;
+    }
+}
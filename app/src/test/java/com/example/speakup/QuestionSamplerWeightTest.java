@@ -0,0 +1,106 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.speakup.Objects.Recording;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * Tests for the history weights of {@link QuestionSampler#weightOf}.
+ */
+public class QuestionSamplerWeightTest {
+    /**
+     * The current time used by the tests.
+     */
+    private static final long NOW = 1700000000000L;
+
+    /**
+     * Milliseconds in a day.
+     */
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /**
+     * Tolerance of the weight comparisons.
+     */
+    private static final double DELTA = 1e-9;
+
+    /**
+     * A question never answered outweighs any answered one.
+     */
+    @Test
+    public void weightOf_unseen_outweighsAnyAttempt() {
+        double unseen = QuestionSampler.weightOf(null, NOW);
+
+        assertEquals(3.0, unseen, DELTA);
+        assertTrue(unseen > QuestionSampler.weightOf(attempt(0, 365), NOW));
+    }
+
+    /**
+     * A perfect answer given just now weighs the minimum, so it can still be drawn.
+     */
+    @Test
+    public void weightOf_perfectFreshAnswer_weighsTheMinimum() {
+        assertEquals(0.1, QuestionSampler.weightOf(attempt(100, 0), NOW), DELTA);
+    }
+
+    /**
+     * A failed answer from long ago weighs the most an answered question can.
+     */
+    @Test
+    public void weightOf_failedStaleAnswer_weighsTheMaximum() {
+        assertEquals(2.1, QuestionSampler.weightOf(attempt(0, 14), NOW), DELTA);
+        assertEquals(2.1, QuestionSampler.weightOf(attempt(0, 100), NOW), DELTA);
+    }
+
+    /**
+     * For the same age, a lower score weighs more.
+     */
+    @Test
+    public void weightOf_lowerScore_weighsMore() {
+        assertTrue(QuestionSampler.weightOf(attempt(40, 3), NOW) > QuestionSampler.weightOf(attempt(80, 3), NOW));
+    }
+
+    /**
+     * For the same score, an older answer weighs more, up to the staleness period.
+     */
+    @Test
+    public void weightOf_olderAnswer_weighsMore() {
+        assertTrue(QuestionSampler.weightOf(attempt(70, 7), NOW) > QuestionSampler.weightOf(attempt(70, 1), NOW));
+        assertEquals(0.1 + 0.3 + 0.5, QuestionSampler.weightOf(attempt(70, 7), NOW), DELTA);
+    }
+
+    /**
+     * Scores out of range and answers dated in the future are clamped instead of giving
+     * negative weights.
+     */
+    @Test
+    public void weightOf_clampsOutOfRangeValues() {
+        assertEquals(0.1, QuestionSampler.weightOf(attempt(150, -5), NOW), DELTA);
+        assertEquals(0.1 + 1.0, QuestionSampler.weightOf(attempt(-20, 0), NOW), DELTA);
+    }
+
+    /**
+     * An answer without a date counts as fully stale.
+     */
+    @Test
+    public void weightOf_missingDate_countsAsStale() {
+        Recording recording = new Recording("user", "q1", "Q1", null, 100, null);
+
+        assertEquals(1.1, QuestionSampler.weightOf(recording, NOW), DELTA);
+    }
+
+    /**
+     * Builds a recording of an attempt.
+     *
+     * @param score   The score of the attempt.
+     * @param daysAgo How many days before {@link #NOW} it was recorded.
+     * @return The recording.
+     */
+    private static Recording attempt(int score, int daysAgo) {
+        return new Recording("user", "q1", "Q1", new Date(NOW - daysAgo * DAY_MS), score, null);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.speakup.Utils.StreamingJsonParser;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link StreamingJsonParser}.
+ */
+public class StreamingJsonParserTest {
+    /**
+     * A response whose strings contain braces, brackets, escaped quotes and backslashes,
+     * wrapped in a Markdown fence as the model sometimes sends it.
+     */
+    private static final String RESPONSE = "```json\n{\"recordings\": ["
+            + "{\"score\": 80, \"feedback\": \"Use \\\"because\\\" {more} often ]\", \"tips\": [\"a\", \"b\"]},"
+            + "{\"score\": 65, \"feedback\": \"Path C:\\\\ ends with a backslash\\\\\"},"
+            + "{\"score\": 90, \"feedback\": \"}]}\", \"detail\": {\"fluency\": 9}}"
+            + "]}\n```";
+
+    /**
+     * Collects the sections reported by a parser.
+     */
+    private static class Collector implements StreamingJsonParser.SectionListener {
+        /**
+         * The indexes reported, in order.
+         */
+        final List<Integer> indexes = new ArrayList<>();
+
+        /**
+         * The sections reported, in order.
+         */
+        final List<JSONObject> sections = new ArrayList<>();
+
+        /**
+         * Records a completed section.
+         *
+         * @param index   The index of the section.
+         * @param section The section.
+         */
+        @Override
+        public void onSectionComplete(int index, JSONObject section) {
+            indexes.add(index);
+            sections.add(section);
+        }
+    }
+
+    /**
+     * The whole response fed at once yields every section, with strings parsed intact.
+     */
+    @Test
+    public void feed_wholeResponse_reportsEverySection() {
+        Collector collector = new Collector();
+        StreamingJsonParser parser = new StreamingJsonParser(collector);
+
+        parser.feed(RESPONSE);
+
+        assertSections(collector);
+        assertEquals(RESPONSE, parser.getText());
+    }
+
+    /**
+     * Splitting the response in two at every position, including inside strings, between a
+     * backslash and the character it escapes, and inside a Markdown fence, gives the same sections.
+     */
+    @Test
+    public void feed_splitAtEveryPosition_reportsSameSections() {
+        for (int split = 0; split <= RESPONSE.length(); split++) {
+            Collector collector = new Collector();
+            StreamingJsonParser parser = new StreamingJsonParser(collector);
+
+            parser.feed(RESPONSE.substring(0, split));
+            parser.feed(RESPONSE.substring(split));
+
+            assertSections(collector);
+        }
+    }
+
+    /**
+     * Feeding one character at a time reports each section as soon as its closing brace arrives.
+     */
+    @Test
+    public void feed_oneCharacterAtATime_reportsSectionOnItsClosingBrace() {
+        Collector collector = new Collector();
+        StreamingJsonParser parser = new StreamingJsonParser(collector);
+        String firstSection = "{\"score\": 80, \"feedback\": \"Use \\\"because\\\" {more} often ]\", \"tips\": [\"a\", \"b\"]}";
+        int firstSectionEnd = RESPONSE.indexOf(firstSection) + firstSection.length();
+
+        for (int i = 0; i < RESPONSE.length(); i++) {
+            parser.feed(RESPONSE.substring(i, i + 1));
+            if (i + 1 < firstSectionEnd) {
+                assertEquals(0, parser.getSectionCount());
+            } else if (i + 1 == firstSectionEnd) {
+                assertEquals(1, parser.getSectionCount());
+            }
+        }
+
+        assertSections(collector);
+    }
+
+    /**
+     * Empty and null chunks are ignored.
+     */
+    @Test
+    public void feed_emptyChunks_areIgnored() {
+        Collector collector = new Collector();
+        StreamingJsonParser parser = new StreamingJsonParser(collector);
+
+        parser.feed(null);
+        parser.feed("");
+        parser.feed(RESPONSE);
+        parser.feed("");
+
+        assertSections(collector);
+    }
+
+    /**
+     * Checks the sections of {@link #RESPONSE}.
+     *
+     * @param collector The collector fed with the response.
+     */
+    private static void assertSections(Collector collector) {
+        assertEquals(3, collector.sections.size());
+        assertEquals(0, (int) collector.indexes.get(0));
+        assertEquals(1, (int) collector.indexes.get(1));
+        assertEquals(2, (int) collector.indexes.get(2));
+        assertEquals(80, collector.sections.get(0).getInt("score"));
+        assertEquals("Use \"because\" {more} often ]", collector.sections.get(0).getString("feedback"));
+        assertEquals("Path C:\\ ends with a backslash\\", collector.sections.get(1).getString("feedback"));
+        assertEquals("}]}", collector.sections.get(2).getString("feedback"));
+        assertEquals(9, collector.sections.get(2).getJSONObject("detail").getInt("fluency"));
+    }
+}
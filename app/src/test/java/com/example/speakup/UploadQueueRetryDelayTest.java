@@ -0,0 +1,46 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the exponential backoff of {@link UploadQueue#retryDelay}.
+ */
+public class UploadQueueRetryDelayTest {
+    /**
+     * The first retry waits the base delay.
+     */
+    @Test
+    public void retryDelay_firstAttempt_isBaseDelay() {
+        assertEquals(UploadQueue.BASE_RETRY_DELAY_MS, UploadQueue.retryDelay(1));
+    }
+
+    /**
+     * Each failed attempt doubles the delay until the cap.
+     */
+    @Test
+    public void retryDelay_doublesWithEachAttempt() {
+        long previous = UploadQueue.retryDelay(1);
+        for (int attempts = 2; UploadQueue.retryDelay(attempts) < UploadQueue.MAX_RETRY_DELAY_MS; attempts++) {
+            long delay = UploadQueue.retryDelay(attempts);
+            assertEquals(previous * 2, delay);
+            previous = delay;
+        }
+    }
+
+    /**
+     * The delay never grows past the cap, and never overflows, however many attempts failed.
+     */
+    @Test
+    public void retryDelay_isCappedForManyAttempts() {
+        for (int attempts = 1; attempts <= 100; attempts++) {
+            long delay = UploadQueue.retryDelay(attempts);
+            assertTrue(delay > 0);
+            assertTrue(delay <= UploadQueue.MAX_RETRY_DELAY_MS);
+        }
+        assertEquals(UploadQueue.MAX_RETRY_DELAY_MS, UploadQueue.retryDelay(30));
+        assertEquals(UploadQueue.MAX_RETRY_DELAY_MS, UploadQueue.retryDelay(Integer.MAX_VALUE));
+    }
+}
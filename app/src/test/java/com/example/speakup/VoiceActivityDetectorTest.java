@@ -0,0 +1,283 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link VoiceActivityDetector}.
+ */
+public class VoiceActivityDetectorTest {
+    /**
+     * Sampling rate of the generated audio, in Hz.
+     */
+    private static final int SAMPLE_RATE = 16000;
+
+    /**
+     * Size of the blocks fed to the detector, in bytes; not a multiple of the frame size.
+     */
+    private static final int BLOCK_BYTES = 1234;
+
+    /**
+     * Speech between two silences keeps only the margins around it.
+     */
+    @Test
+    public void speechBetweenSilences_trimsLeadingAndTrailingSilence() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, noise(3000, 50, 1));
+        feed(vad, tone(1000, 8000));
+        feed(vad, noise(3000, 50, 2));
+        vad.finish();
+
+        assertTrue(vad.hasSpeech());
+        // 200 ms before the first word, the word, and 200 ms of hangover after it
+        assertEquals(1400, vad.getKeptMs());
+        assertEquals(7000 - 1400, vad.getTrimmedMs());
+        assertTrue(vad.hasTrimmedAudio());
+        assertFalse(vad.isKept(0, samples(2800)));
+        assertTrue(vad.isKept(samples(2800), samples(2820)));
+        assertTrue(vad.isKept(samples(4180), samples(4200)));
+        assertFalse(vad.isKept(samples(4200), samples(7000)));
+    }
+
+    /**
+     * Words spoken right at the start are kept: the noise floor comes from the quietest frame
+     * of the calibration window, not from the first frame.
+     */
+    @Test
+    public void speechAtStart_isNotClipped() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, tone(500, 8000));
+        feed(vad, noise(3000, 50, 8));
+        vad.finish();
+
+        assertTrue(vad.hasSpeech());
+        assertTrue(vad.isKept(0, samples(20)));
+        // The word and 200 ms of hangover after it
+        assertEquals(700, vad.getKeptMs());
+    }
+
+    /**
+     * A speaker too quiet to be detected is still not reported as silent, so the answer is
+     * graded instead of scored as empty.
+     */
+    @Test
+    public void quietSpeaker_isNotSilent() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, noise(1000, 20, 9));
+        feed(vad, tone(2000, 250));
+        feed(vad, noise(1000, 20, 10));
+        vad.finish();
+
+        assertFalse(vad.hasSpeech());
+        assertFalse(vad.isSilent());
+    }
+
+    /**
+     * A range is kept as soon as one of the frames it overlaps is, even partly.
+     */
+    @Test
+    public void isKept_matchesPartlyOverlappingFrames() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, noise(3000, 50, 1));
+        feed(vad, tone(1000, 8000));
+        feed(vad, noise(3000, 50, 2));
+        vad.finish();
+
+        assertTrue(vad.isKept(samples(2800) - 1, samples(2800) + 1));
+        assertTrue(vad.isKept(samples(4200) - 1, samples(4200) + 1));
+        assertFalse(vad.isKept(samples(2800) - 1, samples(2800)));
+        assertFalse(vad.isKept(samples(3000), samples(3000)));
+    }
+
+    /**
+     * A recording without speech keeps its audio instead of producing an empty file.
+     */
+    @Test
+    public void allSilent_keepsTheSilence() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, noise(5000, 50, 3));
+        assertEquals(0, vad.getKeptMs());
+        vad.finish();
+
+        assertFalse(vad.hasSpeech());
+        assertTrue(vad.isSilent());
+        assertEquals(5000, vad.getKeptMs());
+        assertEquals(0, vad.getTrimmedMs());
+        assertFalse(vad.hasTrimmedAudio());
+        assertTrue(vad.isKept(0, samples(5000)));
+    }
+
+    /**
+     * Digital silence is kept too, as the file must still be playable.
+     */
+    @Test
+    public void allDigitalZero_keepsTheSilence() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, new byte[SAMPLE_RATE * 2 * 2]);
+        vad.finish();
+
+        assertFalse(vad.hasSpeech());
+        assertEquals(2000, vad.getKeptMs());
+    }
+
+    /**
+     * A long silent recording keeps at most the held-back amount of its silence.
+     */
+    @Test
+    public void longSilence_keepsAtMostThirtySeconds() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, noise(40000, 50, 4));
+        vad.finish();
+
+        assertFalse(vad.hasSpeech());
+        assertEquals(30000, vad.getKeptMs());
+        assertEquals(10000, vad.getTrimmedMs());
+        assertFalse(vad.isKept(0, samples(10000)));
+    }
+
+    /**
+     * Digital silence at the start (as some microphones produce while starting) does not pin
+     * the noise floor to zero, so steady background noise is still not taken for speech.
+     */
+    @Test
+    public void digitalZeroFirstFrames_doNotMakeNoiseLookLikeSpeech() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, new byte[SAMPLE_RATE * 2 / 10]);
+        feed(vad, noise(5000, 400, 5));
+        assertFalse(vad.hasSpeech());
+
+        feed(vad, tone(1000, 8000));
+        assertTrue(vad.hasSpeech());
+    }
+
+    /**
+     * Long pauses between words are shortened and reported when compression is enabled.
+     */
+    @Test
+    public void longPause_isCompressedAndReported() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, true);
+
+        feed(vad, noise(500, 50, 7));
+        feed(vad, tone(1000, 8000));
+        feed(vad, noise(4000, 50, 6));
+        feed(vad, tone(1000, 8000));
+        vad.finish();
+
+        assertEquals(1, vad.getLongPauseCount());
+        // The first 200 ms of the pause are the hangover of the first word
+        assertEquals(3800, vad.getLongestPauseMs());
+        assertEquals(3800 - VoiceActivityDetector.KEPT_PAUSE_MS, vad.getCompressedPauseMs());
+        // The pause keeps its hangover and then KEPT_PAUSE_MS of silence
+        assertTrue(vad.isKept(samples(2680), samples(2700)));
+        assertFalse(vad.isKept(samples(2700), samples(5500)));
+        assertTrue(vad.isKept(samples(5500), samples(5520)));
+    }
+
+    /**
+     * Without compression a long pause is kept whole.
+     */
+    @Test
+    public void longPause_isKeptWithoutCompression() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+
+        feed(vad, noise(500, 50, 7));
+        feed(vad, tone(1000, 8000));
+        feed(vad, noise(4000, 50, 6));
+        feed(vad, tone(1000, 8000));
+        vad.finish();
+
+        assertEquals(1, vad.getLongPauseCount());
+        assertEquals(0, vad.getCompressedPauseMs());
+        // Only the leading silence before the 200 ms margin is left out
+        assertEquals(6200, vad.getKeptMs());
+        assertTrue(vad.isKept(samples(300), samples(6500)));
+        assertFalse(vad.isKept(0, samples(300)));
+    }
+
+    /**
+     * Feeds audio to a detector in blocks that do not line up with its frames.
+     *
+     * @param vad The detector.
+     * @param pcm The audio.
+     */
+    private static void feed(VoiceActivityDetector vad, byte[] pcm) {
+        byte[] block = new byte[BLOCK_BYTES];
+        for (int offset = 0; offset < pcm.length; offset += BLOCK_BYTES) {
+            int length = Math.min(BLOCK_BYTES, pcm.length - offset);
+            System.arraycopy(pcm, offset, block, 0, length);
+            vad.process(block, length);
+        }
+    }
+
+    /**
+     * Converts a time in the generated audio to a sample position.
+     *
+     * @param ms The time, in milliseconds.
+     * @return The sample position.
+     */
+    private static long samples(int ms) {
+        return (long) SAMPLE_RATE * ms / 1000;
+    }
+
+    /**
+     * Generates uniform background noise.
+     *
+     * @param ms   The duration, in milliseconds.
+     * @param rms  The RMS level of the noise.
+     * @param seed The random seed.
+     * @return The audio, 16-bit little endian.
+     */
+    private static byte[] noise(int ms, int rms, long seed) {
+        Random random = new Random(seed);
+        // A uniform distribution over [-a, a] has an RMS of a / sqrt(3)
+        double amplitude = rms * Math.sqrt(3);
+        short[] samples = new short[SAMPLE_RATE * ms / 1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) ((random.nextDouble() * 2 - 1) * amplitude);
+        }
+        return toBytes(samples);
+    }
+
+    /**
+     * Generates a 440 Hz tone standing in for speech.
+     *
+     * @param ms        The duration, in milliseconds.
+     * @param amplitude The peak amplitude.
+     * @return The audio, 16-bit little endian.
+     */
+    private static byte[] tone(int ms, int amplitude) {
+        short[] samples = new short[SAMPLE_RATE * ms / 1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE) * amplitude);
+        }
+        return toBytes(samples);
+    }
+
+    /**
+     * Encodes samples as 16-bit little endian PCM.
+     *
+     * @param samples The samples.
+     * @return The PCM bytes.
+     */
+    private static byte[] toBytes(short[] samples) {
+        byte[] pcm = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            pcm[2 * i] = (byte) samples[i];
+            pcm[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.speakup;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Tests for {@link RecordingManager#writeKeptFrames}, which cuts the grading copy of a
+ * recording.
+ */
+public class WriteKeptFramesTest {
+    /**
+     * Sampling rate of the generated audio, in Hz.
+     */
+    private static final int SAMPLE_RATE = 16000;
+
+    /**
+     * Directory holding the stream and its copy.
+     */
+    private File dir;
+
+    /**
+     * Creates the directory.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("kept").toFile();
+    }
+
+    /**
+     * Deletes the directory.
+     */
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Only the frames overlapping kept audio are copied, in order, and the source is left as is.
+     *
+     * @throws IOException If a file cannot be written.
+     */
+    @Test
+    public void copiesOnlyFramesOverlappingKeptAudio() throws IOException {
+        // 3 s of silence, 1 s of speech, 3 s of silence: frames 0 to 109 of 1024 samples
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+        byte[] silence = noise(3000);
+        byte[] tone = tone(1000);
+        vad.process(silence, silence.length);
+        vad.process(tone, tone.length);
+        vad.process(silence, silence.length);
+        vad.finish();
+
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Random random = new Random(1);
+        for (int k = 0; k < 110; k++) {
+            byte[] frame = adtsFrame(50 + random.nextInt(300), k);
+            source.write(frame);
+            // Kept audio runs from 2800 ms to 4200 ms, that is samples 44800 to 67200
+            if ((k + 1) * 1024 > 44800 && k * 1024 < 67200) {
+                expected.write(frame);
+            }
+        }
+        File stream = write("stream.aac", source.toByteArray());
+        File copy = new File(dir, "copy.aac");
+
+        RecordingManager.writeKeptFrames(stream, copy, vad);
+
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(copy.toPath()));
+        assertArrayEquals(source.toByteArray(), Files.readAllBytes(stream.toPath()));
+    }
+
+    /**
+     * A file that is not an ADTS stream is rejected instead of being copied blindly.
+     *
+     * @throws IOException If a file cannot be written.
+     */
+    @Test(expected = IOException.class)
+    public void rejectsNonAdtsStreams() throws IOException {
+        VoiceActivityDetector vad = new VoiceActivityDetector(SAMPLE_RATE, 1, false);
+        vad.finish();
+        File stream = write("stream.aac", new byte[100]);
+
+        RecordingManager.writeKeptFrames(stream, new File(dir, "copy.aac"), vad);
+    }
+
+    /**
+     * Builds an ADTS frame whose payload is filled with a marker byte.
+     *
+     * @param payloadSize The size of the payload, in bytes.
+     * @param marker      The payload byte.
+     * @return The frame, including its 7-byte header.
+     */
+    private static byte[] adtsFrame(int payloadSize, int marker) {
+        int length = payloadSize + 7;
+        byte[] frame = new byte[length];
+        frame[0] = (byte) 0xFF;
+        frame[1] = (byte) 0xF1;
+        frame[2] = (byte) 0x60;
+        frame[3] = (byte) (0x40 | (length >> 11));
+        frame[4] = (byte) (length >> 3);
+        frame[5] = (byte) (((length & 7) << 5) | 0x1F);
+        frame[6] = (byte) 0xFC;
+        for (int i = 7; i < length; i++) frame[i] = (byte) marker;
+        return frame;
+    }
+
+    /**
+     * Generates quiet background noise.
+     *
+     * @param ms The duration, in milliseconds.
+     * @return The audio, 16-bit little endian.
+     */
+    private static byte[] noise(int ms) {
+        Random random = new Random(2);
+        byte[] pcm = new byte[SAMPLE_RATE * ms / 1000 * 2];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            short sample = (short) (random.nextInt(161) - 80);
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    /**
+     * Generates a 440 Hz tone standing in for speech.
+     *
+     * @param ms The duration, in milliseconds.
+     * @return The audio, 16-bit little endian.
+     */
+    private static byte[] tone(int ms) {
+        byte[] pcm = new byte[SAMPLE_RATE * ms / 1000 * 2];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            short sample = (short) (Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE) * 8000);
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    /**
+     * Writes a file in the test directory.
+     *
+     * @param name    The file name.
+     * @param content The content.
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(dir, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+}